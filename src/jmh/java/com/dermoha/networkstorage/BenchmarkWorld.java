@@ -0,0 +1,138 @@
+package com.dermoha.networkstorage;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Container;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Proxy-backed world for benchmarks: every chunk is loaded and every
+ * registered block is a container with fixed contents, so measurements see
+ * only the plugin's own work.  Like Paper, {@code getState()} and
+ * {@code getState(true)} return a snapshot holding copies of the items, while
+ * {@code getState(false)} returns the block's live container.
+ */
+public final class BenchmarkWorld {
+
+    private final UUID uid = UUID.randomUUID();
+    private final Map<Long, Block> blocks = new HashMap<>();
+    private final List<Location> locations = new ArrayList<>();
+    private final World world;
+    private final Block empty;
+
+    public BenchmarkWorld(String name) {
+        Chunk chunk = proxy(Chunk.class, (proxy, method, args) -> defaultValue(method.getReturnType()));
+        this.world = proxy(World.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getUID" -> uid;
+            case "getName" -> name;
+            case "isChunkLoaded", "loadChunk" -> true;
+            case "getChunkAtAsync" -> CompletableFuture.completedFuture(chunk);
+            case "getBlockAt" -> args.length == 1 && args[0] instanceof Location location
+                    ? blockAt(location.getBlockX(), location.getBlockY(), location.getBlockZ())
+                    : blockAt((int) args[0], (int) args[1], (int) args[2]);
+            default -> defaultValue(method.getReturnType());
+        });
+        BlockState air = proxy(BlockState.class, (proxy, method, args) -> defaultValue(method.getReturnType()));
+        this.empty = proxy(Block.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getState" -> air;
+            case "getType" -> Material.AIR;
+            default -> defaultValue(method.getReturnType());
+        });
+    }
+
+    public World world() {
+        return world;
+    }
+
+    public List<Location> locations() {
+        return locations;
+    }
+
+    public Location addContainer(int x, int y, int z, ItemStack... contents) {
+        Container container = container(inventory(contents));
+        blocks.put(key(x, y, z), proxy(Block.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getState" -> args != null && Boolean.FALSE.equals(args[0]) ? container : snapshot(contents);
+            case "getType" -> Material.CHEST;
+            default -> defaultValue(method.getReturnType());
+        }));
+        Location location = new Location(world, x, y, z);
+        locations.add(location);
+        return location;
+    }
+
+    /** An inventory holding exactly {@code contents}, with one slot per element. */
+    public static Inventory inventory(ItemStack... contents) {
+        return proxy(Inventory.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getSize" -> contents.length;
+            case "getContents" -> contents.clone();
+            default -> defaultValue(method.getReturnType());
+        });
+    }
+
+    private static Container container(Inventory inventory) {
+        return proxy(Container.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getInventory" -> inventory;
+            default -> defaultValue(method.getReturnType());
+        });
+    }
+
+    private static Container snapshot(ItemStack[] contents) {
+        ItemStack[] copies = new ItemStack[contents.length];
+        for (int slot = 0; slot < contents.length; slot++) {
+            copies[slot] = contents[slot] == null ? null : contents[slot].clone();
+        }
+        return container(inventory(copies));
+    }
+
+    private Block blockAt(int x, int y, int z) {
+        return blocks.getOrDefault(key(x, y, z), empty);
+    }
+
+    private static long key(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    public static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return switch (method.getName()) {
+                            case "equals" -> proxy == args[0];
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            case "toString" -> type.getSimpleName() + "Proxy";
+                            default -> null;
+                        };
+                    }
+                    return handler.invoke(proxy, method, args);
+                }));
+    }
+
+    private static Object defaultValue(Class<?> returnType) {
+        if (!returnType.isPrimitive()) {
+            return null;
+        }
+        if (returnType == boolean.class) return false;
+        if (returnType == byte.class) return (byte) 0;
+        if (returnType == short.class) return (short) 0;
+        if (returnType == int.class) return 0;
+        if (returnType == long.class) return 0L;
+        if (returnType == float.class) return 0.0f;
+        if (returnType == double.class) return 0.0d;
+        if (returnType == char.class) return '\0';
+        return null;
+    }
+}
@@ -0,0 +1,77 @@
+package com.dermoha.networkstorage;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Stand-in for a stack with large item meta (a custom name and many lore
+ * lines).  Like a real stack it compares and hashes the whole meta on every
+ * call, which is the cost aggregation has to avoid paying per slot.
+ */
+public final class MetaHeavyItemStack extends ItemStack {
+    private final Material type;
+    private final String name;
+    private final List<String> lore;
+    private int amount;
+
+    public MetaHeavyItemStack(Material type, String name, List<String> lore, int amount) {
+        super();
+        this.type = type;
+        this.name = name;
+        this.lore = List.copyOf(lore);
+        this.amount = amount;
+    }
+
+    @Override
+    public Material getType() {
+        return type;
+    }
+
+    @Override
+    public int getAmount() {
+        return amount;
+    }
+
+    @Override
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+
+    @Override
+    public int getMaxStackSize() {
+        return 64;
+    }
+
+    @Override
+    public boolean hasItemMeta() {
+        return false;
+    }
+
+    @Override
+    public boolean isSimilar(ItemStack other) {
+        return other instanceof MetaHeavyItemStack item
+                && type == item.type
+                && name.equals(item.name)
+                && lore.equals(item.lore);
+    }
+
+    @Override
+    public ItemStack clone() {
+        return new MetaHeavyItemStack(type, name, lore, amount);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof MetaHeavyItemStack item
+                && amount == item.amount
+                && isSimilar(item);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type.name(), name, lore, amount);
+    }
+}
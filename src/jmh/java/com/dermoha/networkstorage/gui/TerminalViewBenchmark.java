@@ -0,0 +1,79 @@
+package com.dermoha.networkstorage.gui;
+
+import com.dermoha.networkstorage.MetaHeavyItemStack;
+import com.dermoha.networkstorage.storage.ItemCountMap;
+import com.dermoha.networkstorage.storage.ItemCounts;
+import com.dermoha.networkstorage.storage.ItemKey;
+import com.dermoha.networkstorage.util.ItemSearchTerms;
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a terminal view: filtering a large network's contents through the
+ * search index and sorting what is left, as {@link TerminalViewCache} does
+ * when the contents change.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerminalViewBenchmark {
+
+    @Param({"1000", "10000"})
+    public int itemTypes;
+
+    @Param({"", "ingot", "sharpness iv"})
+    public String filter;
+
+    @Param({"ALPHABETICAL", "COUNT_DESC"})
+    public TerminalGUI.SortType sortType;
+
+    private final Map<ItemKey, ItemSearchTerms> terms = new HashMap<>();
+    private ItemSearchIndex index;
+    private ItemCounts items;
+
+    @Setup
+    public void setUp() {
+        Material[] materials = {Material.IRON_INGOT, Material.GOLD_INGOT, Material.DIAMOND_SWORD,
+                Material.ENCHANTED_BOOK, Material.OAK_PLANKS, Material.REDSTONE};
+        ItemCountMap counts = new ItemCountMap();
+        for (int i = 0; i < itemTypes; i++) {
+            Material material = materials[i % materials.length];
+            ItemKey key = ItemKey.of(new MetaHeavyItemStack(material, "Item #" + i, List.of(), 1));
+            String name = material.name().toLowerCase(Locale.ROOT);
+            List<ItemSearchTerms.EnchantmentTerms> enchantments = i % 3 == 0
+                    ? List.of(ItemSearchTerms.EnchantmentTerms.of("sharpness", 1 + i % 5))
+                    : List.of();
+            terms.put(key, new ItemSearchTerms("item #" + i, name, name.replace('_', ' '), enchantments));
+            counts.add(key, 1L + (i * 7919L) % 100_000L);
+            // Names are cached on the key, as they are once a terminal has shown the item.
+            key.sortableName();
+        }
+        items = counts.freeze();
+        index = new ItemSearchIndex(terms::get);
+        index.filter(items, filter);
+    }
+
+    @Benchmark
+    public List<ItemCounts.Entry> filterAndSort() {
+        return TerminalGUI.sortEntries(index.filter(items, filter), sortType);
+    }
+}
@@ -0,0 +1,77 @@
+package com.dermoha.networkstorage.managers;
+
+import com.dermoha.networkstorage.BenchmarkWorld;
+import org.bukkit.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * The index probes behind {@code NetworkManager.getNetworkByLocation}: a
+ * registered block, and a block beside one, which also checks the horizontal
+ * neighbours for a double chest.  The manager itself needs a running plugin,
+ * so it is not constructed here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockPositionIndexBenchmark {
+
+    private static final int NETWORKS = 32;
+
+    @Param({"1000", "100000"})
+    public int positions;
+
+    private final BlockPositionIndex index = new BlockPositionIndex(Logger.getLogger("BlockPositionIndexBenchmark"));
+    private Location[] registered;
+    private Location[] beside;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        BenchmarkWorld world = new BenchmarkWorld("benchmark");
+        index.clear();
+        registered = new Location[positions];
+        beside = new Location[positions];
+        for (int i = 0; i < positions; i++) {
+            // Chests three blocks apart on a square grid.
+            int x = (i % 512) * 3;
+            int z = (i / 512) * 3;
+            registered[i] = new Location(world.world(), x, 64, z);
+            beside[i] = new Location(world.world(), x + 1, 64, z);
+            index.put(registered[i], i % NETWORKS, BlockPositionIndex.Role.CHEST);
+        }
+    }
+
+    @Benchmark
+    public int registeredBlock() {
+        return index.networkAt(registered[next()]);
+    }
+
+    @Benchmark
+    public boolean blockBesideAChest() {
+        Location location = beside[next()];
+        return index.networkAt(location) == BlockPositionIndex.NONE
+                && index.hasHorizontalNeighbour(location);
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = i + 1 == positions ? 0 : i + 1;
+        return i;
+    }
+}
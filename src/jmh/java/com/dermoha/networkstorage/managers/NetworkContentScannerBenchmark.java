@@ -0,0 +1,77 @@
+package com.dermoha.networkstorage.managers;
+
+import com.dermoha.networkstorage.BenchmarkWorld;
+import com.dermoha.networkstorage.TestItemStack;
+import com.dermoha.networkstorage.storage.NetworkScanResult;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** A full scan of a network whose chunks are all loaded. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkContentScannerBenchmark {
+
+    private static final Material[] MATERIALS = {
+            Material.COBBLESTONE, Material.DIRT, Material.OAK_LOG, Material.IRON_INGOT,
+            Material.REDSTONE, Material.DIAMOND, Material.WHEAT_SEEDS, Material.GLASS};
+
+    @Param({"100", "1000", "10000"})
+    public int containers;
+
+    private NetworkContentScanner scanner;
+    private List<Location> locations;
+
+    @Setup
+    public void setUp() {
+        BenchmarkWorld world = new BenchmarkWorld("benchmark");
+        for (int i = 0; i < containers; i++) {
+            // Eight chests per chunk, like a compact storage room.
+            int chunk = i / 8;
+            int x = (chunk % 64) * 16 + (i % 8) * 2;
+            int z = (chunk / 64) * 16;
+            world.addContainer(x, 64, z, contents(i));
+        }
+        scanner = new NetworkContentScanner(() -> true);
+        locations = world.locations();
+    }
+
+    @Benchmark
+    public NetworkScanResult scanAll() {
+        NetworkContentScanner.ScanSession session = scanner.begin("Benchmark", locations);
+        NetworkContentScanner.ScanStep step;
+        do {
+            step = scanner.advance(session, 256);
+        } while (!step.complete());
+        return step.result();
+    }
+
+    private static ItemStack[] contents(int seed) {
+        ItemStack[] slots = new ItemStack[27];
+        for (int slot = 0; slot < slots.length; slot++) {
+            if ((seed + slot) % 5 == 0) {
+                continue;
+            }
+            slots[slot] = new TestItemStack(MATERIALS[(seed + slot) % MATERIALS.length], 1 + (seed * 31 + slot) % 64);
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,88 @@
+package com.dermoha.networkstorage.storage;
+
+import com.dermoha.networkstorage.BenchmarkWorld;
+import com.dermoha.networkstorage.TestItemStack;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Container;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving every container of a network once: through a snapshot
+ * {@code getState()}, through {@link ContainerAccess} without its cache, and
+ * through a cache that already holds the tick's containers.  Run with
+ * {@code -prof gc} to compare the bytes allocated per container.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContainerAccessBenchmark {
+
+    @Param({"100", "1000"})
+    public int containers;
+
+    private List<Location> locations;
+    private ContainerAccess uncached;
+    private ContainerAccess cached;
+
+    @Setup
+    public void setUp() {
+        BenchmarkWorld world = new BenchmarkWorld("benchmark");
+        for (int i = 0; i < containers; i++) {
+            ItemStack[] slots = new ItemStack[27];
+            for (int slot = 0; slot < slots.length; slot++) {
+                slots[slot] = new TestItemStack(slot % 2 == 0 ? Material.COBBLESTONE : Material.IRON_INGOT, 1 + slot);
+            }
+            world.addContainer(i * 2, 64, 0, slots);
+        }
+        locations = world.locations();
+        uncached = ContainerAccess.uncached();
+        cached = new ContainerAccess(() -> 1);
+    }
+
+    @Benchmark
+    public int snapshotState() {
+        int slots = 0;
+        for (Location location : locations) {
+            if (location.getBlock().getState() instanceof Container container) {
+                slots += container.getInventory().getSize();
+            }
+        }
+        return slots;
+    }
+
+    @Benchmark
+    public int liveState() {
+        int slots = 0;
+        for (Location location : locations) {
+            slots += uncached.container(location).getInventory().getSize();
+        }
+        return slots;
+    }
+
+    @Benchmark
+    public int cachedLiveState() {
+        int slots = 0;
+        for (Location location : locations) {
+            slots += cached.container(location).getInventory().getSize();
+        }
+        return slots;
+    }
+}
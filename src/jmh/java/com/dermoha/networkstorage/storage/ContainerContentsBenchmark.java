@@ -0,0 +1,88 @@
+package com.dermoha.networkstorage.storage;
+
+import com.dermoha.networkstorage.BenchmarkWorld;
+import com.dermoha.networkstorage.MetaHeavyItemStack;
+import org.bukkit.Material;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-container aggregation done by a scan: reading a double chest of items
+ * with large meta into interned keys, then merging many containers into the
+ * network totals as the scan session does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContainerContentsBenchmark {
+
+    private static final int SLOTS = 54;
+    private static final int CONTAINERS = 1_000;
+
+    /** Distinct item types in one container. */
+    @Param({"1", "54"})
+    public int distinctItems;
+
+    @Param({"2", "32"})
+    public int loreLines;
+
+    private Inventory inventory;
+    private List<ContainerContents> network;
+
+    @Setup
+    public void setUp() {
+        ItemStack[] slots = new ItemStack[SLOTS];
+        for (int slot = 0; slot < SLOTS; slot++) {
+            slots[slot] = item(slot % distinctItems, 1 + slot);
+        }
+        inventory = BenchmarkWorld.inventory(slots);
+        network = new ArrayList<>();
+        for (int i = 0; i < CONTAINERS; i++) {
+            ItemStack[] contents = new ItemStack[SLOTS];
+            for (int slot = 0; slot < SLOTS; slot++) {
+                contents[slot] = item((i + slot) % distinctItems, 64);
+            }
+            network.add(ContainerContents.read(BenchmarkWorld.inventory(contents)));
+        }
+    }
+
+    @Benchmark
+    public ContainerContents readContainer() {
+        return ContainerContents.read(inventory);
+    }
+
+    @Benchmark
+    public ItemCounts mergeContainers() {
+        ItemCountMap totals = new ItemCountMap();
+        for (ContainerContents contents : network) {
+            totals.addAll(contents.items());
+        }
+        return totals.freeze();
+    }
+
+    private MetaHeavyItemStack item(int variant, int amount) {
+        List<String> lore = new ArrayList<>();
+        for (int line = 0; line < loreLines; line++) {
+            lore.add("§7Forged in the " + line + "th furnace of the storage hall");
+        }
+        return new MetaHeavyItemStack(Material.DIAMOND_SWORD, "Blade #" + variant, lore, amount);
+    }
+}
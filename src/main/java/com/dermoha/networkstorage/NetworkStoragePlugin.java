@@ -17,7 +17,10 @@ import com.dermoha.networkstorage.listeners.WirelessTerminalListener;
 import com.dermoha.networkstorage.managers.ConfigManager;
 import com.dermoha.networkstorage.managers.LanguageManager;
 import com.dermoha.networkstorage.managers.NetworkManager;
+import com.dermoha.networkstorage.managers.RefreshCoalescer;
+import com.dermoha.networkstorage.managers.SenderChestQueue;
 import com.dermoha.networkstorage.managers.TerminalSessions;
+import com.dermoha.networkstorage.metrics.PerformanceMetrics;
 import com.dermoha.networkstorage.storage.DefaultMovementEvents;
 import com.dermoha.networkstorage.storage.MovementEvents;
 import com.dermoha.networkstorage.storage.Network;
@@ -64,6 +67,7 @@ public class NetworkStoragePlugin extends JavaPlugin {
     private ConfigManager configManager;
     private NetworkStorageProvider storageProvider;
     private TerminalSessions terminalSessions;
+    private RefreshCoalescer refreshCoalescer;
     private LanguageManager languageManager;
     private MovementEvents movementEvents;
     private NetworkContainerListener networkContainerListener;
@@ -73,7 +77,7 @@ public class NetworkStoragePlugin extends JavaPlugin {
     private WirelessTerminalListener wirelessTerminalListener;
     private StorageCommand storageCommand;
     private NetworkCommand networkCommand;
-    private com.dermoha.networkstorage.api.NetworkStorageService apiService;
+    private com.dermoha.networkstorage.api.DefaultNetworkStorageService apiService;
     private HopperIntegrationListener hopperIntegrationListener;
     private ComparatorOutputListener comparatorOutputListener;
     private com.dermoha.networkstorage.integrations.PlaceholderAPIHook placeholderAPIHook;
@@ -81,11 +85,13 @@ public class NetworkStoragePlugin extends JavaPlugin {
     private com.dermoha.networkstorage.listeners.UpdateJoinListener updateJoinListener;
     private Metrics metrics;
     private SqliteBackupManager backupManager;
+    private SenderChestQueue senderChestQueue;
     private int senderChestTaskId = -1;
     private int autoSaveTaskId = -1;
     private int trustExpiryTaskId = -1;
     private int updateCheckTaskId = -1;
     private int storageBackupTaskId = -1;
+    private int metricsDumpTaskId = -1;
     private static final String WIRELESS_RECIPE_KEY = "wireless_terminal";
 
     @Override
@@ -110,10 +116,13 @@ public class NetworkStoragePlugin extends JavaPlugin {
     @Override
     public void onDisable() {
         cancelStorageBackupTask();
+        // Queued API deposits and withdrawals run before the final save.
+        if (apiService != null) apiService.shutdown();
         if (networkManager != null && !networkManager.flushPersistence()) {
             getLogger().severe("Final SQLite save failed; pending changes were not cleared and must be retried on the next start.");
         }
         if (networkManager != null) networkManager.shutdownPersistence();
+        if (networkManager != null) networkManager.releaseChunkLeases();
         if (storageProvider != null) {
             storageProvider.shutdown();
         }
@@ -125,12 +134,16 @@ public class NetworkStoragePlugin extends JavaPlugin {
 
     public boolean reload() {
         cancelStorageBackupTask();
+        if (apiService != null) apiService.runQueued();
         if (networkManager != null && !networkManager.flushPersistence()) {
             getLogger().severe("Reload aborted because the current SQLite snapshot could not be committed.");
             return false;
         }
+        // The replacement service takes over; callers holding this one fail fast.
+        if (apiService != null) apiService.shutdown();
         if (networkManager != null) networkManager.cancelScheduledScans();
         if (networkManager != null) networkManager.shutdownPersistence();
+        if (networkManager != null) networkManager.releaseChunkLeases();
         if (storageProvider != null) {
             storageProvider.shutdown();
         }
@@ -155,7 +168,7 @@ public class NetworkStoragePlugin extends JavaPlugin {
     private void createManagers() {
         configManager = new ConfigManager(this);
         languageManager = new LanguageManager(this, configManager.getLanguage());
-        movementEvents = new DefaultMovementEvents(this, languageManager);
+        movementEvents = new DefaultMovementEvents(languageManager);
 
         File databaseFile = new File(getDataFolder(), "networks.db");
         SqliteNetworkStorageProvider.ensureDriver();
@@ -292,7 +305,7 @@ public class NetworkStoragePlugin extends JavaPlugin {
         PluginCommand networkStorageCommand = getCommand("networkstorage");
         networkStorageCommand.setExecutor((sender, command, label, args) -> {
             if (args.length == 0) {
-                sender.sendMessage("§cUsage: /networkstorage <reload|list|info|inspect|rescan|config|storage|update>");
+                sender.sendMessage("§cUsage: /networkstorage <reload|list|info|inspect|rescan|config|storage|update|metrics>");
                 return true;
             }
 
@@ -336,8 +349,11 @@ public class NetworkStoragePlugin extends JavaPlugin {
                 case "update":
                     handleAdminUpdate(sender);
                     break;
+                case "metrics":
+                    handleAdminMetrics(sender);
+                    break;
                 default:
-                    sender.sendMessage("§cUsage: /networkstorage <reload|list|info|inspect|rescan|config|storage|update>");
+                    sender.sendMessage("§cUsage: /networkstorage <reload|list|info|inspect|rescan|config|storage|update|metrics>");
             }
             return true;
         });
@@ -377,6 +393,18 @@ public class NetworkStoragePlugin extends JavaPlugin {
         }
     }
 
+    private void handleAdminMetrics(org.bukkit.command.CommandSender sender) {
+        sender.sendMessage("§6§lNetworkStorage — Metrics");
+        for (String line : PerformanceMetrics.get().summaryLines()) {
+            int colon = line.indexOf(':');
+            sender.sendMessage("  §7" + line.substring(0, colon + 1) + "§f" + line.substring(colon + 1));
+        }
+        int intervalSeconds = configManager.getMetricsDumpIntervalSeconds();
+        if (intervalSeconds > 0) {
+            sender.sendMessage("  §7Prometheus file: §fmetrics.prom §7(every " + intervalSeconds + "s)");
+        }
+    }
+
     private void handleAdminUpdate(org.bukkit.command.CommandSender sender) {
         if (updateChecker == null) {
             sender.sendMessage("§c[NetworkStorage] Update checker is not initialized.");
@@ -504,6 +532,7 @@ public class NetworkStoragePlugin extends JavaPlugin {
 
     private void registerListeners() {
         terminalSessions = new TerminalSessions(this);
+        refreshCoalescer = new RefreshCoalescer(this);
         networkContainerListener = new NetworkContainerListener(this);
         inventoryInteractionListener = new InventoryInteractionListener(this);
         storageToolInteractionListener = new StorageToolInteractionListener(this);
@@ -529,9 +558,26 @@ public class NetworkStoragePlugin extends JavaPlugin {
         startAutoSaveTask();
         startTrustExpiryTask();
         startStorageBackupTask();
+        startMetricsDumpTask();
         startUpdateChecker();
     }
 
+    private void startMetricsDumpTask() {
+        int intervalSeconds = configManager.getMetricsDumpIntervalSeconds();
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        File target = new File(getDataFolder(), "metrics.prom");
+        long intervalTicks = (long) intervalSeconds * NetworkStorageConstants.TICKS_PER_SECOND;
+        metricsDumpTaskId = getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+            try {
+                PerformanceMetrics.get().writePrometheus(target.toPath());
+            } catch (java.io.IOException e) {
+                getLogger().warning("Could not write " + target.getName() + ": " + e.getMessage());
+            }
+        }, intervalTicks, intervalTicks).getTaskId();
+    }
+
     private void startStorageBackupTask() {
         if (backupManager == null) {
             return;
@@ -575,6 +621,10 @@ public class NetworkStoragePlugin extends JavaPlugin {
     }
 
     private void unregisterRuntimeComponents() {
+        if (refreshCoalescer != null) {
+            refreshCoalescer.clear();
+            refreshCoalescer = null;
+        }
         if (terminalSessions != null) {
             terminalSessions.cleanup();
             HandlerList.unregisterAll(terminalSessions);
@@ -636,9 +686,10 @@ public class NetworkStoragePlugin extends JavaPlugin {
     }
 
     private void cancelScheduledTasks() {
-        if (senderChestTaskId != -1) {
-            getServer().getScheduler().cancelTask(senderChestTaskId);
-            senderChestTaskId = -1;
+        stopSenderChestTask();
+        if (senderChestQueue != null) {
+            senderChestQueue.clear();
+            senderChestQueue = null;
         }
         if (autoSaveTaskId != -1) {
             getServer().getScheduler().cancelTask(autoSaveTaskId);
@@ -652,6 +703,10 @@ public class NetworkStoragePlugin extends JavaPlugin {
             getServer().getScheduler().cancelTask(updateCheckTaskId);
             updateCheckTaskId = -1;
         }
+        if (metricsDumpTaskId != -1) {
+            getServer().getScheduler().cancelTask(metricsDumpTaskId);
+            metricsDumpTaskId = -1;
+        }
         cancelStorageBackupTask();
     }
 
@@ -797,29 +852,42 @@ public class NetworkStoragePlugin extends JavaPlugin {
         return new String[] {"CCC", "CSC", "CDC"};
     }
 
+    /**
+     * Sender chests are emptied from a work queue fed by inventory events.
+     * Senders already loaded at startup are queued once so items left in
+     * them while the server was down still move; unloaded ones are queued
+     * when their chunk loads.
+     */
     private void startSenderChestTask() {
-        int interval = configManager.getSenderChestTransferInterval() * 20;
-        senderChestTaskId = getServer().getScheduler().runTaskTimer(this, () -> {
-            for (Network network : networkManager.getAllNetworks()) {
-                for (Location senderLoc : network.getSenderChestLocations()) {
-
-                    if (!networkManager.ensureLocationChunkLoaded(senderLoc)) {
-                        getLogger().warning("Sender chest chunk could not be loaded for " + network.getName() + ": " + senderLoc);
-                        continue;
-                    }
-
-                    if (senderLoc.getBlock().getState() instanceof org.bukkit.inventory.InventoryHolder holder) {
-                        Inventory senderInv = holder.getInventory();
-                        for (int i = 0; i < senderInv.getSize(); i++) {
-                            network.getMovement().absorbFromInventory(senderInv, i);
-                        }
-                    } else {
-                        networkManager.removeTrackedLocation(network, senderLoc);
-                        getLogger().info("Pruned non-inventory block at " + senderLoc.toString() + " from a network because it was no longer a container.");
-                    }
+        senderChestQueue = new SenderChestQueue(this, this::ensureSenderChestTask);
+        for (Network network : networkManager.getAllNetworks()) {
+            for (Location senderLoc : network.getSenderChestLocations()) {
+                if (senderLoc.getWorld() != null
+                        && senderLoc.getWorld().isChunkLoaded(senderLoc.getBlockX() >> 4, senderLoc.getBlockZ() >> 4)) {
+                    senderChestQueue.enqueue(network, senderLoc);
                 }
             }
-        }, 100L, interval).getTaskId();
+        }
+    }
+
+    private void ensureSenderChestTask() {
+        if (senderChestTaskId != -1) {
+            return;
+        }
+        senderChestTaskId = getServer().getScheduler().runTaskTimer(this, () -> {
+            if (senderChestQueue == null || senderChestQueue.isEmpty()) {
+                stopSenderChestTask();
+                return;
+            }
+            senderChestQueue.drainDue();
+        }, 1L, 1L).getTaskId();
+    }
+
+    private void stopSenderChestTask() {
+        if (senderChestTaskId != -1) {
+            getServer().getScheduler().cancelTask(senderChestTaskId);
+            senderChestTaskId = -1;
+        }
     }
 
     private void startAutoSaveTask() {
@@ -857,6 +925,14 @@ public class NetworkStoragePlugin extends JavaPlugin {
         return terminalSessions;
     }
 
+    public RefreshCoalescer getRefreshCoalescer() {
+        return refreshCoalescer;
+    }
+
+    public SenderChestQueue getSenderChestQueue() {
+        return senderChestQueue;
+    }
+
     public MovementEvents getMovementEvents() {
         return movementEvents;
     }
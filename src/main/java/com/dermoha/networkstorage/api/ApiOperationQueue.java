@@ -0,0 +1,206 @@
+package com.dermoha.networkstorage.api;
+
+import com.dermoha.networkstorage.storage.Network;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs API operations submitted from any thread on the server thread.
+ * Operations submitted on the server thread run at once; the others are
+ * queued and run together on the next tick, in submission order.
+ * Consecutive deposits into the same network are stored with one batched
+ * call, so a burst of deposits publishes a single content change.
+ *
+ * <p>The plugin's service {@linkplain #activate activates} its queue; the
+ * default methods of {@link NetworkStorageService} hand off through it, so
+ * other implementations get the same thread rules and shutdown behaviour.
+ */
+final class ApiOperationQueue {
+
+    /** Stores several stacks in one network on the server thread. */
+    @FunctionalInterface
+    interface BatchDeposit {
+        /** @return the leftover of each stack in input order, or null where it was stored completely */
+        List<ItemStack> depositAll(Network network, List<ItemStack> items);
+    }
+
+    private sealed interface Operation permits Deposit, Call {
+    }
+
+    private record Deposit(Network network, ItemStack item, CompletableFuture<ItemStack> result) implements Operation {
+    }
+
+    private record Call<T>(Supplier<T> work, CompletableFuture<T> result) implements Operation {
+        private void run() {
+            try {
+                result.complete(work.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private final Queue<Operation> queued = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final BooleanSupplier primaryThread;
+    private final Consumer<Runnable> nextTick;
+    private final BatchDeposit deposits;
+    private volatile boolean closed;
+
+    // Fails everything: used while no service is active.
+    private static final ApiOperationQueue CLOSED = new ApiOperationQueue(() -> false, task -> {
+    }, (network, items) -> List.of());
+    private static volatile ApiOperationQueue active = CLOSED;
+
+    static {
+        CLOSED.close();
+    }
+
+    /**
+     * @param nextTick runs a task on the server thread on a later tick; it may
+     *                 throw once the plugin is disabled
+     */
+    ApiOperationQueue(BooleanSupplier primaryThread, Consumer<Runnable> nextTick, BatchDeposit deposits) {
+        this.primaryThread = primaryThread;
+        this.nextTick = nextTick;
+        this.deposits = deposits;
+    }
+
+    /** The queue of the running service, or one that fails every operation. */
+    static ApiOperationQueue active() {
+        return active;
+    }
+
+    static void activate(ApiOperationQueue queue) {
+        active = queue;
+    }
+
+    /** Stops routing through {@code queue} unless another queue replaced it already. */
+    static synchronized void deactivate(ApiOperationQueue queue) {
+        if (active == queue) {
+            active = CLOSED;
+        }
+    }
+
+    CompletableFuture<ItemStack> deposit(Network network, ItemStack item) {
+        if (primaryThread.getAsBoolean() && !closed) {
+            CompletableFuture<ItemStack> result = new CompletableFuture<>();
+            runDeposits(network, List.of(new Deposit(network, item, result)));
+            return result;
+        }
+        // The caller keeps its stack; the copy is what will be stored.
+        Deposit deposit = new Deposit(network, item.clone(), new CompletableFuture<>());
+        submit(deposit);
+        return deposit.result();
+    }
+
+    <T> CompletableFuture<T> call(Supplier<T> work) {
+        Call<T> call = new Call<>(work, new CompletableFuture<>());
+        if (primaryThread.getAsBoolean() && !closed) {
+            call.run();
+        } else {
+            submit(call);
+        }
+        return call.result();
+    }
+
+    /**
+     * Runs the operations queued before this call; operations they queue in
+     * turn wait for the next tick.  Server thread only.
+     *
+     * @return the number of operations run
+     */
+    int drain() {
+        scheduled.set(false);
+        List<Operation> batch = new ArrayList<>();
+        for (int pending = queued.size(); pending > 0; pending--) {
+            Operation operation = queued.poll();
+            if (operation == null) {
+                break;
+            }
+            batch.add(operation);
+        }
+        int i = 0;
+        while (i < batch.size()) {
+            if (batch.get(i) instanceof Call<?> call) {
+                call.run();
+                i++;
+                continue;
+            }
+            Network network = ((Deposit) batch.get(i)).network();
+            List<Deposit> run = new ArrayList<>();
+            while (i < batch.size() && batch.get(i) instanceof Deposit deposit && deposit.network() == network) {
+                run.add(deposit);
+                i++;
+            }
+            runDeposits(network, run);
+        }
+        return batch.size();
+    }
+
+    /**
+     * Runs what is still queued and fails everything submitted afterwards.
+     * Server thread only.
+     */
+    void close() {
+        closed = true;
+        drain();
+    }
+
+    private void submit(Operation operation) {
+        if (closed) {
+            fail(operation);
+            return;
+        }
+        queued.add(operation);
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            nextTick.accept(this::drain);
+        } catch (RuntimeException e) {
+            // The plugin was disabled; nothing will run the queue any more.
+            closed = true;
+            Operation stranded;
+            while ((stranded = queued.poll()) != null) {
+                fail(stranded);
+            }
+        }
+    }
+
+    private void runDeposits(Network network, List<Deposit> run) {
+        List<ItemStack> items = new ArrayList<>(run.size());
+        for (Deposit deposit : run) {
+            items.add(deposit.item());
+        }
+        List<ItemStack> leftovers;
+        try {
+            leftovers = deposits.depositAll(network, items);
+        } catch (RuntimeException e) {
+            for (Deposit deposit : run) {
+                deposit.result().completeExceptionally(e);
+            }
+            return;
+        }
+        for (int i = 0; i < run.size(); i++) {
+            run.get(i).result().complete(leftovers.get(i));
+        }
+    }
+
+    private static void fail(Operation operation) {
+        IllegalStateException disabled = new IllegalStateException("NetworkStorage is disabled");
+        switch (operation) {
+            case Deposit deposit -> deposit.result().completeExceptionally(disabled);
+            case Call<?> call -> call.result().completeExceptionally(disabled);
+        }
+    }
+}
@@ -1,20 +1,40 @@
 package com.dermoha.networkstorage.api;
 
 import com.dermoha.networkstorage.NetworkStoragePlugin;
+import com.dermoha.networkstorage.metrics.PerformanceMetrics;
 import com.dermoha.networkstorage.storage.Network;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class DefaultNetworkStorageService implements NetworkStorageService {
 
     private final NetworkStoragePlugin plugin;
+    private final ApiOperationQueue operations;
 
     public DefaultNetworkStorageService(NetworkStoragePlugin plugin) {
         this.plugin = plugin;
+        this.operations = new ApiOperationQueue(Bukkit::isPrimaryThread,
+                task -> plugin.getServer().getScheduler().runTask(plugin, task),
+                this::depositAll);
+        ApiOperationQueue.activate(operations);
+    }
+
+    /** Runs the operations queued from other threads now instead of next tick. */
+    public void runQueued() {
+        operations.drain();
+    }
+
+    /** Runs operations still queued from other threads; later ones fail. */
+    public void shutdown() {
+        ApiOperationQueue.deactivate(operations);
+        operations.close();
     }
 
     @Override
@@ -52,7 +72,11 @@ public class DefaultNetworkStorageService implements NetworkStorageService {
         if (network == null || item == null) {
             return item;
         }
-        return network.addToNetwork(item);
+        int amount = item.getAmount();
+        ItemStack remaining = network.addToNetwork(item);
+        PerformanceMetrics.get().add(PerformanceMetrics.Counter.ITEMS_DEPOSITED,
+                amount - (remaining == null ? 0 : remaining.getAmount()));
+        return remaining;
     }
 
     @Override
@@ -60,7 +84,43 @@ public class DefaultNetworkStorageService implements NetworkStorageService {
         if (network == null || template == null || amount <= 0) {
             return null;
         }
-        return network.removeFromNetwork(template, amount);
+        ItemStack removed = network.removeFromNetwork(template, amount);
+        if (removed != null) {
+            PerformanceMetrics.get().add(PerformanceMetrics.Counter.ITEMS_WITHDRAWN, removed.getAmount());
+        }
+        return removed;
+    }
+
+    @Override
+    public CompletableFuture<ItemStack> depositAsync(Player player, Network network, ItemStack item) {
+        if (network == null || item == null) {
+            return CompletableFuture.completedFuture(item);
+        }
+        return operations.deposit(network, item);
+    }
+
+    @Override
+    public CompletableFuture<ItemStack> withdrawAsync(Player player, Network network, ItemStack template, int amount) {
+        if (network == null || template == null || amount <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ItemStack copy = template.clone();
+        return operations.call(() -> withdrawItem(player, network, copy, amount));
+    }
+
+    private List<ItemStack> depositAll(Network network, List<ItemStack> items) {
+        List<ItemStack> leftovers = network.addAllToNetwork(items);
+        long stored = 0L;
+        for (int i = 0; i < items.size(); i++) {
+            ItemStack item = items.get(i);
+            if (item == null || item.getType() == Material.AIR) {
+                continue;
+            }
+            ItemStack leftover = leftovers.get(i);
+            stored += item.getAmount() - (leftover == null ? 0 : leftover.getAmount());
+        }
+        PerformanceMetrics.get().add(PerformanceMetrics.Counter.ITEMS_DEPOSITED, stored);
+        return leftovers;
     }
 
     @Override
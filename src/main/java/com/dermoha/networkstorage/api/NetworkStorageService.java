@@ -1,6 +1,8 @@
 package com.dermoha.networkstorage.api;
 
+import com.dermoha.networkstorage.storage.ItemKey;
 import com.dermoha.networkstorage.storage.Network;
+import com.dermoha.networkstorage.storage.NetworkScanResult;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
@@ -8,6 +10,7 @@ import org.bukkit.inventory.ItemStack;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface NetworkStorageService {
 
@@ -27,8 +30,53 @@ public interface NetworkStorageService {
 
     ItemStack withdrawItem(Player player, Network network, ItemStack template, int amount);
 
+    /**
+     * {@link #depositItem} for any thread.  Off the server thread the deposit
+     * runs on the next tick, batched with other queued deposits.
+     *
+     * @return completes with the leftover, or null when everything was stored
+     */
+    default CompletableFuture<ItemStack> depositAsync(Player player, Network network, ItemStack item) {
+        // The caller keeps its stack; the copy is what will be stored.
+        ItemStack copy = item == null ? null : item.clone();
+        return ApiOperationQueue.active().call(() -> depositItem(player, network, copy));
+    }
+
+    /**
+     * {@link #withdrawItem} for any thread.  Off the server thread the
+     * withdrawal runs on the next tick.
+     *
+     * @return completes with the withdrawn items
+     */
+    default CompletableFuture<ItemStack> withdrawAsync(Player player, Network network, ItemStack template, int amount) {
+        ItemStack copy = template == null ? null : template.clone();
+        return ApiOperationQueue.active().call(() -> withdrawItem(player, network, copy, amount));
+    }
+
+    /**
+     * {@link #getStoredItemCount(Network, ItemStack)} for any thread.  The
+     * count comes from the last complete scan, so the future is already
+     * complete when returned.
+     */
+    default CompletableFuture<Integer> countAsync(Network network, ItemStack template) {
+        return CompletableFuture.completedFuture(getStoredItemCount(network, template));
+    }
+
     int getStoredItemCount(Network network);
 
+    /** Amount of items similar to the template in the last complete scan, ignoring the template's amount. */
+    default int getStoredItemCount(Network network, ItemStack template) {
+        if (network == null || template == null) {
+            return 0;
+        }
+        NetworkScanResult scan = network.getLastCompleteScan();
+        if (scan == null) {
+            return 0;
+        }
+        // Callers pass arbitrary templates from any thread; look up without interning.
+        return (int) Math.min(Integer.MAX_VALUE, scan.items().get(ItemKey.lookup(template)));
+    }
+
     int getTrackedChestCount(Network network);
 
     String getNetworkOwnerName(Network network);
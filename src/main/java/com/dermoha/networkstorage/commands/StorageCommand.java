@@ -7,6 +7,7 @@ import com.dermoha.networkstorage.managers.ConfigManager;
 import com.dermoha.networkstorage.managers.LanguageManager;
 import com.dermoha.networkstorage.storage.Network;
 import com.dermoha.networkstorage.storage.NetworkScanResult;
+import com.dermoha.networkstorage.storage.StorageCell;
 import com.dermoha.networkstorage.util.ItemUtils;
 import com.dermoha.networkstorage.util.NetworkStorageConstants;
 import org.bukkit.Bukkit;
@@ -35,7 +36,8 @@ public class StorageCommand implements CommandExecutor, TabCompleter {
     private final NetworkStoragePlugin plugin;
     private final LanguageManager lang;
     private final Map<UUID, PendingReset> pendingResets = new HashMap<>();
-    private static final List<String> SUBCOMMANDS = Arrays.asList("wand", "info", "reset", "confirm-reset", "cancel-reset", "help", "trust", "untrust", "wireless");
+    private static final List<String> SUBCOMMANDS = Arrays.asList("wand", "info", "reset", "confirm-reset", "cancel-reset", "help", "trust", "untrust", "wireless", "cell");
+    private static final List<String> CELL_SUBCOMMANDS = Arrays.asList("add", "remove", "list");
 
     public StorageCommand(NetworkStoragePlugin plugin) {
         this.plugin = plugin;
@@ -83,6 +85,9 @@ public class StorageCommand implements CommandExecutor, TabCompleter {
             case "wireless":
                 handleWirelessCommand(player);
                 break;
+            case "cell":
+                handleCellCommand(player, args);
+                break;
             case "help":
             default:
                 sendHelpMessage(player);
@@ -103,6 +108,9 @@ public class StorageCommand implements CommandExecutor, TabCompleter {
                     .filter(name -> StringUtil.startsWithIgnoreCase(name, args[1]))
                     .collect(Collectors.toList());
         }
+        if (args.length == 2 && args[0].equalsIgnoreCase("cell")) {
+            return StringUtil.copyPartialMatches(args[1], CELL_SUBCOMMANDS, new ArrayList<>());
+        }
         return Collections.emptyList();
     }
 
@@ -299,6 +307,91 @@ public class StorageCommand implements CommandExecutor, TabCompleter {
         player.sendMessage(lang.getMessage("received_wireless_terminal"));
     }
 
+    private void handleCellCommand(Player player, String[] args) {
+        Network network = plugin.getNetworkManager().getPlayerNetwork(player);
+        if (network == null) {
+            player.sendMessage(lang.getMessage("no_network"));
+            player.sendMessage(lang.getMessage("get_wand_hint"));
+            return;
+        }
+        String action = args.length < 2 ? "list" : args[1].toLowerCase();
+        if (action.equals("list")) {
+            if (!network.canAccess(player)) {
+                player.sendMessage(lang.getMessage("trust.not_owner"));
+                return;
+            }
+            sendCellList(player, network);
+            return;
+        }
+        if (!plugin.getConfigManager().hasPermission(player, "networkstorage.cells")) {
+            player.sendMessage(lang.getMessage("no_permission_cells"));
+            return;
+        }
+        if (!network.canManage(player)) {
+            player.sendMessage(lang.getMessage("trust.not_owner"));
+            return;
+        }
+        switch (action) {
+            case "add":
+                handleCellAdd(player, network);
+                break;
+            case "remove":
+                handleCellRemove(player, network, args.length < 3 ? null : args[2]);
+                break;
+            default:
+                player.sendMessage(lang.getMessage("cell.usage"));
+                break;
+        }
+    }
+
+    private void handleCellAdd(Player player, Network network) {
+        StorageCell cell = plugin.getNetworkManager().addStorageCell(network);
+        if (cell == null) {
+            player.sendMessage(String.format(lang.getMessage("cell.limit"),
+                    plugin.getConfigManager().getMaxStorageCellsPerNetwork()));
+            return;
+        }
+        player.sendMessage(String.format(lang.getMessage("cell.added"), cell.id(), formatNumber(cell.capacity())));
+    }
+
+    private void handleCellRemove(Player player, Network network, String id) {
+        if (id == null) {
+            player.sendMessage(lang.getMessage("cell.usage"));
+            return;
+        }
+        StorageCell cell = findCell(network, id);
+        if (cell == null) {
+            player.sendMessage(String.format(lang.getMessage("cell.not_found"), id));
+            return;
+        }
+        if (!plugin.getNetworkManager().removeStorageCell(network, cell.id())) {
+            player.sendMessage(String.format(lang.getMessage("cell.not_empty"), cell.id(),
+                    formatNumber(cell.storedAmount())));
+            return;
+        }
+        player.sendMessage(String.format(lang.getMessage("cell.removed"), cell.id()));
+    }
+
+    private StorageCell findCell(Network network, String id) {
+        try {
+            return network.getStorageCell(Integer.parseInt(id.startsWith("#") ? id.substring(1) : id));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void sendCellList(Player player, Network network) {
+        if (network.getStorageCells().isEmpty()) {
+            player.sendMessage(lang.getMessage("cell.list.empty"));
+            return;
+        }
+        player.sendMessage(String.format(lang.getMessage("cell.list.title"), network.getName()));
+        for (StorageCell cell : network.getStorageCells()) {
+            player.sendMessage(String.format(lang.getMessage("cell.list.entry"), cell.id(),
+                    formatNumber(cell.storedAmount()), formatNumber(cell.capacity())));
+        }
+    }
+
     private void giveOrDrop(Player player, ItemStack item) {
         Map<Integer, ItemStack> overflow = player.getInventory().addItem(item);
         for (ItemStack overflowItem : overflow.values()) {
@@ -433,6 +526,7 @@ public class StorageCommand implements CommandExecutor, TabCompleter {
         player.sendMessage(lang.getMessage("help_trust"));
         player.sendMessage(lang.getMessage("help_untrust"));
         player.sendMessage(lang.getMessage("help_wireless"));
+        player.sendMessage(lang.getMessage("help_cell"));
         player.sendMessage(lang.getMessage("help_help"));
         player.sendMessage("");
         player.sendMessage(lang.getMessage("help_usage"));
@@ -0,0 +1,197 @@
+package com.dermoha.networkstorage.gui;
+
+import com.dermoha.networkstorage.storage.ItemCounts;
+import com.dermoha.networkstorage.storage.ItemKey;
+import com.dermoha.networkstorage.util.ItemSearchTerms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Trigram index over the search text of every item type seen by a terminal.
+ * A filter word of three or more characters only visits the items that share
+ * all of its trigrams; shorter filters fall back to checking each item's
+ * precomputed {@link ItemSearchTerms}.  Candidates are always confirmed with
+ * {@link ItemSearchTerms#matches(String)}, so results equal a full scan.
+ *
+ * <p>Item types are indexed once and kept, since contents change far more
+ * often than the set of types.  Once the index has doubled since it was last
+ * compacted, the types no filtered contents held since then are dropped, so
+ * types no network holds any more do not pile up; they are indexed again if
+ * they come back.  Main-thread only.
+ */
+final class ItemSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final int MIN_COMPACT_SIZE = 4096;
+
+    private final Function<ItemKey, ItemSearchTerms> termsOf;
+    private final Map<ItemKey, Integer> ids = new HashMap<>();
+    private final List<ItemKey> keys = new ArrayList<>();
+    private final List<ItemSearchTerms> terms = new ArrayList<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    // Ids of the types seen in filtered contents since the last compaction.
+    private final BitSet seen = new BitSet();
+    private final int minCompactSize;
+    private int compactAt;
+
+    ItemSearchIndex() {
+        this(ItemKey::searchTerms);
+    }
+
+    ItemSearchIndex(Function<ItemKey, ItemSearchTerms> termsOf) {
+        this(termsOf, MIN_COMPACT_SIZE);
+    }
+
+    ItemSearchIndex(Function<ItemKey, ItemSearchTerms> termsOf, int minCompactSize) {
+        this.termsOf = termsOf;
+        this.minCompactSize = minCompactSize;
+        this.compactAt = minCompactSize;
+    }
+
+    /** Returns the entries of {@code items} that match, in no particular order. */
+    List<ItemCounts.Entry> filter(ItemCounts items, String lowerCaseFilter) {
+        if (lowerCaseFilter.isEmpty()) {
+            return items.entries();
+        }
+        if (keys.size() >= compactAt) {
+            compact();
+        }
+        List<ItemCounts.Entry> matches = new ArrayList<>();
+        String[] parts = lowerCaseFilter.trim().split("\\s+");
+        boolean indexable = true;
+        for (String part : parts) {
+            indexable &= part.length() >= GRAM;
+        }
+        if (!indexable) {
+            items.forEach((key, amount) -> {
+                if (terms.get(register(key)).matches(lowerCaseFilter)) {
+                    matches.add(new ItemCounts.Entry(key, amount));
+                }
+            });
+            return matches;
+        }
+        items.forEach((key, amount) -> register(key));
+        // Every search rule needs at least one filter word inside the item's
+        // text, so the union over the words is a superset of the matches.
+        BitSet candidates = new BitSet(keys.size());
+        for (String part : parts) {
+            candidates.or(containing(part));
+        }
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            ItemKey key = keys.get(id);
+            long amount = items.get(key);
+            if (amount > 0L && terms.get(id).matches(lowerCaseFilter)) {
+                matches.add(new ItemCounts.Entry(key, amount));
+            }
+        }
+        return matches;
+    }
+
+    int indexedTypes() {
+        return keys.size();
+    }
+
+    private int register(ItemKey key) {
+        Integer known = ids.get(key);
+        if (known != null) {
+            seen.set(known);
+            return known;
+        }
+        int id = index(key, termsOf.apply(key));
+        seen.set(id);
+        return id;
+    }
+
+    private int index(ItemKey key, ItemSearchTerms itemTerms) {
+        int id = keys.size();
+        ids.put(key, id);
+        keys.add(key);
+        terms.add(itemTerms);
+        Set<Long> grams = new HashSet<>();
+        for (String text : itemTerms.searchableText()) {
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                grams.add(gram(text, i));
+            }
+        }
+        for (Long gram : grams) {
+            postings.computeIfAbsent(gram, ignored -> new Postings()).add(id);
+        }
+        return id;
+    }
+
+    /** Re-indexes only the types seen since the last compaction, reusing their terms. */
+    private void compact() {
+        List<ItemKey> keptKeys = new ArrayList<>(seen.cardinality());
+        List<ItemSearchTerms> keptTerms = new ArrayList<>(seen.cardinality());
+        for (int id = seen.nextSetBit(0); id >= 0; id = seen.nextSetBit(id + 1)) {
+            keptKeys.add(keys.get(id));
+            keptTerms.add(terms.get(id));
+        }
+        ids.clear();
+        keys.clear();
+        terms.clear();
+        postings.clear();
+        seen.clear();
+        for (int i = 0; i < keptKeys.size(); i++) {
+            index(keptKeys.get(i), keptTerms.get(i));
+        }
+        compactAt = Math.max(minCompactSize, keys.size() * 2);
+    }
+
+    /** Items whose text contains every trigram of {@code part}. */
+    private BitSet containing(String part) {
+        List<Postings> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= part.length(); i++) {
+            Postings list = postings.get(gram(part, i));
+            if (list == null) {
+                return new BitSet();
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        Postings smallest = lists.get(0);
+        BitSet result = new BitSet(keys.size());
+        outer:
+        for (int i = 0; i < smallest.size; i++) {
+            int id = smallest.ids[i];
+            for (int list = 1; list < lists.size(); list++) {
+                if (!lists.get(list).contains(id)) {
+                    continue outer;
+                }
+            }
+            result.set(id);
+        }
+        return result;
+    }
+
+    private static long gram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32)
+                | ((long) text.charAt(offset + 1) << 16)
+                | text.charAt(offset + 2);
+    }
+
+    /** Ascending item ids; ids are handed out in increasing order. */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size << 1);
+            }
+            ids[size++] = id;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+}
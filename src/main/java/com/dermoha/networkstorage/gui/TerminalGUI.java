@@ -2,24 +2,25 @@ package com.dermoha.networkstorage.gui;
 
 import com.dermoha.networkstorage.NetworkStoragePlugin;
 import com.dermoha.networkstorage.managers.LanguageManager;
+import com.dermoha.networkstorage.managers.RefreshCoalescer;
+import com.dermoha.networkstorage.metrics.PerformanceMetrics;
+import com.dermoha.networkstorage.storage.ItemCounts;
+import com.dermoha.networkstorage.storage.ItemKey;
 import com.dermoha.networkstorage.storage.Network;
 import com.dermoha.networkstorage.storage.NetworkScanResult;
 import com.dermoha.networkstorage.util.ItemUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
-import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.EnchantmentStorageMeta;
 import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.*;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
-public class TerminalGUI implements InventoryHolder {
+public class TerminalGUI implements InventoryHolder, RefreshCoalescer.Viewer {
 
     private final Player player;
     private final Network network;
@@ -29,10 +30,12 @@ public class TerminalGUI implements InventoryHolder {
     private Inventory inventory;
     private int currentPage = 0;
     private SortType sortType = SortType.ALPHABETICAL;
-    private List<Map.Entry<ItemStack, Integer>> sortedItems;
+    private TerminalViewCache.View view;
     private String searchFilter = "";
-    private boolean refreshPending;
     private boolean forceScanNextUpdate;
+    // What each slot currently shows; a slot is only rewritten when its
+    // face changes, so a refresh sends just the slots that differ.
+    private final Object[] renderedFaces = new Object[GUI_SIZE];
     private final Consumer<NetworkScanResult> scanCompletionCallback = result -> {
         forceScanNextUpdate = false;
         requestRefresh();
@@ -50,6 +53,15 @@ public class TerminalGUI implements InventoryHolder {
     private static final int SLOT_REFRESH = 52;
     private static final int SLOT_NEXT_PAGE = 53;
 
+    // The share is compared in whole percent; the two decimals shown in the
+    // lore would change with every deposit anywhere in the network.
+    private record ItemFace(ItemKey key, long amount, int sharePercent) {
+        private static final int NO_SHARE = -1;
+    }
+
+    private record ControlFace(Material material, String title, List<String> lore) {
+    }
+
     public enum SortType {
         ALPHABETICAL,
         COUNT_DESC,
@@ -65,10 +77,17 @@ public class TerminalGUI implements InventoryHolder {
         updateInventory();
     }
 
+    @Override
     public void updateInventory() {
-        refreshPending = false;
-        inventory.clear();
+        long started = PerformanceMetrics.get().now();
+        try {
+            render();
+        } finally {
+            PerformanceMetrics.get().recordSince(PerformanceMetrics.Timer.TERMINAL_RENDER, started);
+        }
+    }
 
+    private void render() {
         boolean forceScan = forceScanNextUpdate;
         forceScanNextUpdate = false;
         NetworkScanResult scan = plugin.getNetworkManager().getNetworkScan(
@@ -76,73 +95,17 @@ public class TerminalGUI implements InventoryHolder {
                 forceScan,
                 forceScan || network.getScanResult().status() != com.dermoha.networkstorage.storage.NetworkScanStatus.COMPLETE
                         ? scanCompletionCallback : null);
-        Map<ItemStack, Integer> networkItems = scan.items();
+        ItemCounts networkItems = scan.items();
         long totalNetworkItems = scan.totalItems();
         int uniqueTypes = scan.uniqueTypes();
         double capacity = scan.capacityPercent();
         boolean showNumericSummary = scan.hasAuthoritativeData() || network.hasLastCompleteScan();
-        sortedItems = new ArrayList<>(networkItems.entrySet());
-
-        if (!searchFilter.isEmpty()) {
-            String lowerCaseFilter = searchFilter.toLowerCase(Locale.ROOT);
-            sortedItems = sortedItems.stream()
-                    .filter(entry -> {
-                        ItemStack item = entry.getKey();
-
-                        // Check custom display name
-                        if (item.hasItemMeta() && item.getItemMeta().hasDisplayName()) {
-                            if (item.getItemMeta().getDisplayName().toLowerCase().contains(lowerCaseFilter)) {
-                                return true;
-                            }
-                        }
-
-                        // Check internal material name (e.g., "diamond_sword")
-                        if (item.getType().getKey().getKey().toLowerCase().contains(lowerCaseFilter)) {
-                            return true;
-                        }
-
-                        // Check enchantments of enchanted books
-                        if (item.hasItemMeta()) {
-                            ItemMeta meta = item.getItemMeta();
-
-                            // Normal Item Enchants
-                            if (meta.hasEnchants()) {
-                                for (Map.Entry<Enchantment, Integer> enchEntry : meta.getEnchants().entrySet()) {
-                                    if (ItemUtils.matchesEnchantment(enchEntry.getKey(), enchEntry.getValue(), lowerCaseFilter)) {
-                                        return true;
-                                    }
-                                }
-                            }
-
-                            // Enchanted Books
-                            if (meta instanceof EnchantmentStorageMeta storageMeta) {
-                                if (storageMeta.hasStoredEnchants()) {
-                                    for (Map.Entry<Enchantment, Integer> enchEntry : storageMeta.getStoredEnchants().entrySet()) {
-                                        if (ItemUtils.matchesEnchantment(enchEntry.getKey(), enchEntry.getValue(), lowerCaseFilter)) {
-                                            return true;
-                                        }
-                                    }
-                                }
-                            }
-                        }
-
-                        // Fallback check for formatted English name
-                        return getItemDisplayName(item).toLowerCase().contains(lowerCaseFilter);
-                    })
-                    .collect(Collectors.toList());
-        }
-
-        switch (sortType) {
-            case ALPHABETICAL:
-                sortedItems.sort(Comparator.comparing(a -> ItemUtils.getSortableName(a.getKey()), String.CASE_INSENSITIVE_ORDER));
-                break;
-            case COUNT_DESC:
-                sortedItems.sort(Map.Entry.comparingByValue(Comparator.reverseOrder()));
-                break;
-            case COUNT_ASC:
-                sortedItems.sort(Map.Entry.comparingByValue());
-                break;
-        }
+        // Acquire before releasing: an unchanged view must not be evicted in between.
+        TerminalViewCache.View next = plugin.getTerminalSessions().getViewCache()
+                .acquire(network, networkItems, sortType, searchFilter);
+        releaseView();
+        view = next;
+        List<ItemCounts.Entry> sortedItems = view.entries();
 
         int totalPages = Math.max(1, (int) Math.ceil((double) sortedItems.size() / ITEMS_PER_PAGE));
         if (currentPage >= totalPages) {
@@ -154,16 +117,43 @@ public class TerminalGUI implements InventoryHolder {
         int startIndex = currentPage * ITEMS_PER_PAGE;
         int endIndex = Math.min(startIndex + ITEMS_PER_PAGE, sortedItems.size());
 
-        for (int i = startIndex; i < endIndex; i++) {
-            int slot = i - startIndex;
-            Map.Entry<ItemStack, Integer> entry = sortedItems.get(i);
-            ItemStack displayItem = createDisplayItem(entry.getKey(), entry.getValue(), totalNetworkItems);
-            inventory.setItem(slot, displayItem);
+        for (int slot = 0; slot < ITEMS_PER_PAGE; slot++) {
+            int index = startIndex + slot;
+            if (index >= endIndex) {
+                clearSlot(slot);
+                continue;
+            }
+            ItemCounts.Entry entry = sortedItems.get(index);
+            int sharePercent = totalNetworkItems > 0
+                    ? (int) Math.round((double) entry.amount() / totalNetworkItems * 100.0)
+                    : ItemFace.NO_SHARE;
+            ItemFace face = new ItemFace(entry.key(), entry.amount(), sharePercent);
+            if (!face.equals(renderedFaces[slot])) {
+                inventory.setItem(slot, createDisplayItem(face, totalNetworkItems));
+                renderedFaces[slot] = face;
+            }
         }
 
         addControlButtons(currentPage, totalPages, totalNetworkItems, uniqueTypes, capacity, scan, showNumericSummary);
     }
 
+    /** Sorts filtered entries in place for display. */
+    static List<ItemCounts.Entry> sortEntries(List<ItemCounts.Entry> sortedItems, SortType sortType) {
+        switch (sortType) {
+            case ALPHABETICAL:
+                sortedItems.sort(Comparator.comparing(a -> a.key().sortableName(), String.CASE_INSENSITIVE_ORDER));
+                break;
+            case COUNT_DESC:
+                sortedItems.sort(Comparator.comparingLong(ItemCounts.Entry::amount).reversed());
+                break;
+            case COUNT_ASC:
+                sortedItems.sort(Comparator.comparingLong(ItemCounts.Entry::amount));
+                break;
+        }
+
+        return sortedItems;
+    }
+
     private void addControlButtons(int page,
                                    int totalPages,
                                    long totalItems,
@@ -172,13 +162,14 @@ public class TerminalGUI implements InventoryHolder {
                                    NetworkScanResult scan,
                                    boolean showNumericSummary) {
         if (page > 0) {
-            ItemStack prevButton = createGuiControlItem(
+            renderControl(SLOT_PREV_PAGE,
                     Material.ARROW,
                     lang.getMessage("terminal.prev_page"),
                     Collections.singletonList(String.format(lang.getMessage("terminal.page"), page + 1, Math.max(1, totalPages))),
                     "custom-model-data.gui.terminal.prev-page"
             );
-            inventory.setItem(SLOT_PREV_PAGE, prevButton);
+        } else {
+            clearSlot(SLOT_PREV_PAGE);
         }
 
         String searchTitle;
@@ -197,10 +188,9 @@ public class TerminalGUI implements InventoryHolder {
                     lang.getMessage("terminal.search.clear")
             );
         }
-        ItemStack searchButton = createGuiControlItem(Material.SPYGLASS, searchTitle, searchLore, "custom-model-data.gui.terminal.search");
-        inventory.setItem(SLOT_SEARCH, searchButton);
+        renderControl(SLOT_SEARCH, Material.SPYGLASS, searchTitle, searchLore, "custom-model-data.gui.terminal.search");
 
-        ItemStack sortButton = createGuiControlItem(
+        renderControl(SLOT_SORT,
                 Material.COMPARATOR,
                 String.format(lang.getMessage("terminal.sort.title"), getSortDisplayName()),
                 Arrays.asList(
@@ -209,7 +199,6 @@ public class TerminalGUI implements InventoryHolder {
                 ),
                 "custom-model-data.gui.terminal.sort"
         );
-        inventory.setItem(SLOT_SORT, sortButton);
 
         List<String> infoLore = new ArrayList<>();
         if (showNumericSummary) {
@@ -233,31 +222,28 @@ public class TerminalGUI implements InventoryHolder {
         infoLore.add(lang.getMessage("terminal.info.lore2"));
         infoLore.add(lang.getMessage("terminal.info.lore3"));
 
-        ItemStack infoButton = createGuiControlItem(
+        renderControl(SLOT_INFO,
                 Material.BOOK,
                 lang.getMessage("terminal.info.title"),
                 infoLore,
                 "custom-model-data.gui.terminal.info"
         );
-        inventory.setItem(SLOT_INFO, infoButton);
 
-        ItemStack statsButton = createGuiControlItem(
+        renderControl(SLOT_STATS,
                 Material.EMERALD,
                 lang.getMessage("terminal.stats.title"),
                 Collections.singletonList(lang.getMessage("terminal.stats.lore")),
                 "custom-model-data.gui.terminal.stats"
         );
-        inventory.setItem(SLOT_STATS, statsButton);
 
-        ItemStack refreshButton = createGuiControlItem(
+        renderControl(SLOT_REFRESH,
                 Material.CLOCK,
                 lang.getMessage("terminal.refresh.title"),
                 Collections.singletonList(lang.getMessage("terminal.refresh.lore")),
                 "custom-model-data.gui.terminal.refresh"
         );
-        inventory.setItem(SLOT_REFRESH, refreshButton);
 
-        ItemStack depositAllButton = createGuiControlItem(
+        renderControl(SLOT_DEPOSIT_ALL,
                 Material.HOPPER,
                 lang.getMessage("terminal.deposit_all.title"),
                 Arrays.asList(
@@ -266,17 +252,39 @@ public class TerminalGUI implements InventoryHolder {
                 ),
                 "custom-model-data.gui.terminal.deposit-all"
         );
-        inventory.setItem(SLOT_DEPOSIT_ALL, depositAllButton);
 
         if (page < totalPages - 1) {
-            ItemStack nextButton = createGuiControlItem(
+            renderControl(SLOT_NEXT_PAGE,
                     Material.ARROW,
                     lang.getMessage("terminal.next_page"),
                     Collections.singletonList(String.format(lang.getMessage("terminal.page"), page + 2, totalPages)),
                     "custom-model-data.gui.terminal.next-page"
             );
-            inventory.setItem(SLOT_NEXT_PAGE, nextButton);
+        } else {
+            clearSlot(SLOT_NEXT_PAGE);
+        }
+    }
+
+    private void renderControl(int slot, Material material, String title, List<String> lore, String customModelDataPath) {
+        ControlFace face = new ControlFace(material, title, new ArrayList<>(lore));
+        if (face.equals(renderedFaces[slot])) {
+            return;
         }
+        inventory.setItem(slot, createGuiControlItem(material, title, lore, customModelDataPath));
+        renderedFaces[slot] = face;
+    }
+
+    private void clearSlot(int slot) {
+        if (renderedFaces[slot] != null) {
+            inventory.setItem(slot, null);
+            renderedFaces[slot] = null;
+        }
+    }
+
+    /** Forgets what was drawn, so the next update rewrites every slot. */
+    private void resetRender() {
+        inventory.clear();
+        Arrays.fill(renderedFaces, null);
     }
 
     private ItemStack createGuiControlItem(Material material, String displayName, List<String> lore, String customModelDataPath) {
@@ -291,9 +299,10 @@ public class TerminalGUI implements InventoryHolder {
         return item;
     }
 
-    private ItemStack createDisplayItem(ItemStack original, int totalCount, long totalNetworkItems) {
-        ItemStack display = original.clone();
-        display.setAmount(1);
+    private ItemStack createDisplayItem(ItemFace face, long totalNetworkItems) {
+        ItemKey original = face.key();
+        long totalCount = face.amount();
+        ItemStack display = original.toItemStack();
         ItemMeta meta = display.getItemMeta();
         if (meta == null) {
             meta = Bukkit.getItemFactory().getItemMeta(display.getType());
@@ -305,9 +314,9 @@ public class TerminalGUI implements InventoryHolder {
 
         List<String> lore = new ArrayList<>();
         lore.add(String.format(lang.getMessage("terminal.item.lore.total"), formatNumber(totalCount)));
-        if (totalNetworkItems > 0) {
-            double percentage = (double) totalCount / totalNetworkItems * 100.0;
-            lore.add(String.format(lang.getMessage("terminal.item.lore.capacity_percentage"), percentage));
+        if (face.sharePercent() != ItemFace.NO_SHARE) {
+            lore.add(String.format(lang.getMessage("terminal.item.lore.capacity_percentage"),
+                    (double) totalCount / totalNetworkItems * 100.0));
         }
         lore.add(String.format(lang.getMessage("terminal.item.lore.stacks"), totalCount / original.getMaxStackSize()));
         if (totalCount % original.getMaxStackSize() > 0) {
@@ -362,7 +371,7 @@ public class TerminalGUI implements InventoryHolder {
         }
 
         if (slot == SLOT_NEXT_PAGE) {
-            int totalPages = Math.max(1, (int) Math.ceil((double) sortedItems.size() / ITEMS_PER_PAGE));
+            int totalPages = Math.max(1, (int) Math.ceil((double) visibleItemCount() / ITEMS_PER_PAGE));
             if (currentPage < totalPages - 1) {
                 currentPage++;
                 updateInventory();
@@ -396,6 +405,7 @@ public class TerminalGUI implements InventoryHolder {
 
         if (slot == SLOT_REFRESH) {
             forceScanNextUpdate = true;
+            resetRender();
             updateInventory();
             player.sendMessage(lang.getMessage("terminal.refreshed"));
             return;
@@ -408,10 +418,9 @@ public class TerminalGUI implements InventoryHolder {
 
         if (slot >= 0 && slot < ITEMS_PER_PAGE) {
             int itemIndex = (currentPage * ITEMS_PER_PAGE) + slot;
-            if (itemIndex < sortedItems.size()) {
-                Map.Entry<ItemStack, Integer> entry = sortedItems.get(itemIndex);
-                ItemStack originalItem = entry.getKey();
-                int availableAmount = entry.getValue();
+            if (view != null && itemIndex < view.size()) {
+                ItemCounts.Entry entry = view.entries().get(itemIndex);
+                ItemKey originalItem = entry.key();
                 int amountToTake = 0;
 
                 if (isLeftClick && !isShiftClick) { // Left-click: take 1
@@ -423,7 +432,7 @@ public class TerminalGUI implements InventoryHolder {
                 }
 
                 if (amountToTake > 0) {
-                    handleItemExtraction(originalItem, amountToTake);
+                    handleItemExtraction(originalItem.toItemStack(), amountToTake);
                 }
             }
         }
@@ -437,21 +446,10 @@ public class TerminalGUI implements InventoryHolder {
         if (!ensureAccess()) {
             return;
         }
-        int deposited = 0;
-        int slotsScanned = 0;
-        org.bukkit.inventory.PlayerInventory inv = player.getInventory();
-        for (int slot = 0; slot < inv.getSize(); slot++) {
-            ItemStack stack = inv.getItem(slot);
-            if (stack == null || stack.getType() == Material.AIR) {
-                continue;
-            }
-            slotsScanned++;
-            com.dermoha.networkstorage.storage.NetworkMovement.DepositResult result =
-                    network.getMovement().depositFromPlayer(player, new com.dermoha.networkstorage.storage.NetworkMovement.ItemSource.InvSlotSource(player, slot));
-            deposited += result.deposited();
-        }
-        if (deposited > 0) {
-            player.sendMessage(String.format(lang.getMessage("terminal.deposit_all.summary"), deposited, slotsScanned));
+        com.dermoha.networkstorage.storage.NetworkMovement.BatchResult result =
+                network.getMovement().depositAllFromPlayer(player);
+        if (!result.nothingMoved()) {
+            player.sendMessage(String.format(lang.getMessage("terminal.deposit_all.summary"), result.moved(), result.stacks()));
         } else {
             player.sendMessage(lang.getMessage("terminal.deposit_all.nothing"));
         }
@@ -482,11 +480,26 @@ public class TerminalGUI implements InventoryHolder {
         return true;
     }
 
-    /** Collapses bursts of inventory events into one next-tick render. */
+    private int visibleItemCount() {
+        return view == null ? 0 : view.size();
+    }
+
+    /** Lets go of the shared item view once this terminal is no longer shown. */
+    public void releaseView() {
+        if (view != null) {
+            plugin.getTerminalSessions().getViewCache().release(view);
+            view = null;
+        }
+    }
+
+    /** Collapses bursts of inventory events into one end-of-tick render. */
     public void requestRefresh() {
-        if (refreshPending) return;
-        refreshPending = true;
-        Bukkit.getScheduler().runTask(plugin, this::updateInventory);
+        RefreshCoalescer coalescer = plugin.getRefreshCoalescer();
+        if (coalescer != null) {
+            coalescer.markViewer(this);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, this::updateInventory);
+        }
     }
 
     private boolean ensureAccess() {
@@ -508,6 +521,7 @@ public class TerminalGUI implements InventoryHolder {
         return player;
     }
 
+    @Override
     public Network getNetwork() {
         return network;
     }
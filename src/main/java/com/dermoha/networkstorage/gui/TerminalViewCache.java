@@ -0,0 +1,100 @@
+package com.dermoha.networkstorage.gui;
+
+import com.dermoha.networkstorage.storage.ItemCounts;
+import com.dermoha.networkstorage.storage.Network;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Sorted and filtered item lists shared by every terminal that shows the same
+ * network with the same sort and search.  A view is built once per content
+ * change; the published {@link ItemCounts} is immutable, so its identity
+ * serves as the content version.
+ *
+ * <p>A view is evicted when a newer version replaces it or when its last
+ * viewer lets go.  Main-thread only.
+ */
+public final class TerminalViewCache {
+
+    /** Builds the entries of one view. */
+    @FunctionalInterface
+    interface Builder {
+        List<ItemCounts.Entry> build(ItemCounts items, TerminalGUI.SortType sortType, String lowerCaseFilter);
+    }
+
+    private record Key(Network network, TerminalGUI.SortType sortType, String filter) {
+    }
+
+    public static final class View {
+        private final Key key;
+        private final ItemCounts items;
+        private final List<ItemCounts.Entry> entries;
+        private int viewers;
+
+        private View(Key key, ItemCounts items, List<ItemCounts.Entry> entries) {
+            this.key = key;
+            this.items = items;
+            this.entries = Collections.unmodifiableList(entries);
+        }
+
+        public List<ItemCounts.Entry> entries() {
+            return entries;
+        }
+
+        public int size() {
+            return entries.size();
+        }
+    }
+
+    private final Map<Key, View> views = new HashMap<>();
+    private final Builder builder;
+
+    public TerminalViewCache() {
+        this(searchingBuilder(new ItemSearchIndex()));
+    }
+
+    TerminalViewCache(Builder builder) {
+        this.builder = builder;
+    }
+
+    private static Builder searchingBuilder(ItemSearchIndex searchIndex) {
+        return (items, sortType, filter) -> TerminalGUI.sortEntries(searchIndex.filter(items, filter), sortType);
+    }
+
+    /**
+     * Returns the view for the given contents and registers the caller as a
+     * viewer.  Every call must be paired with {@link #release(View)}.
+     */
+    public View acquire(Network network, ItemCounts items, TerminalGUI.SortType sortType, String filter) {
+        Key key = new Key(network, sortType, filter == null ? "" : filter.toLowerCase(Locale.ROOT));
+        View view = views.get(key);
+        if (view == null || view.items != items) {
+            // Viewers of the replaced version keep it until they refresh.
+            view = new View(key, items, builder.build(items, sortType, key.filter()));
+            views.put(key, view);
+        }
+        view.viewers++;
+        return view;
+    }
+
+    public void release(View view) {
+        if (view == null || view.viewers == 0) {
+            return;
+        }
+        if (--view.viewers == 0 && views.get(view.key) == view) {
+            views.remove(view.key);
+        }
+    }
+
+    public int size() {
+        return views.size();
+    }
+
+    public void clear() {
+        views.clear();
+    }
+}
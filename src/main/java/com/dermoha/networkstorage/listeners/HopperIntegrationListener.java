@@ -1,6 +1,7 @@
 package com.dermoha.networkstorage.listeners;
 
 import com.dermoha.networkstorage.NetworkStoragePlugin;
+import com.dermoha.networkstorage.metrics.PerformanceMetrics;
 import com.dermoha.networkstorage.storage.Network;
 import com.dermoha.networkstorage.storage.NetworkMovement;
 import org.bukkit.block.Block;
@@ -29,30 +30,44 @@ public class HopperIntegrationListener implements Listener {
         Inventory source = event.getSource();
 
         if (isHopper(source) || isHopper(destination)) {
-            Network sourceNetwork = findNetworkAtInventoryHolder(source.getHolder());
-            Network destinationNetwork = findNetworkAtInventoryHolder(destination.getHolder());
+            PerformanceMetrics metrics = PerformanceMetrics.get();
+            long started = metrics.now();
+            metrics.increment(PerformanceMetrics.Counter.HOPPER_EVENTS);
+            try {
+                moveThroughNetwork(event, source, destination);
+            } finally {
+                metrics.recordSince(PerformanceMetrics.Timer.HOPPER_EVENT, started);
+            }
+        }
+    }
 
-            if (sourceNetwork != null && isHopper(destination)) {
-                ItemStack item = event.getItem().clone();
-                ItemStack remaining = sourceNetwork.addToNetwork(item);
-                if (remaining == null || remaining.getAmount() == 0) {
-                    event.setCancelled(true);
-                    event.getDestination().setItem(event.getDestination().first(event.getItem().getType()), null);
-                } else {
-                    event.setItem(remaining);
-                }
-                return;
+    private void moveThroughNetwork(InventoryMoveItemEvent event, Inventory source, Inventory destination) {
+        Network sourceNetwork = findNetworkAtInventoryHolder(source.getHolder());
+        Network destinationNetwork = findNetworkAtInventoryHolder(destination.getHolder());
+
+        if (sourceNetwork != null && isHopper(destination)) {
+            ItemStack item = event.getItem().clone();
+            ItemStack remaining = sourceNetwork.addToNetwork(item);
+            PerformanceMetrics.get().add(PerformanceMetrics.Counter.ITEMS_DEPOSITED,
+                    item.getAmount() - (remaining == null ? 0 : remaining.getAmount()));
+            if (remaining == null || remaining.getAmount() == 0) {
+                event.setCancelled(true);
+                event.getDestination().setItem(event.getDestination().first(event.getItem().getType()), null);
+            } else {
+                event.setItem(remaining);
             }
+            return;
+        }
 
-            if (destinationNetwork != null && isHopper(source)) {
-                ItemStack template = event.getItem().clone();
-                template.setAmount(1);
-                ItemStack removed = destinationNetwork.removeFromNetwork(template, event.getItem().getAmount());
-                if (removed == null || removed.getAmount() <= 0) {
-                    event.setCancelled(true);
-                } else {
-                    event.setItem(removed);
-                }
+        if (destinationNetwork != null && isHopper(source)) {
+            ItemStack template = event.getItem().clone();
+            template.setAmount(1);
+            ItemStack removed = destinationNetwork.removeFromNetwork(template, event.getItem().getAmount());
+            if (removed == null || removed.getAmount() <= 0) {
+                event.setCancelled(true);
+            } else {
+                PerformanceMetrics.get().add(PerformanceMetrics.Counter.ITEMS_WITHDRAWN, removed.getAmount());
+                event.setItem(removed);
             }
         }
     }
@@ -3,8 +3,11 @@ package com.dermoha.networkstorage.listeners;
 import com.dermoha.networkstorage.NetworkStoragePlugin;
 import com.dermoha.networkstorage.gui.TerminalGUI;
 import com.dermoha.networkstorage.managers.LanguageManager;
+import com.dermoha.networkstorage.managers.RefreshCoalescer;
+import com.dermoha.networkstorage.storage.ContainerAccess;
 import com.dermoha.networkstorage.storage.Network;
 import com.dermoha.networkstorage.storage.NetworkMovement;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Sound;
@@ -17,7 +20,9 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.WorldLoadEvent;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
@@ -43,6 +48,12 @@ public class NetworkContainerListener implements Listener {
         plugin.getNetworkManager().handleWorldLoaded(event.getWorld());
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        Chunk chunk = event.getChunk();
+        plugin.getNetworkManager().handleChunkLoaded(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
     @EventHandler(ignoreCancelled = true)
     public void onPlayerInteract(PlayerInteractEvent event) {
         if (event.getAction() != Action.RIGHT_CLICK_BLOCK) {
@@ -123,8 +134,21 @@ public class NetworkContainerListener implements Listener {
     }
 
     /**
-     * Inventory events are observed at MONITOR and invalidated on the next
-     * tick, after Bukkit has applied the click/drag/hopper/close mutation.
+     * A chest placed beside another one can turn it into a double chest
+     * without changing its block type, so resolved containers around it are
+     * dropped.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        Material type = event.getBlockPlaced().getType();
+        if (type == Material.CHEST || type == Material.TRAPPED_CHEST) {
+            ContainerAccess.invalidateAround(event.getBlockPlaced().getLocation());
+        }
+    }
+
+    /**
+     * Inventory events are observed at MONITOR and the container is re-read on
+     * the next tick, after Bukkit has applied the click/drag/hopper/close mutation.
      */
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onInventoryClick(InventoryClickEvent event) {
@@ -139,30 +163,31 @@ public class NetworkContainerListener implements Listener {
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onInventoryMove(InventoryMoveItemEvent event) {
         invalidateNextTick(event.getSource());
-        invalidateNextTick(event.getDestination());
+        invalidateNextTick(event.getDestination(), true);
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onInventoryClose(InventoryCloseEvent event) {
-        invalidateNextTick(event.getInventory());
+        invalidateNextTick(event.getInventory(), true);
     }
 
     private void invalidateNextTick(Inventory inventory) {
+        invalidateNextTick(inventory, false);
+    }
+
+    /**
+     * @param receivedItems whether items may have been put into the inventory;
+     *                      a sender chest is then queued for transfer
+     */
+    private void invalidateNextTick(Inventory inventory, boolean receivedItems) {
         Location location = getContainerLocation(inventory);
         if (location == null) {
             return;
         }
-        org.bukkit.Bukkit.getScheduler().runTask(plugin, () -> {
-            Network network = plugin.getNetworkManager().getNetworkByLocation(location);
-            if (network != null && (network.isChestInNetwork(location)
-                    || network.isChestInNetwork(plugin.getNetworkManager().getNormalizedLocation(location))
-                    || network.isSenderChestInNetwork(location))) {
-                network.invalidateItemCache();
-                if (plugin.getTerminalSessions() != null) {
-                    plugin.getTerminalSessions().refreshNetwork(network);
-                }
-            }
-        });
+        RefreshCoalescer coalescer = plugin.getRefreshCoalescer();
+        if (coalescer != null) {
+            coalescer.markContainer(location, receivedItems);
+        }
     }
 
     private Location getContainerLocation(Inventory inventory) {
@@ -0,0 +1,225 @@
+package com.dermoha.networkstorage.managers;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Registered block positions per world, keyed on a packed x/y/z long.  Each
+ * entry holds a network id and a bit set of {@link Role}s, so a lookup is one
+ * probe into primitive arrays and allocates nothing.
+ *
+ * <p>Main-thread only, like the rest of {@link NetworkManager}'s location state.
+ */
+final class BlockPositionIndex {
+
+    enum Role {
+        CHEST, TERMINAL, SENDER;
+
+        private final int bit = 1 << ordinal();
+    }
+
+    /** Returned for positions that are not registered. */
+    static final int NONE = -1;
+
+    private static final int ROLE_BITS = 3;
+    private static final int ROLE_MASK = (1 << ROLE_BITS) - 1;
+
+    private final Map<UUID, PositionMap> worlds = new HashMap<>();
+    private final Logger logger;
+
+    BlockPositionIndex(Logger logger) {
+        this.logger = logger;
+    }
+
+    static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    void put(Location location, int networkId, Role role) {
+        World world = location == null ? null : location.getWorld();
+        if (world != null) {
+            put(world.getUID(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), networkId, role);
+        }
+    }
+
+    void put(UUID worldId, int x, int y, int z, int networkId, Role role) {
+        PositionMap positions = worlds.computeIfAbsent(worldId, ignored -> new PositionMap());
+        long key = pack(x, y, z);
+        int current = positions.get(key);
+        // A position belongs to one network; registering it for another
+        // network replaces the old roles.
+        int roles = 0;
+        if (current != 0 && current >>> ROLE_BITS == networkId) {
+            roles = current & ROLE_MASK;
+        } else if (current != 0) {
+            logger.warning("Block " + x + "," + y + "," + z + " in world " + worldId + " was registered to network #"
+                    + (current >>> ROLE_BITS) + " and is now registered to network #" + networkId + ".");
+        }
+        positions.put(key, networkId << ROLE_BITS | roles | role.bit);
+    }
+
+    void remove(Location location, int networkId, Role role) {
+        World world = location == null ? null : location.getWorld();
+        if (world != null) {
+            remove(world.getUID(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), networkId, role);
+        }
+    }
+
+    /** Clears a role of {@code networkId}; an entry owned by another network is left alone. */
+    void remove(UUID worldId, int x, int y, int z, int networkId, Role role) {
+        PositionMap positions = worlds.get(worldId);
+        if (positions == null) {
+            return;
+        }
+        long key = pack(x, y, z);
+        int current = positions.get(key);
+        if (current == 0 || current >>> ROLE_BITS != networkId) {
+            return;
+        }
+        int roles = current & ~role.bit & ROLE_MASK;
+        if (roles == 0) {
+            positions.remove(key);
+        } else {
+            positions.put(key, (current & ~ROLE_MASK) | roles);
+        }
+    }
+
+    /** Returns the network id registered at the position, or {@link #NONE}. */
+    int networkAt(Location location) {
+        World world = location == null ? null : location.getWorld();
+        if (world == null) {
+            return NONE;
+        }
+        return networkAt(world.getUID(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    int networkAt(UUID worldId, int x, int y, int z) {
+        PositionMap positions = worlds.get(worldId);
+        int value = positions == null ? 0 : positions.get(pack(x, y, z));
+        return value == 0 ? NONE : value >>> ROLE_BITS;
+    }
+
+    boolean hasRole(UUID worldId, int x, int y, int z, Role role) {
+        PositionMap positions = worlds.get(worldId);
+        return positions != null && (positions.get(pack(x, y, z)) & role.bit) != 0;
+    }
+
+    /**
+     * Whether a horizontal neighbour is registered.  The other half of a
+     * double chest is always one of them, so a miss with no registered
+     * neighbour needs no block read to normalise the position.
+     */
+    boolean hasHorizontalNeighbour(Location location) {
+        World world = location == null ? null : location.getWorld();
+        if (world == null) {
+            return false;
+        }
+        PositionMap positions = worlds.get(world.getUID());
+        if (positions == null) {
+            return false;
+        }
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        return positions.get(pack(x + 1, y, z)) != 0
+                || positions.get(pack(x - 1, y, z)) != 0
+                || positions.get(pack(x, y, z + 1)) != 0
+                || positions.get(pack(x, y, z - 1)) != 0;
+    }
+
+    int size() {
+        int size = 0;
+        for (PositionMap positions : worlds.values()) {
+            size += positions.size;
+        }
+        return size;
+    }
+
+    void clear() {
+        worlds.clear();
+    }
+
+    /**
+     * Open-addressing long to int map with linear probing.  Zero marks a free
+     * slot; stored values always carry at least one role bit.
+     */
+    private static final class PositionMap {
+
+        private long[] keys = new long[16];
+        private int[] values = new int[16];
+        private int size;
+
+        int get(long key) {
+            return values[slotOf(key)];
+        }
+
+        void put(long key, int value) {
+            int slot = slotOf(key);
+            if (values[slot] == 0) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    values[slot] = value;
+                    resize(keys.length << 1);
+                    return;
+                }
+            }
+            values[slot] = value;
+        }
+
+        void remove(long key) {
+            int slot = slotOf(key);
+            if (values[slot] == 0) {
+                return;
+            }
+            // Backward-shift deletion keeps probe chains intact.
+            int mask = keys.length - 1;
+            values[slot] = 0;
+            size--;
+            int gap = slot;
+            int next = (slot + 1) & mask;
+            while (values[next] != 0) {
+                int home = mix(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    values[next] = 0;
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+        }
+
+        private int slotOf(long key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (values[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[capacity];
+            values = new int[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != 0) {
+                    int slot = slotOf(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int mix(long key) {
+            long mixed = key * 0x9E3779B97F4A7C15L;
+            return (int) (mixed ^ (mixed >>> 32));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.dermoha.networkstorage.managers;
+
+import com.dermoha.networkstorage.metrics.PerformanceMetrics;
+import com.dermoha.networkstorage.storage.Network;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Plugin chunk tickets for networks in use.  Every chunk a network reads or
+ * moves items through is leased to it, so a busy terminal does not make the
+ * server unload a chunk only for the next transfer to load it again.  A
+ * network's leases end once it has been idle for the timeout; a network with
+ * an open terminal or a running scan counts as in use.  A chunk shared by
+ * several networks keeps its ticket until the last of them lets go.
+ *
+ * <p>Main-thread only.
+ */
+public final class ChunkLeaseManager {
+
+    /** Adds and removes the plugin's chunk tickets. */
+    interface Tickets {
+        void add(World world, int chunkX, int chunkZ);
+
+        void remove(World world, int chunkX, int chunkZ);
+    }
+
+    private record ChunkKey(UUID worldId, int chunkX, int chunkZ) {
+    }
+
+    private static final class Held {
+        private final World world;
+        private int holders;
+
+        private Held(World world) {
+            this.world = world;
+        }
+    }
+
+    private static final class Lease {
+        private final Set<ChunkKey> chunks = new HashSet<>();
+        private long lastUsedNanos;
+    }
+
+    private final Map<Network, Lease> leases = new IdentityHashMap<>();
+    private final Map<ChunkKey, Held> held = new HashMap<>();
+    private final long idleNanos;
+    private final LongSupplier nanoClock;
+    private final Tickets tickets;
+    private final Predicate<Network> inUse;
+
+    public ChunkLeaseManager(Plugin plugin, long idleNanos, Predicate<Network> inUse) {
+        this(idleNanos, System::nanoTime, new Tickets() {
+            @Override
+            public void add(World world, int chunkX, int chunkZ) {
+                world.addPluginChunkTicket(chunkX, chunkZ, plugin);
+            }
+
+            @Override
+            public void remove(World world, int chunkX, int chunkZ) {
+                world.removePluginChunkTicket(chunkX, chunkZ, plugin);
+            }
+        }, inUse);
+    }
+
+    ChunkLeaseManager(long idleNanos, LongSupplier nanoClock, Tickets tickets, Predicate<Network> inUse) {
+        this.idleNanos = Math.max(0L, idleNanos);
+        this.nanoClock = nanoClock;
+        this.tickets = tickets;
+        this.inUse = inUse;
+    }
+
+    /** False when the idle timeout is zero and nothing is ever leased. */
+    public boolean isEnabled() {
+        return idleNanos > 0L;
+    }
+
+    /**
+     * Leases a loaded chunk to {@code network}, or renews the network's
+     * leases when it already holds the chunk.
+     */
+    public void use(Network network, World world, int chunkX, int chunkZ) {
+        if (!isEnabled() || network == null || world == null) {
+            return;
+        }
+        Lease lease = leases.computeIfAbsent(network, ignored -> new Lease());
+        lease.lastUsedNanos = nanoClock.getAsLong();
+        ChunkKey key = new ChunkKey(world.getUID(), chunkX, chunkZ);
+        if (!lease.chunks.add(key)) {
+            return;
+        }
+        Held chunk = held.get(key);
+        if (chunk == null) {
+            chunk = new Held(world);
+            held.put(key, chunk);
+            tickets.add(world, chunkX, chunkZ);
+            publish();
+        }
+        chunk.holders++;
+    }
+
+    /**
+     * Ends the leases of networks idle for the timeout.
+     *
+     * @return the number of chunk tickets removed
+     */
+    public int releaseIdle() {
+        long now = nanoClock.getAsLong();
+        int released = 0;
+        Iterator<Map.Entry<Network, Lease>> iterator = leases.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Network, Lease> entry = iterator.next();
+            Lease lease = entry.getValue();
+            if (inUse.test(entry.getKey())) {
+                lease.lastUsedNanos = now;
+                continue;
+            }
+            if (now - lease.lastUsedNanos < idleNanos) {
+                continue;
+            }
+            iterator.remove();
+            released += drop(lease);
+        }
+        if (released > 0) {
+            publish();
+        }
+        return released;
+    }
+
+    /** Ends a network's leases at once, e.g. when it is deleted. */
+    public void release(Network network) {
+        Lease lease = leases.remove(network);
+        if (lease != null && drop(lease) > 0) {
+            publish();
+        }
+    }
+
+    public void releaseAll() {
+        for (Lease lease : leases.values()) {
+            drop(lease);
+        }
+        leases.clear();
+        publish();
+    }
+
+    public boolean isEmpty() {
+        return leases.isEmpty();
+    }
+
+    /** Chunks currently held by a ticket. */
+    public int leasedChunks() {
+        return held.size();
+    }
+
+    private int drop(Lease lease) {
+        int released = 0;
+        for (ChunkKey key : lease.chunks) {
+            Held chunk = held.get(key);
+            if (chunk == null || --chunk.holders > 0) {
+                continue;
+            }
+            held.remove(key);
+            tickets.remove(chunk.world, key.chunkX(), key.chunkZ());
+            released++;
+        }
+        lease.chunks.clear();
+        return released;
+    }
+
+    private void publish() {
+        PerformanceMetrics.get().set(PerformanceMetrics.Gauge.LEASED_CHUNKS, held.size());
+    }
+}
@@ -37,6 +37,8 @@ public class ConfigManager implements NetworkAccessRules {
         config.addDefault("max-terminals-per-network", 100);
         config.addDefault("max-sender-chests-per-network", 100);
         config.addDefault("sender-chest-transfer-interval-seconds", 5);
+        config.addDefault("sender-chest-tick-budget-ms", 1);
+        config.addDefault("terminal-refresh-min-interval-ms", 100);
         config.addDefault("auto-save-interval-minutes", 5);
         config.addDefault("enable-permissions", true);
         config.addDefault("enable-trust-system", true);
@@ -67,6 +69,11 @@ public class ConfigManager implements NetworkAccessRules {
         config.addDefault("update-check.notify-permission", "");
         config.addDefault("storage.backup-interval-hours", 24);
         config.addDefault("storage.write-debounce-ms", 1500);
+        config.addDefault("scan.tick-budget-ms", 2);
+        config.addDefault("chunk-leases.idle-timeout-seconds", 30);
+        config.addDefault("metrics.dump-interval-seconds", 60);
+        config.addDefault("storage-cells.max-per-network", 8);
+        config.addDefault("storage-cells.capacity", 100_000);
         config.options().copyDefaults(true);
     }
 
@@ -95,10 +102,27 @@ public class ConfigManager implements NetworkAccessRules {
         return getClampedInt("max-sender-chests-per-network", 100, 1, 10_000);
     }
 
+    public int getMaxStorageCellsPerNetwork() {
+        return getClampedInt("storage-cells.max-per-network", 8, 0, 1_000);
+    }
+
+    /** Items one new storage cell can hold; existing cells keep the capacity they were created with. */
+    public int getStorageCellCapacity() {
+        return getClampedInt("storage-cells.capacity", 100_000, 1, 1_000_000_000);
+    }
+
     public int getSenderChestTransferInterval() {
         return getClampedInt("sender-chest-transfer-interval-seconds", 5, 1, 86_400);
     }
 
+    public int getSenderChestTickBudgetMs() {
+        return getClampedInt("sender-chest-tick-budget-ms", 1, 1, 20);
+    }
+
+    public int getTerminalRefreshMinIntervalMs() {
+        return getClampedInt("terminal-refresh-min-interval-ms", 100, 0, 5000);
+    }
+
     public int getWirelessTerminalDurability() {
         return getClampedInt("wireless-terminal-durability", 100, 1, 1_000_000);
     }
@@ -204,6 +228,19 @@ public class ConfigManager implements NetworkAccessRules {
         return getClampedInt("storage.write-debounce-ms", 1500, 250, 10_000);
     }
 
+    public int getScanTickBudgetMs() {
+        return getClampedInt("scan.tick-budget-ms", 2, 1, 40);
+    }
+
+    /** Seconds an idle network keeps its chunk tickets; 0 disables leasing. */
+    public int getChunkLeaseIdleTimeoutSeconds() {
+        return getClampedInt("chunk-leases.idle-timeout-seconds", 30, 0, 3_600);
+    }
+
+    public int getMetricsDumpIntervalSeconds() {
+        return getClampedInt("metrics.dump-interval-seconds", 60, 0, 86_400);
+    }
+
     public void reloadConfig() {
         plugin.reloadConfig();
         config = plugin.getConfig();
@@ -1,39 +1,75 @@
 package com.dermoha.networkstorage.managers;
 
+import com.dermoha.networkstorage.metrics.PerformanceMetrics;
+import com.dermoha.networkstorage.storage.ContainerAccess;
+import com.dermoha.networkstorage.storage.ContainerContents;
+import com.dermoha.networkstorage.storage.ItemCountMap;
+import com.dermoha.networkstorage.storage.Network;
 import com.dermoha.networkstorage.storage.NetworkScanResult;
 import com.dermoha.networkstorage.storage.StoredLocation;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Container;
-import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.ItemStack;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
 
 /**
  * Main-thread-only scanner for registered network containers.  The scanner
  * owns the only full traversal used by terminal views, admin information, and
  * the stored-item aggregate.
+ *
+ * <p>Unloaded chunks are requested through Paper's asynchronous chunk API.
+ * Their groups are parked until the load completes while the session keeps
+ * reading groups whose chunks are already loaded.
+ *
+ * <p>Each physical inventory is read once per session: when both halves of a
+ * double chest are registered, the combined inventory is recorded under the
+ * left half and the right half is only counted as present.
  */
 public final class NetworkContentScanner {
 
-    public static final int DEFAULT_CHUNKS_PER_TICK = 4;
+    // A chunk may unload again before its parked group is read; give up after
+    // this many requests instead of chasing it forever.
+    private static final int MAX_CHUNK_REQUESTS = 3;
 
     private final BooleanSupplier primaryThread;
+    private final LongSupplier nanoClock;
+    private final ContainerAccess containers;
 
     public NetworkContentScanner() {
-        this(Bukkit::isPrimaryThread);
+        this(Bukkit::isPrimaryThread, System::nanoTime, ContainerAccess.shared());
     }
 
     NetworkContentScanner(BooleanSupplier primaryThread) {
+        this(primaryThread, System::nanoTime);
+    }
+
+    NetworkContentScanner(BooleanSupplier primaryThread, LongSupplier nanoClock) {
+        this(primaryThread, nanoClock, ContainerAccess.uncached());
+    }
+
+    NetworkContentScanner(BooleanSupplier primaryThread, LongSupplier nanoClock, ContainerAccess containers) {
         this.primaryThread = primaryThread;
+        this.nanoClock = nanoClock;
+        this.containers = containers;
     }
 
     public ScanSession begin(String networkName, Collection<Location> locations) {
@@ -45,6 +81,7 @@ public final class NetworkContentScanner {
                              Collection<StoredLocation> unloadedLocations) {
         requirePrimaryThread();
         Map<ChunkKey, ChunkGroup> grouped = new LinkedHashMap<>();
+        Set<Location> registered = new HashSet<>();
         List<String> warnings = new ArrayList<>();
         int registeredLocations = (locations == null ? 0 : locations.size())
                 + (unloadedLocations == null ? 0 : unloadedLocations.size());
@@ -67,10 +104,11 @@ public final class NetworkContentScanner {
                 ChunkKey key = new ChunkKey(world.getUID(), location.getBlockX() >> 4, location.getBlockZ() >> 4);
                 grouped.computeIfAbsent(key, ignored -> new ChunkGroup(world, key.chunkX(), key.chunkZ()))
                         .locations().add(location);
+                registered.add(location);
             }
         }
 
-        return new ScanSession(networkName, registeredLocations, grouped, warnings);
+        return new ScanSession(networkName, registeredLocations, grouped, registered, warnings);
     }
 
     public ScanStep advance(ScanSession session, int maxChunks) {
@@ -81,14 +119,52 @@ public final class NetworkContentScanner {
 
         int budget = Math.max(1, maxChunks);
         int processed = 0;
-        while (session.cursor() < session.groups().size() && processed < budget) {
-            ChunkGroup group = session.groups().get(session.cursor());
-            processChunk(session, group);
-            session.advanceCursor();
+        while (session.hasRunnableChunk() && processed < budget) {
+            processNextChunk(session);
             processed++;
         }
+        return stepResult(session);
+    }
+
+    /**
+     * Processes chunks until {@code budgetNanos} is spent.  The first chunk
+     * always runs so every session makes progress; further chunks only start
+     * while the session's measured per-chunk cost still fits the budget.
+     */
+    public ScanStep advanceFor(ScanSession session, long budgetNanos) {
+        requirePrimaryThread();
+        if (session.complete()) {
+            return new ScanStep(true, session.finish());
+        }
+
+        long started = nanoClock.getAsLong();
+        boolean first = true;
+        while (session.hasRunnableChunk()) {
+            long elapsed = nanoClock.getAsLong() - started;
+            if (!first && elapsed + session.averageChunkNanos() > budgetNanos) {
+                break;
+            }
+            processNextChunk(session);
+            first = false;
+        }
+        return stepResult(session);
+    }
+
+    /** Reads a group whose load just completed, otherwise the next group in order. */
+    private void processNextChunk(ScanSession session) {
+        long chunkStarted = nanoClock.getAsLong();
+        ChunkGroup ready = session.pollReady();
+        if (ready != null) {
+            processLoadedGroup(session, ready);
+        } else {
+            processChunk(session, session.groups().get(session.cursor()));
+            session.advanceCursor();
+        }
+        session.recordChunkCost(nanoClock.getAsLong() - chunkStarted);
+    }
 
-        if (session.cursor() < session.groups().size()) {
+    private static ScanStep stepResult(ScanSession session) {
+        if (session.hasRunnableChunk() || session.chunksWaitingForIo() > 0) {
             return new ScanStep(false, null);
         }
 
@@ -100,40 +176,91 @@ public final class NetworkContentScanner {
         boolean loaded;
         try {
             loaded = group.world().isChunkLoaded(group.chunkX(), group.chunkZ());
-            if (!loaded) {
-                loaded = group.world().loadChunk(group.chunkX(), group.chunkZ(), false);
-            }
-            loaded = loaded || group.world().isChunkLoaded(group.chunkX(), group.chunkZ());
         } catch (RuntimeException exception) {
             session.warn(chunkWarning(session, group) + ": " + messageOf(exception));
             return;
         }
 
-        if (!loaded) {
+        if (loaded) {
+            readGroup(session, group);
+        } else {
+            requestChunk(session, group);
+        }
+    }
+
+    private void processLoadedGroup(ScanSession session, ChunkGroup group) {
+        if (group.loadFailure != null) {
+            String detail = group.loadFailure.isEmpty() ? "" : ": " + group.loadFailure;
+            session.warn(chunkWarning(session, group) + detail);
+            return;
+        }
+        processChunk(session, group);
+    }
+
+    /**
+     * Asks Paper to load the chunk off the main thread.  A future that is
+     * already done is consumed immediately; otherwise the group is parked and
+     * returns through the session's ready queue.
+     */
+    private void requestChunk(ScanSession session, ChunkGroup group) {
+        if (group.chunkRequests >= MAX_CHUNK_REQUESTS) {
+            session.warn(chunkWarning(session, group));
+            return;
+        }
+        group.chunkRequests++;
+        PerformanceMetrics.get().increment(PerformanceMetrics.Counter.CHUNK_LOADS);
+
+        CompletableFuture<Chunk> future;
+        try {
+            future = group.world().getChunkAtAsync(group.chunkX(), group.chunkZ(), false);
+        } catch (RuntimeException exception) {
+            session.warn(chunkWarning(session, group) + ": " + messageOf(exception));
+            return;
+        }
+        if (future == null) {
             session.warn(chunkWarning(session, group));
             return;
         }
+
+        if (future.isDone()) {
+            Chunk chunk;
+            try {
+                chunk = future.join();
+            } catch (CompletionException | java.util.concurrent.CancellationException exception) {
+                session.warn(chunkWarning(session, group) + ": " + messageOf(exception));
+                return;
+            }
+            if (chunk == null) {
+                session.warn(chunkWarning(session, group));
+                return;
+            }
+            processChunk(session, group);
+            return;
+        }
+
+        session.park(group, future);
+    }
+
+    private void readGroup(ScanSession session, ChunkGroup group) {
         session.incrementLoadedChunks();
+        session.chunkListener.chunkUsed(group.world(), group.chunkX(), group.chunkZ());
 
         for (Location location : group.locations()) {
             try {
-                if (!(location.getBlock().getState() instanceof Container container)) {
+                Container container = containers.container(location);
+                if (container == null) {
                     session.warn(session.networkName() + ": registered location is no longer a container: " + formatLocation(location));
                     continue;
                 }
-                session.incrementContainersFound();
-                Inventory inventory = container.getInventory();
-                session.addSlots(inventory.getSize());
-                for (ItemStack item : inventory.getContents()) {
-                    // Inventory contents cannot contain block-only air variants
-                    // as real stacks; equality also avoids invoking registry
-                    // lookups while the API is being used by lightweight tests.
-                    if (item == null || item.getType() == org.bukkit.Material.AIR) {
-                        continue;
-                    }
-                    session.incrementUsedSlots();
-                    session.addItems(item);
+                Location identity = containers.identity(location);
+                if (identity != null && !session.claimInventory(identity)) {
+                    session.addSharedHalf();
+                    continue;
                 }
+                // Record a double chest under its left half when that half is
+                // registered too, so the key does not depend on visiting order.
+                Location key = identity != null && session.isRegistered(identity) ? identity : location;
+                session.addContainer(key, ContainerContents.read(container.getInventory()));
             } catch (RuntimeException exception) {
                 session.warn(session.networkName() + ": could not read registered container "
                         + formatLocation(location) + ": " + messageOf(exception));
@@ -165,7 +292,10 @@ public final class NetworkContentScanner {
                 + " for registered locations " + locations;
     }
 
-    private static String messageOf(RuntimeException exception) {
+    private static String messageOf(Throwable exception) {
+        if (exception instanceof CompletionException && exception.getCause() != null) {
+            exception = exception.getCause();
+        }
         String message = exception.getMessage();
         return message == null || message.isBlank() ? exception.getClass().getSimpleName() : message;
     }
@@ -173,9 +303,36 @@ public final class NetworkContentScanner {
     private record ChunkKey(UUID worldId, int chunkX, int chunkZ) {
     }
 
-    private record ChunkGroup(World world, int chunkX, int chunkZ, List<Location> locations) {
+    private static final class ChunkGroup {
+        private final World world;
+        private final int chunkX;
+        private final int chunkZ;
+        private final List<Location> locations = new ArrayList<>();
+        private int chunkRequests;
+        // Written by the chunk future before the group is queued as ready;
+        // empty when the chunk does not exist, null after a successful load.
+        private volatile String loadFailure;
+
         private ChunkGroup(World world, int chunkX, int chunkZ) {
-            this(world, chunkX, chunkZ, new ArrayList<>());
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+
+        private World world() {
+            return world;
+        }
+
+        private int chunkX() {
+            return chunkX;
+        }
+
+        private int chunkZ() {
+            return chunkZ;
+        }
+
+        private List<Location> locations() {
+            return locations;
         }
     }
 
@@ -186,23 +343,35 @@ public final class NetworkContentScanner {
         private final String networkName;
         private final int registeredLocations;
         private final List<ChunkGroup> groups;
-        private final Map<ItemStack, Integer> items = new LinkedHashMap<>();
+        private final ItemCountMap items = new ItemCountMap();
+        private final Map<Location, ContainerContents> containers = new HashMap<>();
+        private final Set<Location> registered;
+        private final Set<Location> readInventories = new HashSet<>();
+        private Network.ChunkListener chunkListener = (world, chunkX, chunkZ) -> {};
+        // Chunk futures normally complete on the main thread, but the queue
+        // and counter do not rely on it.
+        private final Queue<ChunkGroup> ready = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger waitingForIo = new AtomicInteger();
         private final List<String> warnings;
         private int cursor;
         private int loadedChunks;
         private int containersFound;
+        private int sharedHalves;
         private long totalItems;
         private long totalSlots;
         private long usedSlots;
+        private long averageChunkNanos;
         private boolean complete;
 
         private ScanSession(String networkName,
                             int registeredLocations,
                             Map<ChunkKey, ChunkGroup> grouped,
+                            Set<Location> registered,
                             List<String> warnings) {
             this.networkName = networkName;
             this.registeredLocations = registeredLocations;
             this.groups = new ArrayList<>(grouped.values());
+            this.registered = registered;
             this.warnings = new ArrayList<>(warnings);
         }
 
@@ -222,14 +391,30 @@ public final class NetworkContentScanner {
             return loadedChunks;
         }
 
+        /** Physical inventories read so far; a double chest counts once. */
         public int containersFound() {
             return containersFound;
         }
 
+        /** Registered double-chest halves whose inventory was read through the other half. */
+        public int sharedHalves() {
+            return sharedHalves;
+        }
+
         public int processedChunks() {
             return cursor;
         }
 
+        /** Chunks requested asynchronously whose load has not completed yet. */
+        public int chunksWaitingForIo() {
+            return waitingForIo.get();
+        }
+
+        /** Moving average of the time spent per chunk, zero before the first chunk. */
+        public long averageChunkNanos() {
+            return averageChunkNanos;
+        }
+
         public boolean complete() {
             return complete;
         }
@@ -238,10 +423,43 @@ public final class NetworkContentScanner {
             return List.copyOf(warnings);
         }
 
+        /** Told about each chunk the session reads, once it is loaded. */
+        public void setChunkListener(Network.ChunkListener listener) {
+            this.chunkListener = listener == null ? (world, chunkX, chunkZ) -> {} : listener;
+        }
+
+        /** Contents of every container read so far, keyed by registered location. */
+        public Map<Location, ContainerContents> containers() {
+            return Collections.unmodifiableMap(containers);
+        }
+
         private int cursor() {
             return cursor;
         }
 
+        private boolean hasRunnableChunk() {
+            return !ready.isEmpty() || cursor < groups.size();
+        }
+
+        private ChunkGroup pollReady() {
+            return ready.poll();
+        }
+
+        private void park(ChunkGroup group, CompletableFuture<Chunk> future) {
+            waitingForIo.incrementAndGet();
+            future.whenComplete((chunk, failure) -> {
+                if (failure != null) {
+                    group.loadFailure = messageOf(failure);
+                } else if (chunk == null) {
+                    group.loadFailure = "";
+                } else {
+                    group.loadFailure = null;
+                }
+                ready.add(group);
+                waitingForIo.decrementAndGet();
+            });
+        }
+
         private List<ChunkGroup> groups() {
             return groups;
         }
@@ -250,6 +468,11 @@ public final class NetworkContentScanner {
             cursor++;
         }
 
+        private void recordChunkCost(long nanos) {
+            long cost = Math.max(0L, nanos);
+            averageChunkNanos = averageChunkNanos == 0L ? cost : (averageChunkNanos * 7L + cost) / 8L;
+        }
+
         private void markComplete() {
             complete = true;
         }
@@ -258,23 +481,26 @@ public final class NetworkContentScanner {
             loadedChunks++;
         }
 
-        private void incrementContainersFound() {
-            containersFound++;
+        private boolean isRegistered(Location location) {
+            return registered.contains(location);
         }
 
-        private void incrementUsedSlots() {
-            usedSlots++;
+        /** @return false when the inventory owned by {@code identity} was already read */
+        private boolean claimInventory(Location identity) {
+            return readInventories.add(identity);
         }
 
-        private void addSlots(int amount) {
-            totalSlots += Math.max(0, amount);
+        private void addSharedHalf() {
+            sharedHalves++;
         }
 
-        private void addItems(ItemStack item) {
-            totalItems += item.getAmount();
-            ItemStack key = item.clone();
-            key.setAmount(1);
-            items.merge(key, item.getAmount(), Integer::sum);
+        private void addContainer(Location location, ContainerContents contents) {
+            containersFound++;
+            containers.put(location, contents);
+            totalSlots += contents.slots();
+            usedSlots += contents.usedSlots();
+            totalItems += contents.totalItems();
+            items.addAll(contents.items());
         }
 
         private void warn(String warning) {
@@ -282,7 +508,7 @@ public final class NetworkContentScanner {
         }
 
         private NetworkScanResult finish() {
-            boolean completeScan = warnings.isEmpty() && containersFound == registeredLocations;
+            boolean completeScan = warnings.isEmpty() && containersFound + sharedHalves == registeredLocations;
             if (completeScan) {
                 return NetworkScanResult.complete(
                         networkName,
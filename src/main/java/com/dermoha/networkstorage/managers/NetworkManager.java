@@ -1,11 +1,16 @@
 package com.dermoha.networkstorage.managers;
 
 import com.dermoha.networkstorage.NetworkStoragePlugin;
+import com.dermoha.networkstorage.metrics.PerformanceMetrics;
+import com.dermoha.networkstorage.storage.CachedScan;
+import com.dermoha.networkstorage.storage.ContainerAccess;
 import com.dermoha.networkstorage.storage.Network;
 import com.dermoha.networkstorage.storage.NetworkStorageProvider;
 import com.dermoha.networkstorage.storage.PersistenceCoordinator;
 import com.dermoha.networkstorage.storage.NetworkScanResult;
 import com.dermoha.networkstorage.storage.NetworkScanStatus;
+import com.dermoha.networkstorage.storage.SnapshotCapture;
+import com.dermoha.networkstorage.storage.StorageCell;
 import com.dermoha.networkstorage.storage.StorageSnapshot;
 import com.dermoha.networkstorage.storage.StorageValues;
 import com.dermoha.networkstorage.util.BlockUtils;
@@ -19,11 +24,11 @@ import org.bukkit.block.Container;
 import org.bukkit.block.data.type.Chest;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -41,27 +46,48 @@ public class NetworkManager {
     private final LanguageManager lang;
     private final NetworkStorageProvider provider;
     private final PersistenceCoordinator persistence;
+    private final SnapshotCapture snapshotCapture = new SnapshotCapture();
     private final Map<String, Network> networks = new ConcurrentHashMap<>();
-    private final Map<Location, Network> locationIndex = new HashMap<>();
+    // Registered positions map to an id into networksById; ids of deleted
+    // networks are not reused.
+    private final BlockPositionIndex positionIndex;
+    private final List<Network> networksById = new ArrayList<>();
+    private final Map<Network, Integer> networkIds = new java.util.IdentityHashMap<>();
     private final Map<UUID, String> selectedNetworks = new ConcurrentHashMap<>();
     private final Map<UUID, String> selectedWirelessNetworks = new ConcurrentHashMap<>();
     private final Set<String> dirtyNetworks = ConcurrentHashMap.newKeySet();
     private final NetworkContentScanner contentScanner = new NetworkContentScanner();
     private final Map<Network, ScanJob> scanJobs = new java.util.IdentityHashMap<>();
+    // Round-robin order of running scans; a job whose turn did not come before
+    // the tick budget ran out stays at the head for the next tick.
+    private final ArrayDeque<ScanJob> scanQueue = new ArrayDeque<>();
+    private final long scanTickBudgetNanos;
+    private int scanTaskId = -1;
+    private long lastScanTickNanos;
+    private long averageTickGapNanos;
     private final Set<Network> attachedNetworks = Collections.newSetFromMap(new java.util.IdentityHashMap<>());
+    private final ChunkLeaseManager chunkLeases;
+    private int chunkLeaseTaskId = -1;
     private boolean scansCancelled;
+    private boolean cellSaveQueued;
     private volatile boolean storageDirty;
     private volatile boolean playerStateDirty;
     private final Object renameLock = new Object();
     private static final String GLOBAL_NETWORK_NAME = "Global";
     private static final UUID GLOBAL_NETWORK_OWNER = UUID.fromString("00000000-0000-0000-0000-000000000000");
+    private static final long TICK_NANOS = 50_000_000L;
 
     public NetworkManager(NetworkStoragePlugin plugin, NetworkStorageProvider provider) {
         this.plugin = plugin;
         this.lang = plugin.getLanguageManager();
         this.provider = provider;
+        this.positionIndex = new BlockPositionIndex(plugin.getLogger());
         this.persistence = new PersistenceCoordinator(provider, plugin.getLogger(),
                 plugin.getConfigManager().getStorageWriteDebounceMs());
+        this.scanTickBudgetNanos = Duration.ofMillis(plugin.getConfigManager().getScanTickBudgetMs()).toNanos();
+        this.chunkLeases = new ChunkLeaseManager(plugin,
+                Duration.ofSeconds(plugin.getConfigManager().getChunkLeaseIdleTimeoutSeconds()).toNanos(),
+                this::isNetworkInUse);
         loadAll();
         pruneInvalidPlayerState();
         for (Network network : networks.values()) {
@@ -76,6 +102,11 @@ public class NetworkManager {
 
     private void loadAll() {
         provider.loadNetworks(networks, selectedNetworks, selectedWirelessNetworks);
+        // What was just loaded is what the database holds, so the first save
+        // after a start or reload only writes what changed since.
+        persistence.markPersisted(snapshotCapture.capture(networks.values(), selectedNetworks, selectedWirelessNetworks));
+        decodeStorageCells();
+        restoreScanCache();
 
         boolean isGlobalMode = plugin.getConfigManager().getNetworkMode() == ConfigManager.NetworkMode.GLOBAL;
         if (isGlobalMode && !networks.containsKey(GLOBAL_NETWORK_NAME)) {
@@ -89,17 +120,9 @@ public class NetworkManager {
     }
 
     private void rebuildLocationIndex() {
-        locationIndex.clear();
+        positionIndex.clear();
         for (Network network : networks.values()) {
-            for (Location loc : network.getChestLocations()) {
-                locationIndex.put(loc, network);
-            }
-            for (Location loc : network.getTerminalLocations()) {
-                locationIndex.put(loc, network);
-            }
-            for (Location loc : network.getSenderChestLocations()) {
-                locationIndex.put(loc, network);
-            }
+            indexLocations(network);
         }
     }
 
@@ -114,10 +137,43 @@ public class NetworkManager {
         }
     }
 
+    /**
+     * Queues the sender chests in a chunk that just loaded.  A sender skipped
+     * while its chunk was unloaded would otherwise wait for its next event.
+     */
+    public void handleChunkLoaded(World world, int chunkX, int chunkZ) {
+        requirePrimaryThread();
+        SenderChestQueue queue = plugin.getSenderChestQueue();
+        if (queue == null) {
+            return;
+        }
+        for (Network network : networks.values()) {
+            network.forEachSenderChestInChunk(world, chunkX, chunkZ, location -> queue.enqueue(network, location));
+        }
+    }
+
     private void indexLocations(Network network) {
-        for (Location location : network.getChestLocations()) locationIndex.put(location, network);
-        for (Location location : network.getTerminalLocations()) locationIndex.put(location, network);
-        for (Location location : network.getSenderChestLocations()) locationIndex.put(location, network);
+        int id = networkId(network);
+        for (Location location : network.getChestLocations()) positionIndex.put(location, id, BlockPositionIndex.Role.CHEST);
+        for (Location location : network.getTerminalLocations()) positionIndex.put(location, id, BlockPositionIndex.Role.TERMINAL);
+        for (Location location : network.getSenderChestLocations()) positionIndex.put(location, id, BlockPositionIndex.Role.SENDER);
+    }
+
+    private int networkId(Network network) {
+        Integer id = networkIds.get(network);
+        if (id == null) {
+            id = networksById.size();
+            networksById.add(network);
+            networkIds.put(network, id);
+        }
+        return id;
+    }
+
+    private void forgetNetworkId(Network network) {
+        Integer id = networkIds.remove(network);
+        if (id != null) {
+            networksById.set(id, null);
+        }
     }
 
     private void markDirty(String name) {
@@ -193,7 +249,64 @@ public class NetworkManager {
 
     private void queueSnapshotNow() {
         // Capture Bukkit-owned state on the main thread; SQLite receives only detached values.
-        persistence.request(StorageSnapshot.capture(networks.values(), selectedNetworks, selectedWirelessNetworks));
+        persistence.request(captureSnapshot());
+    }
+
+    private StorageSnapshot captureSnapshot() {
+        long started = PerformanceMetrics.get().now();
+        StorageSnapshot snapshot = snapshotCapture.capture(networks.values(), selectedNetworks, selectedWirelessNetworks);
+        PerformanceMetrics.get().recordSince(PerformanceMetrics.Timer.SNAPSHOT_CAPTURE, started);
+        return snapshot;
+    }
+
+    /** Decodes cell items here on the main thread rather than on first use. */
+    private void decodeStorageCells() {
+        for (Network network : networks.values()) {
+            for (StorageCell cell : network.getStorageCells()) {
+                cell.contents();
+                if (cell.unreadableRows() > 0) {
+                    plugin.getLogger().warning("Storage cell " + cell.id() + " of network '" + network.getName()
+                            + "' keeps " + cell.unreadableRows() + " item rows that can no longer be read.");
+                }
+            }
+        }
+    }
+
+    private void restoreScanCache() {
+        int restored = 0;
+        for (CachedScan cached : provider.loadScanCache()) {
+            Network network = networks.get(cached.networkName());
+            if (network == null) {
+                continue;
+            }
+            try {
+                network.restoreLastCompleteScan(cached.toScanResult());
+                restored++;
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Ignoring cached scan of network '" + cached.networkName() + "': " + e.getMessage());
+            }
+        }
+        if (restored > 0) {
+            plugin.getLogger().info("Restored cached contents of " + restored + " networks; they are refreshed in the background.");
+        }
+    }
+
+    /** Stores every network's last complete scan so the next start is warm. */
+    private void saveScanCache() {
+        requirePrimaryThread();
+        List<CachedScan> scans = new ArrayList<>();
+        for (Network network : networks.values()) {
+            NetworkScanResult complete = network.getLastCompleteContainerScan();
+            if (complete == null) {
+                continue;
+            }
+            try {
+                scans.add(CachedScan.of(network.getName(), complete));
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Could not cache the scan of network '" + network.getName() + "': " + e.getMessage());
+            }
+        }
+        provider.saveScanCache(scans);
     }
 
     public PersistenceCoordinator.Status getPersistenceStatus() {
@@ -215,7 +328,7 @@ public class NetworkManager {
     public boolean flushPersistence() {
         requirePrimaryThread();
         // Always capture the newest server-thread view before shutdown/reload waits for durability.
-        persistence.request(StorageSnapshot.capture(networks.values(), selectedNetworks, selectedWirelessNetworks));
+        persistence.request(captureSnapshot());
         boolean saved = persistence.flush(Duration.ofSeconds(30));
         if (saved) {
             for (Network network : networks.values()) network.setDirty(false);
@@ -228,6 +341,7 @@ public class NetworkManager {
 
     public void shutdownPersistence() {
         cancelScheduledScans();
+        saveScanCache();
         persistence.close();
     }
 
@@ -240,6 +354,8 @@ public class NetworkManager {
         if (network == null || !attachedNetworks.add(network)) {
             return;
         }
+        network.setStorageCellListener(this::queueCellSave);
+        network.setChunkListener((world, chunkX, chunkZ) -> leaseChunk(network, world, chunkX, chunkZ));
         network.setContentChangeListener(() -> {
             if (Bukkit.isPrimaryThread()) {
                 requestScan(network, false, null);
@@ -249,6 +365,58 @@ public class NetworkManager {
         });
     }
 
+    private void leaseChunk(Network network, World world, int chunkX, int chunkZ) {
+        chunkLeases.use(network, world, chunkX, chunkZ);
+        if (chunkLeaseTaskId == -1 && !chunkLeases.isEmpty()) {
+            chunkLeaseTaskId = plugin.getServer().getScheduler()
+                    .runTaskTimer(plugin, this::releaseIdleChunks, 20L, 20L).getTaskId();
+        }
+    }
+
+    private void releaseIdleChunks() {
+        chunkLeases.releaseIdle();
+        if (chunkLeases.isEmpty()) {
+            stopChunkLeaseTask();
+        }
+    }
+
+    private void stopChunkLeaseTask() {
+        if (chunkLeaseTaskId != -1) {
+            plugin.getServer().getScheduler().cancelTask(chunkLeaseTaskId);
+            chunkLeaseTaskId = -1;
+        }
+    }
+
+    /** A network with an open terminal or a running scan keeps its chunk leases. */
+    private boolean isNetworkInUse(Network network) {
+        if (scanJobs.containsKey(network)) {
+            return true;
+        }
+        TerminalSessions sessions = plugin.getTerminalSessions();
+        return sessions != null && sessions.hasViewers(network);
+    }
+
+    /** Removes every chunk ticket the plugin holds; used on disable and reload. */
+    public void releaseChunkLeases() {
+        stopChunkLeaseTask();
+        chunkLeases.releaseAll();
+    }
+
+    /**
+     * Writes cell contents back shortly after they change.  Every change of
+     * one tick is captured together on the next.
+     */
+    private void queueCellSave() {
+        if (cellSaveQueued) {
+            return;
+        }
+        cellSaveQueued = true;
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            cellSaveQueued = false;
+            queueNetworkSave();
+        });
+    }
+
     private void requirePrimaryThread() {
         if (!Bukkit.isPrimaryThread()) {
             throw new IllegalStateException("Network storage scans and Bukkit world access must run on the main thread");
@@ -319,8 +487,16 @@ public class NetworkManager {
         if (network == null) {
             return null;
         }
+        attachNetworkIfNeeded(network);
+        ScanJob running = scanJobs.get(network);
+        // Dropping the index fires the content listener, which starts a scan
+        // unless one is running.  A running scan may already have passed
+        // containers, so that one is restarted instead.
         network.invalidateItemCache();
-        return getNetworkScan(network, true, null);
+        if (running != null && scanJobs.get(network) == running) {
+            restartScan(running, null);
+        }
+        return network.getScanResult();
     }
 
     public void rescanAllNetworks() {
@@ -338,12 +514,14 @@ public class NetworkManager {
         NetworkContentScanner.ScanSession session = contentScanner.begin(
                 network.getName(), network.getChestLocations(), network.getUnloadedChestLocations());
         network.beginScan(session.registeredLocations(), session.uniqueChunks());
-        ScanJob job = new ScanJob(network, session, network.getContentVersion());
+        session.setChunkListener((world, chunkX, chunkZ) -> leaseChunk(network, world, chunkX, chunkZ));
+        ScanJob job = new ScanJob(network, session);
         if (callback != null) {
             job.callbacks().add(callback);
         }
         scanJobs.put(network, job);
-        scheduleScanStep(job);
+        scanQueue.addLast(job);
+        ensureScanTask();
     }
 
     private void restartScan(ScanJob job, Consumer<NetworkScanResult> callback) {
@@ -360,36 +538,91 @@ public class NetworkManager {
         }
     }
 
-    private void scheduleScanStep(ScanJob job) {
-        job.taskId = plugin.getServer().getScheduler().runTask(plugin, () -> advanceScan(job)).getTaskId();
+    /** Starts the shared scan task; all running scans are advanced from one task. */
+    private void ensureScanTask() {
+        if (scanTaskId != -1 || scansCancelled) {
+            return;
+        }
+        lastScanTickNanos = 0L;
+        averageTickGapNanos = TICK_NANOS;
+        scanTaskId = plugin.getServer().getScheduler().runTaskTimer(plugin, this::runScanTick, 1L, 1L).getTaskId();
     }
 
-    private void advanceScan(ScanJob job) {
-        requirePrimaryThread();
-        if (scanJobs.get(job.network()) != job || scansCancelled) {
-            return;
+    private void stopScanTask() {
+        if (scanTaskId != -1) {
+            plugin.getServer().getScheduler().cancelTask(scanTaskId);
+            scanTaskId = -1;
         }
-        if (job.network().getContentVersion() != job.contentVersion()) {
-            restartScan(job, null);
+    }
+
+    /**
+     * Spends one tick's scan budget across the running scans.  The budget is
+     * split evenly between the jobs still waiting this tick and scaled down
+     * while ticks arrive later than 50 ms apart.
+     */
+    private void runScanTick() {
+        if (scansCancelled || scanQueue.isEmpty()) {
+            stopScanTask();
             return;
         }
+        long tickStarted = System.nanoTime();
+        long budget = scanTickBudget(tickStarted);
+        long deadline = tickStarted + budget;
 
-        NetworkContentScanner.ScanStep step = contentScanner.advance(
-                job.session(), NetworkContentScanner.DEFAULT_CHUNKS_PER_TICK);
-        if (!step.complete()) {
-            scheduleScanStep(job);
-            return;
+        int chunks = 0;
+        int turns = scanQueue.size();
+        for (int turn = 0; turn < turns && !scanQueue.isEmpty(); turn++) {
+            long remaining = deadline - System.nanoTime();
+            if (turn > 0 && remaining <= 0L) {
+                break;
+            }
+            ScanJob job = scanQueue.pollFirst();
+            if (scanJobs.get(job.network()) != job) {
+                continue;
+            }
+            long share = Math.max(0L, remaining) / Math.max(1, turns - turn);
+            int processedBefore = job.session().processedChunks();
+            boolean finished = advanceScan(job, share);
+            chunks += job.session().processedChunks() - processedBefore;
+            if (!finished) {
+                scanQueue.addLast(job);
+            }
         }
+        PerformanceMetrics metrics = PerformanceMetrics.get();
+        metrics.recordNanos(PerformanceMetrics.Timer.SCAN_TICK, System.nanoTime() - tickStarted);
+        metrics.record(PerformanceMetrics.Distribution.SCAN_CHUNKS_PER_TICK, chunks);
 
-        if (job.network().getContentVersion() != job.contentVersion()) {
-            restartScan(job, null);
-            return;
+        if (scanQueue.isEmpty()) {
+            stopScanTask();
         }
+    }
 
+    private long scanTickBudget(long now) {
+        if (lastScanTickNanos != 0L) {
+            long gap = now - lastScanTickNanos;
+            averageTickGapNanos = (averageTickGapNanos * 3L + gap) / 4L;
+        }
+        lastScanTickNanos = now;
+        if (averageTickGapNanos <= TICK_NANOS) {
+            return scanTickBudgetNanos;
+        }
+        return scanTickBudgetNanos * TICK_NANOS / averageTickGapNanos;
+    }
+
+    /** Returns whether the job finished and left the scan queue. */
+    private boolean advanceScan(ScanJob job, long budgetNanos) {
+        requirePrimaryThread();
+        NetworkContentScanner.ScanStep step = contentScanner.advanceFor(job.session(), budgetNanos);
+        if (!step.complete()) {
+            return false;
+        }
+
+        // Containers changed behind the cursor are re-read by the network when
+        // it seeds its content index, so mutations no longer restart the scan.
         NetworkScanResult result = step.result();
-        job.network().applyScanResult(result);
+        job.network().applyScanResult(result, job.session().containers());
         scanJobs.remove(job.network());
-        job.taskId = -1;
+        PerformanceMetrics.get().recordSince(PerformanceMetrics.Timer.SCAN_DURATION, job.startedNanos());
         logScan(job.network(), job.session(), job.network().getScanResult());
         for (Consumer<NetworkScanResult> callback : List.copyOf(job.callbacks())) {
             try {
@@ -400,6 +633,7 @@ public class NetworkManager {
                         exception);
             }
         }
+        return true;
     }
 
     private void logScan(Network network,
@@ -416,7 +650,7 @@ public class NetworkManager {
         }
 
         plugin.getLogger().warning(network.getName() + " scan " + result.status()
-                + ": " + session.containersFound() + "/" + session.registeredLocations()
+                + ": " + (session.containersFound() + session.sharedHalves()) + "/" + session.registeredLocations()
                 + " containers found; item total is not authoritative.");
         for (String warning : result.warnings()) {
             plugin.getLogger().warning(warning);
@@ -425,9 +659,9 @@ public class NetworkManager {
 
     private void cancelScan(Network network) {
         ScanJob job = scanJobs.remove(network);
-        if (job != null && job.taskId != -1) {
-            plugin.getServer().getScheduler().cancelTask(job.taskId);
-            job.taskId = -1;
+        if (job != null) {
+            scanQueue.remove(job);
+            network.abortScan();
         }
     }
 
@@ -435,17 +669,19 @@ public class NetworkManager {
         cancelScan(network);
         attachedNetworks.remove(network);
         network.setContentChangeListener(null);
+        network.setChunkListener(null);
+        chunkLeases.release(network);
     }
 
     public void cancelScheduledScans() {
         requirePrimaryThread();
         scansCancelled = true;
         for (ScanJob job : new ArrayList<>(scanJobs.values())) {
-            if (job.taskId != -1) {
-                plugin.getServer().getScheduler().cancelTask(job.taskId);
-            }
+            job.network().abortScan();
         }
         scanJobs.clear();
+        scanQueue.clear();
+        stopScanTask();
     }
 
     public boolean ensureLocationChunkLoaded(Location location) {
@@ -457,6 +693,7 @@ public class NetworkManager {
             int chunkX = location.getBlockX() >> 4;
             int chunkZ = location.getBlockZ() >> 4;
             if (!location.getWorld().isChunkLoaded(chunkX, chunkZ)) {
+                PerformanceMetrics.get().increment(PerformanceMetrics.Counter.CHUNK_LOADS);
                 location.getWorld().loadChunk(chunkX, chunkZ, false);
             }
             return location.getWorld().isChunkLoaded(chunkX, chunkZ);
@@ -501,14 +738,16 @@ public class NetworkManager {
     private static final class ScanJob {
         private final Network network;
         private final NetworkContentScanner.ScanSession session;
-        private final long contentVersion;
         private final List<Consumer<NetworkScanResult>> callbacks = new ArrayList<>();
-        private int taskId = -1;
+        private final long startedNanos = PerformanceMetrics.get().now();
 
-        private ScanJob(Network network, NetworkContentScanner.ScanSession session, long contentVersion) {
+        private ScanJob(Network network, NetworkContentScanner.ScanSession session) {
             this.network = network;
             this.session = session;
-            this.contentVersion = contentVersion;
+        }
+
+        private long startedNanos() {
+            return startedNanos;
         }
 
         private Network network() {
@@ -519,10 +758,6 @@ public class NetworkManager {
             return session;
         }
 
-        private long contentVersion() {
-            return contentVersion;
-        }
-
         private List<Consumer<NetworkScanResult>> callbacks() {
             return callbacks;
         }
@@ -533,7 +768,7 @@ public class NetworkManager {
         Location normalizedLocation = getNormalizedLocation(location);
         attachNetworkIfNeeded(network);
         network.addChest(normalizedLocation);
-        locationIndex.put(normalizedLocation, network);
+        positionIndex.put(normalizedLocation, networkId(network), BlockPositionIndex.Role.CHEST);
         markDirty(network.getName());
     }
 
@@ -542,8 +777,32 @@ public class NetworkManager {
         Location normalizedLocation = getNormalizedLocation(location);
         attachNetworkIfNeeded(network);
         network.addTerminal(normalizedLocation);
-        locationIndex.put(normalizedLocation, network);
+        positionIndex.put(normalizedLocation, networkId(network), BlockPositionIndex.Role.TERMINAL);
+        markDirty(network.getName());
+    }
+
+    /** Adds a storage cell, or returns null when the network already has the configured maximum. */
+    public StorageCell addStorageCell(Network network) {
+        requirePrimaryThread();
+        if (network.getStorageCells().size() >= plugin.getConfigManager().getMaxStorageCellsPerNetwork()) {
+            return null;
+        }
+        attachNetworkIfNeeded(network);
+        StorageCell cell = network.addStorageCell(plugin.getConfigManager().getStorageCellCapacity());
+        markDirty(network.getName());
+        queueNetworkSave();
+        return cell;
+    }
+
+    /** Removes an empty storage cell; a cell that still holds items is kept. */
+    public boolean removeStorageCell(Network network, int cellId) {
+        requirePrimaryThread();
+        if (!network.removeStorageCell(cellId)) {
+            return false;
+        }
         markDirty(network.getName());
+        queueNetworkSave();
+        return true;
     }
 
     public void addSenderChestToNetwork(Network network, Location location) {
@@ -551,7 +810,7 @@ public class NetworkManager {
         Location normalizedLocation = getNormalizedLocation(location);
         attachNetworkIfNeeded(network);
         network.addSenderChest(normalizedLocation);
-        locationIndex.put(normalizedLocation, network);
+        positionIndex.put(normalizedLocation, networkId(network), BlockPositionIndex.Role.SENDER);
         markDirty(network.getName());
     }
 
@@ -567,6 +826,9 @@ public class NetworkManager {
     public boolean removeTrackedLocation(Network network, Location location) {
         requirePrimaryThread();
         Location normalizedLocation = getNormalizedLocation(location);
+        // The surviving half of a double chest is cached with this one.
+        ContainerAccess.invalidateAround(location);
+        ContainerAccess.invalidate(normalizedLocation);
         boolean changed = removeTrackedLocationExact(network, location);
         if (!normalizedLocation.equals(location)) {
             changed = removeTrackedLocationExact(network, normalizedLocation) || changed;
@@ -579,24 +841,24 @@ public class NetworkManager {
 
     private boolean removeTrackedLocationExact(Network network, Location location) {
         boolean changed = false;
+        int id = networkIds.getOrDefault(network, BlockPositionIndex.NONE);
 
         if (network.isChestInNetwork(location)) {
             network.removeChest(location);
+            positionIndex.remove(location, id, BlockPositionIndex.Role.CHEST);
             changed = true;
         }
         if (network.isTerminalInNetwork(location)) {
             network.removeTerminal(location);
+            positionIndex.remove(location, id, BlockPositionIndex.Role.TERMINAL);
             changed = true;
         }
         if (network.isSenderChestInNetwork(location)) {
             network.removeSenderChest(location);
+            positionIndex.remove(location, id, BlockPositionIndex.Role.SENDER);
             changed = true;
         }
 
-        if (changed) {
-            locationIndex.remove(location);
-        }
-
         return changed;
     }
 
@@ -709,47 +971,31 @@ public class NetworkManager {
         return selectedWirelessNetworks;
     }
 
+    /**
+     * Resolves the network registered at a block, or at the other half of a
+     * double chest.  The block is only read to normalise the position when
+     * the exact position misses and a horizontal neighbour is registered.
+     */
     public Network getNetworkByLocation(Location location) {
         requirePrimaryThread();
-        if (plugin.getConfigManager().getNetworkMode() == ConfigManager.NetworkMode.GLOBAL) {
+        Network network = networkAt(location);
+        if (network == null && positionIndex.hasHorizontalNeighbour(location)) {
             Location normalizedLocation = getNormalizedLocation(location);
-            Network globalNetwork = networks.get(GLOBAL_NETWORK_NAME);
-            if (globalNetwork != null && containsTrackedLocation(globalNetwork, location, normalizedLocation)) {
-                return globalNetwork;
-            }
-            return null;
-        }
-
-        Network indexed = locationIndex.get(location);
-        if (indexed != null) {
-            return indexed;
-        }
-
-        Location normalizedLocation = getNormalizedLocation(location);
-
-        if (!normalizedLocation.equals(location)) {
-            indexed = locationIndex.get(normalizedLocation);
-            if (indexed != null) {
-                return indexed;
+            if (!normalizedLocation.equals(location)) {
+                network = networkAt(normalizedLocation);
             }
         }
-
-        for (Network network : networks.values()) {
-            if (containsTrackedLocation(network, location, normalizedLocation)) {
-                return network;
-            }
+        if (network != null
+                && plugin.getConfigManager().getNetworkMode() == ConfigManager.NetworkMode.GLOBAL
+                && network != networks.get(GLOBAL_NETWORK_NAME)) {
+            return null;
         }
-        return null;
-    }
-
-    private boolean containsTrackedLocation(Network network, Location location, Location normalizedLocation) {
-        return isTrackedLocation(network, location) || isTrackedLocation(network, normalizedLocation);
+        return network;
     }
 
-    private boolean isTrackedLocation(Network network, Location location) {
-        return network.isChestInNetwork(location)
-                || network.isTerminalInNetwork(location)
-                || network.isSenderChestInNetwork(location);
+    private Network networkAt(Location location) {
+        int id = positionIndex.networkAt(location);
+        return id == BlockPositionIndex.NONE ? null : networksById.get(id);
     }
 
     public Location getNormalizedLocation(Location location) {
@@ -943,10 +1189,11 @@ public class NetworkManager {
             clearNetworkChestContents(network);
             detachNetwork(network);
             resetNetworkInternal(network);
+            forgetNetworkId(network);
         }
 
         networks.clear();
-        locationIndex.clear();
+        positionIndex.clear();
         selectedNetworks.clear();
         selectedWirelessNetworks.clear();
         dirtyNetworks.clear();
@@ -988,6 +1235,7 @@ public class NetworkManager {
         Set<Location> chestLocationsToClear = network.getChestLocations();
         detachNetwork(network);
         resetNetworkInternal(network);
+        forgetNetworkId(network);
         networks.remove(networkName);
         dirtyNetworks.remove(networkName);
         storageDirty = true;
@@ -1040,11 +1288,12 @@ public class NetworkManager {
             if (!ensureLocationChunkLoaded(location)) {
                 continue;
             }
-            if (!(location.getBlock().getState() instanceof Container container)) {
+            Container container = ContainerAccess.at(location);
+            if (container == null) {
                 continue;
             }
+            // A live state's inventory is the block's own; no update() is needed.
             container.getInventory().clear();
-            container.update();
         }
     }
 
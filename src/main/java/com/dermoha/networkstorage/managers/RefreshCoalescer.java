@@ -0,0 +1,201 @@
+package com.dermoha.networkstorage.managers;
+
+import com.dermoha.networkstorage.NetworkStoragePlugin;
+import com.dermoha.networkstorage.storage.Network;
+import org.bukkit.Location;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Collects container changes, dirty networks and dirty terminal viewers
+ * during a tick and handles them in one task: each container is re-read
+ * once, and each viewer is rendered at most once and no more often than the
+ * configured minimum interval.  A hopper line feeding a network therefore
+ * costs one task per tick instead of several per item.
+ *
+ * <p>Main-thread only.
+ */
+public final class RefreshCoalescer {
+
+    /** A terminal window that can be re-rendered. */
+    public interface Viewer {
+        Network getNetwork();
+
+        void updateInventory();
+    }
+
+    /** Applies one container change and returns the network it belongs to, or null. */
+    @FunctionalInterface
+    interface ContainerHandler {
+        Network apply(Location location, boolean receivedItems);
+    }
+
+    @FunctionalInterface
+    interface Scheduler {
+        void runLater(Runnable task, long delayTicks);
+    }
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50L);
+
+    private final Map<Location, Boolean> containers = new LinkedHashMap<>();
+    private final Set<Network> networks = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Viewer> viewers = new LinkedHashSet<>();
+    private final Map<Viewer, Long> lastRendered = new WeakHashMap<>();
+    private final long minIntervalNanos;
+    private final LongSupplier nanoClock;
+    private final Scheduler scheduler;
+    private final ContainerHandler containerHandler;
+    private final Function<Network, Collection<? extends Viewer>> viewersOf;
+    private boolean scheduled;
+
+    public RefreshCoalescer(NetworkStoragePlugin plugin) {
+        this(TimeUnit.MILLISECONDS.toNanos(plugin.getConfigManager().getTerminalRefreshMinIntervalMs()),
+                System::nanoTime,
+                (task, delayTicks) -> plugin.getServer().getScheduler().runTaskLater(plugin, task, delayTicks),
+                (location, receivedItems) -> applyContainerChange(plugin, location, receivedItems),
+                network -> plugin.getTerminalSessions() == null
+                        ? List.of()
+                        : plugin.getTerminalSessions().getViewers(network));
+    }
+
+    RefreshCoalescer(long minIntervalNanos,
+                     LongSupplier nanoClock,
+                     Scheduler scheduler,
+                     ContainerHandler containerHandler,
+                     Function<Network, Collection<? extends Viewer>> viewersOf) {
+        this.minIntervalNanos = Math.max(0L, minIntervalNanos);
+        this.nanoClock = nanoClock;
+        this.scheduler = scheduler;
+        this.containerHandler = containerHandler;
+        this.viewersOf = viewersOf;
+    }
+
+    /**
+     * Re-reads a container at the end of the tick.  {@code receivedItems}
+     * marks that items may have been put in, so a sender chest gets queued.
+     */
+    public void markContainer(Location location, boolean receivedItems) {
+        if (location == null) {
+            return;
+        }
+        containers.merge(location, receivedItems, Boolean::logicalOr);
+        schedule(1L);
+    }
+
+    /** Re-renders every viewer of the network at the end of the tick. */
+    public void markNetwork(Network network) {
+        if (network != null && networks.add(network)) {
+            schedule(1L);
+        }
+    }
+
+    public void markViewer(Viewer viewer) {
+        if (viewer != null && viewers.add(viewer)) {
+            schedule(1L);
+        }
+    }
+
+    public boolean isIdle() {
+        return containers.isEmpty() && networks.isEmpty() && viewers.isEmpty();
+    }
+
+    public void clear() {
+        containers.clear();
+        networks.clear();
+        viewers.clear();
+        lastRendered.clear();
+    }
+
+    private void schedule(long delayTicks) {
+        if (!scheduled) {
+            scheduled = true;
+            scheduler.runLater(this::flush, delayTicks);
+        }
+    }
+
+    void flush() {
+        scheduled = false;
+        if (!containers.isEmpty()) {
+            List<Map.Entry<Location, Boolean>> changed = new ArrayList<>(containers.entrySet());
+            containers.clear();
+            for (Map.Entry<Location, Boolean> entry : changed) {
+                markNetwork(containerHandler.apply(entry.getKey(), entry.getValue()));
+            }
+        }
+        if (!networks.isEmpty()) {
+            List<Network> changed = new ArrayList<>(networks);
+            networks.clear();
+            for (Network network : changed) {
+                viewers.addAll(viewersOf.apply(network));
+            }
+        }
+        long now = nanoClock.getAsLong();
+        long wait = Long.MAX_VALUE;
+        // Rendering may mark other viewers; they wait for the next pass.
+        for (Viewer viewer : new ArrayList<>(viewers)) {
+            Long last = lastRendered.get(viewer);
+            if (last != null && now - last < minIntervalNanos) {
+                wait = Math.min(wait, minIntervalNanos - (now - last));
+                continue;
+            }
+            viewers.remove(viewer);
+            lastRendered.put(viewer, now);
+            viewer.updateInventory();
+        }
+        if (!isIdle()) {
+            // Only throttled viewers are left unless rendering queued more work.
+            schedule(wait == Long.MAX_VALUE ? 1L : Math.max(1L, (wait + TICK_NANOS - 1) / TICK_NANOS));
+        }
+    }
+
+    private static Network applyContainerChange(NetworkStoragePlugin plugin, Location location, boolean receivedItems) {
+        NetworkManager networkManager = plugin.getNetworkManager();
+        Network network = networkManager.getNetworkByLocation(location);
+        if (network == null) {
+            return null;
+        }
+        Location normalized = networkManager.getNormalizedLocation(location);
+        if (receivedItems) {
+            queueSender(plugin, network, location, normalized);
+        }
+        boolean chest = network.isChestInNetwork(location);
+        boolean normalizedChest = normalized != null && !normalized.equals(location)
+                && network.isChestInNetwork(normalized);
+        if (!chest && !normalizedChest) {
+            return null;
+        }
+        // Only the touched container is re-read; the content index keeps
+        // the rest of the network's totals.
+        if (chest) {
+            network.refreshContainer(location);
+        }
+        if (normalizedChest) {
+            network.refreshContainer(normalized);
+        }
+        return network;
+    }
+
+    private static void queueSender(NetworkStoragePlugin plugin, Network network, Location location, Location normalized) {
+        SenderChestQueue queue = plugin.getSenderChestQueue();
+        if (queue == null) {
+            return;
+        }
+        if (network.isSenderChestInNetwork(location)) {
+            queue.enqueue(network, location);
+        } else if (normalized != null && network.isSenderChestInNetwork(normalized)) {
+            queue.enqueue(network, normalized);
+        }
+    }
+}
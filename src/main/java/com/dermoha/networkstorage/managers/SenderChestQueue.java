@@ -0,0 +1,163 @@
+package com.dermoha.networkstorage.managers;
+
+import com.dermoha.networkstorage.NetworkStoragePlugin;
+import com.dermoha.networkstorage.storage.ContainerAccess;
+import com.dermoha.networkstorage.storage.Network;
+import org.bukkit.Location;
+import org.bukkit.block.Container;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Sender chests that received items and still have to be emptied into their
+ * network.  Inventory events enqueue a sender; it is drained once the transfer
+ * delay has passed, under a per-tick time budget.  Idle senders are never
+ * visited, and a sender whose chunk has been unloaded in the meantime is
+ * dropped rather than loaded; it is queued again when its chunk loads.  A
+ * sender the network could not take everything from is retried with a
+ * growing delay, since a full sender may never see another event.
+ *
+ * <p>Main-thread only.
+ */
+public final class SenderChestQueue {
+
+    /** Empties one sender chest into its network. */
+    @FunctionalInterface
+    interface Drain {
+        /** @return whether items were left in the sender because the network is full */
+        boolean drain(Network network, Location location);
+    }
+
+    private record Pending(Location location, Network network, long dueNanos, int retries, long sequence) {
+    }
+
+    static final long MIN_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    static final long MAX_RETRY_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final Map<Location, Pending> pending = new HashMap<>();
+    // Due order; ties keep arrival order.
+    private final PriorityQueue<Pending> due = new PriorityQueue<>(
+            Comparator.comparingLong(Pending::dueNanos).thenComparingLong(Pending::sequence));
+    private long sequence;
+    private final long delayNanos;
+    private final long tickBudgetNanos;
+    private final LongSupplier nanoClock;
+    private final Drain drain;
+    private final Runnable wake;
+
+    public SenderChestQueue(NetworkStoragePlugin plugin, Runnable wake) {
+        this(TimeUnit.SECONDS.toNanos(plugin.getConfigManager().getSenderChestTransferInterval()),
+                TimeUnit.MILLISECONDS.toNanos(plugin.getConfigManager().getSenderChestTickBudgetMs()),
+                System::nanoTime,
+                (network, location) -> drainSender(plugin, network, location),
+                wake);
+    }
+
+    SenderChestQueue(long delayNanos, long tickBudgetNanos, LongSupplier nanoClock, Drain drain, Runnable wake) {
+        this.delayNanos = Math.max(0L, delayNanos);
+        this.tickBudgetNanos = Math.max(1L, tickBudgetNanos);
+        this.nanoClock = nanoClock;
+        this.drain = drain;
+        this.wake = wake;
+    }
+
+    /**
+     * Queues a sender chest.  A sender that is already waiting keeps its
+     * original due time, so a hopper feeding it every few ticks is emptied
+     * in one pass instead of once per item.
+     */
+    public boolean enqueue(Network network, Location location) {
+        if (network == null || location == null || pending.containsKey(location)) {
+            return false;
+        }
+        schedule(new Pending(location, network, nanoClock.getAsLong() + delayNanos, 0, sequence++));
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public void clear() {
+        pending.clear();
+        due.clear();
+    }
+
+    /**
+     * Drains due senders until this tick's budget is spent.  At least one due
+     * sender is drained per call.  Entries are taken in due order, so the
+     * first entry that is not yet due ends the pass.  A sender left with items
+     * is queued again after {@link #retryDelay(int)}.
+     *
+     * @return the number of senders drained
+     */
+    public int drainDue() {
+        long started = nanoClock.getAsLong();
+        int drained = 0;
+        while (!due.isEmpty()) {
+            long now = drained == 0 ? started : nanoClock.getAsLong();
+            if (drained > 0 && now - started >= tickBudgetNanos) {
+                break;
+            }
+            Pending next = due.peek();
+            if (next.dueNanos() - now > 0L) {
+                break;
+            }
+            due.poll();
+            pending.remove(next.location());
+            if (drain.drain(next.network(), next.location()) && !pending.containsKey(next.location())) {
+                int retries = next.retries() + 1;
+                schedule(new Pending(next.location(), next.network(), now + retryDelay(retries), retries, sequence++));
+            }
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * The delay before a sender the network was full for is tried again:
+     * the transfer delay, but at least {@link #MIN_RETRY_NANOS}, doubled on
+     * every retry in a row up to {@link #MAX_RETRY_NANOS}.
+     */
+    long retryDelay(int retries) {
+        long delay = Math.max(delayNanos, MIN_RETRY_NANOS);
+        for (int i = 1; i < retries && delay < MAX_RETRY_NANOS; i++) {
+            delay <<= 1;
+        }
+        return Math.min(delay, Math.max(MAX_RETRY_NANOS, delayNanos));
+    }
+
+    private void schedule(Pending entry) {
+        pending.put(entry.location(), entry);
+        due.add(entry);
+        wake.run();
+    }
+
+    private static boolean drainSender(NetworkStoragePlugin plugin, Network network, Location location) {
+        NetworkManager networkManager = plugin.getNetworkManager();
+        if (networkManager.getNetworkByLocation(location) != network || !network.isSenderChestInNetwork(location)) {
+            return false;
+        }
+        if (location.getWorld() == null
+                || !location.getWorld().isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4)) {
+            // Never load a chunk for a sender; loading the chunk re-queues it.
+            return false;
+        }
+        Container container = ContainerAccess.at(location);
+        if (container == null) {
+            networkManager.removeTrackedLocation(network, location);
+            plugin.getLogger().info("Pruned non-inventory block at " + location + " from a network because it was no longer a container.");
+            return false;
+        }
+        return network.getMovement().absorbAll(container.getInventory()).leftover() > 0;
+    }
+}
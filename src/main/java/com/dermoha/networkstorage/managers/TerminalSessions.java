@@ -3,6 +3,7 @@ package com.dermoha.networkstorage.managers;
 import com.dermoha.networkstorage.NetworkStoragePlugin;
 import com.dermoha.networkstorage.gui.StatsGUI;
 import com.dermoha.networkstorage.gui.TerminalGUI;
+import com.dermoha.networkstorage.gui.TerminalViewCache;
 import com.dermoha.networkstorage.storage.Network;
 import com.dermoha.networkstorage.util.NetworkStorageConstants;
 import io.papermc.paper.event.player.AsyncChatEvent;
@@ -14,8 +15,10 @@ import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.inventory.InventoryHolder;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -31,6 +34,7 @@ public class TerminalSessions implements Listener {
     private final Set<UUID> transitioningToSearch = new HashSet<>();
     private final Map<UUID, TerminalGUI> searchingPlayers = new ConcurrentHashMap<>();
     private final ConcurrentMap<UUID, Integer> searchTaskIds = new ConcurrentHashMap<>();
+    private final TerminalViewCache viewCache = new TerminalViewCache();
 
     public TerminalSessions(NetworkStoragePlugin plugin) {
         this.plugin = plugin;
@@ -52,16 +56,42 @@ public class TerminalSessions implements Listener {
         return true;
     }
 
+    public TerminalViewCache getViewCache() {
+        return viewCache;
+    }
+
     public boolean isCurrentTerminal(Player player, TerminalGUI terminal) {
         return terminal.equals(openTerminals.get(player.getUniqueId()));
     }
 
     public void refreshNetwork(Network network) {
+        RefreshCoalescer coalescer = plugin.getRefreshCoalescer();
+        if (coalescer != null) {
+            coalescer.markNetwork(network);
+            return;
+        }
+        for (TerminalGUI terminal : getViewers(network)) {
+            terminal.requestRefresh();
+        }
+    }
+
+    public boolean hasViewers(Network network) {
+        for (TerminalGUI terminal : openTerminals.values()) {
+            if (terminal.getNetwork() == network) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<TerminalGUI> getViewers(Network network) {
+        List<TerminalGUI> viewers = new ArrayList<>();
         for (TerminalGUI terminal : openTerminals.values()) {
             if (terminal.getNetwork() == network) {
-                terminal.requestRefresh();
+                viewers.add(terminal);
             }
         }
+        return viewers;
     }
 
     public void promptSearch(Player player, TerminalGUI gui) {
@@ -101,6 +131,7 @@ public class TerminalSessions implements Listener {
         openTerminals.clear();
         transitioningToStats.clear();
         transitioningToSearch.clear();
+        viewCache.clear();
     }
 
     private void startSearch(Player player, TerminalGUI gui) {
@@ -109,7 +140,9 @@ public class TerminalSessions implements Listener {
         searchingPlayers.put(playerId, gui);
 
         int taskId = plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-            if (searchingPlayers.remove(playerId) != null) {
+            TerminalGUI abandoned = searchingPlayers.remove(playerId);
+            if (abandoned != null) {
+                abandoned.releaseView();
                 player.sendMessage(lang.getMessage("search.timeout"));
             }
             searchTaskIds.remove(playerId);
@@ -178,7 +211,7 @@ public class TerminalSessions implements Listener {
             return;
         }
 
-        if (!(holder instanceof TerminalGUI)) {
+        if (!(holder instanceof TerminalGUI terminal)) {
             return;
         }
 
@@ -194,5 +227,6 @@ public class TerminalSessions implements Listener {
         }
         cancelSearch(player);
         openTerminals.remove(playerId);
+        terminal.releaseView();
     }
 }
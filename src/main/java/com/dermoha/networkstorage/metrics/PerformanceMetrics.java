@@ -0,0 +1,288 @@
+package com.dermoha.networkstorage.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide performance counters and latency histograms.  Storage
+ * classes such as {@code Network} have no plugin reference, so recording
+ * goes through {@link #get()}; every method is thread-safe and cheap
+ * enough for the hot paths it measures.  Values survive {@code reload}
+ * and only grow, as Prometheus expects of counters.
+ */
+public final class PerformanceMetrics {
+
+    /** Durations recorded in nanoseconds and exported in seconds. */
+    public enum Timer {
+        SCAN_DURATION("scan_duration_seconds", "Wall time from the start to the end of a network scan."),
+        SCAN_TICK("scan_tick_seconds", "Main-thread time spent on scans in one tick."),
+        HOPPER_EVENT("hopper_event_seconds", "Main-thread time spent handling one hopper event."),
+        SNAPSHOT_CAPTURE("snapshot_capture_seconds", "Main-thread time spent capturing a persistence snapshot."),
+        SQLITE_SAVE("sqlite_save_seconds", "Time spent committing one snapshot to SQLite."),
+        TERMINAL_RENDER("terminal_render_seconds", "Time spent rendering one terminal window.");
+
+        private final String metricName;
+        private final String help;
+
+        Timer(String metricName, String help) {
+            this.metricName = metricName;
+            this.help = help;
+        }
+    }
+
+    /** Unitless value distributions. */
+    public enum Distribution {
+        SCAN_CHUNKS_PER_TICK("scan_chunks_per_tick", "Chunks read by scans in one tick.");
+
+        private final String metricName;
+        private final String help;
+
+        Distribution(String metricName, String help) {
+            this.metricName = metricName;
+            this.help = help;
+        }
+    }
+
+    public enum Counter {
+        CHUNK_LOADS("chunk_loads_total", "Chunk loads requested by the plugin."),
+        HOPPER_EVENTS("hopper_events_total", "Hopper events handled by the plugin."),
+        ITEMS_DEPOSITED("items_deposited_total", "Items moved into networks."),
+        ITEMS_WITHDRAWN("items_withdrawn_total", "Items taken out of networks.");
+
+        private final String metricName;
+        private final String help;
+
+        Counter(String metricName, String help) {
+            this.metricName = metricName;
+            this.help = help;
+        }
+    }
+
+    /** Current values set by their owner. */
+    public enum Gauge {
+        LEASED_CHUNKS("leased_chunks", "Chunks held loaded by the plugin's chunk tickets.");
+
+        private final String metricName;
+        private final String help;
+
+        Gauge(String metricName, String help) {
+            this.metricName = metricName;
+            this.help = help;
+        }
+    }
+
+    private static final String PREFIX = "networkstorage_";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final int RATE_WINDOW_SECONDS = 60;
+    private static final PerformanceMetrics INSTANCE = new PerformanceMetrics(System::nanoTime);
+
+    private final LongSupplier nanoClock;
+    private final Map<Timer, Histogram> timers = new EnumMap<>(Timer.class);
+    private final Map<Distribution, Histogram> distributions = new EnumMap<>(Distribution.class);
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+    private final Map<Gauge, AtomicLong> gauges = new EnumMap<>(Gauge.class);
+    // Per-second buckets of the last minute for each counter, guarded by this.
+    private final long[][] windowCounts = new long[Counter.values().length][RATE_WINDOW_SECONDS];
+    private final long[][] windowSeconds = new long[Counter.values().length][RATE_WINDOW_SECONDS];
+
+    PerformanceMetrics(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        for (Timer timer : Timer.values()) {
+            timers.put(timer, new Histogram());
+        }
+        for (Distribution distribution : Distribution.values()) {
+            distributions.put(distribution, new Histogram());
+        }
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new LongAdder());
+            Arrays.fill(windowSeconds[counter.ordinal()], Long.MIN_VALUE);
+        }
+        for (Gauge gauge : Gauge.values()) {
+            gauges.put(gauge, new AtomicLong());
+        }
+    }
+
+    public static PerformanceMetrics get() {
+        return INSTANCE;
+    }
+
+    public long now() {
+        return nanoClock.getAsLong();
+    }
+
+    /** Records the time since {@code startedNanos}, a value of {@link #now()}. */
+    public void recordSince(Timer timer, long startedNanos) {
+        recordNanos(timer, nanoClock.getAsLong() - startedNanos);
+    }
+
+    public void recordNanos(Timer timer, long nanos) {
+        timers.get(timer).record(nanos);
+    }
+
+    public void record(Distribution distribution, long value) {
+        distributions.get(distribution).record(value);
+    }
+
+    public void increment(Counter counter) {
+        add(counter, 1L);
+    }
+
+    public void add(Counter counter, long amount) {
+        if (amount <= 0L) {
+            return;
+        }
+        counters.get(counter).add(amount);
+        long second = nanoClock.getAsLong() / TimeUnit.SECONDS.toNanos(1L);
+        int slot = (int) Math.floorMod(second, (long) RATE_WINDOW_SECONDS);
+        synchronized (this) {
+            long[] counts = windowCounts[counter.ordinal()];
+            long[] seconds = windowSeconds[counter.ordinal()];
+            if (seconds[slot] != second) {
+                seconds[slot] = second;
+                counts[slot] = 0L;
+            }
+            counts[slot] += amount;
+        }
+    }
+
+    public void set(Gauge gauge, long value) {
+        gauges.get(gauge).set(value);
+    }
+
+    public long value(Gauge gauge) {
+        return gauges.get(gauge).get();
+    }
+
+    public Histogram histogram(Timer timer) {
+        return timers.get(timer);
+    }
+
+    public Histogram histogram(Distribution distribution) {
+        return distributions.get(distribution);
+    }
+
+    public long count(Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    /** Average per second over the last minute. */
+    public synchronized double ratePerSecond(Counter counter) {
+        long second = nanoClock.getAsLong() / TimeUnit.SECONDS.toNanos(1L);
+        long[] counts = windowCounts[counter.ordinal()];
+        long[] seconds = windowSeconds[counter.ordinal()];
+        long total = 0L;
+        for (int i = 0; i < RATE_WINDOW_SECONDS; i++) {
+            if (second - seconds[i] < RATE_WINDOW_SECONDS && seconds[i] <= second) {
+                total += counts[i];
+            }
+        }
+        return total / (double) RATE_WINDOW_SECONDS;
+    }
+
+    /** One line per metric, for the admin command. */
+    public List<String> summaryLines() {
+        List<String> lines = new ArrayList<>();
+        for (Timer timer : Timer.values()) {
+            Histogram histogram = timers.get(timer);
+            lines.add(String.format(Locale.ROOT, "%s: n=%d p50=%s p99=%s max=%s",
+                    timer.metricName.replace("_seconds", ""), histogram.count(),
+                    formatNanos(histogram.valueAt(0.5)),
+                    formatNanos(histogram.valueAt(0.99)),
+                    formatNanos(histogram.max())));
+        }
+        for (Distribution distribution : Distribution.values()) {
+            Histogram histogram = distributions.get(distribution);
+            lines.add(String.format(Locale.ROOT, "%s: n=%d p50=%d p99=%d max=%d",
+                    distribution.metricName, histogram.count(),
+                    histogram.valueAt(0.5), histogram.valueAt(0.99), histogram.max()));
+        }
+        for (Counter counter : Counter.values()) {
+            lines.add(String.format(Locale.ROOT, "%s: %d (%.1f/s over the last minute)",
+                    counter.metricName, count(counter), ratePerSecond(counter)));
+        }
+        for (Gauge gauge : Gauge.values()) {
+            lines.add(gauge.metricName + ": " + value(gauge));
+        }
+        return lines;
+    }
+
+    /** Renders every metric in the Prometheus text exposition format. */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        for (Timer timer : Timer.values()) {
+            appendSummary(out, timer.metricName, timer.help, timers.get(timer), true);
+        }
+        for (Distribution distribution : Distribution.values()) {
+            appendSummary(out, distribution.metricName, distribution.help, distributions.get(distribution), false);
+        }
+        for (Counter counter : Counter.values()) {
+            String name = PREFIX + counter.metricName;
+            appendHeader(out, name, counter.help, "counter");
+            out.append(name).append(' ').append(count(counter)).append('\n');
+        }
+        for (Counter counter : Counter.values()) {
+            String name = PREFIX + counter.metricName.replace("_total", "_per_second");
+            appendHeader(out, name, counter.help.replace(".", "") + ", averaged over the last minute.", "gauge");
+            out.append(name).append(' ').append(ratePerSecond(counter)).append('\n');
+        }
+        for (Gauge gauge : Gauge.values()) {
+            String name = PREFIX + gauge.metricName;
+            appendHeader(out, name, gauge.help, "gauge");
+            out.append(name).append(' ').append(value(gauge)).append('\n');
+        }
+        return out.toString();
+    }
+
+    /** Replaces {@code target} with the current exposition, never leaving it half written. */
+    public void writePrometheus(Path target) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.writeString(temporary, toPrometheus(), StandardCharsets.UTF_8);
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void appendSummary(StringBuilder out, String metricName, String help,
+                                      Histogram histogram, boolean nanos) {
+        String name = PREFIX + metricName;
+        appendHeader(out, name, help, "summary");
+        for (double quantile : QUANTILES) {
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(value(histogram.valueAt(quantile), nanos)).append('\n');
+        }
+        out.append(name).append("_sum ").append(value(histogram.sum(), nanos)).append('\n');
+        out.append(name).append("_count ").append(histogram.count()).append('\n');
+    }
+
+    private static void appendHeader(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String value(long raw, boolean nanos) {
+        return nanos ? Double.toString(raw / 1_000_000_000.0) : Long.toString(raw);
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000_000L) {
+            return String.format(Locale.ROOT, "%.1fµs", nanos / 1_000.0);
+        }
+        return String.format(Locale.ROOT, "%.2fms", nanos / 1_000_000.0);
+    }
+}
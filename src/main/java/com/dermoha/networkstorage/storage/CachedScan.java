@@ -0,0 +1,57 @@
+package com.dermoha.networkstorage.storage;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A network's last complete scan in storable form.  Items are kept as
+ * serialized item fingerprints, so the record holds no Bukkit objects and can
+ * be written away from the server thread.  Converting to and from
+ * {@link NetworkScanResult} touches item serialization and must run on the
+ * server thread.
+ */
+public record CachedScan(String networkName,
+                         int registeredLocations,
+                         int uniqueChunks,
+                         int loadedChunks,
+                         int containersFound,
+                         long totalItems,
+                         long totalSlots,
+                         long usedSlots,
+                         long scannedAtMs,
+                         List<CachedItem> items) {
+
+    public record CachedItem(byte[] fingerprint, long amount) {}
+
+    public CachedScan {
+        items = List.copyOf(items);
+    }
+
+    public static CachedScan of(String networkName, NetworkScanResult result) {
+        List<CachedItem> items = new ArrayList<>(result.items().size());
+        result.items().forEach((key, amount) ->
+                items.add(new CachedItem(key.toItemStack().serializeAsBytes(), amount)));
+        return new CachedScan(networkName, result.registeredLocations(), result.uniqueChunks(),
+                result.loadedChunks(), result.containersFound(), result.totalItems(),
+                result.totalSlots(), result.usedSlots(), result.scannedAtMs(), items);
+    }
+
+    /**
+     * Rebuilds the scan.  Throws {@link IllegalArgumentException} when an item
+     * can no longer be read, e.g. after a server update removed its material.
+     */
+    public NetworkScanResult toScanResult() {
+        ItemCountMap counts = new ItemCountMap(items.size());
+        for (CachedItem item : items) {
+            ItemStack stack = ItemStack.deserializeBytes(item.fingerprint());
+            if (stack == null || item.amount() <= 0L) {
+                throw new IllegalArgumentException("Cached scan of '" + networkName + "' contains an unreadable item");
+            }
+            counts.add(ItemKey.of(stack), item.amount());
+        }
+        return NetworkScanResult.complete(networkName, registeredLocations, uniqueChunks, loadedChunks,
+                containersFound, totalItems, totalSlots, usedSlots, counts.freeze(), scannedAtMs);
+    }
+}
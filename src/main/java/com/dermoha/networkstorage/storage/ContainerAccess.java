@@ -0,0 +1,186 @@
+package com.dermoha.networkstorage.storage;
+
+import com.dermoha.networkstorage.util.BlockUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.Chest;
+import org.bukkit.block.Container;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * The one way the plugin resolves the container at a registered position.
+ *
+ * <p>{@link Block#getState()} copies the whole block entity, inventory
+ * included, only for callers to read the live inventory through it.  Lookups
+ * here use Paper's non-snapshot {@code getState(false)}, whose inventory is
+ * the block's own, and remember the result for the rest of the server tick,
+ * so a container that several transfers touch in one tick is resolved once.
+ * A remembered container is only reused while the block keeps its type;
+ * {@link #invalidate(Location)} drops it when the block is broken, and
+ * {@link #invalidateAround(Location)} when a chest placed beside it may have
+ * joined it into a double chest.
+ *
+ * <p>Both halves of a double chest resolve to the same combined inventory.
+ * {@link #identity(Location)} names the block that owns it, the left half, so
+ * callers can read each physical inventory once however many of its halves
+ * are registered.
+ *
+ * <p>Main-thread only.
+ */
+public final class ContainerAccess {
+
+    private static final ContainerAccess SHARED = new ContainerAccess(Bukkit::getCurrentTick);
+    private static final BlockFace[] HORIZONTAL = {BlockFace.NORTH, BlockFace.EAST, BlockFace.SOUTH, BlockFace.WEST};
+
+    private static final class Resolved {
+        private final Material type;
+        private final Container container;
+        // Double-chest halves, looked up on first use; identity stays null
+        // until then.
+        private Location identity;
+        private Location otherHalf;
+
+        private Resolved(Material type, Container container) {
+            this.type = type;
+            this.container = container;
+        }
+    }
+
+    private final IntSupplier currentTick;
+    private final Map<Location, Resolved> resolved = new HashMap<>();
+    private int tick;
+
+    ContainerAccess(IntSupplier currentTick) {
+        this.currentTick = currentTick;
+    }
+
+    /** The server-wide instance, caching per server tick. */
+    public static ContainerAccess shared() {
+        return SHARED;
+    }
+
+    /** An instance that resolves every lookup afresh, for use without a running server. */
+    public static ContainerAccess uncached() {
+        return new ContainerAccess(null);
+    }
+
+    /** Shorthand for {@code shared().container(location)}. */
+    public static Container at(Location location) {
+        return SHARED.container(location);
+    }
+
+    /** Forgets what is known about a block that was broken or replaced. */
+    public static void invalidate(Location location) {
+        SHARED.forget(location);
+    }
+
+    /**
+     * Forgets a placed or broken chest and its horizontal neighbours, whose
+     * double-chest halves may have changed without their block type changing.
+     */
+    public static void invalidateAround(Location location) {
+        SHARED.forgetAround(location);
+    }
+
+    /**
+     * Resolves the live container at {@code location}, or null when the block
+     * is not a container.  The chunk must already be loaded.
+     */
+    public Container container(Location location) {
+        if (location == null || location.getWorld() == null) {
+            return null;
+        }
+        if (currentTick == null) {
+            return location.getBlock().getState(false) instanceof Container container ? container : null;
+        }
+        return resolve(location).container;
+    }
+
+    /**
+     * The position that owns the inventory at {@code location}: the left half
+     * for either half of a double chest, otherwise {@code location} itself.
+     * Null when the block is not a container.
+     */
+    public Location identity(Location location) {
+        Resolved known = resolveHalves(location);
+        return known == null ? null : known.identity;
+    }
+
+    /** The other half of the double chest at {@code location}, or null. */
+    public Location otherHalf(Location location) {
+        Resolved known = resolveHalves(location);
+        return known == null ? null : known.otherHalf;
+    }
+
+    private Resolved resolveHalves(Location location) {
+        if (location == null || location.getWorld() == null) {
+            return null;
+        }
+        Resolved known;
+        if (currentTick == null) {
+            Block block = location.getBlock();
+            known = new Resolved(block.getType(),
+                    block.getState(false) instanceof Container container ? container : null);
+        } else {
+            known = resolve(location);
+        }
+        if (known.container == null) {
+            return null;
+        }
+        if (known.identity == null) {
+            known.identity = location;
+            // Only chest block states can be half of a double chest.
+            Block block = location.getBlock();
+            if (known.container instanceof Chest
+                    && block.getBlockData() instanceof org.bukkit.block.data.type.Chest chest) {
+                BlockFace direction = BlockUtils.findOtherChestHalf(chest.getType(), chest.getFacing());
+                if (direction != null) {
+                    known.otherHalf = block.getRelative(direction).getLocation();
+                    if (chest.getType() == org.bukkit.block.data.type.Chest.Type.RIGHT) {
+                        known.identity = known.otherHalf;
+                    }
+                }
+            }
+        }
+        return known;
+    }
+
+    private Resolved resolve(Location location) {
+        int now = currentTick.getAsInt();
+        if (now != tick) {
+            resolved.clear();
+            tick = now;
+        }
+        Block block = location.getBlock();
+        Material type = block.getType();
+        Resolved known = resolved.get(location);
+        if (known != null && known.type == type) {
+            return known;
+        }
+        known = new Resolved(type, block.getState(false) instanceof Container live ? live : null);
+        resolved.put(location, known);
+        return known;
+    }
+
+    void forget(Location location) {
+        if (location != null) {
+            resolved.remove(location);
+        }
+    }
+
+    void forgetAround(Location location) {
+        if (location == null || resolved.isEmpty()) {
+            return;
+        }
+        forget(location);
+        for (BlockFace face : HORIZONTAL) {
+            forget(location.clone().add(face.getModX(), 0, face.getModZ()));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.dermoha.networkstorage.storage;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Detached contents of one registered container, aggregated by interned
+ * {@link ItemKey} like {@link NetworkScanResult}.  {@code slotKeys} records
+ * which key occupied each slot when the container was read (null for empty
+ * slots); it is empty when the slot layout is unknown.  {@code partialKeys}
+ * holds the items with at least one stack below its maximum size.
+ */
+public record ContainerContents(int slots,
+                                int usedSlots,
+                                long totalItems,
+                                ItemCounts items,
+                                List<ItemKey> slotKeys,
+                                Set<ItemKey> partialKeys) {
+
+    public static final ContainerContents EMPTY = new ContainerContents(0, 0, 0L, ItemCounts.EMPTY);
+
+    public ContainerContents {
+        items = ItemCounts.copyOf(items);
+        slotKeys = slotKeys == null || slotKeys.isEmpty()
+                ? List.of()
+                : Collections.unmodifiableList(Arrays.asList(slotKeys.toArray(new ItemKey[0])));
+        partialKeys = partialKeys == null ? Set.of() : Set.copyOf(partialKeys);
+    }
+
+    public ContainerContents(int slots, int usedSlots, long totalItems, ItemCounts items) {
+        this(slots, usedSlots, totalItems, items, List.of(), Set.of());
+    }
+
+    public int emptySlots() {
+        return Math.max(0, slots - usedSlots);
+    }
+
+    public boolean hasSlotLayout() {
+        return slots > 0 && slotKeys.size() == slots;
+    }
+
+    /** Reads a live inventory; callers must be on the Bukkit main thread. */
+    public static ContainerContents read(Inventory inventory) {
+        ItemStack[] contents = inventory.getContents();
+        ItemKey[] slotKeys = new ItemKey[Math.max(0, inventory.getSize())];
+        ItemCountMap items = new ItemCountMap();
+        Set<ItemKey> partialKeys = new HashSet<>();
+        int usedSlots = 0;
+        long totalItems = 0L;
+        for (int slot = 0; slot < contents.length; slot++) {
+            ItemStack item = contents[slot];
+            // Inventory contents cannot contain block-only air variants
+            // as real stacks; equality also avoids invoking registry
+            // lookups while the API is being used by lightweight tests.
+            if (item == null || item.getType() == Material.AIR) {
+                continue;
+            }
+            usedSlots++;
+            totalItems += item.getAmount();
+            ItemKey key = ItemKey.of(item);
+            items.add(key, item.getAmount());
+            if (slot < slotKeys.length) {
+                slotKeys[slot] = key;
+            }
+            if (item.getAmount() < item.getMaxStackSize()) {
+                partialKeys.add(key);
+            }
+        }
+        return new ContainerContents(slotKeys.length, usedSlots, totalItems, items.freeze(),
+                Arrays.asList(slotKeys), partialKeys);
+    }
+}
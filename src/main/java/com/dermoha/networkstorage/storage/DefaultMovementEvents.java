@@ -6,15 +6,12 @@ import com.dermoha.networkstorage.util.ItemUtils;
 import org.bukkit.Sound;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.plugin.java.JavaPlugin;
 
 public final class DefaultMovementEvents implements MovementEvents {
 
-    private final JavaPlugin plugin;
     private final LanguageManager lang;
 
-    public DefaultMovementEvents(JavaPlugin plugin, LanguageManager lang) {
-        this.plugin = plugin;
+    public DefaultMovementEvents(LanguageManager lang) {
         this.lang = lang;
     }
 
@@ -54,7 +51,8 @@ public final class DefaultMovementEvents implements MovementEvents {
 
     @Override
     public void scheduleRefresh(TerminalGUI terminal, Runnable task) {
-        plugin.getServer().getScheduler().runTask(plugin, task);
+        // requestRefresh already defers to the end of the tick.
+        task.run();
     }
 
     @Override
@@ -0,0 +1,226 @@
+package com.dermoha.networkstorage.storage;
+
+import java.util.Arrays;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Open-addressing {@link ItemKey} to {@code long} map with linear probing.
+ * Interned keys are compared by reference first, so a scan that merges
+ * thousands of item types allocates no boxed counts and no entry objects.
+ *
+ * <p>Not thread-safe.  {@link #freeze()} turns a map into an immutable
+ * {@link ItemCounts} that can be shared with other threads.
+ */
+public final class ItemCountMap implements ItemCounts {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private ItemKey[] keys;
+    private long[] counts;
+    private int size;
+    private boolean frozen;
+
+    public ItemCountMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public ItemCountMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        // Keep the load factor at or below one half.
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        this.keys = new ItemKey[capacity];
+        this.counts = new long[capacity];
+    }
+
+    private ItemCountMap(ItemKey[] keys, long[] counts, int size) {
+        this.keys = keys;
+        this.counts = counts;
+        this.size = size;
+        this.frozen = true;
+    }
+
+    @Override
+    public long get(ItemKey key) {
+        if (key == null) {
+            return 0L;
+        }
+        int slot = slotOf(key);
+        return keys[slot] == null ? 0L : counts[slot];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a signed amount.  An entry that drops to zero or below is removed,
+     * and a non-positive amount never creates one.
+     */
+    public void add(ItemKey key, long amount) {
+        checkMutable();
+        if (key == null || amount == 0L) {
+            return;
+        }
+        int slot = slotOf(key);
+        if (keys[slot] == null) {
+            if (amount < 0L) {
+                return;
+            }
+            keys[slot] = key;
+            counts[slot] = amount;
+            if (++size * 2 > keys.length) {
+                resize(keys.length << 1);
+            }
+            return;
+        }
+        long updated = counts[slot] + amount;
+        if (updated > 0L) {
+            counts[slot] = updated;
+        } else {
+            removeAt(slot);
+        }
+    }
+
+    public void addAll(ItemCounts other) {
+        checkMutable();
+        other.forEach(this::add);
+    }
+
+    public void subtractAll(ItemCounts other) {
+        checkMutable();
+        other.forEach((key, amount) -> add(key, -amount));
+    }
+
+    public void clear() {
+        checkMutable();
+        Arrays.fill(keys, null);
+        Arrays.fill(counts, 0L);
+        size = 0;
+    }
+
+    @Override
+    public void forEach(ObjLongConsumer<ItemKey> action) {
+        ItemKey[] currentKeys = keys;
+        long[] currentCounts = counts;
+        for (int i = 0; i < currentKeys.length; i++) {
+            if (currentKeys[i] != null) {
+                action.accept(currentKeys[i], currentCounts[i]);
+            }
+        }
+    }
+
+    /** Makes this map immutable and returns it. */
+    public ItemCounts freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /** Returns an immutable copy; the map itself stays mutable. */
+    public ItemCounts snapshot() {
+        return new ItemCountMap(keys.clone(), counts.clone(), size);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ItemCounts counts) || counts.size() != size) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && counts.get(keys[i]) != this.counts[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                hash += keys[i].hashCode() ^ Long.hashCode(counts[i]);
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, amount) -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(key).append('=').append(amount);
+        });
+        return builder.append('}').toString();
+    }
+
+    private int slotOf(ItemKey key) {
+        int mask = keys.length - 1;
+        int slot = mix(key.hashCode()) & mask;
+        while (true) {
+            ItemKey existing = keys[slot];
+            if (existing == null || existing == key || existing.equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /** Backward-shift deletion keeps probe chains intact without tombstones. */
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        keys[slot] = null;
+        counts[slot] = 0L;
+        size--;
+        int gap = slot;
+        int next = (slot + 1) & mask;
+        while (keys[next] != null) {
+            int home = mix(keys[next].hashCode()) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                counts[gap] = counts[next];
+                keys[next] = null;
+                counts[next] = 0L;
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    private void resize(int capacity) {
+        ItemKey[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new ItemKey[capacity];
+        counts = new long[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Item counts are read-only");
+        }
+    }
+
+    private static int mix(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+}
@@ -0,0 +1,52 @@
+package com.dermoha.networkstorage.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Read-only item totals keyed by {@link ItemKey}.  Counts are primitive longs,
+ * so large networks cannot overflow and reads never box.
+ */
+public interface ItemCounts {
+
+    ItemCounts EMPTY = new ItemCountMap(0).freeze();
+
+    /** Returns the stored amount, or zero when the item is absent. */
+    long get(ItemKey key);
+
+    default boolean contains(ItemKey key) {
+        return get(key) > 0L;
+    }
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    void forEach(ObjLongConsumer<ItemKey> action);
+
+    /** Copies the totals into a list, e.g. for sorting in a GUI. */
+    default List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>(size());
+        forEach((key, amount) -> entries.add(new Entry(key, amount)));
+        return entries;
+    }
+
+    /** Returns an immutable copy, or the argument itself when it is already immutable. */
+    static ItemCounts copyOf(ItemCounts source) {
+        if (source == null) {
+            return EMPTY;
+        }
+        if (source instanceof ItemCountMap map) {
+            return map.isFrozen() ? map : map.snapshot();
+        }
+        ItemCountMap copy = new ItemCountMap(source.size());
+        source.forEach(copy::add);
+        return copy.freeze();
+    }
+
+    record Entry(ItemKey key, long amount) {
+    }
+}
@@ -0,0 +1,217 @@
+package com.dermoha.networkstorage.storage;
+
+import com.dermoha.networkstorage.util.ItemSearchTerms;
+import com.dermoha.networkstorage.util.ItemUtils;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable identity of an item type: material plus item meta, independent of
+ * the stack amount.  Keys are interned, so aggregation maps compare them by
+ * reference and never walk item meta again after the first lookup.
+ *
+ * <p>A meta-less stack resolves with one array read indexed by material.  A
+ * stack with meta is hashed once, by its meta, and compared with
+ * {@link ItemStack#isSimilar} only against the keys of the same material and
+ * meta hash.  A stack is copied only when a new key is created.
+ */
+public final class ItemKey {
+
+    // Uniquely named or tagged items could otherwise grow the pool without
+    // bound.  Keys created past the cap still work; they compare by value.
+    private static final int MAX_POOL_SIZE = 65_536;
+    private static final AtomicReferenceArray<ItemKey> PLAIN = new AtomicReferenceArray<>(Material.values().length);
+    // Buckets are immutable lists, almost always of one key; replaced under
+    // the map's lock.
+    private static final ConcurrentMap<Fingerprint, List<ItemKey>> WITH_META = new ConcurrentHashMap<>();
+    private static final AtomicInteger POOL_SIZE = new AtomicInteger();
+
+    private record Fingerprint(Material type, int metaHash) {
+    }
+
+    private final ItemStack prototype;
+    private final Material type;
+    private final int hash;
+    private volatile String displayName;
+    private volatile String sortableName;
+    private volatile ItemSearchTerms searchTerms;
+
+    private ItemKey(ItemStack prototype) {
+        this.prototype = prototype;
+        this.type = prototype.getType();
+        this.hash = prototype.hashCode();
+    }
+
+    /** Returns the shared key for the item, ignoring its amount. */
+    public static ItemKey of(ItemStack item) {
+        Objects.requireNonNull(item, "item");
+        if (!item.hasItemMeta()) {
+            int slot = item.getType().ordinal();
+            ItemKey existing = PLAIN.get(slot);
+            if (existing != null) {
+                return existing;
+            }
+            ItemKey created = new ItemKey(prototypeOf(item));
+            if (PLAIN.compareAndSet(slot, null, created)) {
+                POOL_SIZE.incrementAndGet();
+                return created;
+            }
+            return PLAIN.get(slot);
+        }
+        Fingerprint fingerprint = fingerprintOf(item);
+        ItemKey existing = find(WITH_META.get(fingerprint), item);
+        if (existing != null) {
+            return existing;
+        }
+        ItemKey created = new ItemKey(prototypeOf(item));
+        if (POOL_SIZE.get() >= MAX_POOL_SIZE) {
+            return created;
+        }
+        ItemKey[] raced = new ItemKey[1];
+        WITH_META.compute(fingerprint, (ignored, keys) -> {
+            raced[0] = find(keys, item);
+            if (raced[0] != null) {
+                return keys;
+            }
+            POOL_SIZE.incrementAndGet();
+            if (keys == null) {
+                return List.of(created);
+            }
+            List<ItemKey> grown = new ArrayList<>(keys.size() + 1);
+            grown.addAll(keys);
+            grown.add(created);
+            return List.copyOf(grown);
+        });
+        return raced[0] == null ? created : raced[0];
+    }
+
+    /**
+     * Returns the shared key for the item if there is one, otherwise a key
+     * that is not added to the pool.  Safe on any thread, and callers with
+     * arbitrary templates cannot grow the pool through it.
+     */
+    public static ItemKey lookup(ItemStack item) {
+        Objects.requireNonNull(item, "item");
+        ItemKey existing = item.hasItemMeta()
+                ? find(WITH_META.get(fingerprintOf(item)), item)
+                : PLAIN.get(item.getType().ordinal());
+        return existing != null ? existing : new ItemKey(prototypeOf(item));
+    }
+
+    private static Fingerprint fingerprintOf(ItemStack item) {
+        ItemMeta meta = item.getItemMeta();
+        return new Fingerprint(item.getType(), meta == null ? 0 : meta.hashCode());
+    }
+
+    private static ItemKey find(List<ItemKey> keys, ItemStack item) {
+        if (keys == null) {
+            return null;
+        }
+        for (ItemKey key : keys) {
+            if (key.prototype.isSimilar(item)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /** Never keeps a stack the caller may still mutate. */
+    private static ItemStack prototypeOf(ItemStack item) {
+        ItemStack prototype = item.clone();
+        prototype.setAmount(1);
+        return prototype;
+    }
+
+    public static int poolSize() {
+        return POOL_SIZE.get();
+    }
+
+    public Material getType() {
+        return type;
+    }
+
+    public int getMaxStackSize() {
+        return prototype.getMaxStackSize();
+    }
+
+    public boolean hasItemMeta() {
+        return prototype.hasItemMeta();
+    }
+
+    /** Returns a copy of the item meta, as {@link ItemStack#getItemMeta()} does. */
+    public ItemMeta getItemMeta() {
+        return prototype.getItemMeta();
+    }
+
+    /** Cheap material check first; item meta is only compared for the same material. */
+    public boolean matches(ItemStack item) {
+        return item != null && item.getType() == type && prototype.isSimilar(item);
+    }
+
+    public ItemStack toItemStack() {
+        return prototype.clone();
+    }
+
+    public ItemStack toItemStack(int amount) {
+        ItemStack stack = prototype.clone();
+        stack.setAmount(amount);
+        return stack;
+    }
+
+    public String displayName() {
+        String name = displayName;
+        if (name == null) {
+            name = ItemUtils.getItemDisplayName(prototype);
+            displayName = name;
+        }
+        return name;
+    }
+
+    public String sortableName() {
+        String name = sortableName;
+        if (name == null) {
+            name = ItemUtils.getSortableName(prototype);
+            sortableName = name;
+        }
+        return name;
+    }
+
+    public ItemSearchTerms searchTerms() {
+        ItemSearchTerms terms = searchTerms;
+        if (terms == null) {
+            terms = ItemSearchTerms.of(prototype, displayName());
+            searchTerms = terms;
+        }
+        return terms;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        return other instanceof ItemKey key
+                && hash == key.hash
+                && type == key.type
+                && prototype.equals(key.prototype);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemKey[" + type + "]";
+    }
+}
@@ -1,5 +1,6 @@
 package com.dermoha.networkstorage.storage;
 
+import com.dermoha.networkstorage.metrics.PerformanceMetrics;
 import com.dermoha.networkstorage.stats.PlayerStat;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -13,9 +14,17 @@ import org.bukkit.inventory.ItemStack;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 public class Network {
 
+    /** Told about each loaded chunk a scan or transfer of the network reads. */
+    @FunctionalInterface
+    public interface ChunkListener {
+        void chunkUsed(World world, int chunkX, int chunkZ);
+    }
+
     public static final int MAX_DESCRIPTION_LENGTH = 128;
 
     private String name;
@@ -38,8 +47,29 @@ public class Network {
     private transient volatile NetworkScanResult scanResult;
     private transient volatile NetworkScanResult lastCompleteScan;
     private transient volatile long contentVersion;
+    // Bumped by every change to persisted state; snapshot capture reuses the
+    // previous copy of a network whose version has not moved.
+    private transient volatile long persistenceVersion;
     private transient volatile Runnable contentChangeListener = () -> {};
+    private transient Runnable storageCellListener = () -> {};
+    private transient ChunkListener chunkListener = (world, chunkX, chunkZ) -> {};
+    private transient BooleanSupplier primaryThread = Bukkit::isPrimaryThread;
+    private final NetworkContentIndex contentIndex = new NetworkContentIndex();
+    // Containers changed while a scan is running; re-read when it completes
+    // because the scan may already have passed them.  Main thread only.
+    private final Set<Location> touchedDuringScan = new HashSet<>();
+    private transient boolean scanInProgress;
+    private transient volatile boolean indexChanged;
+    private transient volatile int indexedChunks;
+    private transient volatile int indexedLoadedChunks;
     private final AtomicLong totalStoredAmount = new AtomicLong(0L);
+    // Storage cells by id.  Mutated on the main thread; scan results are
+    // merged with the cell totals under this map's monitor.
+    private final Map<Integer, StorageCell> storageCells = new TreeMap<>();
+    private transient volatile long storageCellAmount;
+    private transient long cellVersion;
+    private transient MergedScan mergedScan;
+    private transient MergedScan mergedComplete;
 
     public Network(String name, UUID owner, NetworkAccessRules accessRules) {
         this(name, owner, accessRules, MovementEvents.NOOP);
@@ -75,7 +105,7 @@ public class Network {
 
     public void setName(String name) {
         this.name = name;
-        this.dirty = true;
+        markPersistentChange();
     }
 
     public String getDescription() {
@@ -90,7 +120,7 @@ public class Network {
                     ? description.substring(0, MAX_DESCRIPTION_LENGTH)
                     : description;
         }
-        this.dirty = true;
+        markPersistentChange();
     }
 
     public UUID getOwner() {
@@ -128,15 +158,21 @@ public class Network {
     }
 
     public void addUnloadedChest(StoredLocation location) {
-        unloadedChestLocations.add(Objects.requireNonNull(location));
+        if (unloadedChestLocations.add(Objects.requireNonNull(location))) {
+            persistenceVersion++;
+        }
     }
 
     public void addUnloadedTerminal(StoredLocation location) {
-        unloadedTerminalLocations.add(Objects.requireNonNull(location));
+        if (unloadedTerminalLocations.add(Objects.requireNonNull(location))) {
+            persistenceVersion++;
+        }
     }
 
     public void addUnloadedSenderChest(StoredLocation location) {
-        unloadedSenderChestLocations.add(Objects.requireNonNull(location));
+        if (unloadedSenderChestLocations.add(Objects.requireNonNull(location))) {
+            persistenceVersion++;
+        }
     }
 
     /** Resolves positions for a newly loaded world without treating it as a content mutation. */
@@ -144,6 +180,9 @@ public class Network {
         boolean changed = resolveUnloaded(unloadedChestLocations, chestLocations, world);
         changed |= resolveUnloaded(unloadedTerminalLocations, terminalLocations, world);
         changed |= resolveUnloaded(unloadedSenderChestLocations, senderChestLocations, world);
+        if (changed) {
+            persistenceVersion++;
+        }
         return changed;
     }
 
@@ -151,6 +190,7 @@ public class Network {
         unloadedChestLocations.clear();
         unloadedTerminalLocations.clear();
         unloadedSenderChestLocations.clear();
+        persistenceVersion++;
     }
 
     private boolean resolveUnloaded(Set<StoredLocation> unresolved, Set<Location> resolved, World world) {
@@ -177,44 +217,71 @@ public class Network {
     }
 
     public void setDirty(boolean dirty) {
-        this.dirty = dirty;
+        if (dirty) {
+            markPersistentChange();
+        } else {
+            this.dirty = false;
+        }
+    }
+
+    public long getPersistenceVersion() {
+        return persistenceVersion;
+    }
+
+    private void markPersistentChange() {
+        this.dirty = true;
+        persistenceVersion++;
     }
 
     public void addChest(Location location) {
         if (chestLocations.add(location)) {
-            this.dirty = true;
-            markContentsChanged();
+            markPersistentChange();
+            if (contentIndex.isAuthoritative()) {
+                refreshContainer(location);
+            } else {
+                markContentsChanged();
+            }
         }
     }
 
     public void removeChest(Location location) {
         if (chestLocations.remove(location)) {
-            this.dirty = true;
-            markContentsChanged();
+            markPersistentChange();
+            if (contentIndex.isAuthoritative()) {
+                touchedDuringScan.remove(location);
+                if (isOtherHalfRegistered(location)) {
+                    // The combined inventory was indexed under this half; let
+                    // a rescan record it under the remaining one.
+                    markContentsChanged();
+                    return;
+                }
+                contentIndex.remove(location);
+                markIndexChanged();
+            } else {
+                markContentsChanged();
+            }
         }
     }
 
     public void addTerminal(Location location) {
         terminalLocations.add(location);
-        this.dirty = true;
+        markPersistentChange();
     }
 
     public void removeTerminal(Location location) {
         terminalLocations.remove(location);
-        this.dirty = true;
+        markPersistentChange();
     }
 
     public void addSenderChest(Location location) {
         if (senderChestLocations.add(location)) {
-            this.dirty = true;
-            markContentsChanged();
+            markPersistentChange();
         }
     }
 
     public void removeSenderChest(Location location) {
         if (senderChestLocations.remove(location)) {
-            this.dirty = true;
-            markContentsChanged();
+            markPersistentChange();
         }
     }
 
@@ -230,18 +297,30 @@ public class Network {
         return senderChestLocations.contains(location);
     }
 
+    /** Passes each sender chest in the chunk to {@code action} without copying the sender set. */
+    public void forEachSenderChestInChunk(World world, int chunkX, int chunkZ, Consumer<Location> action) {
+        synchronized (senderChestLocations) {
+            for (Location location : senderChestLocations) {
+                if (world.equals(location.getWorld())
+                        && location.getBlockX() >> 4 == chunkX && location.getBlockZ() >> 4 == chunkZ) {
+                    action.accept(location);
+                }
+            }
+        }
+    }
+
     public PlayerStat getPlayerStat(Player player) {
         return playerStats.computeIfAbsent(player.getUniqueId(), k -> new PlayerStat(player.getUniqueId(), player.getName()));
     }
 
     public void recordItemsDeposited(Player player, int amount) {
         getPlayerStat(player).addItemsDeposited(amount);
-        this.dirty = true;
+        markPersistentChange();
     }
 
     public void recordItemsWithdrawn(Player player, int amount) {
         getPlayerStat(player).addItemsWithdrawn(amount);
-        this.dirty = true;
+        markPersistentChange();
     }
 
     public boolean canAccess(Player player) {
@@ -275,19 +354,19 @@ public class Network {
     public void addTrustedPlayer(UUID playerUUID) {
         trustedPlayers.add(playerUUID);
         trustedPlayersWithExpiry.remove(playerUUID);
-        this.dirty = true;
+        markPersistentChange();
     }
 
     public void addTrustedPlayerWithExpiry(UUID playerUUID, long expiresAt) {
         trustedPlayers.add(playerUUID);
         trustedPlayersWithExpiry.put(playerUUID, expiresAt);
-        this.dirty = true;
+        markPersistentChange();
     }
 
     public void removeTrustedPlayer(UUID playerUUID) {
         trustedPlayers.remove(playerUUID);
         trustedPlayersWithExpiry.remove(playerUUID);
-        this.dirty = true;
+        markPersistentChange();
     }
 
     public Map<UUID, Long> getTrustedPlayersWithExpiry() {
@@ -307,31 +386,141 @@ public class Network {
             }
         }
         if (changed) {
-            this.dirty = true;
+            markPersistentChange();
         }
     }
 
-    public Map<ItemStack, Integer> getNetworkItems() {
+    public ItemCounts getNetworkItems() {
         return getScanResult().items();
     }
 
+    /** Discards the content index and requests a full rescan. */
     public void invalidateItemCache() {
         markContentsChanged();
     }
 
+    /**
+     * Re-reads one registered container and folds the difference into the
+     * published scan.  Without a seeded index this falls back to a full rescan.
+     * A double chest is indexed once, under its left half when that half is
+     * registered.
+     */
+    public void refreshContainer(Location location) {
+        requirePrimaryThread();
+        if (location == null || !chestLocations.contains(location)) {
+            return;
+        }
+        if (scanInProgress) {
+            touchedDuringScan.add(location);
+        }
+        if (!contentIndex.isAuthoritative()) {
+            if (!scanInProgress) {
+                markContentsChanged();
+            }
+            return;
+        }
+        if (!isChunkLoaded(location)) {
+            // Unloaded chunks cannot change; the indexed copy stays valid.
+            return;
+        }
+        ContainerAccess containers = ContainerAccess.shared();
+        Location identity = containers.identity(location);
+        Location key = identity != null && chestLocations.contains(identity) ? identity : location;
+        ContainerContents contents = readContainer(key);
+        if (contents == null) {
+            // Let the scanner report the broken registration.
+            markContentsChanged();
+            return;
+        }
+        boolean changed = contentIndex.update(key, contents);
+        // A right half indexed on its own before its left half was registered.
+        Location otherHalf = containers.otherHalf(key);
+        if (key.equals(identity) && otherHalf != null && contentIndex.contains(otherHalf)) {
+            contentIndex.remove(otherHalf);
+            changed = true;
+        }
+        if (changed) {
+            markIndexChanged();
+        }
+    }
+
+    /** True for the right half of a double chest indexed under its left half. */
+    private boolean isIndexedThroughOtherHalf(Location location) {
+        if (!isChunkLoaded(location)) {
+            return false;
+        }
+        Location identity = ContainerAccess.shared().identity(location);
+        return identity != null && !identity.equals(location) && contentIndex.contains(identity);
+    }
+
+    private boolean isOtherHalfRegistered(Location location) {
+        if (!isChunkLoaded(location)) {
+            return false;
+        }
+        Location otherHalf = ContainerAccess.shared().otherHalf(location);
+        return otherHalf != null && chestLocations.contains(otherHalf);
+    }
+
+    private static boolean isChunkLoaded(Location location) {
+        World world = location.getWorld();
+        return world != null && world.isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+
+    /** False when the inventory at {@code location} was already visited in this pass. */
+    private static boolean firstVisit(Location location, Set<Location> visited) {
+        Location identity = ContainerAccess.shared().identity(location);
+        return identity == null || visited.add(identity);
+    }
+
     public void setContentChangeListener(Runnable listener) {
         this.contentChangeListener = listener == null ? () -> {} : listener;
     }
 
+    /** Called on the main thread after items went into or out of a storage cell. */
+    public void setStorageCellListener(Runnable listener) {
+        this.storageCellListener = listener == null ? () -> {} : listener;
+    }
+
+    /** Called on the main thread for every chunk a transfer visits. */
+    public void setChunkListener(ChunkListener listener) {
+        this.chunkListener = listener == null ? (world, chunkX, chunkZ) -> {} : listener;
+    }
+
+    /** Replaces the server thread check; tests run without a server. */
+    void setPrimaryThreadCheck(BooleanSupplier check) {
+        this.primaryThread = check;
+    }
+
     public long getContentVersion() {
         return contentVersion;
     }
 
     public void beginScan(int registeredLocations, int uniqueChunks) {
+        scanInProgress = true;
+        touchedDuringScan.clear();
+        if (contentIndex.isAuthoritative()) {
+            // Audit of a seeded index: keep serving the indexed result.
+            return;
+        }
         this.scanResult = NetworkScanResult.pending(name, registeredLocations, uniqueChunks, lastCompleteScan);
     }
 
+    /** Forgets a scan that was cancelled before it produced a result. */
+    public void abortScan() {
+        scanInProgress = false;
+        touchedDuringScan.clear();
+    }
+
     public void applyScanResult(NetworkScanResult result) {
+        applyScanResult(result, null);
+    }
+
+    /**
+     * Publishes a finished scan.  When the per-container contents are supplied
+     * a complete scan seeds the content index, after which container changes
+     * are applied through {@link #refreshContainer(Location)}.
+     */
+    public void applyScanResult(NetworkScanResult result, Map<Location, ContainerContents> containers) {
         if (result == null) {
             return;
         }
@@ -340,12 +529,21 @@ public class Network {
                     name, result.registeredLocations(), result.uniqueChunks(), lastCompleteScan);
             return;
         }
+        scanInProgress = false;
         if (result.status() == NetworkScanStatus.COMPLETE && result.hasAuthoritativeData()) {
+            if (containers != null) {
+                seedIndex(result, containers);
+                return;
+            }
+            touchedDuringScan.clear();
+            contentIndex.invalidate();
             lastCompleteScan = result;
             scanResult = result;
             setTotalStoredAmount(result.totalItems());
             return;
         }
+        touchedDuringScan.clear();
+        contentIndex.invalidate();
         scanResult = NetworkScanResult.incomplete(
                 name,
                 result.registeredLocations(),
@@ -360,28 +558,128 @@ public class Network {
                 lastCompleteScan);
     }
 
+    /**
+     * Seeds the last complete scan from storage after a restart.  The result
+     * stays pending, so it is shown but not trusted, until a real scan
+     * replaces it.
+     */
+    public void restoreLastCompleteScan(NetworkScanResult cached) {
+        if (cached == null || cached.status() != NetworkScanStatus.COMPLETE || lastCompleteScan != null) {
+            return;
+        }
+        lastCompleteScan = cached;
+        scanResult = NetworkScanResult.pending(name, chestLocations.size() + unloadedChestLocations.size(),
+                cached.uniqueChunks(), cached);
+        setTotalStoredAmount(cached.totalItems());
+    }
+
     public NetworkScanResult getScanResult() {
+        publishIndexIfChanged();
         NetworkScanResult current = scanResult;
-        return current == null ? NetworkScanResult.pending(name, chestLocations.size(), 0, lastCompleteScan) : current;
+        if (current == null) {
+            current = NetworkScanResult.pending(name, chestLocations.size(), 0, lastCompleteScan);
+        }
+        return withStorageCells(current, false);
     }
 
     public NetworkScanResult getLastCompleteScan() {
+        return withStorageCells(getLastCompleteContainerScan(), true);
+    }
+
+    /** The last complete scan of the registered containers, without storage cells. */
+    public NetworkScanResult getLastCompleteContainerScan() {
+        publishIndexIfChanged();
         return lastCompleteScan;
     }
 
     public boolean hasCompleteScan() {
-        return lastCompleteScan != null && getScanResult().status() == NetworkScanStatus.COMPLETE;
+        return getLastCompleteScan() != null && getScanResult().status() == NetworkScanStatus.COMPLETE;
     }
 
     public boolean hasLastCompleteScan() {
-        return lastCompleteScan != null;
+        return getLastCompleteScan() != null;
     }
 
     public long getLastCompleteStoredAmount() {
-        return lastCompleteScan == null ? 0L : lastCompleteScan.totalItems();
+        NetworkScanResult complete = getLastCompleteScan();
+        return complete == null ? 0L : complete.totalItems();
+    }
+
+    private void seedIndex(NetworkScanResult result, Map<Location, ContainerContents> containers) {
+        Map<Location, ContainerContents> registered = new HashMap<>();
+        for (Map.Entry<Location, ContainerContents> entry : containers.entrySet()) {
+            if (chestLocations.contains(entry.getKey())) {
+                registered.put(entry.getKey(), entry.getValue());
+            }
+        }
+        indexedChunks = result.uniqueChunks();
+        indexedLoadedChunks = result.loadedChunks();
+        contentIndex.reset(registered);
+
+        List<Location> touched = new ArrayList<>(touchedDuringScan);
+        touchedDuringScan.clear();
+        for (Location location : touched) {
+            refreshContainer(location);
+        }
+        if (!contentIndex.isAuthoritative()) {
+            return;
+        }
+        // Chests registered while the scan ran were never read by it.
+        for (Location location : getChestLocations()) {
+            if (!contentIndex.contains(location) && !isIndexedThroughOtherHalf(location)) {
+                refreshContainer(location);
+                if (!contentIndex.isAuthoritative()) {
+                    return;
+                }
+            }
+        }
+        markIndexChanged();
+        publishIndexIfChanged();
+    }
+
+    private void markIndexChanged() {
+        contentVersion++;
+        indexChanged = true;
+    }
+
+    private void publishIndexIfChanged() {
+        if (!indexChanged) {
+            return;
+        }
+        synchronized (contentIndex) {
+            if (!indexChanged) {
+                return;
+            }
+            indexChanged = false;
+            if (!contentIndex.isAuthoritative()) {
+                return;
+            }
+            NetworkScanResult result = contentIndex.toScanResult(name,
+                    chestLocations.size() + unloadedChestLocations.size(),
+                    indexedChunks,
+                    indexedLoadedChunks,
+                    System.currentTimeMillis());
+            lastCompleteScan = result;
+            scanResult = result;
+            setTotalStoredAmount(result.totalItems());
+        }
+    }
+
+    private ContainerContents readContainer(Location location) {
+        try {
+            Container container = ContainerAccess.at(location);
+            if (container != null) {
+                return ContainerContents.read(container.getInventory());
+            }
+        } catch (RuntimeException ignored) {
+            // Reported by the full scan that follows.
+        }
+        return null;
     }
 
     private void markContentsChanged() {
+        contentIndex.invalidate();
+        indexChanged = false;
         contentVersion++;
         NetworkScanResult previous = lastCompleteScan;
         scanResult = NetworkScanResult.pending(name, chestLocations.size(),
@@ -389,8 +687,9 @@ public class Network {
         contentChangeListener.run();
     }
 
+    /** Items in registered containers plus items in storage cells. */
     public long getTotalStoredAmount() {
-        return totalStoredAmount.get();
+        return totalStoredAmount.get() + storageCellAmount;
     }
 
     public void adjustTotalStoredAmount(long delta) {
@@ -405,99 +704,472 @@ public class Network {
         totalStoredAmount.set(Math.max(0L, value));
     }
 
+    public Collection<StorageCell> getStorageCells() {
+        return Collections.unmodifiableCollection(storageCells.values());
+    }
+
+    public StorageCell getStorageCell(int id) {
+        return storageCells.get(id);
+    }
+
+    /** Amount held by all storage cells of this network. */
+    public long getStorageCellAmount() {
+        return storageCellAmount;
+    }
+
+    /** Adds an empty cell under the next free id. */
+    public StorageCell addStorageCell(long capacity) {
+        requirePrimaryThread();
+        int id = 1;
+        for (int used : storageCells.keySet()) {
+            if (used >= id) {
+                id = used + 1;
+            }
+        }
+        StorageCell cell = new StorageCell(id, capacity);
+        synchronized (storageCells) {
+            storageCells.put(id, cell);
+        }
+        markPersistentChange();
+        return cell;
+    }
+
+    /** Removes an empty cell; a cell that still holds items is kept. */
+    public boolean removeStorageCell(int id) {
+        requirePrimaryThread();
+        StorageCell cell = storageCells.get(id);
+        if (cell == null || !cell.isEmpty()) {
+            return false;
+        }
+        synchronized (storageCells) {
+            storageCells.remove(id);
+        }
+        cellsChanged();
+        markPersistentChange();
+        return true;
+    }
+
+    /** Re-attaches a cell loaded from storage. */
+    public void restoreStorageCell(StorageCell cell) {
+        synchronized (storageCells) {
+            storageCells.put(cell.id(), cell);
+        }
+        cellsChanged();
+        persistenceVersion++;
+    }
+
+    /**
+     * Puts as much of the stack as fits into storage cells.
+     *
+     * @return the part that did not fit, or null when the cells took it all
+     */
+    private ItemStack storeInCells(ItemKey key, ItemStack item) {
+        if (storageCells.isEmpty()) {
+            return item;
+        }
+        long left = item.getAmount();
+        synchronized (storageCells) {
+            for (StorageCell cell : storageCells.values()) {
+                if (left <= 0L) break;
+                left -= cell.insert(key, left);
+            }
+        }
+        if (left == item.getAmount()) {
+            return item;
+        }
+        if (left <= 0L) {
+            return null;
+        }
+        item.setAmount((int) left);
+        return item;
+    }
+
+    private int takeFromCells(ItemKey key, int amount) {
+        if (storageCells.isEmpty() || amount <= 0) {
+            return 0;
+        }
+        long taken = 0L;
+        synchronized (storageCells) {
+            for (StorageCell cell : storageCells.values()) {
+                if (taken >= amount) break;
+                taken += cell.extract(key, amount - taken);
+            }
+        }
+        if (taken > 0L) {
+            cellsChanged();
+            markPersistentChange();
+            storageCellListener.run();
+        }
+        return (int) taken;
+    }
+
+    private void cellsChanged() {
+        long amount = 0L;
+        for (StorageCell cell : storageCells.values()) {
+            amount += cell.storedAmount();
+        }
+        storageCellAmount = amount;
+        cellVersion++;
+        contentVersion++;
+    }
+
+    private record MergedScan(NetworkScanResult source, long cellVersion, NetworkScanResult result) {
+    }
+
+    /**
+     * Adds the storage cell totals to a container scan.  Cells are always
+     * known exactly, so this never waits for, or triggers, a world scan.
+     * Slot usage and capacity keep describing the containers alone.
+     */
+    private NetworkScanResult withStorageCells(NetworkScanResult result, boolean complete) {
+        if (result == null || storageCells.isEmpty()) {
+            return result;
+        }
+        synchronized (storageCells) {
+            MergedScan cached = complete ? mergedComplete : mergedScan;
+            if (cached != null && cached.source() == result && cached.cellVersion() == cellVersion) {
+                return cached.result();
+            }
+            ItemCountMap items = new ItemCountMap(result.items().size() + 16);
+            items.addAll(result.items());
+            long cellItems = 0L;
+            for (StorageCell cell : storageCells.values()) {
+                ItemCounts contents = cell.contents();
+                items.addAll(contents);
+                cellItems += cell.storedAmount();
+            }
+            NetworkScanResult merged = new NetworkScanResult(result.networkName(), result.status(),
+                    result.registeredLocations(), result.uniqueChunks(), result.loadedChunks(),
+                    result.containersFound(), result.totalItems() + cellItems, items.size(),
+                    result.totalSlots(), result.usedSlots(), result.capacityPercent(), items.freeze(),
+                    result.hasAuthoritativeData(), result.warnings(), result.scannedAtMs());
+            cached = new MergedScan(result, cellVersion, merged);
+            if (complete) {
+                mergedComplete = cached;
+            } else {
+                mergedScan = cached;
+            }
+            return merged;
+        }
+    }
+
     public ItemStack removeFromNetwork(ItemStack itemToRemove, int amount) {
         requirePrimaryThread();
         if (amount < 0) {
             throw new IllegalArgumentException("Amount cannot be negative: " + amount);
         }
-        int remaining = amount;
-
-        for (Location chestLoc : getLoadedChestLocations()) {
-            if (remaining <= 0) break;
-            if (chestLoc.getBlock().getState() instanceof Container container) {
-                Inventory inv = container.getInventory();
-                for (int i = 0; i < inv.getSize() && remaining > 0; i++) {
-                    ItemStack item = inv.getItem(i);
-                    if (item != null && item.isSimilar(itemToRemove)) {
-                        int toRemove = Math.min(remaining, item.getAmount());
-                        if (item.getAmount() <= toRemove) {
-                            inv.setItem(i, null);
-                        } else {
-                            item.setAmount(item.getAmount() - toRemove);
-                        }
-                        remaining -= toRemove;
+        ItemKey key = ItemKey.of(itemToRemove);
+        // Cells first: they never need a chunk or a block state.
+        int fromCells = takeFromCells(key, amount);
+        int requested = amount - fromCells;
+        int remaining = requested;
+        List<Location> touched = new ArrayList<>();
+        Map<ChunkKey, Boolean> chunkLoads = new HashMap<>();
+
+        boolean verifyAll = !contentIndex.isAuthoritative();
+        if (!verifyAll && remaining > 0) {
+            long indexedCount = contentIndex.count(key);
+            for (Location chestLoc : loadedFirst(contentIndex.containersHolding(key))) {
+                if (remaining <= 0) break;
+                if (!ensureChunkLoaded(chestLoc, chunkLoads)) continue;
+                Container container = ContainerAccess.at(chestLoc);
+                if (container == null) {
+                    verifyAll = true;
+                    continue;
+                }
+                IndexedRemoval removal = removeIndexedSlots(container.getInventory(),
+                        contentIndex.contents(chestLoc), key, remaining);
+                if (removal.removed() > 0) {
+                    touched.add(chestLoc);
+                }
+                verifyAll |= removal.stale();
+                remaining -= removal.removed();
+            }
+            // The index promised more than the live containers gave up.
+            verifyAll |= remaining > 0 && requested - remaining < Math.min(indexedCount, requested);
+        }
+
+        if (verifyAll && remaining > 0) {
+            Set<Location> visited = new HashSet<>();
+            for (Location chestLoc : getChestLocationsLoadedFirst()) {
+                if (remaining <= 0) break;
+                if (!ensureChunkLoaded(chestLoc, chunkLoads)) continue;
+                Container container = ContainerAccess.at(chestLoc);
+                if (container != null && firstVisit(chestLoc, visited)) {
+                    int removed = removeFromSlots(container.getInventory(), key, remaining);
+                    if (removed > 0 && !touched.contains(chestLoc)) {
+                        touched.add(chestLoc);
                     }
+                    remaining -= removed;
                 }
             }
         }
         int actuallyRemoved = amount - remaining;
-        if (actuallyRemoved > 0) {
-            adjustTotalStoredAmount(-actuallyRemoved);
+        if (requested > remaining) {
+            adjustTotalStoredAmount(-(requested - remaining));
         }
-        invalidateItemCache();
+        refreshContainers(touched);
         ItemStack result = itemToRemove.clone();
         result.setAmount(actuallyRemoved);
         return result;
     }
 
+    /**
+     * Takes items from the slots the index recorded for the key.  A slot that
+     * no longer holds the item marks the index stale, and the rest of the
+     * container is then verified slot by slot.
+     */
+    private static IndexedRemoval removeIndexedSlots(Inventory inv, ContainerContents indexed, ItemKey key, int amount) {
+        if (indexed == null || !indexed.hasSlotLayout() || indexed.slots() != inv.getSize()) {
+            return new IndexedRemoval(removeFromSlots(inv, key, amount), true);
+        }
+        int removed = 0;
+        boolean stale = false;
+        List<ItemKey> slotKeys = indexed.slotKeys();
+        for (int i = 0; i < slotKeys.size() && removed < amount; i++) {
+            ItemKey slotKey = slotKeys.get(i);
+            if (slotKey != key && !key.equals(slotKey)) {
+                continue;
+            }
+            int taken = removeFromSlot(inv, i, key, amount - removed);
+            stale |= taken == 0;
+            removed += taken;
+        }
+        if (stale && removed < amount) {
+            removed += removeFromSlots(inv, key, amount - removed);
+        }
+        return new IndexedRemoval(removed, stale);
+    }
+
+    private static int removeFromSlots(Inventory inv, ItemKey key, int amount) {
+        int removed = 0;
+        for (int i = 0; i < inv.getSize() && removed < amount; i++) {
+            removed += removeFromSlot(inv, i, key, amount - removed);
+        }
+        return removed;
+    }
+
+    private static int removeFromSlot(Inventory inv, int slot, ItemKey key, int amount) {
+        ItemStack item = inv.getItem(slot);
+        if (!key.matches(item)) {
+            return 0;
+        }
+        int toRemove = Math.min(amount, item.getAmount());
+        if (item.getAmount() <= toRemove) {
+            inv.setItem(slot, null);
+        } else {
+            item.setAmount(item.getAmount() - toRemove);
+        }
+        return toRemove;
+    }
+
+    private record IndexedRemoval(int removed, boolean stale) {
+    }
+
     public ItemStack addToNetwork(ItemStack itemToAdd) {
         requirePrimaryThread();
         if (itemToAdd == null || itemToAdd.getType() == Material.AIR) return null;
-        ItemStack remaining = itemToAdd.clone();
-        for (Location chestLoc : getLoadedChestLocations()) {
-            if (remaining.getAmount() <= 0) break;
-            if (chestLoc.getBlock().getState() instanceof Container container) {
-                HashMap<Integer, ItemStack> result = container.getInventory().addItem(remaining);
-                if (result.isEmpty()) {
-                    remaining = null;
-                    break;
-                } else {
-                    remaining = result.get(0);
+        return addAllToNetwork(Collections.singletonList(itemToAdd)).get(0);
+    }
+
+    /**
+     * Stores several stacks in one pass.  Storage cells are filled first;
+     * what they cannot hold goes to the registered containers.  Chunk load
+     * attempts are shared, and the cells and every touched container are
+     * published once at the end, so the whole batch makes a single content
+     * change and at most one cell save request.
+     *
+     * @return the leftover of each stack in input order, or null where the
+     *         stack was stored completely
+     */
+    public List<ItemStack> addAllToNetwork(List<ItemStack> items) {
+        requirePrimaryThread();
+        List<ItemStack> leftovers = new ArrayList<>(items.size());
+        Set<Location> touched = new LinkedHashSet<>();
+        Map<ChunkKey, Boolean> chunkLoads = new HashMap<>();
+        // With a seeded index only containers holding a partial stack of the
+        // item or an empty slot are visited; full chests are never touched.
+        boolean indexed = contentIndex.isAuthoritative();
+        List<Location> allTargets = null;
+        boolean cellsChanged = false;
+        long added = 0L;
+        for (ItemStack item : items) {
+            if (item == null || item.getType() == Material.AIR) {
+                leftovers.add(null);
+                continue;
+            }
+            ItemKey itemKey = ItemKey.of(item);
+            ItemStack remaining = storeInCells(itemKey, item.clone());
+            cellsChanged |= remaining == null || remaining.getAmount() != item.getAmount();
+            if (remaining == null) {
+                leftovers.add(null);
+                continue;
+            }
+            int beforeContainers = remaining.getAmount();
+            if (indexed) {
+                remaining = depositIndexed(itemKey, remaining, touched, chunkLoads);
+            } else {
+                if (allTargets == null) {
+                    allTargets = getChestLocationsLoadedFirst();
                 }
+                remaining = depositInto(allTargets, remaining, touched, chunkLoads);
             }
+            added += remaining == null ? beforeContainers : beforeContainers - remaining.getAmount();
+            leftovers.add(remaining);
+        }
+        if (cellsChanged) {
+            cellsChanged();
+            markPersistentChange();
+            storageCellListener.run();
         }
-        int originalAmount = itemToAdd.getAmount();
-        int added = remaining == null ? originalAmount : originalAmount - remaining.getAmount();
         if (added > 0) {
             adjustTotalStoredAmount(added);
         }
-        invalidateItemCache();
+        refreshContainers(touched);
+        return leftovers;
+    }
+
+    /**
+     * Walks the index's deposit targets lazily and stops at the first one
+     * that takes the rest.  Targets in loaded chunks are tried first; the
+     * unloaded ones passed over are only loaded when those were not enough.
+     * Indexed targets hold each double chest once already.
+     */
+    private ItemStack depositIndexed(ItemKey key, ItemStack remaining, Set<Location> touched,
+                                     Map<ChunkKey, Boolean> chunkLoads) {
+        List<Location> unloaded = null;
+        Iterator<Location> targets = contentIndex.depositTargets(key);
+        while (targets.hasNext()) {
+            Location chestLoc = targets.next();
+            if (!isChunkLoaded(chestLoc)) {
+                if (chestLoc != null && chestLoc.getWorld() != null) {
+                    if (unloaded == null) {
+                        unloaded = new ArrayList<>();
+                    }
+                    unloaded.add(chestLoc);
+                }
+                continue;
+            }
+            remaining = depositAt(chestLoc, remaining, null, touched, chunkLoads);
+            if (remaining == null) {
+                return null;
+            }
+        }
+        if (unloaded != null) {
+            for (Location chestLoc : unloaded) {
+                remaining = depositAt(chestLoc, remaining, null, touched, chunkLoads);
+                if (remaining == null) {
+                    return null;
+                }
+            }
+        }
+        return remaining;
+    }
+
+    private ItemStack depositInto(List<Location> targets, ItemStack remaining,
+                                  Set<Location> touched, Map<ChunkKey, Boolean> chunkLoads) {
+        Set<Location> visited = new HashSet<>();
+        for (Location chestLoc : targets) {
+            remaining = depositAt(chestLoc, remaining, visited, touched, chunkLoads);
+            if (remaining == null) {
+                return null;
+            }
+        }
         return remaining;
     }
 
+    /**
+     * @param visited inventories already offered the stack, or null for
+     *                indexed targets, which hold each double chest once
+     * @return what the container at {@code chestLoc} could not take, or null
+     *         when it took everything
+     */
+    private ItemStack depositAt(Location chestLoc, ItemStack remaining, Set<Location> visited,
+                                Set<Location> touched, Map<ChunkKey, Boolean> chunkLoads) {
+        if (!ensureChunkLoaded(chestLoc, chunkLoads)) {
+            return remaining;
+        }
+        Container container = ContainerAccess.at(chestLoc);
+        if (container == null || (visited != null && !firstVisit(chestLoc, visited))) {
+            return remaining;
+        }
+        boolean indexed = visited == null;
+        int before = remaining.getAmount();
+        HashMap<Integer, ItemStack> result = container.getInventory().addItem(remaining);
+        // A target that accepted nothing disagrees with the index;
+        // re-reading it below corrects its free-space entry.
+        if (indexed || result.isEmpty() || result.get(0).getAmount() != before) {
+            touched.add(chestLoc);
+        }
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    private void refreshContainers(Collection<Location> locations) {
+        Set<Location> refreshed = new HashSet<>();
+        for (Location location : locations) {
+            // Both halves of a double chest are re-read once.
+            if (firstVisit(location, refreshed)) {
+                refreshContainer(location);
+            }
+        }
+    }
+
     public double getCapacityPercent() {
         return getScanResult().capacityPercent();
     }
 
-    private List<Location> getLoadedChestLocations() {
-        Map<ChunkKey, Boolean> loadedChunks = new HashMap<>();
-        List<Location> loadedLocations = new ArrayList<>();
-        for (Location location : getChestLocations()) {
+    /**
+     * Orders registered chests so containers in loaded chunks are used first.
+     * Chunks are not loaded here; callers load lazily, and only when the
+     * loaded containers could not satisfy the whole transfer.
+     */
+    private List<Location> getChestLocationsLoadedFirst() {
+        return loadedFirst(getChestLocations());
+    }
+
+    private static List<Location> loadedFirst(Collection<Location> locations) {
+        List<Location> loaded = new ArrayList<>();
+        List<Location> unloaded = new ArrayList<>();
+        for (Location location : locations) {
             if (location == null || location.getWorld() == null) {
                 continue;
             }
-            ChunkKey key = new ChunkKey(location.getWorld().getUID(),
-                    location.getBlockX() >> 4, location.getBlockZ() >> 4);
-            boolean loaded = loadedChunks.computeIfAbsent(key, ignored -> {
-                try {
-                    World world = location.getWorld();
-                    if (!world.isChunkLoaded(key.chunkX(), key.chunkZ())) {
-                        world.loadChunk(key.chunkX(), key.chunkZ(), false);
-                    }
-                    return world.isChunkLoaded(key.chunkX(), key.chunkZ());
-                } catch (RuntimeException ignoredException) {
-                    return false;
+            try {
+                if (location.getWorld().isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4)) {
+                    loaded.add(location);
+                } else {
+                    unloaded.add(location);
                 }
-            });
-            if (loaded) {
-                loadedLocations.add(location);
+            } catch (RuntimeException ignored) {
+                // Skipped, as an unloadable chunk would be.
             }
         }
-        return loadedLocations;
+        loaded.addAll(unloaded);
+        return loaded;
+    }
+
+    private boolean ensureChunkLoaded(Location location, Map<ChunkKey, Boolean> attempts) {
+        World world = location.getWorld();
+        ChunkKey key = new ChunkKey(world.getUID(), location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        return attempts.computeIfAbsent(key, ignored -> {
+            try {
+                if (!world.isChunkLoaded(key.chunkX(), key.chunkZ())) {
+                    PerformanceMetrics.get().increment(PerformanceMetrics.Counter.CHUNK_LOADS);
+                    world.loadChunk(key.chunkX(), key.chunkZ(), false);
+                }
+                boolean loaded = world.isChunkLoaded(key.chunkX(), key.chunkZ());
+                if (loaded) {
+                    chunkListener.chunkUsed(world, key.chunkX(), key.chunkZ());
+                }
+                return loaded;
+            } catch (RuntimeException ignoredException) {
+                return false;
+            }
+        });
     }
 
     private void requirePrimaryThread() {
-        if (!Bukkit.isPrimaryThread()) {
+        if (!primaryThread.getAsBoolean()) {
             throw new IllegalStateException("Network storage world and inventory access must run on the Bukkit main thread");
         }
     }
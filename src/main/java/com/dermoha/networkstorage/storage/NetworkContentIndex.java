@@ -0,0 +1,220 @@
+package com.dermoha.networkstorage.storage;
+
+import org.bukkit.Location;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Per-container view of a network's stored items.  A complete scan seeds the
+ * index; afterwards single containers are replaced as they change and the
+ * network-wide totals are adjusted by the difference instead of rescanning.
+ * It also records which containers hold each item, so a withdrawal only
+ * visits containers (and, through their slot layout, slots) that hold it.
+ * For deposits it keeps the containers with partial stacks of each item and
+ * the containers with at least one empty slot.
+ *
+ * <p>Mutations happen on the Bukkit main thread.  Methods are synchronized so
+ * a published result can still be built for an off-thread reader.
+ */
+final class NetworkContentIndex {
+
+    private final Map<Location, ContainerContents> containers = new HashMap<>();
+    private final ItemCountMap totals = new ItemCountMap();
+    private final Map<ItemKey, Set<Location>> holders = new HashMap<>();
+    private final Map<ItemKey, Set<Location>> partialHolders = new HashMap<>();
+    private final Set<Location> withEmptySlots = new LinkedHashSet<>();
+    private long totalItems;
+    private long totalSlots;
+    private long usedSlots;
+    private boolean authoritative;
+
+    synchronized boolean isAuthoritative() {
+        return authoritative;
+    }
+
+    synchronized boolean contains(Location location) {
+        return containers.containsKey(location);
+    }
+
+    synchronized int size() {
+        return containers.size();
+    }
+
+    synchronized ContainerContents contents(Location location) {
+        return containers.get(location);
+    }
+
+    synchronized long count(ItemKey key) {
+        return totals.get(key);
+    }
+
+    /** Containers whose indexed contents include the item, in indexing order. */
+    synchronized List<Location> containersHolding(ItemKey key) {
+        Set<Location> locations = holders.get(key);
+        return locations == null ? List.of() : new ArrayList<>(locations);
+    }
+
+    /**
+     * Containers that can accept the item: those with a partial stack of it
+     * first, then those with an empty slot.  Full containers are omitted.
+     * The iterator is lazy, so a deposit that fits in the first target never
+     * looks at the others.  Main thread only; it is valid until the index
+     * next changes.
+     */
+    synchronized Iterator<Location> depositTargets(ItemKey key) {
+        return new DepositTargets(partialHolders.getOrDefault(key, Set.of()), withEmptySlots);
+    }
+
+    /** Replaces the whole index with the containers read by a complete scan. */
+    synchronized void reset(Map<Location, ContainerContents> scanned) {
+        clear();
+        for (Map.Entry<Location, ContainerContents> entry : scanned.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+        authoritative = true;
+    }
+
+    /** Returns whether the container's contents differed from the indexed copy. */
+    synchronized boolean update(Location location, ContainerContents contents) {
+        ContainerContents previous = containers.get(location);
+        if (contents.equals(previous)) {
+            return false;
+        }
+        if (previous != null) {
+            subtract(location, previous);
+        }
+        put(location, contents);
+        return true;
+    }
+
+    synchronized boolean remove(Location location) {
+        ContainerContents previous = containers.remove(location);
+        if (previous == null) {
+            return false;
+        }
+        subtract(location, previous);
+        return true;
+    }
+
+    /** Drops all indexed data; the next complete scan must seed it again. */
+    synchronized void invalidate() {
+        clear();
+        authoritative = false;
+    }
+
+    synchronized NetworkScanResult toScanResult(String networkName,
+                                                int registeredLocations,
+                                                int uniqueChunks,
+                                                int loadedChunks,
+                                                long scannedAtMs) {
+        return NetworkScanResult.complete(
+                networkName,
+                registeredLocations,
+                uniqueChunks,
+                loadedChunks,
+                containers.size(),
+                totalItems,
+                totalSlots,
+                usedSlots,
+                totals,
+                scannedAtMs);
+    }
+
+    private void put(Location location, ContainerContents contents) {
+        containers.put(location, contents);
+        totalItems += contents.totalItems();
+        totalSlots += contents.slots();
+        usedSlots += contents.usedSlots();
+        totals.addAll(contents.items());
+        contents.items().forEach((key, amount) ->
+                holders.computeIfAbsent(key, ignored -> new LinkedHashSet<>()).add(location));
+        for (ItemKey key : contents.partialKeys()) {
+            partialHolders.computeIfAbsent(key, ignored -> new LinkedHashSet<>()).add(location);
+        }
+        if (contents.emptySlots() > 0) {
+            withEmptySlots.add(location);
+        }
+    }
+
+    private void subtract(Location location, ContainerContents contents) {
+        totalItems -= contents.totalItems();
+        totalSlots -= contents.slots();
+        usedSlots -= contents.usedSlots();
+        totals.subtractAll(contents.items());
+        contents.items().forEach((key, amount) -> removeLocation(holders, key, location));
+        for (ItemKey key : contents.partialKeys()) {
+            removeLocation(partialHolders, key, location);
+        }
+        withEmptySlots.remove(location);
+    }
+
+    private static void removeLocation(Map<ItemKey, Set<Location>> index, ItemKey key, Location location) {
+        Set<Location> locations = index.get(key);
+        if (locations != null && locations.remove(location) && locations.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static final class DepositTargets implements Iterator<Location> {
+        private final Set<Location> partial;
+        private final Iterator<Location> partialIterator;
+        private final Iterator<Location> emptyIterator;
+        private Location next;
+
+        private DepositTargets(Set<Location> partial, Set<Location> withEmptySlots) {
+            this.partial = partial;
+            this.partialIterator = partial.iterator();
+            this.emptyIterator = withEmptySlots.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (partialIterator.hasNext()) {
+                next = partialIterator.next();
+                return true;
+            }
+            while (emptyIterator.hasNext()) {
+                Location location = emptyIterator.next();
+                // Already returned as a partial holder.
+                if (!partial.contains(location)) {
+                    next = location;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Location next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Location location = next;
+            next = null;
+            return location;
+        }
+    }
+
+    private void clear() {
+        containers.clear();
+        totals.clear();
+        holders.clear();
+        partialHolders.clear();
+        withEmptySlots.clear();
+        totalItems = 0L;
+        totalSlots = 0L;
+        usedSlots = 0L;
+    }
+}
@@ -1,12 +1,15 @@
 package com.dermoha.networkstorage.storage;
 
 import com.dermoha.networkstorage.gui.TerminalGUI;
+import com.dermoha.networkstorage.metrics.PerformanceMetrics;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 public final class NetworkMovement {
 
@@ -49,6 +52,10 @@ public final class NetworkMovement {
 
     public record AbsorbResult(int absorbed, int leftover) {}
 
+    public record BatchResult(int stacks, int moved, int leftover) {
+        public boolean nothingMoved() { return moved == 0; }
+    }
+
     private final Network network;
     private final MovementEvents events;
 
@@ -71,6 +78,7 @@ public final class NetworkMovement {
         source.write(remaining);
 
         if (deposited > 0) {
+            PerformanceMetrics.get().add(PerformanceMetrics.Counter.ITEMS_DEPOSITED, deposited);
             network.recordItemsDeposited(player, deposited);
         }
         events.sendDepositMessage(player, returned == 0, deposited, returned, original);
@@ -123,6 +131,7 @@ public final class NetworkMovement {
         int withdrawn = removedAmount - returnedToNetwork;
         WithdrawResult result = new WithdrawResult(removedAmount, withdrawn, returnedToNetwork, dropped);
         if (withdrawn > 0) {
+            PerformanceMetrics.get().add(PerformanceMetrics.Counter.ITEMS_WITHDRAWN, withdrawn);
             network.recordItemsWithdrawn(player, withdrawn);
         }
         events.sendWithdrawMessage(player, result, template);
@@ -141,6 +150,7 @@ public final class NetworkMovement {
         ItemStack remaining = network.addToNetwork(item.clone());
         int leftover = remaining == null ? 0 : remaining.getAmount();
         int absorbed = originalAmount - leftover;
+        PerformanceMetrics.get().add(PerformanceMetrics.Counter.ITEMS_DEPOSITED, absorbed);
 
         if (leftover == 0) {
             inventory.setItem(slot, null);
@@ -150,4 +160,48 @@ public final class NetworkMovement {
 
         return new AbsorbResult(absorbed, leftover);
     }
+
+    /**
+     * Moves every stack of an inventory into the network with one
+     * {@link Network#addAllToNetwork} pass; leftovers stay in their slots.
+     */
+    public BatchResult absorbAll(Inventory inventory) {
+        ItemStack[] contents = inventory.getContents();
+        List<Integer> slots = new ArrayList<>();
+        List<ItemStack> stacks = new ArrayList<>();
+        for (int slot = 0; slot < contents.length; slot++) {
+            ItemStack item = contents[slot];
+            if (item != null && !item.getType().isAir()) {
+                slots.add(slot);
+                stacks.add(item);
+            }
+        }
+        if (stacks.isEmpty()) {
+            return new BatchResult(0, 0, 0);
+        }
+
+        List<ItemStack> leftovers = network.addAllToNetwork(stacks);
+        int moved = 0;
+        int leftover = 0;
+        for (int i = 0; i < stacks.size(); i++) {
+            ItemStack remaining = leftovers.get(i);
+            int remainingAmount = remaining == null ? 0 : remaining.getAmount();
+            moved += stacks.get(i).getAmount() - remainingAmount;
+            leftover += remainingAmount;
+            if (remainingAmount != stacks.get(i).getAmount()) {
+                inventory.setItem(slots.get(i), remainingAmount == 0 ? null : remaining);
+            }
+        }
+        PerformanceMetrics.get().add(PerformanceMetrics.Counter.ITEMS_DEPOSITED, moved);
+        return new BatchResult(stacks.size(), moved, leftover);
+    }
+
+    /** Deposits the player's whole inventory as one batch. */
+    public BatchResult depositAllFromPlayer(Player player) {
+        BatchResult result = absorbAll(player.getInventory());
+        if (result.moved() > 0) {
+            network.recordItemsDeposited(player, result.moved());
+        }
+        return result;
+    }
 }
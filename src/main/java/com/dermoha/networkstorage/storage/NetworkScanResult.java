@@ -1,16 +1,12 @@
 package com.dermoha.networkstorage.storage;
 
-import org.bukkit.inventory.ItemStack;
-
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
- * Immutable value object describing a storage scan.  Item stacks are copied at
- * the boundary so callers cannot mutate the snapshot held by a Network.
+ * Immutable value object describing a storage scan.  Item totals are copied
+ * once into immutable {@link ItemCounts} and then shared read-only.
  */
 public final class NetworkScanResult {
 
@@ -25,7 +21,7 @@ public final class NetworkScanResult {
     private final long totalSlots;
     private final long usedSlots;
     private final double capacityPercent;
-    private final Map<ItemStack, Integer> items;
+    private final ItemCounts items;
     private final boolean authoritative;
     private final List<String> warnings;
     private final long scannedAtMs;
@@ -41,7 +37,7 @@ public final class NetworkScanResult {
                              long totalSlots,
                              long usedSlots,
                              double capacityPercent,
-                             Map<ItemStack, Integer> items,
+                             ItemCounts items,
                              boolean authoritative,
                              List<String> warnings,
                              long scannedAtMs) {
@@ -56,7 +52,7 @@ public final class NetworkScanResult {
         this.totalSlots = totalSlots;
         this.usedSlots = usedSlots;
         this.capacityPercent = capacityPercent;
-        this.items = copyItems(items);
+        this.items = ItemCounts.copyOf(items);
         this.authoritative = authoritative;
         this.warnings = warnings == null
                 ? List.of()
@@ -80,7 +76,7 @@ public final class NetworkScanResult {
                 previousComplete == null ? 0L : previousComplete.totalSlots,
                 previousComplete == null ? 0L : previousComplete.usedSlots,
                 previousComplete == null ? 0.0 : previousComplete.capacityPercent,
-                previousComplete == null ? Map.of() : previousComplete.items,
+                previousComplete == null ? ItemCounts.EMPTY : previousComplete.items,
                 false,
                 List.of(),
                 previousComplete == null ? 0L : previousComplete.scannedAtMs);
@@ -94,7 +90,7 @@ public final class NetworkScanResult {
                                              long totalItems,
                                              long totalSlots,
                                              long usedSlots,
-                                             Map<ItemStack, Integer> items,
+                                             ItemCounts items,
                                              long scannedAtMs) {
         double capacity = totalSlots > 0 ? (double) usedSlots * 100.0 / totalSlots : 0.0;
         return new NetworkScanResult(
@@ -123,7 +119,7 @@ public final class NetworkScanResult {
                                                long partialTotalItems,
                                                long totalSlots,
                                                long usedSlots,
-                                               Map<ItemStack, Integer> partialItems,
+                                               ItemCounts partialItems,
                                                List<String> warnings,
                                                NetworkScanResult previousComplete) {
         NetworkScanResult fallback = previousComplete;
@@ -139,7 +135,7 @@ public final class NetworkScanResult {
                 fallback == null ? 0L : fallback.totalSlots,
                 fallback == null ? 0L : fallback.usedSlots,
                 fallback == null ? 0.0 : fallback.capacityPercent,
-                fallback == null ? Map.of() : fallback.items,
+                fallback == null ? ItemCounts.EMPTY : fallback.items,
                 false,
                 warnings,
                 fallback == null ? 0L : fallback.scannedAtMs);
@@ -201,21 +197,7 @@ public final class NetworkScanResult {
         return scannedAtMs;
     }
 
-    public Map<ItemStack, Integer> items() {
-        return copyItems(items);
-    }
-
-    private static Map<ItemStack, Integer> copyItems(Map<ItemStack, Integer> source) {
-        if (source == null || source.isEmpty()) {
-            return Map.of();
-        }
-        Map<ItemStack, Integer> copy = new HashMap<>();
-        for (Map.Entry<ItemStack, Integer> entry : source.entrySet()) {
-            if (entry.getKey() == null || entry.getValue() == null) {
-                continue;
-            }
-            copy.put(entry.getKey().clone(), entry.getValue());
-        }
-        return Collections.unmodifiableMap(copy);
+    public ItemCounts items() {
+        return items;
     }
 }
@@ -1,6 +1,7 @@
 package com.dermoha.networkstorage.storage;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -30,5 +31,26 @@ public interface NetworkStorageProvider {
         throw new UnsupportedOperationException("Detached snapshots are not supported by this provider");
     }
 
+    /**
+     * Persists {@code snapshot} given that {@code base} is what storage holds
+     * now.  Providers that cannot write row-level changes rewrite everything.
+     */
+    default boolean saveChanges(StorageSnapshot base, StorageSnapshot snapshot) {
+        return saveSnapshot(snapshot);
+    }
+
+    /** Last complete scans stored by {@link #saveScanCache}; empty when the provider keeps none. */
+    default List<CachedScan> loadScanCache() {
+        return List.of();
+    }
+
+    /**
+     * Replaces the stored scans.  The cache only makes a restart warm, so a
+     * failure is reported by the return value and never treated as data loss.
+     */
+    default boolean saveScanCache(Collection<CachedScan> scans) {
+        return false;
+    }
+
     Map<String, Object> snapshot();
 }
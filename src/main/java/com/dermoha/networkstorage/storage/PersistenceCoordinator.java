@@ -1,5 +1,7 @@
 package com.dermoha.networkstorage.storage;
 
+import com.dermoha.networkstorage.metrics.PerformanceMetrics;
+
 import java.time.Duration;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -8,7 +10,12 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-/** Serializes detached SQLite snapshots without ever touching Bukkit from a worker. */
+/**
+ * Serializes detached SQLite snapshots without ever touching Bukkit from a worker.
+ * Writes only carry the rows that changed since the last committed snapshot,
+ * or since the snapshot passed to {@link #markPersisted} after a load.  Without
+ * either the first write is a full snapshot.
+ */
 public final class PersistenceCoordinator implements AutoCloseable {
     public enum Status { HEALTHY, PENDING, DEGRADED }
     private static final long MAX_RETRY_MS = 30_000L;
@@ -21,6 +28,8 @@ public final class PersistenceCoordinator implements AutoCloseable {
     });
     private final AtomicBoolean scheduled = new AtomicBoolean();
     private volatile StorageSnapshot pending;
+    // Last snapshot the provider committed; only touched on the worker thread.
+    private StorageSnapshot persisted;
     private volatile boolean closed;
     private volatile boolean writing;
     private volatile long lastSuccessAt;
@@ -34,6 +43,16 @@ public final class PersistenceCoordinator implements AutoCloseable {
         this.debounceMs = debounceMs;
     }
 
+    /**
+     * Records the state the provider holds, normally captured right after
+     * loading it, as the base of the next write.  Call before the first
+     * {@link #request}.
+     */
+    public void markPersisted(StorageSnapshot base) {
+        if (closed) return;
+        worker.execute(() -> persisted = base);
+    }
+
     public void request(StorageSnapshot snapshot) {
         if (closed) return;
         pending = snapshot; // newest complete snapshot supersedes older queued work
@@ -50,7 +69,7 @@ public final class PersistenceCoordinator implements AutoCloseable {
         StorageSnapshot snapshot = pending;
         if (snapshot == null || closed) return;
         writing = true;
-        boolean saved = provider.saveSnapshot(snapshot);
+        boolean saved = write(snapshot);
         writing = false;
         if (saved) {
             if (pending == snapshot) pending = null;
@@ -73,7 +92,7 @@ public final class PersistenceCoordinator implements AutoCloseable {
         if (snapshot != null) {
             pending = null;
             try {
-                return worker.submit(() -> provider.saveSnapshot(snapshot))
+                return worker.submit(() -> write(snapshot))
                         .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
             } catch (Exception e) {
                 lastError = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
@@ -83,6 +102,16 @@ public final class PersistenceCoordinator implements AutoCloseable {
         return !writing;
     }
 
+    private boolean write(StorageSnapshot snapshot) {
+        long started = PerformanceMetrics.get().now();
+        boolean saved = provider.saveChanges(persisted, snapshot);
+        PerformanceMetrics.get().recordSince(PerformanceMetrics.Timer.SQLITE_SAVE, started);
+        if (saved) {
+            persisted = snapshot;
+        }
+        return saved;
+    }
+
     public long lastSuccessAt() { return lastSuccessAt; }
     public String lastError() { return lastError; }
     public boolean isPending() { return pending != null || writing; }
@@ -0,0 +1,61 @@
+package com.dermoha.networkstorage.storage;
+
+import com.dermoha.networkstorage.storage.StorageSnapshot.NetworkData;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Builds {@link StorageSnapshot}s incrementally.  A network whose
+ * {@linkplain Network#getPersistenceVersion() persistence version} has not
+ * moved since the last capture reuses its previous {@link NetworkData}, so the
+ * main-thread cost follows what changed rather than how many blocks are
+ * registered.
+ *
+ * <p>Main-thread only.
+ */
+public final class SnapshotCapture {
+
+    private record Captured(long version, NetworkData data) {
+    }
+
+    private Map<Network, Captured> captured = new IdentityHashMap<>();
+    private int lastRecaptured;
+
+    public StorageSnapshot capture(Collection<Network> networks,
+                                   Map<UUID, String> selectedNetworks,
+                                   Map<UUID, String> selectedWirelessNetworks) {
+        Map<Network, Captured> next = new IdentityHashMap<>(networks.size() * 2);
+        List<NetworkData> copied = new ArrayList<>(networks.size());
+        int recaptured = 0;
+        for (Network network : networks) {
+            long version = network.getPersistenceVersion();
+            Captured previous = captured.get(network);
+            if (previous == null || previous.version() != version) {
+                previous = new Captured(version, StorageSnapshot.captureNetwork(network));
+                recaptured++;
+            }
+            next.put(network, previous);
+            copied.add(previous.data());
+        }
+        // Networks that are gone drop out with the old map.
+        captured = next;
+        lastRecaptured = recaptured;
+        return new StorageSnapshot(copied, StorageSnapshot.copyState(selectedNetworks),
+                StorageSnapshot.copyState(selectedWirelessNetworks));
+    }
+
+    /** Number of networks copied afresh by the last {@link #capture}. */
+    public int lastRecaptured() {
+        return lastRecaptured;
+    }
+
+    /** Forgets every cached copy; the next capture copies all networks. */
+    public void clear() {
+        captured = new IdentityHashMap<>();
+    }
+}
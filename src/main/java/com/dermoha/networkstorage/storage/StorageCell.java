@@ -0,0 +1,199 @@
+package com.dermoha.networkstorage.storage;
+
+import com.dermoha.networkstorage.storage.StorageSnapshot.CellData;
+import com.dermoha.networkstorage.storage.StorageSnapshot.CellItemData;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Item storage that exists only in the database.  A cell holds up to
+ * {@code capacity} items of any kind and is read and written without touching
+ * the world, so using it never loads a chunk.
+ *
+ * <p>The in-memory counts are authoritative; they are written back with the
+ * next network snapshot.  A restored cell decodes its items on first use, and
+ * an unchanged cell hands its stored rows back to the snapshot as they were,
+ * so idle cells cost no item serialization.  Rows that can no longer be read,
+ * e.g. after a server update removed a material, are kept as they are rather
+ * than deleted.
+ *
+ * <p>Main-thread only.
+ */
+public final class StorageCell {
+
+    /** Converts items to and from their stored form. */
+    interface Codec {
+        Codec BUKKIT = new Codec() {
+            @Override
+            public byte[] encode(ItemKey key) {
+                return key.toItemStack().serializeAsBytes();
+            }
+
+            @Override
+            public ItemStack decode(byte[] item) {
+                return ItemStack.deserializeBytes(item);
+            }
+        };
+
+        byte[] encode(ItemKey key);
+
+        ItemStack decode(byte[] item);
+    }
+
+    private final int id;
+    private final long capacity;
+    private final Codec codec;
+    private final Map<ItemKey, byte[]> encoded = new HashMap<>();
+    private ItemCountMap items;
+    private List<CellItemData> unreadable = List.of();
+    // Stored form of the current contents; null after a change.
+    private CellData data;
+    private long storedAmount;
+
+    public StorageCell(int id, long capacity) {
+        this(id, capacity, Codec.BUKKIT);
+    }
+
+    StorageCell(int id, long capacity, Codec codec) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Cell id must be positive: " + id);
+        }
+        if (capacity <= 0L) {
+            throw new IllegalArgumentException("Cell capacity must be positive: " + capacity);
+        }
+        this.id = id;
+        this.capacity = capacity;
+        this.codec = codec;
+        this.items = new ItemCountMap();
+    }
+
+    /** Rebuilds a stored cell; its items are decoded when first used. */
+    public static StorageCell restore(CellData data) {
+        return restore(data, Codec.BUKKIT);
+    }
+
+    static StorageCell restore(CellData data, Codec codec) {
+        StorageCell cell = new StorageCell(data.id(), data.capacity(), codec);
+        cell.items = null;
+        cell.data = data;
+        for (CellItemData item : data.items()) {
+            cell.storedAmount += item.amount();
+        }
+        return cell;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    /** Items held, including rows that could not be decoded. */
+    public long storedAmount() {
+        return storedAmount;
+    }
+
+    public long freeSpace() {
+        return Math.max(0L, capacity - storedAmount);
+    }
+
+    public boolean isEmpty() {
+        return storedAmount == 0L;
+    }
+
+    /** Stored rows that could not be decoded; they are kept but not offered. */
+    public int unreadableRows() {
+        decoded();
+        return unreadable.size();
+    }
+
+    public long count(ItemKey key) {
+        return decoded().get(key);
+    }
+
+    /** Live view of the readable contents; do not keep it past the current tick. */
+    public ItemCounts contents() {
+        return decoded();
+    }
+
+    /** @return how many of {@code amount} items the cell accepted */
+    public long insert(ItemKey key, long amount) {
+        long accepted = Math.min(amount, freeSpace());
+        if (key == null || accepted <= 0L) {
+            return 0L;
+        }
+        decoded().add(key, accepted);
+        storedAmount += accepted;
+        data = null;
+        return accepted;
+    }
+
+    /** @return how many of {@code amount} items were taken out */
+    public long extract(ItemKey key, long amount) {
+        ItemCountMap current = decoded();
+        long taken = Math.min(amount, current.get(key));
+        if (taken <= 0L) {
+            return 0L;
+        }
+        current.add(key, -taken);
+        storedAmount -= taken;
+        data = null;
+        return taken;
+    }
+
+    /** Stored form of the cell, re-encoding only items it has not stored before. */
+    public CellData toData() {
+        if (data != null) {
+            return data;
+        }
+        ItemCountMap current = decoded();
+        List<CellItemData> rows = new ArrayList<>(current.size() + unreadable.size());
+        Map<ItemKey, byte[]> kept = new HashMap<>(current.size() * 2);
+        current.forEach((key, amount) -> {
+            byte[] item = encoded.get(key);
+            if (item == null) {
+                item = codec.encode(key);
+            }
+            kept.put(key, item);
+            rows.add(new CellItemData(item, amount));
+        });
+        rows.addAll(unreadable);
+        encoded.clear();
+        encoded.putAll(kept);
+        data = new CellData(id, capacity, rows);
+        return data;
+    }
+
+    private ItemCountMap decoded() {
+        if (items != null) {
+            return items;
+        }
+        List<CellItemData> rows = data.items();
+        ItemCountMap decoded = new ItemCountMap(rows.size());
+        List<CellItemData> failed = new ArrayList<>();
+        for (CellItemData row : rows) {
+            ItemStack stack;
+            try {
+                stack = codec.decode(row.item());
+            } catch (RuntimeException e) {
+                stack = null;
+            }
+            if (stack == null || row.amount() <= 0L) {
+                failed.add(row);
+                continue;
+            }
+            ItemKey key = ItemKey.of(stack);
+            decoded.add(key, row.amount());
+            encoded.put(key, row.item());
+        }
+        unreadable = List.copyOf(failed);
+        items = decoded;
+        return decoded;
+    }
+}
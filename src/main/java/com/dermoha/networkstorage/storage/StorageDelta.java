@@ -0,0 +1,214 @@
+package com.dermoha.networkstorage.storage;
+
+import com.dermoha.networkstorage.storage.StorageSnapshot.CellData;
+import com.dermoha.networkstorage.storage.StorageSnapshot.CellItemData;
+import com.dermoha.networkstorage.storage.StorageSnapshot.LocationData;
+import com.dermoha.networkstorage.storage.StorageSnapshot.NetworkData;
+import com.dermoha.networkstorage.storage.StorageSnapshot.PlayerStatData;
+import com.dermoha.networkstorage.storage.StorageSnapshot.TrustedPlayer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Row-level difference between the last persisted {@link StorageSnapshot} and
+ * a newer one.  Like the snapshot it holds no Bukkit objects, so it can be
+ * computed and written on the persistence worker.
+ */
+public record StorageDelta(List<String> removedNetworks,
+                           List<NetworkChange> changedNetworks,
+                           Map<UUID, PlayerState> upsertedPlayers,
+                           Set<UUID> removedPlayers) {
+
+    public record PlayerState(String selectedNetwork, String selectedWireless) {}
+
+    /** One item row of a storage cell. */
+    public record CellItemChange(int cellId, CellItemData item) {}
+
+    /**
+     * Changed rows of one network.  {@code network} is the new state; its
+     * {@code networks} row is only written when {@code metadataChanged}.
+     */
+    public record NetworkChange(NetworkData network, boolean metadataChanged,
+                                List<LocationData> addedChests, List<LocationData> removedChests,
+                                List<LocationData> addedTerminals, List<LocationData> removedTerminals,
+                                List<LocationData> addedSenders, List<LocationData> removedSenders,
+                                List<TrustedPlayer> upsertedTrust, List<UUID> removedTrust,
+                                List<PlayerStatData> upsertedStats, List<UUID> removedStats,
+                                List<CellData> upsertedCells, List<Integer> removedCells,
+                                List<CellItemChange> upsertedCellItems, List<CellItemChange> removedCellItems) {
+
+        public long rowCount() {
+            return (metadataChanged ? 1 : 0)
+                    + addedChests.size() + removedChests.size()
+                    + addedTerminals.size() + removedTerminals.size()
+                    + addedSenders.size() + removedSenders.size()
+                    + upsertedTrust.size() + removedTrust.size()
+                    + upsertedStats.size() + removedStats.size()
+                    + upsertedCells.size() + removedCells.size()
+                    + upsertedCellItems.size() + removedCellItems.size();
+        }
+    }
+
+    public StorageDelta {
+        removedNetworks = List.copyOf(removedNetworks);
+        changedNetworks = List.copyOf(changedNetworks);
+        upsertedPlayers = Map.copyOf(upsertedPlayers);
+        removedPlayers = Set.copyOf(removedPlayers);
+    }
+
+    public static StorageDelta between(StorageSnapshot before, StorageSnapshot after) {
+        Map<String, NetworkData> previous = new HashMap<>();
+        for (NetworkData network : before.networks()) {
+            previous.put(network.name(), network);
+        }
+        List<NetworkChange> changed = new ArrayList<>();
+        Set<String> remaining = new HashSet<>();
+        for (NetworkData network : after.networks()) {
+            remaining.add(network.name());
+            NetworkData old = previous.get(network.name());
+            if (network.equals(old)) {
+                continue;
+            }
+            NetworkChange change = compare(old, network);
+            if (change.rowCount() > 0) {
+                changed.add(change);
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (NetworkData network : before.networks()) {
+            if (!remaining.contains(network.name())) {
+                removed.add(network.name());
+            }
+        }
+
+        Map<UUID, PlayerState> oldPlayers = playerStates(before);
+        Map<UUID, PlayerState> newPlayers = playerStates(after);
+        Map<UUID, PlayerState> upserted = new HashMap<>();
+        for (Map.Entry<UUID, PlayerState> entry : newPlayers.entrySet()) {
+            if (!entry.getValue().equals(oldPlayers.get(entry.getKey()))) {
+                upserted.put(entry.getKey(), entry.getValue());
+            }
+        }
+        Set<UUID> removedPlayers = new HashSet<>(oldPlayers.keySet());
+        removedPlayers.removeAll(newPlayers.keySet());
+        return new StorageDelta(removed, changed, upserted, removedPlayers);
+    }
+
+    public boolean isEmpty() {
+        return removedNetworks.isEmpty() && changedNetworks.isEmpty()
+                && upsertedPlayers.isEmpty() && removedPlayers.isEmpty();
+    }
+
+    /** Number of rows the delta writes or deletes, counting a removed network as one. */
+    public long rowCount() {
+        long rows = removedNetworks.size() + upsertedPlayers.size() + removedPlayers.size();
+        for (NetworkChange change : changedNetworks) {
+            rows += change.rowCount();
+        }
+        return rows;
+    }
+
+    private static NetworkChange compare(NetworkData old, NetworkData network) {
+        boolean metadataChanged = old == null
+                || !Objects.equals(old.owner(), network.owner())
+                || !Objects.equals(old.description(), network.description());
+
+        Map<UUID, TrustedPlayer> oldTrust = new HashMap<>();
+        if (old != null) {
+            for (TrustedPlayer trusted : old.trusted()) oldTrust.put(trusted.playerId(), trusted);
+        }
+        List<TrustedPlayer> upsertedTrust = new ArrayList<>();
+        for (TrustedPlayer trusted : network.trusted()) {
+            if (!trusted.equals(oldTrust.remove(trusted.playerId()))) upsertedTrust.add(trusted);
+        }
+
+        Map<UUID, PlayerStatData> oldStats = new HashMap<>();
+        if (old != null) {
+            for (PlayerStatData stat : old.stats()) oldStats.put(stat.playerId(), stat);
+        }
+        List<PlayerStatData> upsertedStats = new ArrayList<>();
+        for (PlayerStatData stat : network.stats()) {
+            if (!stat.equals(oldStats.remove(stat.playerId()))) upsertedStats.add(stat);
+        }
+
+        Map<Integer, CellData> oldCells = new HashMap<>();
+        if (old != null) {
+            for (CellData cell : old.cells()) oldCells.put(cell.id(), cell);
+        }
+        List<CellData> upsertedCells = new ArrayList<>();
+        List<CellItemChange> upsertedCellItems = new ArrayList<>();
+        List<CellItemChange> removedCellItems = new ArrayList<>();
+        for (CellData cell : network.cells()) {
+            CellData before = oldCells.remove(cell.id());
+            if (cell.equals(before)) continue;
+            if (before == null || before.capacity() != cell.capacity()) upsertedCells.add(cell);
+            compareCellItems(before, cell, upsertedCellItems, removedCellItems);
+        }
+
+        return new NetworkChange(network, metadataChanged,
+                added(old == null ? List.of() : old.chests(), network.chests()),
+                added(network.chests(), old == null ? List.of() : old.chests()),
+                added(old == null ? List.of() : old.terminals(), network.terminals()),
+                added(network.terminals(), old == null ? List.of() : old.terminals()),
+                added(old == null ? List.of() : old.senders(), network.senders()),
+                added(network.senders(), old == null ? List.of() : old.senders()),
+                upsertedTrust, List.copyOf(oldTrust.keySet()),
+                upsertedStats, List.copyOf(oldStats.keySet()),
+                upsertedCells, List.copyOf(oldCells.keySet()),
+                upsertedCellItems, removedCellItems);
+    }
+
+    /**
+     * Item rows of one cell that were added, changed, or dropped.  A removed
+     * cell needs no item rows; its items are deleted with it.
+     */
+    private static void compareCellItems(CellData old, CellData cell,
+                                         List<CellItemChange> upserted, List<CellItemChange> removed) {
+        Map<ByteBuffer, CellItemData> oldItems = new HashMap<>();
+        if (old != null) {
+            for (CellItemData item : old.items()) oldItems.put(ByteBuffer.wrap(item.item()), item);
+        }
+        for (CellItemData item : cell.items()) {
+            CellItemData before = oldItems.remove(ByteBuffer.wrap(item.item()));
+            if (before == null || before.amount() != item.amount()) {
+                upserted.add(new CellItemChange(cell.id(), item));
+            }
+        }
+        for (CellItemData item : oldItems.values()) {
+            removed.add(new CellItemChange(cell.id(), item));
+        }
+    }
+
+    /** Locations in {@code after} that are not in {@code before}. */
+    private static List<LocationData> added(List<LocationData> before, List<LocationData> after) {
+        if (after.isEmpty()) {
+            return List.of();
+        }
+        Set<LocationData> known = new HashSet<>(before);
+        Set<LocationData> added = new LinkedHashSet<>();
+        for (LocationData location : after) {
+            if (!known.contains(location)) added.add(location);
+        }
+        return List.copyOf(added);
+    }
+
+    private static Map<UUID, PlayerState> playerStates(StorageSnapshot snapshot) {
+        Map<UUID, PlayerState> states = new HashMap<>();
+        Set<UUID> ids = new HashSet<>(snapshot.selectedNetworks().keySet());
+        ids.addAll(snapshot.selectedWirelessNetworks().keySet());
+        for (UUID id : ids) {
+            states.put(id, new PlayerState(snapshot.selectedNetworks().get(id),
+                    snapshot.selectedWirelessNetworks().get(id)));
+        }
+        return states;
+    }
+}
@@ -4,6 +4,8 @@ import com.dermoha.networkstorage.stats.PlayerStat;
 import org.bukkit.Location;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -33,7 +35,38 @@ public record StorageSnapshot(List<NetworkData> networks,
     public record NetworkData(String name, UUID owner, String description,
                               List<LocationData> chests, List<LocationData> terminals,
                               List<LocationData> senders, List<TrustedPlayer> trusted,
-                              List<PlayerStatData> stats) {}
+                              List<PlayerStatData> stats, List<CellData> cells) {
+        public NetworkData(String name, UUID owner, String description,
+                           List<LocationData> chests, List<LocationData> terminals,
+                           List<LocationData> senders, List<TrustedPlayer> trusted,
+                           List<PlayerStatData> stats) {
+            this(name, owner, description, chests, terminals, senders, trusted, stats, List.of());
+        }
+    }
+
+    /** One item row of a storage cell; {@code item} is the serialized item stack. */
+    public record CellItemData(byte[] item, long amount) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof CellItemData data && amount == data.amount && Arrays.equals(item, data.item);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(item) + Long.hashCode(amount);
+        }
+
+        @Override
+        public String toString() {
+            return "CellItemData[" + item.length + " bytes, amount=" + amount + "]";
+        }
+    }
+
+    public record CellData(int id, long capacity, List<CellItemData> items) {
+        public CellData {
+            items = List.copyOf(items);
+        }
+    }
 
     public StorageSnapshot {
         networks = List.copyOf(networks);
@@ -46,25 +79,41 @@ public record StorageSnapshot(List<NetworkData> networks,
                                           Map<UUID, String> selectedWirelessNetworks) {
         List<NetworkData> copied = new ArrayList<>(networks.size());
         for (Network network : networks) {
-            List<TrustedPlayer> trusted = new ArrayList<>();
-            Map<UUID, Long> expiries = network.getTrustedPlayersWithExpiry();
-            for (UUID playerId : network.getTrustedPlayers()) {
-                trusted.add(new TrustedPlayer(playerId, expiries.get(playerId)));
-            }
-            List<PlayerStatData> stats = new ArrayList<>();
-            for (PlayerStat stat : network.getPlayerStats().values()) {
-                stats.add(new PlayerStatData(stat.getPlayerUUID(), stat.getPlayerName(),
-                        stat.getItemsDeposited(), stat.getItemsWithdrawn()));
-            }
-            copied.add(new NetworkData(network.getName(), network.getOwner(), network.getDescription(),
-                    copyLocations(network.getChestLocations(), network.getUnloadedChestLocations()),
-                    copyLocations(network.getTerminalLocations(), network.getUnloadedTerminalLocations()),
-                    copyLocations(network.getSenderChestLocations(), network.getUnloadedSenderChestLocations()),
-                    trusted, stats));
+            copied.add(captureNetwork(network));
         }
         return new StorageSnapshot(copied, copyState(selectedNetworks), copyState(selectedWirelessNetworks));
     }
 
+    /** Copies one network's persisted state.  Must run on the thread that owns the network. */
+    public static NetworkData captureNetwork(Network network) {
+        List<TrustedPlayer> trusted = new ArrayList<>();
+        Map<UUID, Long> expiries = network.getTrustedPlayersWithExpiry();
+        for (UUID playerId : network.getTrustedPlayers()) {
+            trusted.add(new TrustedPlayer(playerId, expiries.get(playerId)));
+        }
+        List<PlayerStatData> stats = new ArrayList<>();
+        for (PlayerStat stat : network.getPlayerStats().values()) {
+            stats.add(new PlayerStatData(stat.getPlayerUUID(), stat.getPlayerName(),
+                    stat.getItemsDeposited(), stat.getItemsWithdrawn()));
+        }
+        return new NetworkData(network.getName(), network.getOwner(), network.getDescription(),
+                copyLocations(network.getChestLocations(), network.getUnloadedChestLocations()),
+                copyLocations(network.getTerminalLocations(), network.getUnloadedTerminalLocations()),
+                copyLocations(network.getSenderChestLocations(), network.getUnloadedSenderChestLocations()),
+                List.copyOf(trusted), List.copyOf(stats), copyCells(network.getStorageCells()));
+    }
+
+    private static List<CellData> copyCells(Collection<StorageCell> cells) {
+        if (cells.isEmpty()) {
+            return List.of();
+        }
+        List<CellData> copied = new ArrayList<>(cells.size());
+        for (StorageCell cell : cells) {
+            copied.add(cell.toData());
+        }
+        return List.copyOf(copied);
+    }
+
     private static List<LocationData> copyLocations(Collection<Location> locations,
                                                     Collection<StoredLocation> unloadedLocations) {
         List<LocationData> copied = new ArrayList<>(locations.size() + unloadedLocations.size());
@@ -79,7 +128,7 @@ public record StorageSnapshot(List<NetworkData> networks,
         return List.copyOf(copied);
     }
 
-    private static Map<UUID, String> copyState(Map<UUID, String> source) {
+    static Map<UUID, String> copyState(Map<UUID, String> source) {
         Map<UUID, String> copy = new HashMap<>();
         for (Map.Entry<UUID, String> entry : source.entrySet()) {
             if (entry.getKey() == null || entry.getValue() == null) {
@@ -96,6 +145,10 @@ public record StorageSnapshot(List<NetworkData> networks,
     public long senderCount() { return networks.stream().mapToLong(n -> n.senders().size()).sum(); }
     public long trustedCount() { return networks.stream().mapToLong(n -> n.trusted().size()).sum(); }
     public long statsCount() { return networks.stream().mapToLong(n -> n.stats().size()).sum(); }
+    public long cellCount() { return networks.stream().mapToLong(n -> n.cells().size()).sum(); }
+    public long cellItemCount() {
+        return networks.stream().flatMap(n -> n.cells().stream()).mapToLong(c -> c.items().size()).sum();
+    }
     public long playerStateCount() {
         Set<UUID> ids = new HashSet<>(selectedNetworks.keySet());
         ids.addAll(selectedWirelessNetworks.keySet());
@@ -118,6 +171,13 @@ public record StorageSnapshot(List<NetworkData> networks,
                     rows.add("stat|" + network.name() + "|" + stat.playerId() + "|" + stat.playerName()
                             + "|" + stat.deposited() + "|" + stat.withdrawn());
                 }
+                for (CellData cell : network.cells()) {
+                    rows.add("cell|" + network.name() + "|" + cell.id() + "|" + cell.capacity());
+                    for (CellItemData item : cell.items()) {
+                        rows.add("cell_item|" + network.name() + "|" + cell.id() + "|"
+                                + Base64.getEncoder().encodeToString(item.item()) + "|" + item.amount());
+                    }
+                }
             }
             Set<UUID> ids = new HashSet<>(selectedNetworks.keySet());
             ids.addAll(selectedWirelessNetworks.keySet());
@@ -6,14 +6,15 @@ import java.util.List;
 
 public final class Migrations {
 
-    public static final int CURRENT_VERSION = 3;
+    public static final int CURRENT_VERSION = 5;
     public static final int APPLICATION_ID = 0x4E53544F;
 
     private Migrations() {
     }
 
     public static List<SchemaMigration> all() {
-        return List.of(new V1__InitialSchema(), new V2__Metadata(), new V3__RemoveRedundantIndexes());
+        return List.of(new V1__InitialSchema(), new V2__Metadata(), new V3__RemoveRedundantIndexes(),
+                new V4__ScanCache(), new V5__StorageCells());
     }
 
     private static final class V1__InitialSchema implements SchemaMigration {
@@ -108,6 +109,70 @@ public final class Migrations {
         }
     }
 
+    /** Last complete scan per network, used to show contents before the first rescan. */
+    private static final class V4__ScanCache implements SchemaMigration {
+        @Override public int targetVersion() { return 4; }
+
+        @Override
+        public void migrate(Connection connection) throws SQLException {
+            try (var s = connection.createStatement()) {
+                s.execute("""
+                    CREATE TABLE IF NOT EXISTS network_scan_cache (
+                      network_name TEXT PRIMARY KEY REFERENCES networks(name) ON DELETE CASCADE,
+                      registered_locations INTEGER NOT NULL,
+                      unique_chunks INTEGER NOT NULL,
+                      loaded_chunks INTEGER NOT NULL,
+                      containers INTEGER NOT NULL,
+                      total_items INTEGER NOT NULL,
+                      total_slots INTEGER NOT NULL,
+                      used_slots INTEGER NOT NULL,
+                      scanned_at INTEGER NOT NULL
+                    )
+                """);
+
+                s.execute("""
+                    CREATE TABLE IF NOT EXISTS network_scan_cache_items (
+                      network_name TEXT NOT NULL REFERENCES network_scan_cache(network_name) ON DELETE CASCADE,
+                      ordinal INTEGER NOT NULL,
+                      item BLOB NOT NULL,
+                      amount INTEGER NOT NULL,
+                      PRIMARY KEY (network_name, ordinal)
+                    )
+                """);
+            }
+        }
+    }
+
+    /** Database-only item storage; one row per item kind and cell. */
+    private static final class V5__StorageCells implements SchemaMigration {
+        @Override public int targetVersion() { return 5; }
+
+        @Override
+        public void migrate(Connection connection) throws SQLException {
+            try (var s = connection.createStatement()) {
+                s.execute("""
+                    CREATE TABLE IF NOT EXISTS network_cells (
+                      network_name TEXT NOT NULL REFERENCES networks(name) ON DELETE CASCADE,
+                      cell_id INTEGER NOT NULL,
+                      capacity INTEGER NOT NULL,
+                      PRIMARY KEY (network_name, cell_id)
+                    )
+                """);
+
+                s.execute("""
+                    CREATE TABLE IF NOT EXISTS network_cell_items (
+                      network_name TEXT NOT NULL,
+                      cell_id INTEGER NOT NULL,
+                      item BLOB NOT NULL,
+                      amount INTEGER NOT NULL,
+                      PRIMARY KEY (network_name, cell_id, item),
+                      FOREIGN KEY (network_name, cell_id) REFERENCES network_cells(network_name, cell_id) ON DELETE CASCADE
+                    )
+                """);
+            }
+        }
+    }
+
     private static final class V2__Metadata implements SchemaMigration {
 
         @Override
@@ -2,11 +2,14 @@ package com.dermoha.networkstorage.storage.sqlite;
 
 import com.dermoha.networkstorage.NetworkStoragePlugin;
 import com.dermoha.networkstorage.stats.PlayerStat;
+import com.dermoha.networkstorage.storage.CachedScan;
 import com.dermoha.networkstorage.storage.Network;
 import com.dermoha.networkstorage.storage.NetworkAccessRules;
 import com.dermoha.networkstorage.storage.NetworkStorageProvider;
 import com.dermoha.networkstorage.storage.MovementEvents;
+import com.dermoha.networkstorage.storage.StorageCell;
 import com.dermoha.networkstorage.storage.StorageException;
+import com.dermoha.networkstorage.storage.StorageDelta;
 import com.dermoha.networkstorage.storage.StorageSnapshot;
 import com.dermoha.networkstorage.storage.StorageValues;
 import com.dermoha.networkstorage.storage.StoredLocation;
@@ -28,8 +31,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -61,6 +67,7 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
     private volatile String lastError = "";
     private volatile long lastSuccessfulSaveAt;
     private volatile long lastBackupAt;
+    private volatile Map<String, Long> loadTimingsMillis = Map.of();
 
     public SqliteNetworkStorageProvider(NetworkStoragePlugin plugin) {
         this(plugin, new File(plugin.getDataFolder(), "networks.db"));
@@ -443,7 +450,9 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
                 "network_trusted", List.of("network_name", "player_uuid", "expires_at"),
                 "network_stats", List.of("network_name", "player_uuid", "player_name", "deposited", "withdrawn"),
                 "player_state", List.of("player_uuid", "selected_network", "selected_wireless"),
-                "storage_metadata", List.of("key", "value"));
+                "storage_metadata", List.of("key", "value"),
+                "network_cells", List.of("network_name", "cell_id", "capacity"),
+                "network_cell_items", List.of("network_name", "cell_id", "item", "amount"));
         for (Map.Entry<String, List<String>> table : requiredColumns.entrySet()) {
             if (!hasTable(connection, table.getKey())) {
                 throw new SQLException("SQLite schema is missing table '" + table.getKey() + "'");
@@ -493,6 +502,9 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
                 purge.setLong(1, System.currentTimeMillis());
                 purge.executeUpdate();
             }
+            Map<String, Network> loaded = new LinkedHashMap<>();
+            Map<String, Long> timings = new LinkedHashMap<>();
+            long started = System.nanoTime();
             try (ResultSet rs = s.executeQuery("SELECT name, owner, description FROM networks ORDER BY name")) {
                 Set<String> canonicalNames = new HashSet<>();
                 while (rs.next()) {
@@ -525,18 +537,38 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
                     if (description != null && !description.isEmpty()) {
                         network.setDescription(description);
                     }
-                    loadLocationsFor("network_chests", name).forEach(location -> addStoredLocation(
-                            network, location, network::addChest, network::addUnloadedChest));
-                    loadLocationsFor("network_terminals", name).forEach(location -> addStoredLocation(
-                            network, location, network::addTerminal, network::addUnloadedTerminal));
-                    loadLocationsFor("network_senders", name).forEach(location -> addStoredLocation(
-                            network, location, network::addSenderChest, network::addUnloadedSenderChest));
-                    loadTrustsFor(name, network);
-                    loadStatsFor(name, network);
-                    network.setDirty(false);
-                    networks.put(name, network);
+                    loaded.put(name, network);
                 }
             }
+            timings.put("networks", elapsedMillis(started));
+            // Each child table is streamed once in primary-key order and its
+            // rows are attached to the network they name.
+            started = System.nanoTime();
+            loadLocations("network_chests", loaded, (network, location) -> addStoredLocation(
+                    network, location, network::addChest, network::addUnloadedChest));
+            timings.put("chests", elapsedMillis(started));
+            started = System.nanoTime();
+            loadLocations("network_terminals", loaded, (network, location) -> addStoredLocation(
+                    network, location, network::addTerminal, network::addUnloadedTerminal));
+            timings.put("terminals", elapsedMillis(started));
+            started = System.nanoTime();
+            loadLocations("network_senders", loaded, (network, location) -> addStoredLocation(
+                    network, location, network::addSenderChest, network::addUnloadedSenderChest));
+            timings.put("senders", elapsedMillis(started));
+            started = System.nanoTime();
+            loadTrusts(loaded);
+            timings.put("trusted", elapsedMillis(started));
+            started = System.nanoTime();
+            loadStats(loaded);
+            timings.put("stats", elapsedMillis(started));
+            started = System.nanoTime();
+            loadCells(loaded);
+            timings.put("cells", elapsedMillis(started));
+            for (Network network : loaded.values()) {
+                network.setDirty(false);
+            }
+            networks.putAll(loaded);
+            started = System.nanoTime();
             try (ResultSet rs = s.executeQuery("SELECT player_uuid, selected_network, selected_wireless FROM player_state")) {
                 while (rs.next()) {
                     UUID playerId = UUID.fromString(rs.getString("player_uuid"));
@@ -550,8 +582,12 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
                     }
                 }
             }
+            timings.put("player_state", elapsedMillis(started));
             s.execute("COMMIT");
             transactionStarted = false;
+            loadTimingsMillis = Collections.unmodifiableMap(timings);
+            long total = timings.values().stream().mapToLong(Long::longValue).sum();
+            logger().info("Loaded " + loaded.size() + " networks from SQLite in " + total + " ms " + timings);
         } catch (Exception e) {
             if (transactionStarted) {
                 try (Statement rollback = connection.createStatement()) {
@@ -564,19 +600,37 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
         }
     }
 
-    private List<StoredLocation> loadLocationsFor(String table, String networkName) throws SQLException {
-        List<StoredLocation> locations = new ArrayList<>();
-        try (PreparedStatement ps = connection.prepareStatement(
-                "SELECT world, x, y, z FROM " + table + " WHERE network_name = ? ORDER BY world, x, y, z")) {
-            ps.setString(1, networkName);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    locations.add(readStoredLocation(rs.getString("world"),
-                            rs.getInt("x"), rs.getInt("y"), rs.getInt("z")));
+    private static long elapsedMillis(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000L;
+    }
+
+    /** Looks up the owner of a child row; rows arrive grouped by network. */
+    private static Network owningNetwork(Map<String, Network> networks, String table, String networkName)
+            throws SQLException {
+        Network network = networkName == null ? null : networks.get(networkName);
+        if (network == null) {
+            throw new SQLException("Stored " + table + " row references unknown network '" + networkName + "'");
+        }
+        return network;
+    }
+
+    private void loadLocations(String table, Map<String, Network> networks,
+                               java.util.function.BiConsumer<Network, StoredLocation> add) throws SQLException {
+        try (Statement s = connection.createStatement();
+             ResultSet rs = s.executeQuery(
+                     "SELECT network_name, world, x, y, z FROM " + table + " ORDER BY network_name, world, x, y, z")) {
+            String currentName = null;
+            Network current = null;
+            while (rs.next()) {
+                String name = rs.getString("network_name");
+                if (current == null || !currentName.equals(name)) {
+                    current = owningNetwork(networks, table, name);
+                    currentName = name;
                 }
+                add.accept(current, readStoredLocation(rs.getString("world"),
+                        rs.getInt("x"), rs.getInt("y"), rs.getInt("z")));
             }
         }
-        return locations;
     }
 
     private StoredLocation readStoredLocation(String worldName, int x, int y, int z) throws SQLException {
@@ -603,52 +657,220 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
         addResolved.accept(stored.resolve(world));
     }
 
-    private void loadTrustsFor(String networkName, Network network) throws SQLException {
-        try (PreparedStatement ps = connection.prepareStatement(
-                "SELECT player_uuid, expires_at FROM network_trusted WHERE network_name = ? ORDER BY player_uuid")) {
-            ps.setString(1, networkName);
-            try (ResultSet rs = ps.executeQuery()) {
-                long now = System.currentTimeMillis();
+    private void loadTrusts(Map<String, Network> networks) throws SQLException {
+        try (Statement s = connection.createStatement();
+             ResultSet rs = s.executeQuery(
+                     "SELECT network_name, player_uuid, expires_at FROM network_trusted ORDER BY network_name, player_uuid")) {
+            long now = System.currentTimeMillis();
+            String currentName = null;
+            Network network = null;
+            while (rs.next()) {
+                String name = rs.getString("network_name");
+                if (network == null || !currentName.equals(name)) {
+                    network = owningNetwork(networks, "network_trusted", name);
+                    currentName = name;
+                }
+                UUID playerId = UUID.fromString(rs.getString("player_uuid"));
+                Object rawExpiry = rs.getObject("expires_at");
+                if (rawExpiry == null) {
+                    network.addTrustedPlayer(playerId);
+                } else if (!(rawExpiry instanceof Number number)) {
+                    throw new SQLException("Stored trust expiry is not numeric");
+                } else {
+                    long expiry = readIntegralLong(number, "Stored trust expiry");
+                    if (expiry > now) {
+                        network.addTrustedPlayerWithExpiry(playerId, expiry);
+                    }
+                }
+            }
+        }
+    }
+
+    private void loadStats(Map<String, Network> networks) throws SQLException {
+        try (Statement s = connection.createStatement();
+             ResultSet rs = s.executeQuery(
+                     "SELECT network_name, player_uuid, player_name, deposited, withdrawn FROM network_stats ORDER BY network_name, player_uuid")) {
+            String currentName = null;
+            Network network = null;
+            while (rs.next()) {
+                String name = rs.getString("network_name");
+                if (network == null || !currentName.equals(name)) {
+                    network = owningNetwork(networks, "network_stats", name);
+                    currentName = name;
+                }
+                UUID playerId = UUID.fromString(rs.getString("player_uuid"));
+                String playerName = rs.getString("player_name");
+                if (playerName == null || playerName.isBlank()
+                        || (!playerName.equals("Unknown Player")
+                        && !playerName.matches("^[A-Za-z0-9_]{3,16}$"))) {
+                    throw new SQLException("Stored player stat has an invalid player name");
+                }
+                long deposited = readIntegralLong(rs.getObject("deposited"), "Stored deposited counter");
+                long withdrawn = readIntegralLong(rs.getObject("withdrawn"), "Stored withdrawn counter");
+                if (deposited < 0 || withdrawn < 0) {
+                    throw new SQLException("Stored player stat contains a negative counter");
+                }
+                network.getPlayerStats().put(playerId,
+                        new PlayerStat(playerId, playerName, deposited, withdrawn));
+            }
+        }
+    }
+
+    /**
+     * Attaches storage cells with their stored item rows.  Items stay encoded
+     * here; a cell decodes them on the server thread when first used.
+     */
+    private void loadCells(Map<String, Network> networks) throws SQLException {
+        Map<String, Map<Integer, Long>> capacities = new LinkedHashMap<>();
+        Map<String, Map<Integer, List<StorageSnapshot.CellItemData>>> items = new HashMap<>();
+        try (Statement s = connection.createStatement()) {
+            try (ResultSet rs = s.executeQuery(
+                    "SELECT network_name, cell_id, capacity FROM network_cells ORDER BY network_name, cell_id")) {
                 while (rs.next()) {
-                    UUID playerId = UUID.fromString(rs.getString("player_uuid"));
-                    Object rawExpiry = rs.getObject("expires_at");
-                    if (rawExpiry == null) {
-                        network.addTrustedPlayer(playerId);
-                    } else if (!(rawExpiry instanceof Number number)) {
-                        throw new SQLException("Stored trust expiry is not numeric");
-                    } else {
-                        long expiry = readIntegralLong(number, "Stored trust expiry");
-                        if (expiry > now) {
-                            network.addTrustedPlayerWithExpiry(playerId, expiry);
-                        }
+                    String name = rs.getString("network_name");
+                    owningNetwork(networks, "network_cells", name);
+                    int id = rs.getInt("cell_id");
+                    long capacity = readIntegralLong(rs.getObject("capacity"), "Stored cell capacity");
+                    if (id <= 0 || capacity <= 0) {
+                        throw new SQLException("Stored storage cell " + id + " of '" + name + "' is invalid");
                     }
+                    capacities.computeIfAbsent(name, ignored -> new LinkedHashMap<>()).put(id, capacity);
                 }
             }
+            try (ResultSet rs = s.executeQuery(
+                    "SELECT network_name, cell_id, item, amount FROM network_cell_items ORDER BY network_name, cell_id")) {
+                while (rs.next()) {
+                    String name = rs.getString("network_name");
+                    int id = rs.getInt("cell_id");
+                    byte[] item = rs.getBytes("item");
+                    long amount = readIntegralLong(rs.getObject("amount"), "Stored cell item amount");
+                    if (item == null || item.length == 0 || amount <= 0) {
+                        throw new SQLException("Stored storage cell " + id + " of '" + name + "' has an invalid item row");
+                    }
+                    items.computeIfAbsent(name, ignored -> new HashMap<>())
+                            .computeIfAbsent(id, ignored -> new ArrayList<>())
+                            .add(new StorageSnapshot.CellItemData(item, amount));
+                }
+            }
+        }
+        for (Map.Entry<String, Map<Integer, Long>> entry : capacities.entrySet()) {
+            Network network = networks.get(entry.getKey());
+            Map<Integer, List<StorageSnapshot.CellItemData>> cellItems = items.getOrDefault(entry.getKey(), Map.of());
+            for (Map.Entry<Integer, Long> cell : entry.getValue().entrySet()) {
+                network.restoreStorageCell(StorageCell.restore(new StorageSnapshot.CellData(
+                        cell.getKey(), cell.getValue(), cellItems.getOrDefault(cell.getKey(), List.of()))));
+            }
         }
     }
 
-    private void loadStatsFor(String networkName, Network network) throws SQLException {
-        try (PreparedStatement ps = connection.prepareStatement(
-                "SELECT player_uuid, player_name, deposited, withdrawn FROM network_stats WHERE network_name = ? ORDER BY player_uuid")) {
-            ps.setString(1, networkName);
-            try (ResultSet rs = ps.executeQuery()) {
+    @Override
+    public List<CachedScan> loadScanCache() {
+        requireAvailable();
+        Map<String, CachedScanHeader> headers = new LinkedHashMap<>();
+        Map<String, List<CachedScan.CachedItem>> items = new HashMap<>();
+        try (Statement s = connection.createStatement()) {
+            try (ResultSet rs = s.executeQuery("SELECT network_name, registered_locations, unique_chunks, loaded_chunks, "
+                    + "containers, total_items, total_slots, used_slots, scanned_at FROM network_scan_cache ORDER BY network_name")) {
                 while (rs.next()) {
-                    UUID playerId = UUID.fromString(rs.getString("player_uuid"));
-                    String playerName = rs.getString("player_name");
-                    if (playerName == null || playerName.isBlank()
-                            || (!playerName.equals("Unknown Player")
-                            && !playerName.matches("^[A-Za-z0-9_]{3,16}$"))) {
-                        throw new SQLException("Stored player stat has an invalid player name");
+                    String name = rs.getString("network_name");
+                    headers.put(name, new CachedScanHeader(rs.getInt("registered_locations"), rs.getInt("unique_chunks"),
+                            rs.getInt("loaded_chunks"), rs.getInt("containers"), rs.getLong("total_items"),
+                            rs.getLong("total_slots"), rs.getLong("used_slots"), rs.getLong("scanned_at")));
+                    items.put(name, new ArrayList<>());
+                }
+            }
+            try (ResultSet rs = s.executeQuery(
+                    "SELECT network_name, item, amount FROM network_scan_cache_items ORDER BY network_name, ordinal")) {
+                String currentName = null;
+                List<CachedScan.CachedItem> current = null;
+                while (rs.next()) {
+                    String name = rs.getString("network_name");
+                    if (current == null || !currentName.equals(name)) {
+                        current = items.get(name);
+                        currentName = name;
                     }
-                    long deposited = readIntegralLong(rs.getObject("deposited"), "Stored deposited counter");
-                    long withdrawn = readIntegralLong(rs.getObject("withdrawn"), "Stored withdrawn counter");
-                    if (deposited < 0 || withdrawn < 0) {
-                        throw new SQLException("Stored player stat contains a negative counter");
+                    if (current != null) {
+                        current.add(new CachedScan.CachedItem(rs.getBytes("item"), rs.getLong("amount")));
                     }
-                    network.getPlayerStats().put(playerId,
-                            new PlayerStat(playerId, playerName, deposited, withdrawn));
                 }
             }
+        } catch (SQLException e) {
+            // Only a warm-start cache: the first scan rebuilds everything.
+            logger().log(Level.WARNING, "Could not read the SQLite scan cache; networks start without cached contents", e);
+            return List.of();
+        }
+        List<CachedScan> scans = new ArrayList<>(headers.size());
+        for (Map.Entry<String, CachedScanHeader> entry : headers.entrySet()) {
+            CachedScanHeader header = entry.getValue();
+            scans.add(new CachedScan(entry.getKey(), header.registeredLocations(), header.uniqueChunks(),
+                    header.loadedChunks(), header.containers(), header.totalItems(), header.totalSlots(),
+                    header.usedSlots(), header.scannedAt(), items.get(entry.getKey())));
+        }
+        return scans;
+    }
+
+    private record CachedScanHeader(int registeredLocations, int uniqueChunks, int loadedChunks, int containers,
+                                    long totalItems, long totalSlots, long usedSlots, long scannedAt) {
+    }
+
+    @Override
+    public boolean saveScanCache(Collection<CachedScan> scans) {
+        if (!isAvailable()) {
+            return false;
+        }
+        writeLock.lock();
+        boolean transactionStarted = false;
+        Connection activeConnection = connection;
+        if (activeConnection == null || !available) {
+            writeLock.unlock();
+            return false;
+        }
+        try (Statement tx = activeConnection.createStatement();
+             PreparedStatement headerInsert = activeConnection.prepareStatement(
+                     "INSERT INTO network_scan_cache(network_name, registered_locations, unique_chunks, loaded_chunks, "
+                             + "containers, total_items, total_slots, used_slots, scanned_at) "
+                             + "SELECT ?, ?, ?, ?, ?, ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM networks WHERE name = ?)");
+             PreparedStatement itemInsert = activeConnection.prepareStatement(
+                     "INSERT INTO network_scan_cache_items(network_name, ordinal, item, amount) VALUES(?, ?, ?, ?)")) {
+            tx.execute("BEGIN IMMEDIATE");
+            transactionStarted = true;
+            tx.executeUpdate("DELETE FROM network_scan_cache");
+            for (CachedScan scan : scans) {
+                headerInsert.setString(1, scan.networkName());
+                headerInsert.setInt(2, scan.registeredLocations());
+                headerInsert.setInt(3, scan.uniqueChunks());
+                headerInsert.setInt(4, scan.loadedChunks());
+                headerInsert.setInt(5, scan.containersFound());
+                headerInsert.setLong(6, scan.totalItems());
+                headerInsert.setLong(7, scan.totalSlots());
+                headerInsert.setLong(8, scan.usedSlots());
+                headerInsert.setLong(9, scan.scannedAtMs());
+                headerInsert.setString(10, scan.networkName());
+                if (headerInsert.executeUpdate() == 0) {
+                    // The network was never committed; there is nothing to attach the scan to.
+                    continue;
+                }
+                int ordinal = 0;
+                for (CachedScan.CachedItem item : scan.items()) {
+                    itemInsert.setString(1, scan.networkName());
+                    itemInsert.setInt(2, ordinal++);
+                    itemInsert.setBytes(3, item.fingerprint());
+                    itemInsert.setLong(4, item.amount());
+                    itemInsert.addBatch();
+                }
+                itemInsert.executeBatch();
+            }
+            tx.execute("COMMIT");
+            transactionStarted = false;
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            if (transactionStarted) {
+                rollbackQuietly(activeConnection, e);
+            }
+            logger().log(Level.WARNING, "Could not save the SQLite scan cache; the next start rescans from scratch", e);
+            return false;
+        } finally {
+            writeLock.unlock();
         }
     }
 
@@ -673,6 +895,38 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
 
     /** Accepts an already detached snapshot; safe to invoke from the persistence worker. */
     public boolean saveSnapshot(StorageSnapshot snapshot) {
+        return writeSnapshot(snapshot, null);
+    }
+
+    /**
+     * Writes only the rows that differ between {@code base}, the snapshot the
+     * database last committed, and {@code snapshot}.  The full snapshot is
+     * still validated first, so a delta cannot commit a state the full path
+     * would reject.
+     */
+    @Override
+    public boolean saveChanges(StorageSnapshot base, StorageSnapshot snapshot) {
+        if (base == null) {
+            return saveSnapshot(snapshot);
+        }
+        StorageDelta delta;
+        try {
+            validateSnapshot(snapshot);
+            delta = StorageDelta.between(base, snapshot);
+        } catch (SQLException | RuntimeException e) {
+            lastError = messageOf(e);
+            logger().log(Level.SEVERE, "SQLite snapshot rejected; changes remain dirty", e);
+            return false;
+        }
+        if (delta.isEmpty()) {
+            lastSuccessfulSaveAt = System.currentTimeMillis();
+            lastError = "";
+            return true;
+        }
+        return writeSnapshot(snapshot, delta);
+    }
+
+    private boolean writeSnapshot(StorageSnapshot snapshot, StorageDelta delta) {
         if (!isAvailable()) {
             lastError = "SQLite provider is not available";
             return false;
@@ -688,8 +942,12 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
         try (Statement tx = activeConnection.createStatement()) {
             tx.execute("BEGIN IMMEDIATE");
             transactionStarted = true;
-            clearSnapshotTables(activeConnection);
-            insertSnapshot(activeConnection, snapshot);
+            if (delta == null) {
+                clearSnapshotTables(activeConnection);
+                insertSnapshot(activeConnection, snapshot);
+            } else {
+                applyDelta(activeConnection, delta);
+            }
             tx.execute("COMMIT");
             transactionStarted = false;
             lastSuccessfulSaveAt = System.currentTimeMillis();
@@ -714,26 +972,15 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
             s.executeUpdate("DELETE FROM network_senders");
             s.executeUpdate("DELETE FROM network_trusted");
             s.executeUpdate("DELETE FROM network_stats");
+            s.executeUpdate("DELETE FROM network_cell_items");
+            s.executeUpdate("DELETE FROM network_cells");
             s.executeUpdate("DELETE FROM networks");
             s.executeUpdate("DELETE FROM player_state");
         }
     }
 
     private void insertSnapshot(Connection c, StorageSnapshot snapshot) throws SQLException {
-        Set<String> networkNames = new HashSet<>();
-        Set<String> canonicalNetworkNames = new HashSet<>();
-        for (StorageSnapshot.NetworkData network : snapshot.networks()) {
-            if (network == null || network.name() == null || network.name().isBlank()) {
-                throw new SQLException("Snapshot contains a network with no valid name");
-            }
-            if (!networkNames.add(network.name())) {
-                throw new SQLException("Snapshot contains duplicate network '" + network.name() + "'");
-            }
-            if (!canonicalNetworkNames.add(StorageValues.canonicalNetworkName(network.name()))) {
-                throw new SQLException("Snapshot contains a case-insensitive network-name collision at '"
-                        + network.name() + "'");
-            }
-        }
+        validateSnapshot(snapshot);
         try (PreparedStatement networksInsert = c.prepareStatement(
                 "INSERT INTO networks(name, owner, description) VALUES(?, ?, ?)");
              PreparedStatement chestInsert = c.prepareStatement(
@@ -746,14 +993,14 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
                      "INSERT INTO network_trusted(network_name, player_uuid, expires_at) VALUES(?, ?, ?)");
              PreparedStatement statsInsert = c.prepareStatement(
                      "INSERT INTO network_stats(network_name, player_uuid, player_name, deposited, withdrawn) VALUES(?, ?, ?, ?, ?)");
+             PreparedStatement cellInsert = c.prepareStatement(
+                     "INSERT INTO network_cells(network_name, cell_id, capacity) VALUES(?, ?, ?)");
+             PreparedStatement cellItemInsert = c.prepareStatement(
+                     "INSERT INTO network_cell_items(network_name, cell_id, item, amount) VALUES(?, ?, ?, ?)");
              PreparedStatement stateInsert = c.prepareStatement(
                      "INSERT INTO player_state(player_uuid, selected_network, selected_wireless) VALUES(?, ?, ?)")) {
 
             for (StorageSnapshot.NetworkData network : snapshot.networks()) {
-                if (!StorageValues.isValidNetworkName(network.name())
-                        || network.owner() == null) {
-                    throw new SQLException("Network has no valid name or owner");
-                }
                 networksInsert.setString(1, network.name());
                 networksInsert.setString(2, network.owner().toString());
                 networksInsert.setString(3, network.description());
@@ -764,54 +1011,31 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
                 insertLocations(senderInsert, network.name(), network.senders());
 
                 for (StorageSnapshot.TrustedPlayer trusted : network.trusted()) {
-                    UUID playerId = trusted.playerId();
-                    if (playerId == null) {
-                        throw new SQLException("Network '" + network.name() + "' contains a null trusted UUID");
-                    }
-                    trustInsert.setString(1, network.name());
-                    trustInsert.setString(2, playerId.toString());
-                    Long expiry = trusted.expiresAt();
-                    if (expiry == null) {
-                        trustInsert.setNull(3, java.sql.Types.INTEGER);
-                    } else {
-                        trustInsert.setLong(3, expiry);
-                    }
+                    bindTrust(trustInsert, network.name(), trusted);
                     trustInsert.addBatch();
                 }
 
                 for (StorageSnapshot.PlayerStatData stat : network.stats()) {
-                    if (stat == null || stat.playerId() == null) {
-                        throw new SQLException("Network '" + network.name() + "' contains an invalid player stat");
-                    }
-                    statsInsert.setString(1, network.name());
-                    statsInsert.setString(2, stat.playerId().toString());
-                    statsInsert.setString(3, stat.playerName());
-                    if (stat.deposited() < 0 || stat.withdrawn() < 0) {
-                        throw new SQLException("Network '" + network.name() + "' contains negative player counters");
-                    }
-                    statsInsert.setLong(4, stat.deposited());
-                    statsInsert.setLong(5, stat.withdrawn());
+                    bindStat(statsInsert, network.name(), stat);
                     statsInsert.addBatch();
                 }
+
+                for (StorageSnapshot.CellData cell : network.cells()) {
+                    bindCell(cellInsert, network.name(), cell);
+                    cellInsert.addBatch();
+                    for (StorageSnapshot.CellItemData item : cell.items()) {
+                        bindCellItem(cellItemInsert, network.name(), cell.id(), item);
+                        cellItemInsert.addBatch();
+                    }
+                }
             }
 
             Set<UUID> playerIds = new HashSet<>(snapshot.selectedNetworks().keySet());
             playerIds.addAll(snapshot.selectedWirelessNetworks().keySet());
             for (UUID playerId : playerIds) {
-                if (playerId == null) {
-                    throw new SQLException("Player state contains a null UUID");
-                }
-                String selectedNetwork = snapshot.selectedNetworks().get(playerId);
-                String selectedWireless = snapshot.selectedWirelessNetworks().get(playerId);
-                if (selectedNetwork != null && !networkNames.contains(selectedNetwork)) {
-                    throw new SQLException("Player state references missing network '" + selectedNetwork + "'");
-                }
-                if (selectedWireless != null && !networkNames.contains(selectedWireless)) {
-                    throw new SQLException("Player state references missing wireless network '" + selectedWireless + "'");
-                }
                 stateInsert.setString(1, playerId.toString());
-                stateInsert.setString(2, selectedNetwork);
-                stateInsert.setString(3, selectedWireless);
+                stateInsert.setString(2, snapshot.selectedNetworks().get(playerId));
+                stateInsert.setString(3, snapshot.selectedWirelessNetworks().get(playerId));
                 stateInsert.addBatch();
             }
             // Keep the transaction durable but avoid one JNI/SQLite round trip per child row.
@@ -820,13 +1044,69 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
             senderInsert.executeBatch();
             trustInsert.executeBatch();
             statsInsert.executeBatch();
+            cellInsert.executeBatch();
+            cellItemInsert.executeBatch();
             stateInsert.executeBatch();
         }
     }
 
-    private void insertLocations(PreparedStatement insert,
-                                 String networkName,
-                                 Collection<StorageSnapshot.LocationData> locations) throws SQLException {
+    /** Checks the invariants of a whole snapshot before anything is written. */
+    private void validateSnapshot(StorageSnapshot snapshot) throws SQLException {
+        Set<String> networkNames = new HashSet<>();
+        Set<String> canonicalNetworkNames = new HashSet<>();
+        for (StorageSnapshot.NetworkData network : snapshot.networks()) {
+            if (network == null || network.name() == null || network.name().isBlank()) {
+                throw new SQLException("Snapshot contains a network with no valid name");
+            }
+            if (!networkNames.add(network.name())) {
+                throw new SQLException("Snapshot contains duplicate network '" + network.name() + "'");
+            }
+            if (!canonicalNetworkNames.add(StorageValues.canonicalNetworkName(network.name()))) {
+                throw new SQLException("Snapshot contains a case-insensitive network-name collision at '"
+                        + network.name() + "'");
+            }
+            if (!StorageValues.isValidNetworkName(network.name())
+                    || network.owner() == null) {
+                throw new SQLException("Network has no valid name or owner");
+            }
+            for (StorageSnapshot.TrustedPlayer trusted : network.trusted()) {
+                if (trusted == null || trusted.playerId() == null) {
+                    throw new SQLException("Network '" + network.name() + "' contains a null trusted UUID");
+                }
+            }
+            for (StorageSnapshot.PlayerStatData stat : network.stats()) {
+                if (stat == null || stat.playerId() == null) {
+                    throw new SQLException("Network '" + network.name() + "' contains an invalid player stat");
+                }
+                if (stat.deposited() < 0 || stat.withdrawn() < 0) {
+                    throw new SQLException("Network '" + network.name() + "' contains negative player counters");
+                }
+            }
+            validateLocations(network.name(), network.chests());
+            validateLocations(network.name(), network.terminals());
+            validateLocations(network.name(), network.senders());
+            validateCells(network.name(), network.cells());
+        }
+
+        Set<UUID> playerIds = new HashSet<>(snapshot.selectedNetworks().keySet());
+        playerIds.addAll(snapshot.selectedWirelessNetworks().keySet());
+        for (UUID playerId : playerIds) {
+            if (playerId == null) {
+                throw new SQLException("Player state contains a null UUID");
+            }
+            String selectedNetwork = snapshot.selectedNetworks().get(playerId);
+            String selectedWireless = snapshot.selectedWirelessNetworks().get(playerId);
+            if (selectedNetwork != null && !networkNames.contains(selectedNetwork)) {
+                throw new SQLException("Player state references missing network '" + selectedNetwork + "'");
+            }
+            if (selectedWireless != null && !networkNames.contains(selectedWireless)) {
+                throw new SQLException("Player state references missing wireless network '" + selectedWireless + "'");
+            }
+        }
+    }
+
+    private void validateLocations(String networkName,
+                                   Collection<StorageSnapshot.LocationData> locations) throws SQLException {
         for (StorageSnapshot.LocationData location : locations) {
             if (location == null || location.world() == null || location.world().isBlank()) {
                 throw new SQLException("Network '" + networkName + "' contains an invalid location");
@@ -834,15 +1114,261 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
             if (Math.abs(location.x()) > 30_000_000L || Math.abs(location.z()) > 30_000_000L) {
                 throw new SQLException("Network '" + networkName + "' contains an out-of-bounds location");
             }
-            insert.setString(1, networkName);
-            insert.setString(2, location.world());
-            insert.setInt(3, location.x());
-            insert.setInt(4, location.y());
-            insert.setInt(5, location.z());
+        }
+    }
+
+    private void validateCells(String networkName,
+                               Collection<StorageSnapshot.CellData> cells) throws SQLException {
+        Set<Integer> ids = new HashSet<>();
+        for (StorageSnapshot.CellData cell : cells) {
+            if (cell == null || cell.id() <= 0 || cell.capacity() <= 0 || !ids.add(cell.id())) {
+                throw new SQLException("Network '" + networkName + "' contains an invalid storage cell");
+            }
+            for (StorageSnapshot.CellItemData item : cell.items()) {
+                if (item == null || item.item() == null || item.item().length == 0 || item.amount() <= 0) {
+                    throw new SQLException("Network '" + networkName + "' storage cell " + cell.id()
+                            + " contains an invalid item row");
+                }
+            }
+        }
+    }
+
+    private void insertLocations(PreparedStatement insert,
+                                 String networkName,
+                                 Collection<StorageSnapshot.LocationData> locations) throws SQLException {
+        for (StorageSnapshot.LocationData location : locations) {
+            bindLocation(insert, networkName, location);
             insert.addBatch();
         }
     }
 
+    private void bindLocation(PreparedStatement statement,
+                              String networkName,
+                              StorageSnapshot.LocationData location) throws SQLException {
+        statement.setString(1, networkName);
+        statement.setString(2, location.world());
+        statement.setInt(3, location.x());
+        statement.setInt(4, location.y());
+        statement.setInt(5, location.z());
+    }
+
+    private void bindTrust(PreparedStatement statement,
+                           String networkName,
+                           StorageSnapshot.TrustedPlayer trusted) throws SQLException {
+        statement.setString(1, networkName);
+        statement.setString(2, trusted.playerId().toString());
+        Long expiry = trusted.expiresAt();
+        if (expiry == null) {
+            statement.setNull(3, java.sql.Types.INTEGER);
+        } else {
+            statement.setLong(3, expiry);
+        }
+    }
+
+    private void bindStat(PreparedStatement statement,
+                          String networkName,
+                          StorageSnapshot.PlayerStatData stat) throws SQLException {
+        statement.setString(1, networkName);
+        statement.setString(2, stat.playerId().toString());
+        statement.setString(3, stat.playerName());
+        statement.setLong(4, stat.deposited());
+        statement.setLong(5, stat.withdrawn());
+    }
+
+    private void bindCell(PreparedStatement statement,
+                          String networkName,
+                          StorageSnapshot.CellData cell) throws SQLException {
+        statement.setString(1, networkName);
+        statement.setInt(2, cell.id());
+        statement.setLong(3, cell.capacity());
+    }
+
+    private void bindCellItem(PreparedStatement statement,
+                              String networkName,
+                              int cellId,
+                              StorageSnapshot.CellItemData item) throws SQLException {
+        statement.setString(1, networkName);
+        statement.setInt(2, cellId);
+        statement.setBytes(3, item.item());
+        statement.setLong(4, item.amount());
+    }
+
+    private static final String[] LOCATION_TABLES = {"network_chests", "network_terminals", "network_senders"};
+
+    /**
+     * Writes a row-level delta.  Removed networks are deleted with their
+     * child rows first, so a rename (old name removed, new name added) never
+     * collides with itself.
+     */
+    private void applyDelta(Connection c, StorageDelta delta) throws SQLException {
+        try (PreparedStatement networkDelete = c.prepareStatement("DELETE FROM networks WHERE name = ?");
+             PreparedStatement networkUpsert = c.prepareStatement(
+                     "INSERT INTO networks(name, owner, description) VALUES(?, ?, ?) "
+                             + "ON CONFLICT(name) DO UPDATE SET owner = excluded.owner, description = excluded.description");
+             PreparedStatement trustUpsert = c.prepareStatement(
+                     "INSERT INTO network_trusted(network_name, player_uuid, expires_at) VALUES(?, ?, ?) "
+                             + "ON CONFLICT(network_name, player_uuid) DO UPDATE SET expires_at = excluded.expires_at");
+             PreparedStatement trustDelete = c.prepareStatement(
+                     "DELETE FROM network_trusted WHERE network_name = ? AND player_uuid = ?");
+             PreparedStatement statsUpsert = c.prepareStatement(
+                     "INSERT INTO network_stats(network_name, player_uuid, player_name, deposited, withdrawn) VALUES(?, ?, ?, ?, ?) "
+                             + "ON CONFLICT(network_name, player_uuid) DO UPDATE SET player_name = excluded.player_name, "
+                             + "deposited = excluded.deposited, withdrawn = excluded.withdrawn");
+             PreparedStatement statsDelete = c.prepareStatement(
+                     "DELETE FROM network_stats WHERE network_name = ? AND player_uuid = ?");
+             PreparedStatement stateUpsert = c.prepareStatement(
+                     "INSERT INTO player_state(player_uuid, selected_network, selected_wireless) VALUES(?, ?, ?) "
+                             + "ON CONFLICT(player_uuid) DO UPDATE SET selected_network = excluded.selected_network, "
+                             + "selected_wireless = excluded.selected_wireless");
+             PreparedStatement cellItemsClear = c.prepareStatement(
+                     "DELETE FROM network_cell_items WHERE network_name = ? AND cell_id = ?");
+             PreparedStatement cellDelete = c.prepareStatement(
+                     "DELETE FROM network_cells WHERE network_name = ? AND cell_id = ?");
+             PreparedStatement cellUpsert = c.prepareStatement(
+                     "INSERT INTO network_cells(network_name, cell_id, capacity) VALUES(?, ?, ?) "
+                             + "ON CONFLICT(network_name, cell_id) DO UPDATE SET capacity = excluded.capacity");
+             PreparedStatement cellItemDelete = c.prepareStatement(
+                     "DELETE FROM network_cell_items WHERE network_name = ? AND cell_id = ? AND item = ?");
+             PreparedStatement cellItemUpsert = c.prepareStatement(
+                     "INSERT INTO network_cell_items(network_name, cell_id, item, amount) VALUES(?, ?, ?, ?) "
+                             + "ON CONFLICT(network_name, cell_id, item) DO UPDATE SET amount = excluded.amount");
+             PreparedStatement stateDelete = c.prepareStatement("DELETE FROM player_state WHERE player_uuid = ?")) {
+
+            for (UUID playerId : delta.removedPlayers()) {
+                stateDelete.setString(1, playerId.toString());
+                stateDelete.addBatch();
+            }
+            stateDelete.executeBatch();
+
+            for (String networkName : delta.removedNetworks()) {
+                deleteNetworkChildren(c, networkName);
+                networkDelete.setString(1, networkName);
+                networkDelete.addBatch();
+            }
+            networkDelete.executeBatch();
+
+            for (StorageDelta.NetworkChange change : delta.changedNetworks()) {
+                StorageSnapshot.NetworkData network = change.network();
+                if (change.metadataChanged()) {
+                    networkUpsert.setString(1, network.name());
+                    networkUpsert.setString(2, network.owner().toString());
+                    networkUpsert.setString(3, network.description());
+                    networkUpsert.addBatch();
+                }
+            }
+            networkUpsert.executeBatch();
+
+            for (int table = 0; table < LOCATION_TABLES.length; table++) {
+                try (PreparedStatement insert = c.prepareStatement("INSERT OR IGNORE INTO " + LOCATION_TABLES[table]
+                        + "(network_name, world, x, y, z) VALUES(?, ?, ?, ?, ?)");
+                     PreparedStatement delete = c.prepareStatement("DELETE FROM " + LOCATION_TABLES[table]
+                             + " WHERE network_name = ? AND world = ? AND x = ? AND y = ? AND z = ?")) {
+                    for (StorageDelta.NetworkChange change : delta.changedNetworks()) {
+                        for (StorageSnapshot.LocationData location : removedLocations(change, table)) {
+                            bindLocation(delete, change.network().name(), location);
+                            delete.addBatch();
+                        }
+                        insertLocations(insert, change.network().name(), addedLocations(change, table));
+                    }
+                    delete.executeBatch();
+                    insert.executeBatch();
+                }
+            }
+
+            for (StorageDelta.NetworkChange change : delta.changedNetworks()) {
+                String networkName = change.network().name();
+                for (UUID playerId : change.removedTrust()) {
+                    trustDelete.setString(1, networkName);
+                    trustDelete.setString(2, playerId.toString());
+                    trustDelete.addBatch();
+                }
+                for (StorageSnapshot.TrustedPlayer trusted : change.upsertedTrust()) {
+                    bindTrust(trustUpsert, networkName, trusted);
+                    trustUpsert.addBatch();
+                }
+                for (UUID playerId : change.removedStats()) {
+                    statsDelete.setString(1, networkName);
+                    statsDelete.setString(2, playerId.toString());
+                    statsDelete.addBatch();
+                }
+                for (StorageSnapshot.PlayerStatData stat : change.upsertedStats()) {
+                    bindStat(statsUpsert, networkName, stat);
+                    statsUpsert.addBatch();
+                }
+            }
+            trustDelete.executeBatch();
+            trustUpsert.executeBatch();
+            statsDelete.executeBatch();
+            statsUpsert.executeBatch();
+
+            // Cells before their item rows, so new rows always find their cell.
+            for (StorageDelta.NetworkChange change : delta.changedNetworks()) {
+                String networkName = change.network().name();
+                for (int cellId : change.removedCells()) {
+                    cellItemsClear.setString(1, networkName);
+                    cellItemsClear.setInt(2, cellId);
+                    cellItemsClear.addBatch();
+                    cellDelete.setString(1, networkName);
+                    cellDelete.setInt(2, cellId);
+                    cellDelete.addBatch();
+                }
+                for (StorageSnapshot.CellData cell : change.upsertedCells()) {
+                    bindCell(cellUpsert, networkName, cell);
+                    cellUpsert.addBatch();
+                }
+                for (StorageDelta.CellItemChange removed : change.removedCellItems()) {
+                    cellItemDelete.setString(1, networkName);
+                    cellItemDelete.setInt(2, removed.cellId());
+                    cellItemDelete.setBytes(3, removed.item().item());
+                    cellItemDelete.addBatch();
+                }
+                for (StorageDelta.CellItemChange upserted : change.upsertedCellItems()) {
+                    bindCellItem(cellItemUpsert, networkName, upserted.cellId(), upserted.item());
+                    cellItemUpsert.addBatch();
+                }
+            }
+            cellItemsClear.executeBatch();
+            cellDelete.executeBatch();
+            cellUpsert.executeBatch();
+            cellItemDelete.executeBatch();
+            cellItemUpsert.executeBatch();
+
+            for (Map.Entry<UUID, StorageDelta.PlayerState> entry : delta.upsertedPlayers().entrySet()) {
+                stateUpsert.setString(1, entry.getKey().toString());
+                stateUpsert.setString(2, entry.getValue().selectedNetwork());
+                stateUpsert.setString(3, entry.getValue().selectedWireless());
+                stateUpsert.addBatch();
+            }
+            stateUpsert.executeBatch();
+        }
+    }
+
+    private void deleteNetworkChildren(Connection c, String networkName) throws SQLException {
+        for (String table : new String[]{"network_chests", "network_terminals", "network_senders",
+                "network_trusted", "network_stats", "network_cell_items", "network_cells"}) {
+            try (PreparedStatement delete = c.prepareStatement("DELETE FROM " + table + " WHERE network_name = ?")) {
+                delete.setString(1, networkName);
+                delete.executeUpdate();
+            }
+        }
+    }
+
+    private static List<StorageSnapshot.LocationData> addedLocations(StorageDelta.NetworkChange change, int table) {
+        return switch (table) {
+            case 0 -> change.addedChests();
+            case 1 -> change.addedTerminals();
+            default -> change.addedSenders();
+        };
+    }
+
+    private static List<StorageSnapshot.LocationData> removedLocations(StorageDelta.NetworkChange change, int table) {
+        return switch (table) {
+            case 0 -> change.removedChests();
+            case 1 -> change.removedTerminals();
+            default -> change.removedSenders();
+        };
+    }
+
     public boolean setMigrationMetadata(String migrationId,
                                          String sourceHash,
                                          StorageSnapshot snapshot) {
@@ -1001,9 +1527,10 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
             addLocationRows(rows, s, "network_senders", "sender");
             try (ResultSet rs = s.executeQuery("SELECT network_name, player_uuid, expires_at FROM network_trusted")) {
                 while (rs.next()) {
-                    long expiry = rs.getLong("expires_at");
+                    // getString keeps SQL NULL distinct from 0; wasNull() after
+                    // getLong is not reliable across driver versions.
                     rows.add("trusted|" + rs.getString("network_name") + "|" + rs.getString("player_uuid") + "|"
-                            + (rs.wasNull() ? "" : expiry));
+                            + nullToEmpty(rs.getString("expires_at")));
                 }
             }
             try (ResultSet rs = s.executeQuery(
@@ -1014,6 +1541,18 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
                             + rs.getLong("withdrawn"));
                 }
             }
+            try (ResultSet rs = s.executeQuery("SELECT network_name, cell_id, capacity FROM network_cells")) {
+                while (rs.next()) {
+                    rows.add("cell|" + rs.getString("network_name") + "|" + rs.getInt("cell_id") + "|"
+                            + rs.getLong("capacity"));
+                }
+            }
+            try (ResultSet rs = s.executeQuery("SELECT network_name, cell_id, item, amount FROM network_cell_items")) {
+                while (rs.next()) {
+                    rows.add("cell_item|" + rs.getString("network_name") + "|" + rs.getInt("cell_id") + "|"
+                            + Base64.getEncoder().encodeToString(rs.getBytes("item")) + "|" + rs.getLong("amount"));
+                }
+            }
             try (ResultSet rs = s.executeQuery(
                     "SELECT player_uuid, selected_network, selected_wireless FROM player_state")) {
                 while (rs.next()) {
@@ -1180,6 +1719,12 @@ public class SqliteNetworkStorageProvider implements NetworkStorageProvider {
         map.put("trusted_entries", countRows("network_trusted"));
         map.put("stats_rows", countRows("network_stats"));
         map.put("player_state_rows", countRows("player_state"));
+        map.put("scan_cache_rows", countRows("network_scan_cache"));
+        map.put("storage_cells", countRows("network_cells"));
+        map.put("storage_cell_items", countRows("network_cell_items"));
+        for (Map.Entry<String, Long> timing : loadTimingsMillis.entrySet()) {
+            map.put("load_ms_" + timing.getKey(), timing.getValue());
+        }
         return map;
     }
 
@@ -0,0 +1,120 @@
+package com.dermoha.networkstorage.util;
+
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.EnchantmentStorageMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lower-cased search text of one item type, computed once so that filtering
+ * never clones item meta again.  {@link #matches(String)} applies the terminal
+ * search rules: custom name, material key and English name match by
+ * substring; enchantments match by name and level.
+ */
+public record ItemSearchTerms(String customName,
+                             String materialKey,
+                             String englishName,
+                             List<EnchantmentTerms> enchantments) {
+
+    public record EnchantmentTerms(String name, String rawName, String level, String romanLevel) {
+
+        public static EnchantmentTerms of(String rawName, int level) {
+            return new EnchantmentTerms(ItemUtils.formatEnchantmentName(rawName).toLowerCase(Locale.ROOT),
+                    rawName.toLowerCase(Locale.ROOT),
+                    String.valueOf(level),
+                    ItemUtils.toRoman(level).toLowerCase(Locale.ROOT));
+        }
+
+        /**
+         * A single word matches the name or the level; several words need
+         * one that matches the name and one that matches the level.
+         */
+        public boolean matches(String[] filterParts) {
+            boolean hasNamePart = false;
+            boolean hasLevelPart = false;
+            for (String part : filterParts) {
+                if (name.contains(part) || rawName.contains(part)) {
+                    hasNamePart = true;
+                }
+                if (part.equals(level) || part.equals(romanLevel)) {
+                    hasLevelPart = true;
+                }
+            }
+            if (hasNamePart && hasLevelPart) {
+                return true;
+            }
+            return filterParts.length == 1 && (hasNamePart || hasLevelPart);
+        }
+    }
+
+    public ItemSearchTerms {
+        enchantments = List.copyOf(enchantments);
+    }
+
+    public static ItemSearchTerms of(ItemStack item, String englishName) {
+        String customName = null;
+        List<EnchantmentTerms> enchantments = new ArrayList<>();
+        if (item.hasItemMeta()) {
+            ItemMeta meta = item.getItemMeta();
+            if (meta.hasDisplayName()) {
+                customName = meta.getDisplayName().toLowerCase(Locale.ROOT);
+            }
+            if (meta.hasEnchants()) {
+                addEnchantments(enchantments, meta.getEnchants());
+            }
+            if (meta instanceof EnchantmentStorageMeta storageMeta && storageMeta.hasStoredEnchants()) {
+                addEnchantments(enchantments, storageMeta.getStoredEnchants());
+            }
+        }
+        return new ItemSearchTerms(customName,
+                item.getType().getKey().getKey().toLowerCase(Locale.ROOT),
+                englishName.toLowerCase(Locale.ROOT),
+                enchantments);
+    }
+
+    private static void addEnchantments(List<EnchantmentTerms> target, Map<Enchantment, Integer> enchantments) {
+        for (Map.Entry<Enchantment, Integer> entry : enchantments.entrySet()) {
+            target.add(EnchantmentTerms.of(entry.getKey().getKey().getKey(), entry.getValue()));
+        }
+    }
+
+    public boolean matches(String lowerCaseFilter) {
+        if (customName != null && customName.contains(lowerCaseFilter)) {
+            return true;
+        }
+        if (materialKey.contains(lowerCaseFilter)) {
+            return true;
+        }
+        if (!enchantments.isEmpty()) {
+            String[] filterParts = lowerCaseFilter.trim().split("\\s+");
+            for (EnchantmentTerms enchantment : enchantments) {
+                if (enchantment.matches(filterParts)) {
+                    return true;
+                }
+            }
+        }
+        return englishName.contains(lowerCaseFilter);
+    }
+
+    /** Every string a match can be found in, for substring indexing. */
+    public List<String> searchableText() {
+        List<String> text = new ArrayList<>(3 + enchantments.size() * 4);
+        if (customName != null) {
+            text.add(customName);
+        }
+        text.add(materialKey);
+        text.add(englishName);
+        for (EnchantmentTerms enchantment : enchantments) {
+            text.add(enchantment.name());
+            text.add(enchantment.rawName());
+            text.add(enchantment.level());
+            text.add(enchantment.romanLevel());
+        }
+        return text;
+    }
+}
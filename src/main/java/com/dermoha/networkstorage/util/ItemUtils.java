@@ -52,27 +52,7 @@ public final class ItemUtils {
     }
 
     static boolean matchesEnchantment(String rawName, int level, String lowerCaseFilter) {
-        String formattedName = formatEnchantmentName(rawName).toLowerCase();
-        String normalizedRaw = rawName.toLowerCase();
-        String levelStr = String.valueOf(level);
-        String romanLevel = toRoman(level).toLowerCase();
-
-        String[] filterParts = lowerCaseFilter.trim().split("\\s+");
-        boolean hasNamePart = false;
-        boolean hasLevelPart = false;
-
-        for (String part : filterParts) {
-            if (formattedName.contains(part) || normalizedRaw.contains(part)) {
-                hasNamePart = true;
-            }
-            if (part.equals(levelStr) || part.equals(romanLevel)) {
-                hasLevelPart = true;
-            }
-        }
-
-        if (hasNamePart && hasLevelPart) return true;
-
-        return filterParts.length == 1 && (hasNamePart || hasLevelPart);
+        return ItemSearchTerms.EnchantmentTerms.of(rawName, level).matches(lowerCaseFilter.trim().split("\\s+"));
     }
 
     public static String formatEnchantmentName(Enchantment enchantment) {
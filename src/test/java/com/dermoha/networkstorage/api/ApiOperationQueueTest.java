@@ -0,0 +1,142 @@
+package com.dermoha.networkstorage.api;
+
+import com.dermoha.networkstorage.TestItemStack;
+import com.dermoha.networkstorage.storage.Network;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApiOperationQueueTest {
+
+    private final Network first = new Network("First", UUID.randomUUID(), null);
+    private final Network second = new Network("Second", UUID.randomUUID(), null);
+    private final AtomicBoolean mainThread = new AtomicBoolean();
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final List<String> batches = new ArrayList<>();
+
+    /** Stores up to 64 items per stack and records each batch as "network:amounts". */
+    private final ApiOperationQueue queue = new ApiOperationQueue(mainThread::get, scheduled::add,
+            (network, items) -> {
+                batches.add(network.getName() + ":" + items.stream().map(item -> String.valueOf(item.getAmount())).toList());
+                List<ItemStack> leftovers = new ArrayList<>();
+                for (ItemStack item : items) {
+                    if (item.getAmount() <= 64) {
+                        leftovers.add(null);
+                    } else {
+                        ItemStack leftover = item.clone();
+                        leftover.setAmount(item.getAmount() - 64);
+                        leftovers.add(leftover);
+                    }
+                }
+                return leftovers;
+            });
+
+    @Test
+    void operationsFromOtherThreadsRunTogetherOnTheNextTick() throws Exception {
+        ItemStack stone = new TestItemStack(Material.STONE, 10);
+        CompletableFuture<ItemStack> a = queue.deposit(first, stone);
+        CompletableFuture<ItemStack> b = queue.deposit(first, new TestItemStack(Material.DIRT, 80));
+        CompletableFuture<String> call = queue.call(() -> "withdrawn");
+        CompletableFuture<ItemStack> c = queue.deposit(first, new TestItemStack(Material.STONE, 5));
+        CompletableFuture<ItemStack> d = queue.deposit(second, new TestItemStack(Material.STONE, 7));
+        stone.setAmount(1);
+
+        assertEquals(1, scheduled.size(), "one drain is scheduled for the whole burst");
+        assertFalse(a.isDone());
+
+        mainThread.set(true);
+        scheduled.get(0).run();
+
+        assertEquals(List.of("First:[10, 80]", "First:[5]", "Second:[7]"), batches,
+                "consecutive deposits into one network share a batch; order is kept");
+        assertNull(a.get());
+        assertEquals(16, b.get().getAmount());
+        assertEquals("withdrawn", call.get());
+        assertNull(c.get());
+        assertNull(d.get());
+    }
+
+    @Test
+    void operationsOnTheServerThreadRunAtOnce() throws Exception {
+        mainThread.set(true);
+
+        CompletableFuture<ItemStack> deposit = queue.deposit(first, new TestItemStack(Material.STONE, 3));
+        CompletableFuture<Integer> call = queue.call(() -> 42);
+
+        assertTrue(deposit.isDone());
+        assertNull(deposit.get());
+        assertEquals(42, call.get());
+        assertTrue(scheduled.isEmpty());
+    }
+
+    @Test
+    void failuresCompleteTheFutureExceptionally() {
+        CompletableFuture<Object> call = queue.call(() -> {
+            throw new IllegalArgumentException("bad template");
+        });
+        mainThread.set(true);
+        queue.drain();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, call::get);
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+    }
+
+    @Test
+    void closingRunsWhatIsQueuedAndRejectsLaterOperations() throws Exception {
+        CompletableFuture<ItemStack> queued = queue.deposit(first, new TestItemStack(Material.STONE, 3));
+        mainThread.set(true);
+
+        queue.close();
+        assertNull(queued.get());
+
+        mainThread.set(false);
+        CompletableFuture<ItemStack> late = queue.deposit(first, new TestItemStack(Material.STONE, 3));
+        ExecutionException failure = assertThrows(ExecutionException.class, late::get);
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+    }
+
+    @Test
+    void aSchedulerThatRefusesFailsTheQueuedOperations() {
+        ApiOperationQueue refused = new ApiOperationQueue(() -> false, task -> {
+            throw new IllegalStateException("plugin disabled");
+        }, (network, items) -> List.of());
+
+        CompletableFuture<String> call = refused.call(() -> "never");
+
+        assertTrue(call.isCompletedExceptionally());
+    }
+
+    @Test
+    void onlyTheActiveQueueRunsCallsAndAStaleDeactivationKeepsIt() throws Exception {
+        mainThread.set(true);
+        ApiOperationQueue.activate(queue);
+        try {
+            assertEquals("ran", ApiOperationQueue.active().call(() -> "ran").get());
+
+            ApiOperationQueue.deactivate(new ApiOperationQueue(() -> true, task -> {
+            }, (network, items) -> List.of()));
+            assertSame(queue, ApiOperationQueue.active());
+        } finally {
+            ApiOperationQueue.deactivate(queue);
+        }
+
+        CompletableFuture<String> call = ApiOperationQueue.active().call(() -> "never");
+        ExecutionException failure = assertThrows(ExecutionException.class, call::get);
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+    }
+}
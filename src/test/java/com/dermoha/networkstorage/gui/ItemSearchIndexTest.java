@@ -0,0 +1,103 @@
+package com.dermoha.networkstorage.gui;
+
+import com.dermoha.networkstorage.TestItemStack;
+import com.dermoha.networkstorage.storage.ItemCountMap;
+import com.dermoha.networkstorage.storage.ItemCounts;
+import com.dermoha.networkstorage.storage.ItemKey;
+import com.dermoha.networkstorage.util.ItemSearchTerms;
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ItemSearchIndexTest {
+
+    private final Map<ItemKey, ItemSearchTerms> terms = new HashMap<>();
+    private final ItemSearchIndex index = new ItemSearchIndex(terms::get);
+
+    @Test
+    void indexedFilteringMatchesAFullScan() {
+        ItemCountMap counts = new ItemCountMap();
+        Material[] materials = Material.values();
+        for (int i = 0; i < materials.length; i++) {
+            ItemKey key = ItemKey.of(new TestItemStack(materials[i], 1));
+            String name = materials[i].name().toLowerCase(Locale.ROOT);
+            List<ItemSearchTerms.EnchantmentTerms> enchantments = i % 3 == 0
+                    ? List.of(ItemSearchTerms.EnchantmentTerms.of("sharpness", 1 + i % 5))
+                    : List.of();
+            terms.put(key, new ItemSearchTerms(i % 4 == 0 ? "named " + name : null,
+                    name, name.replace('_', ' '), enchantments));
+            counts.add(key, i + 1);
+        }
+        ItemCounts items = counts.freeze();
+
+        for (String filter : List.of("ches", "st", "sharpness iii", "sharp 2", "iv", "named", "zzz", "e")) {
+            assertEquals(scan(items, filter), keysOf(index.filter(items, filter)), filter);
+        }
+        assertEquals(materials.length, index.indexedTypes());
+    }
+
+    @Test
+    void itemsMissingFromTheContentsAreNotReturned() {
+        ItemKey key = ItemKey.of(new TestItemStack(Material.values()[0], 1));
+        terms.put(key, new ItemSearchTerms(null, "diamond", "diamond", List.of()));
+        ItemCountMap counts = new ItemCountMap();
+        counts.add(key, 5);
+        assertEquals(1, index.filter(counts.freeze(), "diamond").size());
+
+        assertEquals(0, index.filter(new ItemCountMap().freeze(), "diamond").size());
+    }
+
+    @Test
+    void typesNoFilteredContentsHoldAreDroppedOnceTheIndexDoubles() {
+        ItemSearchIndex small = new ItemSearchIndex(terms::get, 4);
+        Material[] materials = Material.values();
+        ItemCounts first = contents(materials, 0, 4);
+        ItemCounts second = contents(materials, 4, 8);
+
+        small.filter(first, "item");
+        small.filter(second, "item");
+        assertEquals(8, small.indexedTypes());
+
+        small.filter(second, "item");
+        assertEquals(4, small.indexedTypes(), "only the types seen since the last compaction are kept");
+        assertEquals(scan(second, "item"), keysOf(small.filter(second, "item")));
+        assertEquals(scan(first, "item"), keysOf(small.filter(first, "item")), "dropped types are indexed again");
+    }
+
+    private ItemCounts contents(Material[] materials, int from, int to) {
+        ItemCountMap counts = new ItemCountMap();
+        for (int i = from; i < to; i++) {
+            ItemKey key = ItemKey.of(new TestItemStack(materials[i], 1));
+            String name = materials[i].name().toLowerCase(Locale.ROOT);
+            terms.put(key, new ItemSearchTerms("item " + name, name, name, List.of()));
+            counts.add(key, 1);
+        }
+        return counts.freeze();
+    }
+
+    private Set<ItemKey> scan(ItemCounts items, String filter) {
+        Set<ItemKey> matches = new HashSet<>();
+        items.forEach((key, amount) -> {
+            if (terms.get(key).matches(filter)) {
+                matches.add(key);
+            }
+        });
+        return matches;
+    }
+
+    private static Set<ItemKey> keysOf(List<ItemCounts.Entry> entries) {
+        Set<ItemKey> keys = new HashSet<>();
+        for (ItemCounts.Entry entry : entries) {
+            keys.add(entry.key());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,56 @@
+package com.dermoha.networkstorage.gui;
+
+import com.dermoha.networkstorage.storage.ItemCountMap;
+import com.dermoha.networkstorage.storage.ItemCounts;
+import com.dermoha.networkstorage.storage.Network;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TerminalViewCacheTest {
+
+    private final Network network = new Network("Global", UUID.randomUUID(), null);
+    private final List<String> builds = new ArrayList<>();
+    private final TerminalViewCache cache = new TerminalViewCache((items, sortType, filter) -> {
+        builds.add(sortType + ":" + filter);
+        return new ArrayList<>();
+    });
+
+    @Test
+    void viewersOfTheSameContentShareOneSortedView() {
+        ItemCounts items = new ItemCountMap().freeze();
+
+        TerminalViewCache.View first = cache.acquire(network, items, TerminalGUI.SortType.ALPHABETICAL, "Dia");
+        TerminalViewCache.View second = cache.acquire(network, items, TerminalGUI.SortType.ALPHABETICAL, "dia");
+        TerminalViewCache.View other = cache.acquire(network, items, TerminalGUI.SortType.COUNT_DESC, "dia");
+
+        assertSame(first, second, "filters are compared case-insensitively");
+        assertNotSame(first, other);
+        assertEquals(List.of("ALPHABETICAL:dia", "COUNT_DESC:dia"), builds);
+    }
+
+    @Test
+    void viewsAreEvictedWhenReplacedOrNoLongerViewed() {
+        ItemCounts before = new ItemCountMap().freeze();
+        ItemCounts after = new ItemCountMap().freeze();
+
+        TerminalViewCache.View old = cache.acquire(network, before, TerminalGUI.SortType.ALPHABETICAL, "");
+        TerminalViewCache.View kept = cache.acquire(network, before, TerminalGUI.SortType.ALPHABETICAL, "");
+        TerminalViewCache.View current = cache.acquire(network, after, TerminalGUI.SortType.ALPHABETICAL, "");
+        assertNotSame(old, current, "a new content version builds a new view");
+        assertEquals(1, cache.size());
+
+        cache.release(old);
+        cache.release(kept);
+        assertEquals(1, cache.size(), "releasing a replaced view leaves the current one alone");
+
+        cache.release(current);
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,108 @@
+package com.dermoha.networkstorage.managers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockPositionIndexTest {
+
+    private static final UUID OVERWORLD = UUID.randomUUID();
+    private static final UUID NETHER = UUID.randomUUID();
+    private static final Logger LOGGER = Logger.getAnonymousLogger();
+
+    @Test
+    void positionsResolveToTheirNetworkPerWorld() {
+        BlockPositionIndex index = new BlockPositionIndex(LOGGER);
+        index.put(OVERWORLD, 10, 64, -20, 3, BlockPositionIndex.Role.CHEST);
+        index.put(NETHER, 10, 64, -20, 7, BlockPositionIndex.Role.SENDER);
+
+        assertEquals(3, index.networkAt(OVERWORLD, 10, 64, -20));
+        assertEquals(7, index.networkAt(NETHER, 10, 64, -20));
+        assertEquals(BlockPositionIndex.NONE, index.networkAt(OVERWORLD, 10, 65, -20));
+        assertEquals(BlockPositionIndex.NONE, index.networkAt(UUID.randomUUID(), 10, 64, -20));
+    }
+
+    @Test
+    void removingOneRoleKeepsTheOthers() {
+        BlockPositionIndex index = new BlockPositionIndex(LOGGER);
+        index.put(OVERWORLD, 0, -64, 0, 1, BlockPositionIndex.Role.CHEST);
+        index.put(OVERWORLD, 0, -64, 0, 1, BlockPositionIndex.Role.TERMINAL);
+
+        index.remove(OVERWORLD, 0, -64, 0, 1, BlockPositionIndex.Role.CHEST);
+        assertFalse(index.hasRole(OVERWORLD, 0, -64, 0, BlockPositionIndex.Role.CHEST));
+        assertTrue(index.hasRole(OVERWORLD, 0, -64, 0, BlockPositionIndex.Role.TERMINAL));
+        assertEquals(1, index.networkAt(OVERWORLD, 0, -64, 0));
+
+        index.remove(OVERWORLD, 0, -64, 0, 1, BlockPositionIndex.Role.TERMINAL);
+        assertEquals(BlockPositionIndex.NONE, index.networkAt(OVERWORLD, 0, -64, 0));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void anotherNetworksStaleLocationDoesNotClearTheCurrentOwner() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        List<String> warnings = new ArrayList<>();
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                warnings.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        BlockPositionIndex index = new BlockPositionIndex(logger);
+        index.put(OVERWORLD, 5, 70, 5, 1, BlockPositionIndex.Role.CHEST);
+        index.put(OVERWORLD, 5, 70, 5, 2, BlockPositionIndex.Role.CHEST);
+
+        assertEquals(1, warnings.size(), "taking over another network's block is logged");
+        index.remove(OVERWORLD, 5, 70, 5, 1, BlockPositionIndex.Role.CHEST);
+        assertEquals(2, index.networkAt(OVERWORLD, 5, 70, 5));
+        assertTrue(index.hasRole(OVERWORLD, 5, 70, 5, BlockPositionIndex.Role.CHEST));
+
+        index.put(OVERWORLD, 5, 70, 5, 2, BlockPositionIndex.Role.TERMINAL);
+        assertEquals(1, warnings.size(), "adding a role for the same network is not");
+        index.remove(OVERWORLD, 5, 70, 5, 2, BlockPositionIndex.Role.CHEST);
+        assertEquals(2, index.networkAt(OVERWORLD, 5, 70, 5));
+    }
+
+    @Test
+    void packedPositionsDoNotCollideAcrossAxes() {
+        assertNotEquals(BlockPositionIndex.pack(1, 0, 0), BlockPositionIndex.pack(0, 0, 1));
+        assertNotEquals(BlockPositionIndex.pack(0, 1, 0), BlockPositionIndex.pack(0, 0, 1));
+        assertNotEquals(BlockPositionIndex.pack(-1, 0, 0), BlockPositionIndex.pack(1, 0, 0));
+    }
+
+    @Test
+    void survivesGrowthAndDeletionChurn() {
+        BlockPositionIndex index = new BlockPositionIndex(LOGGER);
+        for (int i = 0; i < 5_000; i++) {
+            index.put(OVERWORLD, i * 16, 64, -i, i, BlockPositionIndex.Role.CHEST);
+        }
+        for (int i = 0; i < 5_000; i += 2) {
+            index.remove(OVERWORLD, i * 16, 64, -i, i, BlockPositionIndex.Role.CHEST);
+        }
+
+        assertEquals(2_500, index.size());
+        for (int i = 0; i < 5_000; i++) {
+            int expected = i % 2 == 0 ? BlockPositionIndex.NONE : i;
+            assertEquals(expected, index.networkAt(OVERWORLD, i * 16, 64, -i));
+        }
+    }
+}
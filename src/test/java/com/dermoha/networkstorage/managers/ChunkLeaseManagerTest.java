@@ -0,0 +1,124 @@
+package com.dermoha.networkstorage.managers;
+
+import com.dermoha.networkstorage.storage.Network;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkLeaseManagerTest {
+
+    private final Network first = new Network("First", UUID.randomUUID(), null);
+    private final Network second = new Network("Second", UUID.randomUUID(), null);
+    private final World world = world();
+    private final List<String> tickets = new ArrayList<>();
+    private final ChunkLeaseManager.Tickets recorder = new ChunkLeaseManager.Tickets() {
+        @Override
+        public void add(World world, int chunkX, int chunkZ) {
+            tickets.add("+" + chunkX + "," + chunkZ);
+        }
+
+        @Override
+        public void remove(World world, int chunkX, int chunkZ) {
+            tickets.add("-" + chunkX + "," + chunkZ);
+        }
+    };
+
+    @Test
+    void leasesAreRenewedByUseAndReleasedOnceIdle() {
+        AtomicLong clock = new AtomicLong();
+        ChunkLeaseManager leases = new ChunkLeaseManager(100L, clock::get, recorder, network -> false);
+
+        leases.use(first, world, 1, 2);
+        leases.use(first, world, 1, 2);
+        leases.use(first, world, 3, 2);
+        assertEquals(List.of("+1,2", "+3,2"), tickets, "a chunk gets one ticket");
+        assertEquals(2, leases.leasedChunks());
+
+        clock.set(90L);
+        leases.use(first, world, 1, 2);
+        clock.set(150L);
+        assertEquals(0, leases.releaseIdle(), "any use renews all of the network's leases");
+
+        clock.set(190L);
+        assertEquals(2, leases.releaseIdle());
+        assertEquals(List.of("+1,2", "+3,2", "-1,2", "-3,2"), sorted(tickets), "released in any order");
+        assertTrue(leases.isEmpty());
+        assertEquals(0, leases.leasedChunks());
+    }
+
+    @Test
+    void aSharedChunkKeepsItsTicketUntilTheLastNetworkLetsGo() {
+        AtomicLong clock = new AtomicLong();
+        Set<Network> busy = new HashSet<>();
+        ChunkLeaseManager leases = new ChunkLeaseManager(100L, clock::get, recorder, busy::contains);
+
+        leases.use(first, world, 0, 0);
+        leases.use(second, world, 0, 0);
+        busy.add(second);
+        clock.set(500L);
+
+        assertEquals(0, leases.releaseIdle(), "the busy network still holds the chunk");
+        assertEquals(List.of("+0,0"), tickets);
+        assertFalse(leases.isEmpty());
+
+        busy.clear();
+        clock.set(550L);
+        assertEquals(0, leases.releaseIdle(), "being in use counts as use");
+        leases.release(second);
+        assertEquals(List.of("+0,0", "-0,0"), tickets);
+    }
+
+    @Test
+    void aZeroTimeoutLeasesNothing() {
+        ChunkLeaseManager leases = new ChunkLeaseManager(0L, () -> 0L, recorder, network -> true);
+
+        leases.use(first, world, 0, 0);
+
+        assertFalse(leases.isEnabled());
+        assertTrue(leases.isEmpty());
+        assertTrue(tickets.isEmpty());
+    }
+
+    @Test
+    void releaseAllRemovesEveryTicket() {
+        ChunkLeaseManager leases = new ChunkLeaseManager(100L, () -> 0L, recorder, network -> true);
+        leases.use(first, world, 0, 0);
+        leases.use(second, world, 0, 0);
+        leases.use(second, world, 5, 5);
+
+        leases.releaseAll();
+
+        assertEquals(List.of("+0,0", "+5,5", "-0,0", "-5,5"), sorted(tickets));
+        assertEquals(0, leases.leasedChunks());
+    }
+
+    private static List<String> sorted(List<String> tickets) {
+        List<String> added = new ArrayList<>(tickets.subList(0, 2));
+        List<String> removed = new ArrayList<>(tickets.subList(2, tickets.size()));
+        removed.sort(null);
+        added.addAll(removed);
+        return added;
+    }
+
+    private static World world() {
+        UUID uid = UUID.randomUUID();
+        return (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[]{World.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getUID" -> uid;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
@@ -1,13 +1,17 @@
 package com.dermoha.networkstorage.managers;
 
+import com.dermoha.networkstorage.storage.ContainerContents;
 import com.dermoha.networkstorage.storage.NetworkScanResult;
 import com.dermoha.networkstorage.storage.StoredLocation;
 import com.dermoha.networkstorage.TestItemStack;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
 import org.bukkit.block.BlockState;
+import org.bukkit.block.Chest;
 import org.bukkit.block.Container;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
@@ -22,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -72,6 +77,86 @@ class NetworkContentScannerTest {
         assertEquals(0, result.warnings().size());
         assertTrue(result.hasAuthoritativeData());
         assertEquals(1, fakeWorld.loadCallsForChunk(62, 0));
+        assertEquals(4, session.containers().size(), "per-container contents seed the network index");
+        assertEquals(47_312L, session.containers().values().stream()
+                .mapToLong(ContainerContents::totalItems)
+                .sum());
+    }
+
+    @Test
+    void readsADoubleChestOnceWhenBothHalvesAreRegistered() {
+        FakeWorld fakeWorld = new FakeWorld("double", UUID.randomUUID());
+        // The right half is in the next chunk and sorts first.
+        fakeWorld.addDoubleChest(15, 64, 0, new TestItemStack(Material.DIAMOND, 40));
+        fakeWorld.addContainer(20, 64, 0, 27, new TestItemStack(Material.GOLD_INGOT, 3));
+        List<Location> locations = new ArrayList<>(fakeWorld.locations());
+        locations.sort((a, b) -> Integer.compare(b.getBlockX(), a.getBlockX()));
+
+        NetworkContentScanner scanner = new NetworkContentScanner(() -> true);
+        NetworkContentScanner.ScanSession session = scanner.begin("Double", locations);
+        NetworkContentScanner.ScanStep step = scanner.advance(session, 10);
+
+        assertTrue(step.complete());
+        NetworkScanResult result = step.result();
+        assertTrue(result.hasAuthoritativeData(), "a half read through its partner is not missing");
+        assertEquals(43L, result.totalItems());
+        assertEquals(2, result.containersFound());
+        assertEquals(54L + 27L, result.totalSlots());
+        assertEquals(1, session.sharedHalves());
+        assertEquals(Set.of(new Location(fakeWorld.world, 15, 64, 0), new Location(fakeWorld.world, 20, 64, 0)),
+                session.containers().keySet(), "the double chest is recorded under its left half");
+    }
+
+    @Test
+    void timeBudgetStopsBeforeTheNextChunkWouldOverrunIt() {
+        FakeWorld fakeWorld = new FakeWorld("budget", UUID.randomUUID());
+        fakeWorld.addContainer(0, 64, 0, 27, new TestItemStack(Material.DIAMOND, 1));
+        fakeWorld.addContainer(16, 64, 0, 27, new TestItemStack(Material.DIAMOND, 2));
+        fakeWorld.addContainer(32, 64, 0, 27, new TestItemStack(Material.DIAMOND, 3));
+        fakeWorld.addContainer(48, 64, 0, 27, new TestItemStack(Material.DIAMOND, 4));
+        // Every chunk load costs one simulated millisecond.
+        NetworkContentScanner scanner = new NetworkContentScanner(
+                () -> true, () -> fakeWorld.loadCalls * 1_000_000L);
+        NetworkContentScanner.ScanSession session = scanner.begin("Budget", fakeWorld.locations());
+
+        NetworkContentScanner.ScanStep first = scanner.advanceFor(session, 2_500_000L);
+        assertFalse(first.complete());
+        assertEquals(2, session.processedChunks());
+        assertEquals(1_000_000L, session.averageChunkNanos());
+
+        NetworkContentScanner.ScanStep starved = scanner.advanceFor(session, 0L);
+        assertFalse(starved.complete());
+        assertEquals(3, session.processedChunks(), "a spent budget still advances one chunk");
+
+        NetworkContentScanner.ScanStep last = scanner.advanceFor(session, 50_000_000L);
+        assertTrue(last.complete());
+        assertEquals(10L, last.result().totalItems());
+    }
+
+    @Test
+    void parksUnloadedChunksWhileLoadedChunksKeepScanning() {
+        FakeWorld fakeWorld = new FakeWorld("async", UUID.randomUUID());
+        fakeWorld.addContainer(0, 64, 0, 27, new TestItemStack(Material.DIAMOND, 5));
+        fakeWorld.addContainer(160, 64, 0, 27, new TestItemStack(Material.GOLD_INGOT, 7));
+        fakeWorld.markLoaded(10, 0);
+        fakeWorld.deferLoads = true;
+        NetworkContentScanner scanner = new NetworkContentScanner(() -> true);
+        NetworkContentScanner.ScanSession session = scanner.begin("Async", fakeWorld.locations());
+
+        NetworkContentScanner.ScanStep waiting = scanner.advance(session, 10);
+        assertFalse(waiting.complete());
+        assertEquals(1, session.chunksWaitingForIo());
+        assertEquals(1, session.containersFound(), "the loaded chunk must not wait for the parked one");
+        assertEquals(0, fakeWorld.loadCalls, "nothing may be loaded synchronously");
+
+        fakeWorld.completeDeferred(0, 0);
+        assertEquals(0, session.chunksWaitingForIo());
+
+        NetworkContentScanner.ScanStep done = scanner.advance(session, 10);
+        assertTrue(done.complete());
+        assertEquals(12L, done.result().totalItems());
+        assertEquals(2, done.result().loadedChunks());
+        assertTrue(done.result().hasAuthoritativeData());
     }
 
     @Test
@@ -151,6 +236,8 @@ class NetworkContentScannerTest {
         private final Set<ChunkKey> loaded = ConcurrentHashMap.newKeySet();
         private final Set<ChunkKey> unloadable = ConcurrentHashMap.newKeySet();
         private final Map<ChunkKey, Integer> loadCallsByChunk = new HashMap<>();
+        private final Map<ChunkKey, CompletableFuture<Chunk>> deferred = new HashMap<>();
+        private boolean deferLoads;
         private int loadCalls;
         private final World world;
 
@@ -162,17 +249,17 @@ class NetworkContentScannerTest {
                     case "getUID" -> this.uid;
                     case "getName" -> this.name;
                     case "isChunkLoaded" -> this.loaded.contains(new ChunkKey((int) args[0], (int) args[1]));
-                    case "loadChunk" -> {
-                        int x = (int) args[0];
-                        int z = (int) args[1];
-                        ChunkKey key = new ChunkKey(x, z);
-                        this.loadCalls++;
-                        this.loadCallsByChunk.merge(key, 1, Integer::sum);
-                        if (this.unloadable.contains(key)) {
-                            yield false;
+                    case "loadChunk" -> load((int) args[0], (int) args[1]);
+                    case "getChunkAtAsync" -> {
+                        ChunkKey key = new ChunkKey((int) args[0], (int) args[1]);
+                        if (this.deferLoads) {
+                            CompletableFuture<Chunk> future = new CompletableFuture<>();
+                            this.deferred.put(key, future);
+                            yield future;
                         }
-                        this.loaded.add(key);
-                        yield true;
+                        yield CompletableFuture.completedFuture(
+                                load(key.x(), key.z()) ? proxy(Chunk.class, (chunk, chunkMethod, chunkArgs) ->
+                                        defaultValue(chunkMethod.getReturnType())) : null);
                     }
                     case "getBlockAt" -> {
                         int x;
@@ -194,6 +281,29 @@ class NetworkContentScannerTest {
             });
         }
 
+        private boolean load(int x, int z) {
+            ChunkKey key = new ChunkKey(x, z);
+            this.loadCalls++;
+            this.loadCallsByChunk.merge(key, 1, Integer::sum);
+            if (this.unloadable.contains(key)) {
+                return false;
+            }
+            this.loaded.add(key);
+            return true;
+        }
+
+        /** Completes a deferred asynchronous load as the server's chunk system would. */
+        private void completeDeferred(int chunkX, int chunkZ) {
+            ChunkKey key = new ChunkKey(chunkX, chunkZ);
+            boolean loadedChunk = load(chunkX, chunkZ);
+            this.deferred.remove(key).complete(loadedChunk ? proxy(Chunk.class, (chunk, chunkMethod, chunkArgs) ->
+                    defaultValue(chunkMethod.getReturnType())) : null);
+        }
+
+        private void markLoaded(int chunkX, int chunkZ) {
+            loaded.add(new ChunkKey(chunkX, chunkZ));
+        }
+
         private void addContainer(int x, int y, int z, int size, ItemStack... contents) {
             Inventory inventory = proxy(Inventory.class, (proxy, method, args) -> switch (method.getName()) {
                 case "getSize" -> size;
@@ -203,6 +313,39 @@ class NetworkContentScannerTest {
             addBlock(x, y, z, containerBlock(inventory));
         }
 
+        /** A double chest facing north: the left half at x, the right half at x + 1. */
+        private void addDoubleChest(int x, int y, int z, ItemStack... contents) {
+            ItemStack[] slots = java.util.Arrays.copyOf(contents, 54);
+            Inventory inventory = proxy(Inventory.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getSize" -> 54;
+                case "getContents" -> slots.clone();
+                default -> defaultValue(method.getReturnType());
+            });
+            addBlock(x, y, z, chestHalf(x, y, z, inventory, org.bukkit.block.data.type.Chest.Type.LEFT));
+            addBlock(x + 1, y, z, chestHalf(x + 1, y, z, inventory, org.bukkit.block.data.type.Chest.Type.RIGHT));
+        }
+
+        private Block chestHalf(int x, int y, int z, Inventory inventory, org.bukkit.block.data.type.Chest.Type type) {
+            Chest state = proxy(Chest.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getInventory" -> inventory;
+                default -> defaultValue(method.getReturnType());
+            });
+            org.bukkit.block.data.type.Chest data = proxy(org.bukkit.block.data.type.Chest.class,
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getType" -> type;
+                        case "getFacing" -> BlockFace.NORTH;
+                        default -> defaultValue(method.getReturnType());
+                    });
+            return proxy(Block.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getState" -> state;
+                case "getType" -> Material.CHEST;
+                case "getBlockData" -> data;
+                case "getRelative" -> world.getBlockAt(x + (args[0] == BlockFace.EAST ? 1 : args[0] == BlockFace.WEST ? -1 : 0), y, z);
+                case "getLocation" -> new Location(world, x, y, z);
+                default -> defaultValue(method.getReturnType());
+            });
+        }
+
         private void addInvalidBlock(int x, int y, int z) {
             addBlock(x, y, z, proxy(Block.class, (proxy, method, args) -> switch (method.getName()) {
                 case "getState" -> proxy(BlockState.class, (state, stateMethod, stateArgs) -> defaultValue(stateMethod.getReturnType()));
@@ -0,0 +1,137 @@
+package com.dermoha.networkstorage.managers;
+
+import com.dermoha.networkstorage.storage.Network;
+import org.bukkit.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RefreshCoalescerTest {
+
+    private final Network network = new Network("Global", UUID.randomUUID(), null);
+    private final AtomicLong clock = new AtomicLong();
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final List<Long> delays = new ArrayList<>();
+
+    @Test
+    void aBurstOfChangesRendersEachViewerOnce() {
+        CountingViewer first = new CountingViewer(network);
+        CountingViewer second = new CountingViewer(network);
+        List<Location> handled = new ArrayList<>();
+        List<Boolean> received = new ArrayList<>();
+        RefreshCoalescer coalescer = coalescer(0L, (location, receivedItems) -> {
+            handled.add(location);
+            received.add(receivedItems);
+            return network;
+        }, List.of(first, second));
+        Location chest = new Location(null, 0, 64, 0);
+
+        coalescer.markContainer(chest, false);
+        coalescer.markContainer(chest, true);
+        coalescer.markContainer(chest, false);
+        coalescer.markNetwork(network);
+        coalescer.markViewer(first);
+
+        assertEquals(1, tasks.size(), "one task per tick");
+        runTasks();
+
+        assertEquals(List.of(chest), handled, "a container is re-read once");
+        assertEquals(List.of(true), received, "any deposit in the tick queues the sender");
+        assertEquals(1, first.renders);
+        assertEquals(1, second.renders);
+        assertTrue(coalescer.isIdle());
+    }
+
+    @Test
+    void changesOutsideANetworkRenderNothing() {
+        CountingViewer viewer = new CountingViewer(network);
+        RefreshCoalescer coalescer = coalescer(0L, (location, receivedItems) -> null, List.of(viewer));
+
+        coalescer.markContainer(new Location(null, 0, 64, 0), false);
+        runTasks();
+
+        assertEquals(0, viewer.renders);
+    }
+
+    @Test
+    void aViewerIsNotRedrawnBeforeTheMinimumInterval() {
+        CountingViewer viewer = new CountingViewer(network);
+        // 120ms is two and a bit ticks.
+        RefreshCoalescer coalescer = coalescer(120_000_000L, (location, receivedItems) -> network, List.of(viewer));
+
+        coalescer.markViewer(viewer);
+        runTasks();
+        assertEquals(1, viewer.renders);
+
+        clock.set(50_000_000L);
+        coalescer.markNetwork(network);
+        coalescer.markViewer(viewer);
+        runTasks();
+        assertEquals(1, viewer.renders, "too soon after the last render");
+        assertEquals(1, tasks.size(), "the viewer is deferred, not dropped");
+        assertEquals(2L, delays.get(delays.size() - 1));
+
+        clock.set(120_000_000L);
+        runTasks();
+        assertEquals(2, viewer.renders);
+        assertTrue(coalescer.isIdle());
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    void clearForgetsPendingWork() {
+        CountingViewer viewer = new CountingViewer(network);
+        RefreshCoalescer coalescer = coalescer(0L, (location, receivedItems) -> network, List.of(viewer));
+
+        coalescer.markViewer(viewer);
+        coalescer.clear();
+        runTasks();
+
+        assertEquals(0, viewer.renders);
+    }
+
+    private RefreshCoalescer coalescer(long minIntervalNanos,
+                                       RefreshCoalescer.ContainerHandler handler,
+                                       List<CountingViewer> viewers) {
+        Map<Network, List<CountingViewer>> byNetwork = Map.of(network, viewers);
+        return new RefreshCoalescer(minIntervalNanos, clock::get,
+                (task, delayTicks) -> {
+                    tasks.add(task);
+                    delays.add(delayTicks);
+                },
+                handler,
+                owner -> byNetwork.getOrDefault(owner, List.of()));
+    }
+
+    private void runTasks() {
+        List<Runnable> due = new ArrayList<>(tasks);
+        tasks.clear();
+        due.forEach(Runnable::run);
+    }
+
+    private static final class CountingViewer implements RefreshCoalescer.Viewer {
+        private final Network network;
+        private int renders;
+
+        private CountingViewer(Network network) {
+            this.network = network;
+        }
+
+        @Override
+        public Network getNetwork() {
+            return network;
+        }
+
+        @Override
+        public void updateInventory() {
+            renders++;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.dermoha.networkstorage.managers;
+
+import com.dermoha.networkstorage.storage.Network;
+import org.bukkit.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SenderChestQueueTest {
+
+    private final Network network = new Network("Global", UUID.randomUUID(), null);
+
+    @Test
+    void sendersAreDrainedOnceAfterTheDelay() {
+        AtomicLong clock = new AtomicLong();
+        AtomicInteger wakes = new AtomicInteger();
+        List<Location> drained = new ArrayList<>();
+        SenderChestQueue queue = new SenderChestQueue(100L, 1_000L, clock::get,
+                (owner, location) -> {
+                    drained.add(location);
+                    return false;
+                }, wakes::incrementAndGet);
+        Location sender = new Location(null, 0, 64, 0);
+
+        assertTrue(queue.enqueue(network, sender));
+        assertFalse(queue.enqueue(network, sender), "a waiting sender is not queued twice");
+        assertEquals(1, wakes.get());
+
+        clock.set(99L);
+        assertEquals(0, queue.drainDue());
+        assertTrue(drained.isEmpty());
+
+        clock.set(100L);
+        assertEquals(1, queue.drainDue());
+        assertEquals(List.of(sender), drained);
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.drainDue(), "idle senders cost nothing");
+    }
+
+    @Test
+    void drainingStopsWhenTheTickBudgetIsSpent() {
+        AtomicLong clock = new AtomicLong();
+        List<Location> drained = new ArrayList<>();
+        // Every drain costs 10ns against a 25ns budget.
+        SenderChestQueue queue = new SenderChestQueue(0L, 25L, clock::get,
+                (owner, location) -> {
+                    drained.add(location);
+                    clock.addAndGet(10L);
+                    return false;
+                }, () -> { });
+        for (int x = 0; x < 5; x++) {
+            queue.enqueue(network, new Location(null, x, 64, 0));
+        }
+
+        assertEquals(3, queue.drainDue());
+        assertEquals(2, queue.size());
+        assertEquals(2, queue.drainDue());
+        assertEquals(5, drained.size());
+        assertEquals(0.0, drained.get(0).getX(), "senders are drained in arrival order");
+    }
+
+    @Test
+    void aSenderTheNetworkIsFullForIsRetriedUntilSpaceFreesUp() {
+        AtomicLong clock = new AtomicLong();
+        AtomicInteger inSender = new AtomicInteger(10);
+        AtomicInteger freeSpace = new AtomicInteger();
+        SenderChestQueue queue = new SenderChestQueue(100L, 1_000L, clock::get,
+                (owner, location) -> {
+                    int moved = Math.min(inSender.get(), freeSpace.get());
+                    inSender.addAndGet(-moved);
+                    freeSpace.addAndGet(-moved);
+                    return inSender.get() > 0;
+                }, () -> { });
+        Location sender = new Location(null, 0, 64, 0);
+        queue.enqueue(network, sender);
+
+        clock.set(100L);
+        assertEquals(1, queue.drainDue());
+        assertEquals(1, queue.size(), "a full network leaves the sender queued");
+        assertFalse(queue.enqueue(network, sender), "the retry keeps its backoff");
+
+        long firstRetry = 100L + queue.retryDelay(1);
+        clock.set(firstRetry - 1L);
+        assertEquals(0, queue.drainDue());
+        clock.set(firstRetry);
+        assertEquals(1, queue.drainDue());
+        assertEquals(1, queue.size());
+        assertEquals(2 * queue.retryDelay(1), queue.retryDelay(2), "consecutive retries back off");
+
+        freeSpace.set(64);
+        clock.set(firstRetry + queue.retryDelay(2));
+        assertEquals(1, queue.drainDue());
+        assertEquals(0, inSender.get());
+        assertTrue(queue.isEmpty(), "an emptied sender is not retried");
+        assertEquals(SenderChestQueue.MAX_RETRY_NANOS, queue.retryDelay(100));
+    }
+}
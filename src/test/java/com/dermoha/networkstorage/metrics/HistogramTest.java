@@ -0,0 +1,62 @@
+package com.dermoha.networkstorage.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    @Test
+    void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= 10; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(10, histogram.count());
+        assertEquals(55, histogram.sum());
+        assertEquals(10, histogram.max());
+        assertEquals(5, histogram.valueAt(0.5));
+        assertEquals(9, histogram.valueAt(0.9));
+        assertEquals(10, histogram.valueAt(1.0));
+    }
+
+    @Test
+    void largeValuesStayWithinThePrecision() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1_000_000L);
+        }
+        histogram.record(250_000_000L);
+
+        long median = histogram.valueAt(0.5);
+        assertTrue(median >= 1_000_000L && median <= 1_032_000L, "median " + median);
+        assertEquals(250_000_000L, histogram.valueAt(0.999), "never above the recorded maximum");
+    }
+
+    @Test
+    void bucketsCoverTheWholeRange() {
+        for (long value : new long[] {0L, 31L, 32L, 33L, 1L << 40, Long.MAX_VALUE}) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(Histogram.highestEquivalent(bucket) >= value, "value " + value);
+            if (bucket > 0) {
+                assertTrue(Histogram.highestEquivalent(bucket - 1) < value, "value " + value);
+            }
+        }
+    }
+
+    @Test
+    void emptyAndResetHistogramsReportZero() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.valueAt(0.99));
+
+        histogram.record(-5L);
+        assertEquals(0, histogram.max(), "negative durations are clamped");
+        histogram.record(42L);
+        histogram.reset();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.valueAt(0.5));
+    }
+}
@@ -0,0 +1,73 @@
+package com.dermoha.networkstorage.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerformanceMetricsTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void ratesCoverOnlyTheLastMinute() {
+        AtomicLong clock = new AtomicLong(100 * SECOND);
+        PerformanceMetrics metrics = new PerformanceMetrics(clock::get);
+
+        metrics.add(PerformanceMetrics.Counter.ITEMS_DEPOSITED, 600);
+        clock.addAndGet(30 * SECOND);
+        metrics.add(PerformanceMetrics.Counter.ITEMS_DEPOSITED, 60);
+        assertEquals(11.0, metrics.ratePerSecond(PerformanceMetrics.Counter.ITEMS_DEPOSITED), 1e-9);
+
+        clock.addAndGet(40 * SECOND);
+        assertEquals(1.0, metrics.ratePerSecond(PerformanceMetrics.Counter.ITEMS_DEPOSITED), 1e-9);
+        assertEquals(660, metrics.count(PerformanceMetrics.Counter.ITEMS_DEPOSITED), "totals never expire");
+
+        metrics.add(PerformanceMetrics.Counter.ITEMS_WITHDRAWN, 0);
+        assertEquals(0, metrics.count(PerformanceMetrics.Counter.ITEMS_WITHDRAWN));
+    }
+
+    @Test
+    void timersAreExportedInSecondsAsPrometheusSummaries() {
+        AtomicLong clock = new AtomicLong();
+        PerformanceMetrics metrics = new PerformanceMetrics(clock::get);
+        long started = metrics.now();
+        clock.set(2_000_000L);
+        metrics.recordSince(PerformanceMetrics.Timer.SQLITE_SAVE, started);
+        metrics.increment(PerformanceMetrics.Counter.CHUNK_LOADS);
+        metrics.set(PerformanceMetrics.Gauge.LEASED_CHUNKS, 12);
+
+        String exposition = metrics.toPrometheus();
+
+        assertTrue(exposition.contains("# TYPE networkstorage_sqlite_save_seconds summary\n"));
+        assertTrue(exposition.contains("networkstorage_sqlite_save_seconds_count 1\n"));
+        assertTrue(exposition.contains("networkstorage_sqlite_save_seconds_sum 0.002\n"));
+        assertTrue(exposition.contains("networkstorage_sqlite_save_seconds{quantile=\"0.99\"} 0.002\n"));
+        assertTrue(exposition.contains("# TYPE networkstorage_chunk_loads_total counter\n"));
+        assertTrue(exposition.contains("networkstorage_chunk_loads_total 1\n"));
+        assertTrue(exposition.contains("networkstorage_scan_chunks_per_tick_count 0\n"));
+        assertTrue(exposition.contains("# TYPE networkstorage_leased_chunks gauge\n"));
+        assertTrue(exposition.contains("networkstorage_leased_chunks 12\n"));
+        for (String line : exposition.split("\n")) {
+            assertTrue(line.startsWith("# ") || line.startsWith("networkstorage_"), line);
+        }
+    }
+
+    @Test
+    void dumpReplacesTheFileWhole() throws Exception {
+        PerformanceMetrics metrics = new PerformanceMetrics(System::nanoTime);
+        Path directory = Files.createTempDirectory("metrics");
+        Path target = directory.resolve("metrics.prom");
+        Files.writeString(target, "stale");
+
+        metrics.writePrometheus(target);
+
+        assertEquals(metrics.toPrometheus(), Files.readString(target));
+        assertFalse(Files.exists(directory.resolve("metrics.prom.tmp")));
+    }
+}
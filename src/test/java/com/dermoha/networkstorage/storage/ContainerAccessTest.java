@@ -0,0 +1,199 @@
+package com.dermoha.networkstorage.storage;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Chest;
+import org.bukkit.block.Container;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ContainerAccessTest {
+
+    @Test
+    void resolvesLiveStatesOncePerTick() {
+        FakeBlock block = new FakeBlock(Material.CHEST);
+        AtomicInteger tick = new AtomicInteger(1);
+        ContainerAccess access = new ContainerAccess(tick::get);
+
+        Container first = access.container(block.location);
+        assertNotNull(first);
+        assertSame(first, access.container(block.location));
+        assertEquals(1, block.stateLookups.get());
+        assertEquals(0, block.snapshotLookups.get(), "only non-snapshot states are requested");
+
+        tick.incrementAndGet();
+        assertNotSame(first, access.container(block.location), "a new tick resolves the block again");
+        assertEquals(2, block.stateLookups.get());
+    }
+
+    @Test
+    void aChangedBlockTypeIsResolvedAgainWithinTheTick() {
+        FakeBlock block = new FakeBlock(Material.CHEST);
+        ContainerAccess access = new ContainerAccess(() -> 1);
+
+        assertNotNull(access.container(block.location));
+        block.type = Material.STONE;
+
+        assertNull(access.container(block.location));
+        assertNull(access.container(block.location));
+        assertEquals(2, block.stateLookups.get());
+    }
+
+    @Test
+    void forgottenLocationsAreResolvedAgain() {
+        FakeBlock block = new FakeBlock(Material.CHEST);
+        ContainerAccess access = new ContainerAccess(() -> 1);
+
+        Container first = access.container(block.location);
+        access.forget(block.location);
+
+        assertNotSame(first, access.container(block.location));
+        assertEquals(2, block.stateLookups.get());
+    }
+
+    @Test
+    void uncachedAccessResolvesEveryLookup() {
+        FakeBlock block = new FakeBlock(Material.BARREL);
+        ContainerAccess access = ContainerAccess.uncached();
+
+        assertNotNull(access.container(block.location));
+        assertNotNull(access.container(block.location));
+        assertEquals(2, block.stateLookups.get());
+        assertEquals(0, block.snapshotLookups.get());
+        assertNull(access.container(null));
+    }
+
+    @Test
+    void bothHalvesOfADoubleChestShareTheLeftHalfAsIdentity() {
+        FakeBlock right = new FakeBlock(Material.CHEST);
+        right.chestType = org.bukkit.block.data.type.Chest.Type.RIGHT;
+        ContainerAccess access = new ContainerAccess(() -> 1);
+
+        // Facing north, the left half of a right half is to the west.
+        Location left = new Location(right.location.getWorld(), 3, 64, 8);
+        assertEquals(left, access.identity(right.location));
+        assertEquals(left, access.otherHalf(right.location));
+
+        right.chestType = org.bukkit.block.data.type.Chest.Type.SINGLE;
+        access.forget(right.location);
+        assertEquals(right.location, access.identity(right.location));
+        assertNull(access.otherHalf(right.location));
+    }
+
+    @Test
+    void placingAChestBesideAResolvedOneUpdatesItsHalves() {
+        FakeBlock chest = new FakeBlock(Material.CHEST);
+        ContainerAccess access = new ContainerAccess(() -> 1);
+        assertNull(access.otherHalf(chest.location));
+
+        // A chest placed to the west joins it; the block type stays CHEST.
+        chest.chestType = org.bukkit.block.data.type.Chest.Type.RIGHT;
+        Location placed = new Location(chest.location.getWorld(), 3, 64, 8);
+        access.forgetAround(placed);
+
+        assertEquals(placed, access.otherHalf(chest.location));
+        assertEquals(placed, access.identity(chest.location));
+    }
+
+    @Test
+    void identityOfANonContainerIsNull() {
+        FakeBlock block = new FakeBlock(Material.STONE);
+
+        assertNull(ContainerAccess.uncached().identity(block.location));
+        assertNull(new ContainerAccess(() -> 1).identity(block.location));
+    }
+
+    private static final class FakeBlock {
+        private final AtomicInteger stateLookups = new AtomicInteger();
+        private final AtomicInteger snapshotLookups = new AtomicInteger();
+        private final Location location;
+        private Material type;
+        private org.bukkit.block.data.type.Chest.Type chestType = org.bukkit.block.data.type.Chest.Type.SINGLE;
+
+        private FakeBlock(Material type) {
+            this.type = type;
+            World[] world = new World[1];
+            org.bukkit.block.data.type.Chest data = proxy(org.bukkit.block.data.type.Chest.class,
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getType" -> chestType;
+                        case "getFacing" -> BlockFace.NORTH;
+                        default -> defaultValue(method.getReturnType());
+                    });
+            Block block = proxy(Block.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getType" -> this.type;
+                case "getState" -> state(args != null && Boolean.FALSE.equals(args[0]));
+                case "getBlockData" -> data;
+                case "getRelative" -> neighbour(world[0], (BlockFace) args[0]);
+                default -> defaultValue(method.getReturnType());
+            });
+            world[0] = proxy(World.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getBlockAt" -> block;
+                case "getName" -> "world";
+                default -> defaultValue(method.getReturnType());
+            });
+            this.location = new Location(world[0], 4, 64, 8);
+        }
+
+        private Block neighbour(World world, BlockFace face) {
+            int x = 4 + (face == BlockFace.EAST ? 1 : face == BlockFace.WEST ? -1 : 0);
+            return proxy(Block.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getLocation" -> new Location(world, x, 64, 8);
+                default -> defaultValue(method.getReturnType());
+            });
+        }
+
+        private BlockState state(boolean live) {
+            (live ? stateLookups : snapshotLookups).incrementAndGet();
+            if (type == Material.CHEST) {
+                return proxy(Chest.class, (proxy, method, args) -> defaultValue(method.getReturnType()));
+            }
+            if (type == Material.BARREL) {
+                return proxy(Container.class, (proxy, method, args) -> defaultValue(method.getReturnType()));
+            }
+            return proxy(BlockState.class, (proxy, method, args) -> defaultValue(method.getReturnType()));
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return switch (method.getName()) {
+                            case "equals" -> proxy == args[0];
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            case "toString" -> type.getSimpleName() + "Proxy";
+                            default -> null;
+                        };
+                    }
+                    return handler.invoke(proxy, method, args);
+                }));
+    }
+
+    private static Object defaultValue(Class<?> returnType) {
+        if (!returnType.isPrimitive()) {
+            return null;
+        }
+        if (returnType == boolean.class) return false;
+        if (returnType == byte.class) return (byte) 0;
+        if (returnType == short.class) return (short) 0;
+        if (returnType == int.class) return 0;
+        if (returnType == long.class) return 0L;
+        if (returnType == float.class) return 0.0f;
+        if (returnType == double.class) return 0.0d;
+        if (returnType == char.class) return '\0';
+        return null;
+    }
+}
@@ -0,0 +1,60 @@
+package com.dermoha.networkstorage.storage;
+
+import com.dermoha.networkstorage.TestItemStack;
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ItemCountMapTest {
+
+    @Test
+    void matchesABoxedReferenceMapUnderRandomAddsAndRemovals() {
+        List<ItemKey> keys = new ArrayList<>();
+        for (Material material : Material.values()) {
+            keys.add(ItemKey.of(new TestItemStack(material, 1)));
+        }
+        ItemCountMap counts = new ItemCountMap();
+        Map<ItemKey, Long> reference = new HashMap<>();
+        Random random = new Random(42L);
+
+        for (int i = 0; i < 20_000; i++) {
+            ItemKey key = keys.get(random.nextInt(keys.size()));
+            long amount = random.nextInt(200) - 90;
+            counts.add(key, amount);
+            reference.compute(key, (ignored, current) -> {
+                long base = current == null ? 0L : current;
+                if (current == null && amount < 0L) {
+                    return null;
+                }
+                long updated = base + amount;
+                return updated > 0L ? updated : null;
+            });
+        }
+
+        assertEquals(reference.size(), counts.size());
+        for (ItemKey key : keys) {
+            assertEquals(reference.getOrDefault(key, 0L), counts.get(key), key.toString());
+        }
+    }
+
+    @Test
+    void frozenCountsRejectMutation() {
+        ItemKey diamond = ItemKey.of(new TestItemStack(Material.DIAMOND, 1));
+        ItemCountMap counts = new ItemCountMap();
+        counts.add(diamond, 3L);
+        ItemCounts snapshot = counts.snapshot();
+        counts.add(diamond, 4L);
+
+        assertEquals(3L, snapshot.get(diamond));
+        assertEquals(7L, counts.get(diamond));
+        assertThrows(UnsupportedOperationException.class, () -> ((ItemCountMap) snapshot).add(diamond, 1L));
+    }
+}
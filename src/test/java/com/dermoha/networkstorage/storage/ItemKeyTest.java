@@ -0,0 +1,155 @@
+package com.dermoha.networkstorage.storage;
+
+import com.dermoha.networkstorage.TestItemStack;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ItemKeyTest {
+
+    @Test
+    void identicalItemsShareOneInternedKeyRegardlessOfAmount() {
+        ItemKey single = ItemKey.of(new TestItemStack(Material.DIAMOND, 1));
+        ItemKey stack = ItemKey.of(new TestItemStack(Material.DIAMOND, 64));
+
+        assertSame(single, stack);
+        assertNotSame(single, ItemKey.of(new TestItemStack(Material.GOLD_INGOT, 64)));
+        assertEquals(Material.DIAMOND, stack.getType());
+    }
+
+    @Test
+    void keysDoNotRetainOrExposeCallerStacks() {
+        ItemStack source = new TestItemStack(Material.EMERALD, 1);
+        ItemKey key = ItemKey.of(source);
+        source.setAmount(32);
+
+        ItemStack copy = key.toItemStack(5);
+        assertEquals(5, copy.getAmount());
+        copy.setAmount(9);
+        assertEquals(1, key.toItemStack().getAmount());
+        assertSame(key, ItemKey.of(new TestItemStack(Material.EMERALD, 7)));
+    }
+
+    @Test
+    void metaLessLookupsReuseTheKeyWithoutCopyingTheStack() {
+        CountingStack stack = new CountingStack(Material.COBBLESTONE, 64, null);
+        ItemKey key = ItemKey.of(stack);
+        int copies = stack.clones;
+
+        for (int i = 0; i < 100; i++) {
+            assertSame(key, ItemKey.of(stack));
+        }
+        assertEquals(copies, stack.clones, "lookups of an existing key copy nothing");
+        assertEquals(0, stack.similarityChecks);
+    }
+
+    @Test
+    void stacksWithMetaAreOnlyComparedWithinTheirFingerprint() {
+        for (int i = 0; i < 200; i++) {
+            ItemKey.of(new CountingStack(Material.NAME_TAG, 1, "tag " + i));
+        }
+        ItemKey named = ItemKey.of(new CountingStack(Material.NAME_TAG, 1, "Rex"));
+        CountingStack probe = new CountingStack(Material.NAME_TAG, 16, "Rex");
+        CountingStack.comparedAgainst = 0;
+
+        assertSame(named, ItemKey.of(probe));
+        assertEquals(1, CountingStack.comparedAgainst, "only the key with the same meta hash is compared");
+        assertEquals(0, probe.clones);
+    }
+
+    @Test
+    void lookupDoesNotGrowThePool() {
+        int before = ItemKey.poolSize();
+        ItemKey unknown = ItemKey.lookup(new CountingStack(Material.PAPER, 3, "never interned"));
+
+        assertEquals(before, ItemKey.poolSize());
+        assertEquals(Material.PAPER, unknown.getType());
+        ItemKey interned = ItemKey.of(new TestItemStack(Material.OAK_LOG, 1));
+        assertSame(interned, ItemKey.lookup(new TestItemStack(Material.OAK_LOG, 9)));
+    }
+
+    /** A stack whose meta is reduced to a display name; counts copies and comparisons. */
+    private static final class CountingStack extends ItemStack {
+        private static int comparedAgainst;
+        private final Material type;
+        private final String name;
+        private int amount;
+        private int clones;
+        private int similarityChecks;
+
+        private CountingStack(Material type, int amount, String name) {
+            super();
+            this.type = type;
+            this.amount = amount;
+            this.name = name;
+        }
+
+        @Override
+        public Material getType() {
+            return type;
+        }
+
+        @Override
+        public int getAmount() {
+            return amount;
+        }
+
+        @Override
+        public void setAmount(int amount) {
+            this.amount = amount;
+        }
+
+        @Override
+        public boolean hasItemMeta() {
+            return name != null;
+        }
+
+        @Override
+        public ItemMeta getItemMeta() {
+            if (name == null) {
+                return null;
+            }
+            return (ItemMeta) Proxy.newProxyInstance(ItemMeta.class.getClassLoader(), new Class<?>[]{ItemMeta.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "hashCode" -> name.hashCode();
+                        case "equals" -> proxy == args[0];
+                        case "getDisplayName" -> name;
+                        default -> null;
+                    });
+        }
+
+        @Override
+        public boolean isSimilar(ItemStack other) {
+            similarityChecks++;
+            if (other instanceof CountingStack stack && stack.name != null && stack.name.equals("Rex")) {
+                comparedAgainst++;
+            }
+            return other instanceof CountingStack stack && stack.type == type && Objects.equals(stack.name, name);
+        }
+
+        @Override
+        public ItemStack clone() {
+            clones++;
+            return new CountingStack(type, amount, name);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof CountingStack stack && stack.type == type && Objects.equals(stack.name, name)
+                    && stack.amount == amount;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, name, amount);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.dermoha.networkstorage.storage;
+
+import com.dermoha.networkstorage.TestItemStack;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NetworkContentIndexTest {
+
+    private static final ItemKey DIAMOND = ItemKey.of(new TestItemStack(Material.DIAMOND, 1));
+    private static final ItemKey GOLD = ItemKey.of(new TestItemStack(Material.GOLD_INGOT, 1));
+
+    @Test
+    void updatingOneContainerAdjustsNetworkTotalsByTheDifference() {
+        Location first = new Location(null, 0, 64, 0);
+        Location second = new Location(null, 16, 64, 0);
+        NetworkContentIndex index = new NetworkContentIndex();
+        assertFalse(index.isAuthoritative());
+
+        index.reset(Map.of(
+                first, new ContainerContents(27, 1, 40L, counts(DIAMOND, 40)),
+                second, new ContainerContents(27, 2, 70L, counts(DIAMOND, 6, GOLD, 64))));
+        assertTrue(index.isAuthoritative());
+
+        NetworkScanResult seeded = index.toScanResult("Global", 2, 1, 1, 0L);
+        assertEquals(110L, seeded.totalItems());
+        assertEquals(46L, seeded.items().get(DIAMOND));
+        assertEquals(54L, seeded.totalSlots());
+
+        assertTrue(index.update(second, new ContainerContents(27, 1, 6L, counts(DIAMOND, 6))));
+        assertFalse(index.update(second, new ContainerContents(27, 1, 6L, counts(DIAMOND, 6))),
+                "re-reading unchanged contents is not a content change");
+
+        NetworkScanResult updated = index.toScanResult("Global", 2, 1, 1, 0L);
+        assertEquals(NetworkScanStatus.COMPLETE, updated.status());
+        assertEquals(46L, updated.totalItems());
+        assertEquals(1, updated.uniqueTypes());
+        assertEquals(0L, updated.items().get(GOLD));
+        assertEquals(2L, updated.usedSlots());
+    }
+
+    @Test
+    void removedContainersLeaveTheTotalsAndInvalidationDropsAuthority() {
+        Location chest = new Location(null, 0, 64, 0);
+        NetworkContentIndex index = new NetworkContentIndex();
+        index.reset(Map.of(chest, new ContainerContents(27, 1, 12L, counts(GOLD, 12))));
+
+        assertTrue(index.remove(chest));
+        assertFalse(index.remove(chest));
+        NetworkScanResult result = index.toScanResult("Global", 0, 0, 0, 0L);
+        assertEquals(0L, result.totalItems());
+        assertEquals(0, result.containersFound());
+
+        index.invalidate();
+        assertFalse(index.isAuthoritative());
+    }
+
+    @Test
+    void tracksWhichContainersHoldEachItem() {
+        Location first = new Location(null, 0, 64, 0);
+        Location second = new Location(null, 16, 64, 0);
+        NetworkContentIndex index = new NetworkContentIndex();
+        index.reset(Map.of(
+                first, new ContainerContents(27, 1, 40L, counts(DIAMOND, 40)),
+                second, new ContainerContents(27, 2, 70L, counts(DIAMOND, 6, GOLD, 64))));
+
+        assertEquals(List.of(second), index.containersHolding(GOLD));
+        assertEquals(2, index.containersHolding(DIAMOND).size());
+
+        index.update(second, new ContainerContents(27, 1, 64L, counts(GOLD, 64)));
+        assertEquals(List.of(first), index.containersHolding(DIAMOND));
+        assertEquals(40L, index.count(DIAMOND));
+
+        index.remove(second);
+        assertTrue(index.containersHolding(GOLD).isEmpty());
+    }
+
+    @Test
+    void depositTargetsPreferPartialStacksAndSkipFullContainers() {
+        Location full = new Location(null, 0, 64, 0);
+        Location partial = new Location(null, 16, 64, 0);
+        Location empty = new Location(null, 32, 64, 0);
+        NetworkContentIndex index = new NetworkContentIndex();
+        index.reset(Map.of(
+                full, new ContainerContents(1, 1, 64L, counts(DIAMOND, 64)),
+                partial, new ContainerContents(1, 1, 10L, counts(DIAMOND, 10), List.of(DIAMOND), Set.of(DIAMOND)),
+                empty, new ContainerContents(27, 0, 0L, ItemCounts.EMPTY)));
+
+        assertEquals(List.of(partial, empty), targets(index, DIAMOND));
+        assertEquals(List.of(empty), targets(index, GOLD));
+
+        index.update(partial, new ContainerContents(1, 1, 64L, counts(DIAMOND, 64)));
+        assertEquals(List.of(empty), targets(index, DIAMOND));
+
+        index.remove(empty);
+        assertFalse(index.depositTargets(DIAMOND).hasNext());
+    }
+
+    @Test
+    void depositTargetsAreProducedLazilyAndOnlyOnce() {
+        Location both = new Location(null, 0, 64, 0);
+        Location empty = new Location(null, 16, 64, 0);
+        NetworkContentIndex index = new NetworkContentIndex();
+        index.reset(Map.of(
+                both, new ContainerContents(27, 1, 10L, counts(DIAMOND, 10), List.of(DIAMOND), Set.of(DIAMOND)),
+                empty, new ContainerContents(27, 0, 0L, ItemCounts.EMPTY)));
+
+        Iterator<Location> targets = index.depositTargets(DIAMOND);
+        assertEquals(both, targets.next(), "the partial holder comes first");
+        assertEquals(empty, targets.next(), "a partial holder with empty slots is not repeated");
+        assertFalse(targets.hasNext());
+    }
+
+    private static List<Location> targets(NetworkContentIndex index, ItemKey key) {
+        List<Location> targets = new ArrayList<>();
+        index.depositTargets(key).forEachRemaining(targets::add);
+        return targets;
+    }
+
+    private static ItemCounts counts(Object... keysAndAmounts) {
+        ItemCountMap counts = new ItemCountMap();
+        for (int i = 0; i < keysAndAmounts.length; i += 2) {
+            counts.add((ItemKey) keysAndAmounts[i], ((Number) keysAndAmounts[i + 1]).longValue());
+        }
+        return counts.freeze();
+    }
+}
@@ -0,0 +1,126 @@
+package com.dermoha.networkstorage.storage;
+
+import com.dermoha.networkstorage.TestItemStack;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NetworkMovementTest {
+
+    private final UUID playerId = UUID.randomUUID();
+    private final ItemStack[] slots = new ItemStack[36];
+    private final Player player = player();
+    private final Network network = new Network("Bulk", UUID.randomUUID(), null);
+    private final AtomicInteger cellSaves = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        network.setPrimaryThreadCheck(() -> true);
+        network.setStorageCellListener(cellSaves::incrementAndGet);
+    }
+
+    @Test
+    void leftoversStayInThePlayerSlotsTheyCameFrom() {
+        StorageCell cell = cell(100L);
+        slots[0] = new TestItemStack(Material.STONE, 64);
+        slots[5] = new TestItemStack(Material.DIRT, 64);
+        slots[8] = new TestItemStack(Material.OAK_LOG, 10);
+
+        NetworkMovement.BatchResult result = network.getMovement().depositAllFromPlayer(player);
+
+        assertEquals(new NetworkMovement.BatchResult(3, 100, 38), result);
+        assertNull(slots[0]);
+        assertEquals(new TestItemStack(Material.DIRT, 28), slots[5]);
+        assertEquals(new TestItemStack(Material.OAK_LOG, 10), slots[8]);
+        assertNull(slots[3], "empty slots stay empty");
+        assertEquals(100L, cell.storedAmount());
+    }
+
+    @Test
+    void aNetworkThatFillsMidBatchStoresWhatFitsInOrder() {
+        StorageCell cell = cell(100L);
+        slots[0] = new TestItemStack(Material.STONE, 64);
+        slots[1] = new TestItemStack(Material.DIRT, 64);
+        slots[2] = new TestItemStack(Material.OAK_LOG, 10);
+
+        network.getMovement().depositAllFromPlayer(player);
+
+        assertEquals(64L, cell.count(ItemKey.of(new TestItemStack(Material.STONE, 1))));
+        assertEquals(36L, cell.count(ItemKey.of(new TestItemStack(Material.DIRT, 1))));
+        assertEquals(0L, cell.count(ItemKey.of(new TestItemStack(Material.OAK_LOG, 1))));
+        assertEquals(100L, network.getTotalStoredAmount());
+        assertEquals(100L, network.getPlayerStat(player).getItemsDeposited(), "only stored items are credited");
+    }
+
+    @Test
+    void aBatchRequestsOneCellSaveAndOneContentChange() {
+        cell(1_000L);
+        for (int slot = 0; slot < 5; slot++) {
+            slots[slot] = new TestItemStack(Material.STONE, 64);
+        }
+        long contentVersion = network.getContentVersion();
+
+        NetworkMovement.BatchResult result = network.getMovement().depositAllFromPlayer(player);
+
+        assertEquals(320, result.moved());
+        assertEquals(1, cellSaves.get());
+        assertEquals(contentVersion + 1, network.getContentVersion());
+    }
+
+    @Test
+    void aBatchNothingFitsInRequestsNoSave() {
+        StorageCell cell = cell(64L);
+        slots[0] = new TestItemStack(Material.STONE, 64);
+        network.getMovement().depositAllFromPlayer(player);
+        cellSaves.set(0);
+        slots[1] = new TestItemStack(Material.DIRT, 32);
+
+        NetworkMovement.BatchResult result = network.getMovement().depositAllFromPlayer(player);
+
+        assertEquals(new NetworkMovement.BatchResult(1, 0, 32), result);
+        assertEquals(new TestItemStack(Material.DIRT, 32), slots[1]);
+        assertEquals(0, cellSaves.get());
+        assertEquals(64L, cell.storedAmount());
+    }
+
+    private StorageCell cell(long capacity) {
+        StorageCell cell = new StorageCell(1, capacity, new StorageCellTest.CountingCodec());
+        network.restoreStorageCell(cell);
+        return cell;
+    }
+
+    private Player player() {
+        PlayerInventory inventory = (PlayerInventory) Proxy.newProxyInstance(PlayerInventory.class.getClassLoader(),
+                new Class<?>[] {PlayerInventory.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getContents" -> slots.clone();
+                    case "getSize" -> slots.length;
+                    case "getItem" -> slots[(int) args[0]];
+                    case "setItem" -> {
+                        slots[(int) args[0]] = (ItemStack) args[1];
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[] {Player.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getUniqueId" -> playerId;
+                    case "getName" -> "Tester";
+                    case "getInventory" -> inventory;
+                    case "hashCode" -> playerId.hashCode();
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
@@ -6,7 +6,6 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.Material;
 import org.junit.jupiter.api.Test;
 
-import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -19,9 +18,11 @@ class NetworkScanResultTest {
     void pendingAndIncompleteScansPreserveLastCompleteSnapshot() {
         Network network = new Network("Global", UUID.randomUUID(), new FakeAccessRules());
         ItemStack diamonds = new TestItemStack(Material.DIAMOND, 1);
+        ItemCountMap counts = new ItemCountMap();
+        counts.add(ItemKey.of(diamonds), 47_312L);
         NetworkScanResult complete = NetworkScanResult.complete(
                 "Global", 1, 1, 1, 1, 47_312L, 27, 1,
-                Map.of(diamonds, 47_312), System.currentTimeMillis());
+                counts, System.currentTimeMillis());
 
         network.applyScanResult(complete);
         assertTrue(network.hasCompleteScan());
@@ -32,11 +33,11 @@ class NetworkScanResultTest {
         assertEquals(version + 1, network.getContentVersion());
         assertEquals(NetworkScanStatus.PENDING, network.getScanResult().status());
         assertEquals(47_312L, network.getScanResult().totalItems());
-        assertEquals(47_312, network.getNetworkItems().values().iterator().next());
+        assertEquals(47_312L, network.getNetworkItems().get(ItemKey.of(diamonds)));
 
         NetworkScanResult incomplete = new NetworkScanResult(
                 "Global", NetworkScanStatus.INCOMPLETE, 1, 1, 0, 0,
-                0L, 0, 27, 0, 0.0, Map.of(), false,
+                0L, 0, 27, 0, 0.0, ItemCounts.EMPTY, false,
                 java.util.List.of("container unavailable"), System.currentTimeMillis());
         network.applyScanResult(incomplete);
 
@@ -44,14 +45,30 @@ class NetworkScanResultTest {
         assertFalse(network.getScanResult().hasAuthoritativeData());
         assertEquals(47_312L, network.getScanResult().totalItems());
         assertEquals(47_312L, network.getLastCompleteStoredAmount());
-        assertEquals(47_312, network.getNetworkItems().values().iterator().next());
+        assertEquals(47_312L, network.getNetworkItems().get(ItemKey.of(diamonds)));
+    }
+
+    @Test
+    void countsBeyondIntegerRangeDoNotOverflow() {
+        ItemKey cobblestone = ItemKey.of(new TestItemStack(Material.COBBLESTONE, 1));
+        ItemCountMap counts = new ItemCountMap();
+        counts.add(cobblestone, Integer.MAX_VALUE);
+        counts.add(cobblestone, Integer.MAX_VALUE);
+
+        NetworkScanResult result = NetworkScanResult.complete(
+                "Quarry", 1, 1, 1, 1, 2L * Integer.MAX_VALUE, 27, 27, counts, System.currentTimeMillis());
+        counts.clear();
+
+        assertEquals(2L * Integer.MAX_VALUE, result.items().get(cobblestone),
+                "the result keeps its own immutable copy");
+        assertEquals(1, result.uniqueTypes());
     }
 
     @Test
     void emptyCompleteScanIsAuthoritativeZeroInsteadOfUnknownZero() {
         Network network = new Network("Empty", UUID.randomUUID(), new FakeAccessRules());
         network.applyScanResult(NetworkScanResult.complete(
-                "Empty", 0, 0, 0, 0, 0L, 0L, 0L, Map.of(), System.currentTimeMillis()));
+                "Empty", 0, 0, 0, 0, 0L, 0L, 0L, ItemCounts.EMPTY, System.currentTimeMillis()));
 
         assertTrue(network.hasCompleteScan());
         assertTrue(network.getScanResult().hasAuthoritativeData());
@@ -1,15 +1,20 @@
 package com.dermoha.networkstorage.storage;
 
+import com.dermoha.networkstorage.TestItemStack;
+import org.bukkit.Material;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Proxy;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class NetworkTest {
@@ -50,6 +55,46 @@ class NetworkTest {
         assertTrue(network.canAccess(untrusted));
     }
 
+    @Test
+    void restoredScanIsShownButStaysPendingUntilRescanned() {
+        Network network = new Network("Cached", UUID.randomUUID(), new FakeAccessRules(false, false));
+        NetworkScanResult cached = NetworkScanResult.complete("Cached", 2, 1, 1, 2, 40L, 54L, 2L,
+                ItemCounts.EMPTY, 1_000L);
+
+        network.restoreLastCompleteScan(cached);
+
+        assertSame(cached, network.getLastCompleteScan());
+        assertEquals(NetworkScanStatus.PENDING, network.getScanResult().status());
+        assertFalse(network.getScanResult().hasAuthoritativeData());
+        assertEquals(40L, network.getScanResult().totalItems());
+        assertEquals(40L, network.getTotalStoredAmount());
+    }
+
+    @Test
+    void storageCellsAreMergedIntoScansWithoutAScan() {
+        Network network = new Network("Cells", UUID.randomUUID(), new FakeAccessRules(false, false));
+        ItemKey diamond = ItemKey.of(new TestItemStack(Material.DIAMOND, 1));
+        ItemCountMap scanned = new ItemCountMap();
+        scanned.add(diamond, 40L);
+        NetworkScanResult cached = NetworkScanResult.complete("Cells", 2, 1, 1, 2, 40L, 54L, 2L,
+                scanned.freeze(), 1_000L);
+        network.restoreLastCompleteScan(cached);
+        network.restoreStorageCell(StorageCell.restore(new StorageSnapshot.CellData(1, 1000L,
+                List.of(StorageCellTest.row("DIAMOND", 25L), StorageCellTest.row("STONE", 5L))),
+                new StorageCellTest.CountingCodec()));
+
+        NetworkScanResult merged = network.getLastCompleteScan();
+        assertEquals(70L, merged.totalItems());
+        assertEquals(65L, merged.items().get(diamond));
+        assertEquals(2, merged.uniqueTypes());
+        assertEquals(NetworkScanStatus.PENDING, network.getScanResult().status());
+        assertEquals(70L, network.getScanResult().totalItems());
+        assertSame(merged, network.getLastCompleteScan(), "unchanged cells reuse the merged result");
+        assertSame(cached, network.getLastCompleteContainerScan());
+        assertEquals(70L, network.getTotalStoredAmount());
+        assertEquals(30L, network.getStorageCellAmount());
+    }
+
     @Test
     void globalNetworkModeAllowsAccess() {
         Player player = player(UUID.randomUUID());
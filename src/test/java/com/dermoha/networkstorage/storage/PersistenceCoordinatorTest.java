@@ -41,6 +41,20 @@ class PersistenceCoordinatorTest {
         }
     }
 
+    @Test
+    void writesAfterTheFirstCarryTheLastCommittedSnapshotAsTheirBase() throws Exception {
+        FakeProvider provider = new FakeProvider(true);
+        StorageSnapshot next = new StorageSnapshot(java.util.List.of(), Map.of(UUID.randomUUID(), "Main"), Map.of());
+        try (PersistenceCoordinator coordinator = new PersistenceCoordinator(
+                provider, Logger.getAnonymousLogger(), 0)) {
+            coordinator.request(EMPTY);
+            assertTrue(coordinator.flush(Duration.ofSeconds(2)));
+            coordinator.request(next);
+            assertTrue(coordinator.flush(Duration.ofSeconds(2)));
+        }
+        assertEquals(java.util.Arrays.asList(null, EMPTY), provider.bases);
+    }
+
     private void awaitStatus(PersistenceCoordinator coordinator,
                              PersistenceCoordinator.Status expected) throws Exception {
         long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
@@ -58,11 +72,18 @@ class PersistenceCoordinatorTest {
             this.result = result;
         }
 
+        private final java.util.List<StorageSnapshot> bases = new java.util.concurrent.CopyOnWriteArrayList<>();
+
         @Override public boolean saveSnapshot(StorageSnapshot snapshot) {
             saved.countDown();
             return result;
         }
 
+        @Override public boolean saveChanges(StorageSnapshot base, StorageSnapshot snapshot) {
+            bases.add(base);
+            return saveSnapshot(snapshot);
+        }
+
         @Override public Map<String, Object> snapshot() {
             return Map.of("last_error", "simulated failure");
         }
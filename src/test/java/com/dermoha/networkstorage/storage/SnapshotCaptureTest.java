@@ -0,0 +1,54 @@
+package com.dermoha.networkstorage.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SnapshotCaptureTest {
+
+    @Test
+    void onlyNetworksWithANewPersistenceVersionAreCopiedAgain() {
+        Network main = new Network("Main", UUID.randomUUID(), null);
+        Network other = new Network("Other", UUID.randomUUID(), null);
+        SnapshotCapture capture = new SnapshotCapture();
+
+        StorageSnapshot first = capture.capture(List.of(main, other), Map.of(), Map.of());
+        assertEquals(2, capture.lastRecaptured());
+
+        long version = main.getPersistenceVersion();
+        main.setDescription("changed");
+        main.setDirty(false);
+        assertEquals(version + 1, main.getPersistenceVersion(), "clearing the dirty flag keeps the version");
+
+        StorageSnapshot second = capture.capture(List.of(main, other), Map.of(), Map.of());
+        assertEquals(1, capture.lastRecaptured());
+        assertNotSame(first.networks().get(0), second.networks().get(0));
+        assertEquals("changed", second.networks().get(0).description());
+        assertSame(first.networks().get(1), second.networks().get(1));
+
+        StorageSnapshot withoutMain = capture.capture(List.of(other), Map.of(), Map.of());
+        assertEquals(0, capture.lastRecaptured());
+        assertEquals(List.of(first.networks().get(1)), withoutMain.networks());
+    }
+
+    @Test
+    void unchangedCaptureMatchesAFullCopy() {
+        Network network = new Network("Main", UUID.randomUUID(), null);
+        network.addTrustedPlayer(UUID.randomUUID());
+        network.addUnloadedChest(new StoredLocation("world", 1, 64, 2));
+        SnapshotCapture capture = new SnapshotCapture();
+        Map<UUID, String> selected = Map.of(UUID.randomUUID(), "Main");
+
+        capture.capture(List.of(network), selected, Map.of());
+        StorageSnapshot reused = capture.capture(List.of(network), selected, Map.of());
+
+        assertEquals(0, capture.lastRecaptured());
+        assertEquals(StorageSnapshot.capture(List.of(network), selected, Map.of()), reused);
+    }
+}
@@ -0,0 +1,108 @@
+package com.dermoha.networkstorage.storage;
+
+import com.dermoha.networkstorage.TestItemStack;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StorageCellTest {
+
+    private static final ItemKey DIAMOND = ItemKey.of(new TestItemStack(Material.DIAMOND, 1));
+    private static final ItemKey STONE = ItemKey.of(new TestItemStack(Material.STONE, 1));
+
+    @Test
+    void insertStopsAtCapacityAndExtractStopsAtStock() {
+        StorageCell cell = new StorageCell(1, 100L, new CountingCodec());
+
+        assertEquals(60L, cell.insert(DIAMOND, 60L));
+        assertEquals(40L, cell.insert(STONE, 64L), "only the free space is accepted");
+        assertEquals(0L, cell.insert(STONE, 1L));
+        assertEquals(100L, cell.storedAmount());
+
+        assertEquals(60L, cell.extract(DIAMOND, 64L));
+        assertEquals(0L, cell.count(DIAMOND));
+        assertEquals(40L, cell.count(STONE));
+        assertEquals(60L, cell.freeSpace());
+    }
+
+    @Test
+    void unchangedRestoredCellHandsBackItsStoredRows() {
+        CountingCodec codec = new CountingCodec();
+        StorageSnapshot.CellData stored = new StorageSnapshot.CellData(3, 500L,
+                List.of(row("DIAMOND", 12L), row("STONE", 30L)));
+        StorageCell cell = StorageCell.restore(stored, codec);
+
+        assertEquals(42L, cell.storedAmount(), "totals are known before the items are decoded");
+        assertEquals(12L, cell.count(DIAMOND));
+        assertSame(stored, cell.toData());
+        assertEquals(0, codec.encoded);
+    }
+
+    @Test
+    void changedCellEncodesOnlyItemsItHasNotStoredBefore() {
+        CountingCodec codec = new CountingCodec();
+        StorageCell cell = StorageCell.restore(new StorageSnapshot.CellData(1, 500L,
+                List.of(row("DIAMOND", 12L))), codec);
+
+        cell.insert(DIAMOND, 3L);
+        cell.insert(STONE, 5L);
+        StorageSnapshot.CellData data = cell.toData();
+
+        assertEquals(1, codec.encoded, "the diamond row is reused");
+        assertEquals(2, data.items().size());
+        assertTrue(data.items().contains(row("DIAMOND", 15L)));
+        assertTrue(data.items().contains(row("STONE", 5L)));
+        assertSame(data, cell.toData());
+    }
+
+    @Test
+    void unreadableRowsAreKeptAndStillUseCapacity() {
+        StorageCell cell = StorageCell.restore(new StorageSnapshot.CellData(1, 20L,
+                List.of(row("REMOVED_IN_UPDATE", 15L))), new CountingCodec());
+
+        assertEquals(1, cell.unreadableRows());
+        assertTrue(cell.contents().isEmpty());
+        assertFalse(cell.isEmpty());
+        assertEquals(5L, cell.insert(DIAMOND, 10L));
+        assertTrue(cell.toData().items().contains(row("REMOVED_IN_UPDATE", 15L)));
+    }
+
+    @Test
+    void rejectsInvalidIdsAndCapacities() {
+        assertThrows(IllegalArgumentException.class, () -> new StorageCell(0, 10L));
+        assertThrows(IllegalArgumentException.class, () -> new StorageCell(1, 0L));
+    }
+
+    static StorageSnapshot.CellItemData row(String material, long amount) {
+        return new StorageSnapshot.CellItemData(material.getBytes(StandardCharsets.UTF_8), amount);
+    }
+
+    /** Stores items as their material name. */
+    static final class CountingCodec implements StorageCell.Codec {
+        int encoded;
+
+        @Override
+        public byte[] encode(ItemKey key) {
+            encoded++;
+            return key.getType().name().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public ItemStack decode(byte[] item) {
+            try {
+                return new TestItemStack(Material.valueOf(new String(item, StandardCharsets.UTF_8)), 1);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
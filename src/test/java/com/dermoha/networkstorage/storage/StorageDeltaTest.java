@@ -0,0 +1,94 @@
+package com.dermoha.networkstorage.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StorageDeltaTest {
+
+    private static final UUID OWNER = UUID.randomUUID();
+    private static final StorageSnapshot.LocationData FIRST = new StorageSnapshot.LocationData("world", 0, 64, 0);
+    private static final StorageSnapshot.LocationData SECOND = new StorageSnapshot.LocationData("world", 1, 64, 0);
+
+    @Test
+    void unchangedNetworksProduceNoRows() {
+        StorageSnapshot snapshot = snapshot(network("Main", "", List.of(FIRST, SECOND)));
+        StorageSnapshot reordered = snapshot(network("Main", "", List.of(SECOND, FIRST)));
+
+        assertTrue(StorageDelta.between(snapshot, snapshot).isEmpty());
+        assertTrue(StorageDelta.between(snapshot, reordered).isEmpty(), "location order is not a change");
+    }
+
+    @Test
+    void onlyChangedRowsAreListed() {
+        StorageSnapshot before = snapshot(network("Main", "", List.of(FIRST)));
+        StorageSnapshot after = snapshot(network("Main", "", List.of(SECOND)));
+
+        StorageDelta delta = StorageDelta.between(before, after);
+        assertEquals(1, delta.changedNetworks().size());
+        StorageDelta.NetworkChange change = delta.changedNetworks().get(0);
+        assertFalse(change.metadataChanged());
+        assertEquals(List.of(SECOND), change.addedChests());
+        assertEquals(List.of(FIRST), change.removedChests());
+        assertEquals(2L, delta.rowCount());
+    }
+
+    @Test
+    void renamesRemoveTheOldNetworkAndAddTheNewOne() {
+        StorageSnapshot before = new StorageSnapshot(List.of(network("Old", "", List.of(FIRST))),
+                Map.of(OWNER, "Old"), Map.of());
+        StorageSnapshot after = new StorageSnapshot(List.of(network("New", "", List.of(FIRST))),
+                Map.of(OWNER, "New"), Map.of());
+
+        StorageDelta delta = StorageDelta.between(before, after);
+        assertEquals(List.of("Old"), delta.removedNetworks());
+        assertTrue(delta.changedNetworks().get(0).metadataChanged());
+        assertEquals(List.of(FIRST), delta.changedNetworks().get(0).addedChests());
+        assertEquals(new StorageDelta.PlayerState("New", null), delta.upsertedPlayers().get(OWNER));
+
+        StorageDelta cleared = StorageDelta.between(after, new StorageSnapshot(List.of(), Map.of(), Map.of()));
+        assertEquals(List.of("New"), cleared.removedNetworks());
+        assertEquals(Set.of(OWNER), cleared.removedPlayers());
+    }
+
+    @Test
+    void storageCellsWriteOnlyTheItemRowsThatChanged() {
+        StorageSnapshot.CellItemData diamonds = StorageCellTest.row("DIAMOND", 10L);
+        StorageSnapshot.CellItemData stone = StorageCellTest.row("STONE", 64L);
+        StorageSnapshot before = snapshot(network("Main", List.of(
+                new StorageSnapshot.CellData(1, 1000L, List.of(diamonds, stone)),
+                new StorageSnapshot.CellData(2, 1000L, List.of()))));
+        StorageSnapshot after = snapshot(network("Main", List.of(
+                new StorageSnapshot.CellData(1, 1000L, List.of(StorageCellTest.row("DIAMOND", 4L))))));
+
+        StorageDelta.NetworkChange change = StorageDelta.between(before, after).changedNetworks().get(0);
+        assertEquals(List.of(), change.upsertedCells(), "cell 1 itself is unchanged");
+        assertEquals(List.of(2), change.removedCells());
+        assertEquals(List.of(new StorageDelta.CellItemChange(1, StorageCellTest.row("DIAMOND", 4L))),
+                change.upsertedCellItems());
+        assertEquals(List.of(new StorageDelta.CellItemChange(1, stone)), change.removedCellItems());
+        assertEquals(3L, change.rowCount());
+    }
+
+    private static StorageSnapshot snapshot(StorageSnapshot.NetworkData network) {
+        return new StorageSnapshot(List.of(network), Map.of(), Map.of());
+    }
+
+    private static StorageSnapshot.NetworkData network(String name, String description,
+                                                       List<StorageSnapshot.LocationData> chests) {
+        return new StorageSnapshot.NetworkData(name, OWNER, description, chests, List.of(), List.of(),
+                List.of(), List.of());
+    }
+
+    private static StorageSnapshot.NetworkData network(String name, List<StorageSnapshot.CellData> cells) {
+        return new StorageSnapshot.NetworkData(name, OWNER, "", List.of(), List.of(), List.of(),
+                List.of(), List.of(), cells);
+    }
+}
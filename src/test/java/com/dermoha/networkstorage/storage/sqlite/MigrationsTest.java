@@ -25,7 +25,9 @@ class MigrationsTest {
 
             String[] expectedTables = {
                     "networks", "network_chests", "network_terminals", "network_senders",
-                    "network_trusted", "network_stats", "player_state", "storage_metadata"
+                    "network_trusted", "network_stats", "player_state", "storage_metadata",
+                    "network_scan_cache", "network_scan_cache_items",
+                    "network_cells", "network_cell_items"
             };
             for (String table : expectedTables) {
                 try (Statement s = conn.createStatement();
@@ -43,9 +45,11 @@ class MigrationsTest {
 
     @Test
     void migrationTargetVersionsReachCurrentSchema() {
-        assertEquals(3, Migrations.CURRENT_VERSION);
+        assertEquals(5, Migrations.CURRENT_VERSION);
         assertEquals(1, Migrations.all().get(0).targetVersion());
         assertEquals(2, Migrations.all().get(1).targetVersion());
         assertEquals(3, Migrations.all().get(2).targetVersion());
+        assertEquals(4, Migrations.all().get(3).targetVersion());
+        assertEquals(5, Migrations.all().get(4).targetVersion());
     }
 }
@@ -1,9 +1,13 @@
 package com.dermoha.networkstorage.storage.sqlite;
 
 import com.dermoha.networkstorage.stats.PlayerStat;
+import com.dermoha.networkstorage.storage.CachedScan;
 import com.dermoha.networkstorage.storage.Network;
 import com.dermoha.networkstorage.storage.NetworkAccessRules;
+import com.dermoha.networkstorage.storage.PersistenceCoordinator;
+import com.dermoha.networkstorage.storage.SnapshotCapture;
 import com.dermoha.networkstorage.storage.StorageException;
+import com.dermoha.networkstorage.storage.StorageSnapshot;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,13 +17,17 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.DriverManager;
 import java.sql.Statement;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -106,6 +114,80 @@ class SqliteProviderIntegrationTest {
         }
     }
 
+    @Test
+    void rowLevelChangesMatchAFullSnapshotOfTheSameState() throws Exception {
+        SqliteNetworkStorageProvider provider = new SqliteNetworkStorageProvider(database.toFile());
+        provider.initialize();
+        UUID owner = UUID.randomUUID();
+        UUID friend = UUID.randomUUID();
+        StorageSnapshot.LocationData kept = new StorageSnapshot.LocationData("world", 1, 64, 1);
+        StorageSnapshot.LocationData dropped = new StorageSnapshot.LocationData("world", 2, 64, 2);
+        StorageSnapshot.LocationData added = new StorageSnapshot.LocationData("world_nether", 3, 40, 3);
+        StorageSnapshot before = new StorageSnapshot(List.of(
+                new StorageSnapshot.NetworkData("Main", owner, "old", List.of(kept, dropped), List.of(kept), List.of(),
+                        List.of(new StorageSnapshot.TrustedPlayer(friend, null)),
+                        List.of(new StorageSnapshot.PlayerStatData(owner, "Alex", 1, 0))),
+                new StorageSnapshot.NetworkData("Renamed", owner, "", List.of(added), List.of(), List.of(),
+                        List.of(), List.of())),
+                Map.of(owner, "Main"), Map.of(friend, "Renamed"));
+        StorageSnapshot after = new StorageSnapshot(List.of(
+                new StorageSnapshot.NetworkData("Main", owner, "new", List.of(kept, added), List.of(kept), List.of(dropped),
+                        List.of(new StorageSnapshot.TrustedPlayer(friend, 99L)),
+                        List.of(new StorageSnapshot.PlayerStatData(owner, "Alex", 5, 2))),
+                new StorageSnapshot.NetworkData("Vault", owner, "", List.of(added), List.of(), List.of(),
+                        List.of(), List.of())),
+                Map.of(owner, "Vault"), Map.of());
+        try {
+            assertTrue(provider.saveSnapshot(before));
+            provider.verifySnapshot(before);
+
+            assertTrue(provider.saveChanges(before, after));
+            provider.verifySnapshot(after);
+
+            StorageSnapshot invalid = new StorageSnapshot(after.networks(), Map.of(owner, "Missing"), Map.of());
+            assertFalse(provider.saveChanges(after, invalid));
+            provider.verifySnapshot(after);
+        } finally {
+            provider.shutdown();
+        }
+    }
+
+    @Test
+    void storageCellsSurviveDeltaWritesAndReload() throws Exception {
+        SqliteNetworkStorageProvider provider = new SqliteNetworkStorageProvider(database.toFile());
+        provider.initialize();
+        UUID owner = UUID.randomUUID();
+        byte[] diamond = "diamond".getBytes(StandardCharsets.UTF_8);
+        byte[] stone = "stone".getBytes(StandardCharsets.UTF_8);
+        StorageSnapshot before = new StorageSnapshot(List.of(
+                new StorageSnapshot.NetworkData("Main", owner, "", List.of(), List.of(), List.of(), List.of(), List.of(),
+                        List.of(new StorageSnapshot.CellData(1, 1000L, List.of(
+                                        new StorageSnapshot.CellItemData(diamond, 10L),
+                                        new StorageSnapshot.CellItemData(stone, 64L))),
+                                new StorageSnapshot.CellData(2, 500L, List.of())))),
+                Map.of(), Map.of());
+        StorageSnapshot after = new StorageSnapshot(List.of(
+                new StorageSnapshot.NetworkData("Main", owner, "", List.of(), List.of(), List.of(), List.of(), List.of(),
+                        List.of(new StorageSnapshot.CellData(1, 1000L, List.of(
+                                new StorageSnapshot.CellItemData(diamond, 3L)))))),
+                Map.of(), Map.of());
+        try {
+            assertTrue(provider.saveSnapshot(before));
+            assertTrue(provider.saveChanges(before, after));
+            assertEquals(after.digest(), provider.canonicalDigest());
+
+            Map<String, Network> loaded = new HashMap<>();
+            provider.loadNetworks(loaded, new HashMap<>(), new HashMap<>());
+            Network network = loaded.get("Main");
+            assertEquals(1, network.getStorageCells().size());
+            assertEquals(after.networks().get(0).cells().get(0), network.getStorageCell(1).toData());
+            assertEquals(3L, network.getStorageCellAmount());
+            assertEquals(1L, provider.snapshot().get("storage_cell_items"));
+        } finally {
+            provider.shutdown();
+        }
+    }
+
     @Test
     void backupUsesASeparateVerifiedDatabase() throws Exception {
         SqliteNetworkStorageProvider provider = new SqliteNetworkStorageProvider(database.toFile());
@@ -247,6 +329,118 @@ class SqliteProviderIntegrationTest {
         }
     }
 
+    @Test
+    void bulkLoadAttachesChildRowsToTheirOwnNetworks() throws Exception {
+        SqliteNetworkStorageProvider provider = new SqliteNetworkStorageProvider(database.toFile());
+        provider.initialize();
+        UUID trusted = UUID.randomUUID();
+        try {
+            try (var connection = DriverManager.getConnection("jdbc:sqlite:" + database);
+                 var statement = connection.createStatement()) {
+                for (String name : List.of("Alpha", "Beta", "Gamma")) {
+                    statement.execute("INSERT INTO networks(name, owner, description) VALUES('" + name + "', '"
+                            + UUID.randomUUID() + "', '')");
+                }
+                statement.execute("INSERT INTO network_chests(network_name, world, x, y, z) VALUES"
+                        + "('Alpha', 'w', 1, 64, 0), ('Gamma', 'w', 2, 64, 0), ('Gamma', 'w', 3, 64, 0)");
+                statement.execute("INSERT INTO network_senders(network_name, world, x, y, z) VALUES('Beta', 'w', 4, 64, 0)");
+                statement.execute("INSERT INTO network_trusted(network_name, player_uuid) VALUES('Beta', '" + trusted + "')");
+                statement.execute("INSERT INTO network_stats(network_name, player_uuid, player_name, deposited, withdrawn) "
+                        + "VALUES('Gamma', '" + trusted + "', 'Steve', 5, 2)");
+            }
+
+            Map<String, Network> networks = new HashMap<>();
+            provider.loadNetworks(networks, new HashMap<>(), new HashMap<>());
+
+            assertEquals(1, networks.get("Alpha").getUnloadedChestLocations().size());
+            assertTrue(networks.get("Beta").getUnloadedChestLocations().isEmpty());
+            assertEquals(2, networks.get("Gamma").getUnloadedChestLocations().size());
+            assertEquals(1, networks.get("Beta").getUnloadedSenderChestLocations().size());
+            assertTrue(networks.get("Beta").isTrusted(trusted));
+            assertFalse(networks.get("Alpha").isTrusted(trusted));
+            assertEquals(5L, networks.get("Gamma").getPlayerStats().get(trusted).getItemsDeposited());
+            assertTrue(networks.values().stream().noneMatch(Network::isDirty));
+            assertTrue(provider.snapshot().containsKey("load_ms_chests"));
+        } finally {
+            provider.shutdown();
+        }
+    }
+
+    @Test
+    void theFirstSaveAfterALoadOnlyWritesTheChangedRow() throws Exception {
+        SqliteNetworkStorageProvider provider = new SqliteNetworkStorageProvider(database.toFile());
+        provider.initialize();
+        try {
+            try (var connection = DriverManager.getConnection("jdbc:sqlite:" + database);
+                 var statement = connection.createStatement()) {
+                for (String name : List.of("Alpha", "Beta")) {
+                    statement.execute("INSERT INTO networks(name, owner, description) VALUES('" + name + "', '"
+                            + UUID.randomUUID() + "', '')");
+                }
+                statement.execute("INSERT INTO network_chests(network_name, world, x, y, z) VALUES"
+                        + "('Alpha', 'w', 1, 64, 0), ('Beta', 'w', 2, 64, 0)");
+                statement.execute("CREATE TABLE deleted_rows(tbl TEXT)");
+                statement.execute("CREATE TRIGGER log_chest_delete AFTER DELETE ON network_chests "
+                        + "BEGIN INSERT INTO deleted_rows VALUES('network_chests'); END");
+                statement.execute("CREATE TRIGGER log_network_delete AFTER DELETE ON networks "
+                        + "BEGIN INSERT INTO deleted_rows VALUES('networks'); END");
+            }
+
+            Map<String, Network> networks = new HashMap<>();
+            Map<UUID, String> selected = new HashMap<>();
+            Map<UUID, String> wireless = new HashMap<>();
+            provider.loadNetworks(networks, selected, wireless);
+            SnapshotCapture capture = new SnapshotCapture();
+            try (PersistenceCoordinator coordinator = new PersistenceCoordinator(provider, Logger.getAnonymousLogger(), 0)) {
+                coordinator.markPersisted(capture.capture(networks.values(), selected, wireless));
+
+                networks.get("Alpha").setDescription("renamed vault");
+                coordinator.request(capture.capture(networks.values(), selected, wireless));
+                assertTrue(coordinator.flush(Duration.ofSeconds(5)));
+            }
+
+            assertEquals(0L, count(provider, "deleted_rows"), "no row was deleted and inserted again");
+            assertEquals(2L, count(provider, "network_chests"));
+            try (var connection = DriverManager.getConnection("jdbc:sqlite:" + database);
+                 var statement = connection.createStatement();
+                 var result = statement.executeQuery("SELECT description FROM networks WHERE name = 'Alpha'")) {
+                assertTrue(result.next());
+                assertEquals("renamed vault", result.getString(1));
+            }
+        } finally {
+            provider.shutdown();
+        }
+    }
+
+    @Test
+    void scanCacheRoundTripsAndFollowsItsNetwork() throws Exception {
+        SqliteNetworkStorageProvider provider = new SqliteNetworkStorageProvider(database.toFile());
+        provider.initialize();
+        try {
+            Network main = network("Main", UUID.randomUUID());
+            assertTrue(provider.saveSnapshot(List.of(main), Map.of(), Map.of()));
+            byte[] fingerprint = {1, 2, 3};
+            CachedScan scan = new CachedScan("Main", 4, 2, 2, 4, 96L, 108L, 3L, 1234L,
+                    List.of(new CachedScan.CachedItem(fingerprint, 96L)));
+            CachedScan uncommitted = new CachedScan("Missing", 0, 0, 0, 0, 0L, 0L, 0L, 1L, List.of());
+
+            assertTrue(provider.saveScanCache(List.of(scan, uncommitted)));
+            List<CachedScan> loaded = provider.loadScanCache();
+            assertEquals(1, loaded.size(), "scans of networks that were never saved are dropped");
+            assertEquals("Main", loaded.get(0).networkName());
+            assertEquals(108L, loaded.get(0).totalSlots());
+            assertEquals(1234L, loaded.get(0).scannedAtMs());
+            assertArrayEquals(fingerprint, loaded.get(0).items().get(0).fingerprint());
+            assertEquals(96L, loaded.get(0).items().get(0).amount());
+
+            assertTrue(provider.saveSnapshot(List.of(), Map.of(), Map.of()));
+            assertTrue(provider.loadScanCache().isEmpty(), "deleting a network deletes its cached scan");
+            assertEquals(0L, count(provider, "network_scan_cache_items"));
+        } finally {
+            provider.shutdown();
+        }
+    }
+
     @Test
     void rejectsStoredCaseInsensitiveNetworkNameCollisions() throws Exception {
         SqliteNetworkStorageProvider provider = new SqliteNetworkStorageProvider(database.toFile());